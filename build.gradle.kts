@@ -38,6 +38,7 @@ dependencies {
     implementation(gradleTestKit())
 
     testImplementation(group = "org.hamcrest", name = "hamcrest-all", version = hamcrestVersion)
+    testImplementation(group = "org.junit.jupiter", name = "junit-jupiter-params", version = junitVersion)
     testImplementation(gradleTestKit())
 
     testRuntimeOnly(group = "org.junit.jupiter", name = "junit-jupiter-engine", version = junitVersion)
@@ -103,6 +104,9 @@ configure<JavaPluginConvention> {
 
 tasks.test {
     useJUnitPlatform()
+
+    // lets test classes (e.g. ConcurrentExecutionTests) opt-in to concurrent execution
+    systemProperty( "junit.jupiter.execution.parallel.enabled", "true" )
 }
 
 val generateMarkerFileTask = task( "generateLocalMarkerFile" ) {
@@ -157,6 +161,64 @@ val generateMarkerFileTask = task( "generateLocalMarkerFile" ) {
 
 tasks.processTestResources.get().finalizedBy( generateMarkerFileTask )
 
+// ###########################################################################
+// JMH benchmarks for staging and runner creation - `gradlew jmh`, results are
+// written to `build/reports/jmh/results.json`
+
+val jmhVersion = "1.23"
+
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations.getByName( jmh.implementationConfigurationName ).extendsFrom( configurations.implementation.get(), configurations.api.get() )
+
+dependencies {
+    "jmhImplementation"(group = "org.openjdk.jmh", name = "jmh-core", version = jmhVersion)
+    "jmhAnnotationProcessor"(group = "org.openjdk.jmh", name = "jmh-generator-annprocess", version = jmhVersion)
+}
+
+// makes the plugin-under-test metadata available to `GradleRunner#withPluginClasspath`
+gradlePlugin.testSourceSets( sourceSets.test.get(), jmh )
+
+val jmhWorkDir = file( "$buildDir/jmh" )
+val jmhLocatorDir = file( "$jmhWorkDir/locator" )
+
+// the locator file has to exist before the benchmark JVMs start, for them to find it on the classpath
+val jmhFixtures = tasks.register<JavaExec>( "jmhFixtures" ) {
+    description = "Generates the fixtures of the JMH benchmarks, along with the TestKit locator file"
+
+    main = "com.github.sebersole.testkit.BenchmarkFixture"
+    classpath = jmh.runtimeClasspath
+    systemProperty( "testkit.benchmark.dir", jmhWorkDir.absolutePath )
+
+    outputs.dir( jmhLocatorDir )
+}
+
+tasks.register<JavaExec>( "jmh" ) {
+    group = "verification"
+    description = "Runs the JMH benchmarks"
+
+    main = "org.openjdk.jmh.Main"
+    classpath = jmh.runtimeClasspath + files( jmhLocatorDir ).builtBy( jmhFixtures )
+    systemProperty( "testkit.benchmark.dir", jmhWorkDir.absolutePath )
+
+    val resultsFile = file( "$buildDir/reports/jmh/results.json" )
+    outputs.file( resultsFile )
+    outputs.upToDateWhen { false }
+
+    // `-prof gc` adds the allocation rates
+    args( "-rf", "json", "-rff", resultsFile.absolutePath, "-prof", "gc" )
+    if ( project.hasProperty( "jmhInclude" ) ) {
+        args( project.property( "jmhInclude" ).toString() )
+    }
+
+    doFirst {
+        resultsFile.parentFile.mkdirs()
+    }
+}
+
 // ###########################################################################
 
 
@@ -0,0 +1,163 @@
+package com.github.sebersole.testkit;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * The synthetic TestKit projects used by the benchmarks
+ */
+public enum BenchmarkFixture {
+	/**
+	 * Many small source files in a shallow tree
+	 */
+	SMALL_FILES {
+		@Override
+		void generate(Path projectDir, Random random) throws IOException {
+			for ( int i = 0; i < 2000; i++ ) {
+				write( projectDir.resolve( "src/main/java/pkg" + ( i % 20 ) + "/Source" + i + ".java" ), source( i ) );
+			}
+		}
+	},
+
+	/**
+	 * A few large, vendored jars
+	 */
+	LARGE_JARS {
+		@Override
+		void generate(Path projectDir, Random random) throws IOException {
+			write( projectDir.resolve( "gradle/wrapper/gradle-wrapper.jar" ), randomBytes( random, 64 * 1024 ) );
+			for ( int i = 0; i < 8; i++ ) {
+				write( projectDir.resolve( "libs/lib" + i + ".jar" ), randomBytes( random, 8 * 1024 * 1024 ) );
+			}
+		}
+	},
+
+	/**
+	 * Few files per directory, nested deeply
+	 */
+	DEEP_TREE {
+		@Override
+		void generate(Path projectDir, Random random) throws IOException {
+			for ( int branch = 0; branch < 10; branch++ ) {
+				Path dir = projectDir.resolve( "src/main/java" );
+				for ( int depth = 0; depth < 25; depth++ ) {
+					dir = dir.resolve( "level" + depth + "_" + branch );
+					write( dir.resolve( "Source" + depth + ".java" ), source( depth ) );
+				}
+			}
+		}
+	};
+
+	/**
+	 * The system property naming the directory in which the fixtures and the TestKit
+	 * locator file are generated.  The {@code locator} sub-directory is expected to be
+	 * on the benchmark classpath
+	 */
+	public static final String WORK_DIR_PROPERTY = "testkit.benchmark.dir";
+
+	/**
+	 * Generate the fixtures ahead of the benchmarks - see the {@code jmhFixtures} task
+	 */
+	public static void main(String[] args) throws IOException {
+		prepare();
+	}
+
+	abstract void generate(Path projectDir, Random random) throws IOException;
+
+	/**
+	 * The name of the fixture as TestKit project
+	 */
+	public String projectName() {
+		return name().toLowerCase( Locale.ROOT );
+	}
+
+	public static Path workDir() {
+		return Paths.get( System.getProperty( WORK_DIR_PROPERTY, "build/jmh" ) ).toAbsolutePath();
+	}
+
+	/**
+	 * Generate all fixtures under {@code <work-dir>/testKit}, unless already generated,
+	 * plus the locator file pointing {@link ProjectContainer} to them
+	 *
+	 * @return The TestKit base directory
+	 */
+	public static synchronized Path prepare() throws IOException {
+		final Path workDir = workDir();
+		final Path baseDir = workDir.resolve( "testKit" );
+
+		for ( BenchmarkFixture fixture : values() ) {
+			final Path projectDir = baseDir.resolve( fixture.projectName() );
+			if ( Files.isDirectory( projectDir ) ) {
+				continue;
+			}
+
+			write( projectDir.resolve( "settings.gradle" ), "rootProject.name = '" + fixture.projectName() + "'" );
+			write( projectDir.resolve( "build.gradle" ), "plugins { id 'java' }" );
+			fixture.generate( projectDir, new Random( fixture.ordinal() ) );
+		}
+
+		final Path indexFile = workDir.resolve( TestKitPlugin.INDEX_FILE_NAME );
+		FixtureIndex.build( baseDir.toFile() ).write( indexFile.toFile() );
+
+		final Path locatorFile = workDir.resolve( "locator/" + TestKitPlugin.MARKER_FILE_NAME );
+		Files.createDirectories( locatorFile.getParent() );
+		try ( Writer writer = Files.newBufferedWriter( locatorFile, UTF_8 ) ) {
+			writer.write( TestKitPlugin.TESTKIT_BASE_DIR + "=" + escape( baseDir ) + "\n" );
+			writer.write( TestKitPlugin.TESTKIT_STAGING_DIR + "=" + escape( workDir.resolve( "staging" ) ) + "\n" );
+			writer.write( TestKitPlugin.TESTKIT_INDEX_FILE + "=" + escape( indexFile ) + "\n" );
+			writer.write( TestKitPlugin.TESTKIT_RUNNER_DIR + "=" + escape( workDir.resolve( "runners" ) ) + "\n" );
+		}
+
+		return baseDir;
+	}
+
+	private static String escape(Path path) {
+		return path.toString().replace( "\\", "\\\\" );
+	}
+
+	private static byte[] source(int i) {
+		return ( "class Source" + i + " {\n\tint value() { return " + i + "; }\n}\n" ).getBytes( UTF_8 );
+	}
+
+	private static byte[] randomBytes(Random random, int size) {
+		final byte[] bytes = new byte[size];
+		random.nextBytes( bytes );
+		return bytes;
+	}
+
+	private static void write(Path file, String content) throws IOException {
+		write( file, content.getBytes( UTF_8 ) );
+	}
+
+	private static void write(Path file, byte[] content) throws IOException {
+		Files.createDirectories( file.getParent() );
+		Files.write( file, content );
+	}
+
+	/**
+	 * Create a new, empty directory to stage into
+	 */
+	static Path createTargetDir() throws IOException {
+		final Path targetsDir = Files.createDirectories( workDir().resolve( "targets" ) );
+		return Files.createTempDirectory( targetsDir, "target" );
+	}
+
+	static void delete(Path directory) throws IOException {
+		if ( !Files.exists( directory ) ) {
+			return;
+		}
+		try ( Stream<Path> paths = Files.walk( directory ) ) {
+			paths.sorted( Collections.reverseOrder() ).map( Path::toFile ).forEach( File::delete );
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package com.github.sebersole.testkit;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks copying a TestKit project with {@link DirectoryCopier}, and linking it
+ * ({@link StagingMode#LINK}) instead
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class DirectoryCopierBenchmark {
+	@Param( { "SMALL_FILES", "LARGE_JARS", "DEEP_TREE" } )
+	public BenchmarkFixture fixture;
+
+	private Path sourceDir;
+	private Path targetDir;
+
+	@Setup( Level.Trial )
+	public void prepareFixture() throws IOException {
+		sourceDir = BenchmarkFixture.prepare().resolve( fixture.projectName() );
+	}
+
+	@Setup( Level.Invocation )
+	public void createTarget() throws IOException {
+		targetDir = BenchmarkFixture.createTargetDir();
+	}
+
+	@TearDown( Level.Invocation )
+	public void deleteTarget() throws IOException {
+		BenchmarkFixture.delete( targetDir );
+	}
+
+	@Benchmark
+	public void copy() {
+		DirectoryCopier.copy( sourceDir, targetDir );
+	}
+
+	@Benchmark
+	public Set<Path> link() {
+		return DirectoryCopier.link( sourceDir, targetDir );
+	}
+}
@@ -0,0 +1,58 @@
+package com.github.sebersole.testkit;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the construction of the {@link ProjectContainer} - locating and reading
+ * the locator file.  Each iteration times a batch of {@value #BATCH_SIZE} constructions (the
+ * reported score); the containers are only released at the end of the iteration, outside of
+ * the measurement
+ */
+@BenchmarkMode( Mode.SingleShotTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, batchSize = ProjectContainerBenchmark.BATCH_SIZE )
+@Measurement( iterations = 5, batchSize = ProjectContainerBenchmark.BATCH_SIZE )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class ProjectContainerBenchmark {
+	static final int BATCH_SIZE = 1000;
+
+	private final List<ProjectContainer> containers = new ArrayList<>( BATCH_SIZE );
+
+	@Setup( Level.Trial )
+	public void prepareFixtures() throws IOException {
+		BenchmarkFixture.prepare();
+	}
+
+	@TearDown( Level.Iteration )
+	public void releaseContainers() {
+		// including draining their cleanup
+		for ( ProjectContainer container : containers ) {
+			container.close();
+		}
+		containers.clear();
+	}
+
+	@Benchmark
+	public ProjectContainer construct() {
+		final ProjectContainer container = new ProjectContainer();
+		containers.add( container );
+		return container;
+	}
+}
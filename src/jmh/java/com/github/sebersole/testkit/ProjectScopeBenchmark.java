@@ -0,0 +1,72 @@
+package com.github.sebersole.testkit;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.gradle.testkit.runner.GradleRunner;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks obtaining a {@link ProjectScope} (staging the project) and creating
+ * a runner from it
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class ProjectScopeBenchmark {
+	@Param( { "SMALL_FILES", "LARGE_JARS", "DEEP_TREE" } )
+	public BenchmarkFixture fixture;
+
+	private ProjectContainer container;
+	private ProjectScope stagedScope;
+	private ProjectScope scope;
+
+	@Setup( Level.Trial )
+	public void createContainer() throws IOException {
+		BenchmarkFixture.prepare();
+		container = new ProjectContainer();
+		stagedScope = container.getProjectScope( fixture.projectName() );
+	}
+
+	@TearDown( Level.Trial )
+	public void closeContainer() {
+		stagedScope.release();
+		container.close();
+	}
+
+	@TearDown( Level.Invocation )
+	public void releaseScope() {
+		if ( scope != null ) {
+			scope.release();
+			scope = null;
+		}
+	}
+
+	@Benchmark
+	public ProjectScope getProjectScope() {
+		scope = container.getProjectScope( fixture.projectName() );
+		return scope;
+	}
+
+	@Benchmark
+	@OutputTimeUnit( TimeUnit.MICROSECONDS )
+	public GradleRunner createGradleRunner() {
+		return stagedScope.createGradleRunner( "tasks" );
+	}
+}
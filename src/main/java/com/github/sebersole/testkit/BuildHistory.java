@@ -0,0 +1,59 @@
+package com.github.sebersole.testkit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.BuildTask;
+
+/**
+ * The builds run by the runners of a {@link ProjectScope}, along with the outcome of each
+ * of their tasks - included in the {@linkplain FailureBundle bundle} of a failed test.
+ * As a scope may be shared by several tests, the start of each test using it is marked.
+ * Only recorded when bundling failed tests.  Safe for concurrent use
+ */
+class BuildHistory {
+	private final List<String> lines = new ArrayList<>();
+	private int builds;
+
+	/**
+	 * Record a completed build
+	 *
+	 * @param outcome How the build completed, e.g. {@code succeeded}
+	 * @param result The result of the build; {@code null} if there is none, e.g. for an
+	 * invalid runner configuration
+	 */
+	synchronized void record(List<String> arguments, String outcome, BuildResult result) {
+		builds++;
+		lines.add( "# build " + builds + " " + arguments + " : " + outcome );
+		if ( result != null ) {
+			for ( BuildTask task : result.getTasks() ) {
+				lines.add( task.getOutcome() + "\t" + task.getPath() );
+			}
+		}
+	}
+
+	/**
+	 * Mark the start of a test using the scope - the builds recorded after belong to it
+	 * (or to a test running concurrently)
+	 */
+	synchronized void testStarting(String testName) {
+		lines.add( "# test " + testName );
+	}
+
+	synchronized int getBuilds() {
+		return builds;
+	}
+
+	/**
+	 * The recorded builds, one line per build followed by one line per task, preceded by
+	 * one line per test starting to use the scope
+	 */
+	synchronized String format() {
+		final StringBuilder text = new StringBuilder();
+		for ( String line : lines ) {
+			text.append( line ).append( '\n' );
+		}
+		return text.toString();
+	}
+}
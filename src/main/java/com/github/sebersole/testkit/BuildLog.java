@@ -0,0 +1,259 @@
+package com.github.sebersole.testkit;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * The output of the builds of a {@link ProjectScope}, streamed to a file as the builds
+ * run.  Only the tail of the output is kept in memory (in a ring buffer); the assertion
+ * helpers search the file without loading it into memory.  Safe for concurrent use - the
+ * standard output and error of a build are forwarded from different threads
+ *
+ * @see BuildOutput#FILE
+ */
+public class BuildLog {
+	/**
+	 * The number of characters of the output kept in memory
+	 */
+	public static final int TAIL_SIZE = 16 * 1024;
+
+	private static final int READ_BUFFER_SIZE = 8 * 1024;
+
+	private final File file;
+	private final Writer fileWriter;
+	private final char[] tail;
+	private int tailPosition;
+	private boolean tailFull;
+	private boolean closed;
+
+	private final Writer writer = new Writer() {
+		@Override
+		public void write(char[] chars, int offset, int length) throws IOException {
+			writeOutput( chars, offset, length );
+		}
+
+		@Override
+		public void flush() throws IOException {
+			BuildLog.this.flush();
+		}
+
+		@Override
+		public void close() {
+			// the log outlives the forwarding of a single build
+		}
+	};
+
+	BuildLog(File file, int tailSize) {
+		this.file = file;
+		this.tail = new char[ tailSize ];
+		try {
+			file.getParentFile().mkdirs();
+			this.fileWriter = Files.newBufferedWriter( file.toPath(), UTF_8 );
+		}
+		catch (IOException e) {
+			throw new IllegalStateException( "Unable to create TestKit build log `" + file + "`", e );
+		}
+	}
+
+	/**
+	 * Create a new, uniquely named log file
+	 *
+	 * @param logDir The directory for the log file; {@code null} indicates the temporary directory
+	 * @param name The prefix of the file name, e.g. the project name
+	 */
+	static BuildLog create(File logDir, String name) {
+		try {
+			final File file;
+			if ( logDir == null ) {
+				file = Files.createTempFile( name + "-", ".log" ).toFile();
+			}
+			else {
+				Files.createDirectories( logDir.toPath() );
+				file = Files.createTempFile( logDir.toPath(), name + "-", ".log" ).toFile();
+			}
+			return new BuildLog( file, TAIL_SIZE );
+		}
+		catch (IOException e) {
+			throw new IllegalStateException( "Unable to create TestKit build log in `" + logDir + "`", e );
+		}
+	}
+
+	/**
+	 * The log file
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * The writer to forward the build output to
+	 */
+	Writer getWriter() {
+		return writer;
+	}
+
+	/**
+	 * Mark the start of a build in the log
+	 */
+	void buildStarting(List<String> arguments) {
+		final String header = "> TestKit build : " + String.join( " ", arguments ) + '\n';
+		try {
+			writeOutput( header.toCharArray(), 0, header.length() );
+		}
+		catch (IOException e) {
+			throw new IllegalStateException( "Unable to write TestKit build log `" + file + "`", e );
+		}
+	}
+
+	private synchronized void writeOutput(char[] chars, int offset, int length) throws IOException {
+		if ( !closed ) {
+			fileWriter.write( chars, offset, length );
+		}
+
+		if ( length >= tail.length ) {
+			System.arraycopy( chars, offset + length - tail.length, tail, 0, tail.length );
+			tailPosition = 0;
+			tailFull = true;
+			return;
+		}
+
+		final int firstPart = Math.min( length, tail.length - tailPosition );
+		System.arraycopy( chars, offset, tail, tailPosition, firstPart );
+		System.arraycopy( chars, offset + firstPart, tail, 0, length - firstPart );
+		if ( tailPosition + length >= tail.length ) {
+			tailFull = true;
+		}
+		tailPosition = ( tailPosition + length ) % tail.length;
+	}
+
+	/**
+	 * The last ({@value #TAIL_SIZE} at most) characters of the output
+	 */
+	public synchronized String getTail() {
+		if ( !tailFull ) {
+			return new String( tail, 0, tailPosition );
+		}
+		return new String( tail, tailPosition, tail.length - tailPosition ) + new String( tail, 0, tailPosition );
+	}
+
+	/**
+	 * Whether the output contains the given text, which may span lines
+	 */
+	public boolean contains(CharSequence text) {
+		final String searched = text.toString();
+		if ( searched.isEmpty() ) {
+			return true;
+		}
+
+		flush();
+		try ( Reader reader = Files.newBufferedReader( file.toPath(), UTF_8 ) ) {
+			// only the end of the previous chunk which could be the start of a match is kept
+			final StringBuilder window = new StringBuilder();
+			final char[] buffer = new char[ Math.max( READ_BUFFER_SIZE, searched.length() ) ];
+			int read;
+			while ( ( read = reader.read( buffer ) ) != -1 ) {
+				window.append( buffer, 0, read );
+				if ( window.indexOf( searched ) >= 0 ) {
+					return true;
+				}
+				window.delete( 0, Math.max( 0, window.length() - searched.length() + 1 ) );
+			}
+			return false;
+		}
+		catch (IOException e) {
+			throw new IllegalStateException( "Unable to read TestKit build log `" + file + "`", e );
+		}
+	}
+
+	/**
+	 * The lines of the output matching the given pattern (anywhere in the line)
+	 */
+	public List<String> findLines(Pattern pattern) {
+		flush();
+		final List<String> lines = new ArrayList<>();
+		try ( BufferedReader reader = Files.newBufferedReader( file.toPath(), UTF_8 ) ) {
+			String line;
+			while ( ( line = reader.readLine() ) != null ) {
+				if ( pattern.matcher( line ).find() ) {
+					lines.add( line );
+				}
+			}
+		}
+		catch (IOException e) {
+			throw new IllegalStateException( "Unable to read TestKit build log `" + file + "`", e );
+		}
+		return lines;
+	}
+
+	/**
+	 * Assert that the output contains the given text
+	 *
+	 * @throws AssertionError if it does not, including the tail of the output
+	 */
+	public void assertContains(CharSequence text) {
+		if ( !contains( text ) ) {
+			throw new AssertionError( "Build output (`" + file + "`) did not contain `" + text + "`; output ended with :\n" + getTail() );
+		}
+	}
+
+	/**
+	 * Assert that the output does not contain the given text
+	 *
+	 * @throws AssertionError if it does, including the tail of the output
+	 */
+	public void assertNotContains(CharSequence text) {
+		if ( contains( text ) ) {
+			throw new AssertionError( "Build output (`" + file + "`) contained `" + text + "`; output ended with :\n" + getTail() );
+		}
+	}
+
+	synchronized void flush() {
+		if ( closed ) {
+			return;
+		}
+		try {
+			fileWriter.flush();
+		}
+		catch (IOException e) {
+			throw new IllegalStateException( "Unable to write TestKit build log `" + file + "`", e );
+		}
+	}
+
+	/**
+	 * Close and delete the log file
+	 */
+	synchronized void delete() {
+		close();
+		try {
+			Files.deleteIfExists( file.toPath() );
+		}
+		catch (IOException e) {
+			throw new IllegalStateException( "Unable to delete TestKit build log `" + file + "`", e );
+		}
+	}
+
+	/**
+	 * Close the log file; the log can still be searched
+	 */
+	synchronized void close() {
+		if ( closed ) {
+			return;
+		}
+		closed = true;
+		try {
+			fileWriter.close();
+		}
+		catch (IOException e) {
+			throw new IllegalStateException( "Unable to close TestKit build log `" + file + "`", e );
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package com.github.sebersole.testkit;
+
+import java.util.Locale;
+
+/**
+ * Where the output of the builds of {@link ProjectScope#createGradleRunner} runners goes
+ *
+ * @see ProjectScope#setBuildOutput
+ */
+public enum BuildOutput {
+	/**
+	 * The output is forwarded to the console of the test.  The default
+	 */
+	CONSOLE,
+
+	/**
+	 * The output of each scope's builds is streamed to its own {@linkplain BuildLog log file},
+	 * keeping only the tail of the output in memory.  Keeps the console of concurrently
+	 * executing tests readable
+	 */
+	FILE;
+
+	/**
+	 * Interpret the setting from the locator file or DSL.  {@code null} or
+	 * empty is interpreted as {@link #CONSOLE}
+	 */
+	public static BuildOutput fromSetting(String setting) {
+		if ( setting == null || setting.trim().isEmpty() ) {
+			return CONSOLE;
+		}
+
+		try {
+			return valueOf( setting.trim().toUpperCase( Locale.ROOT ) );
+		}
+		catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException( "Unrecognized TestKit build output : `" + setting + "`", e );
+		}
+	}
+}
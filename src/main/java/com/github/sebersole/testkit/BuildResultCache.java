@@ -0,0 +1,304 @@
+package com.github.sebersole.testkit;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.FileVisitResult.CONTINUE;
+import static java.nio.file.FileVisitResult.SKIP_SUBTREE;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * An on-disk cache of the results of TestKit builds, so that repeating a build of the same
+ * project (content), with the same arguments, Gradle version, plugin classpath and environment
+ * returns the recorded outcome, task outcomes and output rather than running Gradle again.
+ *
+ * Bounded to a number of entries; the least recently used entries are evicted first.  May be
+ * shared by concurrently executing tests as well as test JVMs.
+ *
+ * A replayed build does not write its outputs to the project directory, so the builds of a
+ * project are {@linkplain #forProject() tracked} - the key of each build includes that of the
+ * previous one, and the replayed builds are run once a later build of the project is not
+ * in the cache after all
+ *
+ * @see TestKitSpec#getCacheBuildResults()
+ */
+class BuildResultCache {
+	private static final String EXTENSION = ".result";
+	private static final String GRADLE_DIR_NAME = ".gradle";
+	private static final String BUILD_DIR_NAME = "build";
+
+	private final File directory;
+	private final int maxEntries;
+
+	// the builds of a single project directory - see #forProject
+	private volatile boolean enabled = true;
+	private String previousKey;
+	private final List<Runnable> pendingBuilds = new ArrayList<>();
+
+	BuildResultCache(File directory, int maxEntries) {
+		this.directory = directory;
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * The cache for the builds of a single project directory (scope), tracking the key of
+	 * the last build and the replayed builds not run yet
+	 */
+	BuildResultCache forProject() {
+		return new BuildResultCache( directory, maxEntries );
+	}
+
+	/**
+	 * Whether results are replayed from (and recorded in) the cache.  Otherwise the builds
+	 * are still tracked, for the cache to be re-enabled later
+	 */
+	boolean isEnabled() {
+		return enabled;
+	}
+
+	void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * The key of the last build of the project; {@code null} if there was none
+	 */
+	synchronized String getPreviousKey() {
+		return previousKey;
+	}
+
+	/**
+	 * Record a build of the project which was run
+	 */
+	synchronized void executed(String key) {
+		previousKey = key;
+	}
+
+	/**
+	 * Record a build of the project which was replayed
+	 *
+	 * @param build Runs the build, for the project directory to reflect it once a later
+	 * build is run
+	 */
+	synchronized void replayed(String key, Runnable build) {
+		previousKey = key;
+		pendingBuilds.add( build );
+	}
+
+	/**
+	 * Run the replayed builds of the project, in order, ahead of a build which is run
+	 */
+	synchronized void runPendingBuilds() {
+		while ( !pendingBuilds.isEmpty() ) {
+			pendingBuilds.remove( 0 ).run();
+		}
+	}
+
+	File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * The key of a build
+	 *
+	 * @param projectDir The project directory, hashed by content - the outputs of previous
+	 * builds ({@code build/} and {@code .gradle/} directories) are left out
+	 * @param gradleDistribution Identifies the Gradle distribution running the build
+	 * @param pluginClasspath The classpath of the plugin under test, hashed by file sizes and
+	 * modification times
+	 * @param environment The environment of the build; {@code null} if inherited
+	 * @param previousKey The key of the previous build of the project, which accounts for
+	 * its outputs; {@code null} if there was none
+	 */
+	static String key(
+			File projectDir,
+			List<String> arguments,
+			String gradleDistribution,
+			List<? extends File> pluginClasspath,
+			Map<String, String> environment,
+			String previousKey) {
+		final MessageDigest digest = newDigest();
+
+		update( digest, "previous" );
+		update( digest, previousKey == null ? "[none]" : previousKey );
+
+		update( digest, "project" );
+		try {
+			final Path projectPath = projectDir.toPath();
+			final Map<String, Path> files = new TreeMap<>();
+			Files.walkFileTree(
+					projectPath,
+					new SimpleFileVisitor<Path>() {
+						@Override
+						public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+							final String name = dir.getFileName().toString();
+							if ( !dir.equals( projectPath ) && ( GRADLE_DIR_NAME.equals( name ) || BUILD_DIR_NAME.equals( name ) ) ) {
+								return SKIP_SUBTREE;
+							}
+							return CONTINUE;
+						}
+
+						@Override
+						public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+							files.put( projectPath.relativize( file ).toString().replace( File.separatorChar, '/' ), file );
+							return CONTINUE;
+						}
+					}
+			);
+			for ( Map.Entry<String, Path> file : files.entrySet() ) {
+				update( digest, file.getKey() + '\t' + FixtureIndex.hash( file.getValue() ) );
+			}
+		}
+		catch (IOException e) {
+			throw new IllegalStateException( "Unable to hash TestKit project directory `" + projectDir + "`", e );
+		}
+
+		update( digest, "arguments" );
+		for ( String argument : arguments ) {
+			update( digest, argument );
+		}
+
+		update( digest, "gradle" );
+		update( digest, gradleDistribution );
+
+		update( digest, "classpath" );
+		for ( File entry : pluginClasspath ) {
+			update( digest, entry.getAbsolutePath() );
+			if ( entry.isDirectory() ) {
+				final List<String> signatures = new ArrayList<>();
+				try {
+					Files.walkFileTree(
+							entry.toPath(),
+							new SimpleFileVisitor<Path>() {
+								@Override
+								public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+									signatures.add( file + "\t" + attrs.size() + '\t' + attrs.lastModifiedTime().toMillis() );
+									return CONTINUE;
+								}
+							}
+					);
+				}
+				catch (IOException e) {
+					throw new IllegalStateException( "Unable to hash plugin classpath entry `" + entry + "`", e );
+				}
+				signatures.sort( null );
+				for ( String signature : signatures ) {
+					update( digest, signature );
+				}
+			}
+			else {
+				update( digest, entry.length() + "\t" + entry.lastModified() );
+			}
+		}
+
+		update( digest, "environment" );
+		if ( environment == null ) {
+			update( digest, "[inherited]" );
+		}
+		else {
+			for ( Map.Entry<String, String> variable : new TreeMap<>( environment ).entrySet() ) {
+				update( digest, variable.getKey() + '=' + variable.getValue() );
+			}
+		}
+
+		final StringBuilder hex = new StringBuilder();
+		for ( byte b : digest.digest() ) {
+			hex.append( String.format( Locale.ROOT, "%02x", b ) );
+		}
+		return hex.toString();
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance( "SHA-256" );
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException( e );
+		}
+	}
+
+	private static void update(MessageDigest digest, String value) {
+		digest.update( value.getBytes( UTF_8 ) );
+		digest.update( (byte) '\n' );
+	}
+
+	/**
+	 * @return The recorded result, or {@code null} if there is none
+	 */
+	RecordedBuildResult load(String key) {
+		final File entry = new File( directory, key + EXTENSION );
+		try ( BufferedReader reader = Files.newBufferedReader( entry.toPath(), UTF_8 ) ) {
+			final RecordedBuildResult result = RecordedBuildResult.read( reader );
+			if ( result != null ) {
+				// most recently used
+				entry.setLastModified( System.currentTimeMillis() );
+			}
+			return result;
+		}
+		catch (NoSuchFileException e) {
+			return null;
+		}
+		catch (IOException | RuntimeException e) {
+			System.out.printf( "Ignoring unreadable TestKit build result `%s` : %s\n", entry, e.getMessage() );
+			return null;
+		}
+	}
+
+	void store(String key, RecordedBuildResult result) {
+		final Path entry = new File( directory, key + EXTENSION ).toPath();
+		try {
+			Files.createDirectories( directory.toPath() );
+			// written aside and moved into place, for the other test JVMs
+			final Path tempFile = Files.createTempFile( directory.toPath(), key, ".tmp" );
+			try ( Writer writer = Files.newBufferedWriter( tempFile, UTF_8 ) ) {
+				result.write( writer );
+			}
+			Files.move( tempFile, entry, REPLACE_EXISTING, ATOMIC_MOVE );
+		}
+		catch (IOException e) {
+			System.out.printf( "Unable to store TestKit build result `%s` : %s\n", entry, e.getMessage() );
+			return;
+		}
+
+		evict();
+	}
+
+	private void evict() {
+		final File[] entries = directory.listFiles( (dir, name) -> name.endsWith( EXTENSION ) );
+		if ( entries == null || entries.length <= maxEntries ) {
+			return;
+		}
+
+		final long[] lastModified = new long[ entries.length ];
+		final Integer[] order = new Integer[ entries.length ];
+		for ( int i = 0; i < entries.length; i++ ) {
+			lastModified[i] = entries[i].lastModified();
+			order[i] = i;
+		}
+		Arrays.sort( order, Comparator.comparingLong( i -> lastModified[i] ) );
+
+		for ( int i = 0; i < entries.length - maxEntries; i++ ) {
+			// possibly already evicted by another JVM
+			entries[ order[i] ].delete();
+		}
+	}
+}
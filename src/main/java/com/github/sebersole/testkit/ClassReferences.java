@@ -0,0 +1,143 @@
+package com.github.sebersole.testkit;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the names of the classes a class file refers to from its constant pool - the
+ * classes it extends, implements, instantiates, calls or casts to (class entries) as well
+ * as the types of its fields, methods and annotations (descriptors and signatures).
+ *
+ * Only classes referenced statically are found; classes loaded reflectively are not
+ */
+class ClassReferences {
+	private static final int MAGIC = 0xCAFEBABE;
+	private static final Pattern DESCRIPTOR_TYPE = Pattern.compile( "L([^;<>:.\\[]+)[;<]" );
+
+	private static final int UTF8 = 1;
+	private static final int INTEGER = 3;
+	private static final int FLOAT = 4;
+	private static final int LONG = 5;
+	private static final int DOUBLE = 6;
+	private static final int CLASS = 7;
+	private static final int STRING = 8;
+	private static final int FIELD_REF = 9;
+	private static final int METHOD_REF = 10;
+	private static final int INTERFACE_METHOD_REF = 11;
+	private static final int NAME_AND_TYPE = 12;
+	private static final int METHOD_HANDLE = 15;
+	private static final int METHOD_TYPE = 16;
+	private static final int DYNAMIC = 17;
+	private static final int INVOKE_DYNAMIC = 18;
+	private static final int MODULE = 19;
+	private static final int PACKAGE = 20;
+
+	private ClassReferences() {
+	}
+
+	/**
+	 * The (binary) names of the classes referenced by the class file, e.g.
+	 * {@code com.acme.Outer$Inner}
+	 *
+	 * @throws IllegalStateException If the file is not a class file
+	 */
+	static Set<String> read(Path classFile) {
+		try ( InputStream stream = Files.newInputStream( classFile ) ) {
+			return read( new DataInputStream( new BufferedInputStream( stream ) ) );
+		}
+		catch (IOException e) {
+			throw new IllegalStateException( "Unable to read class file `" + classFile + "`", e );
+		}
+	}
+
+	private static Set<String> read(DataInputStream input) throws IOException {
+		if ( input.readInt() != MAGIC ) {
+			throw new IOException( "Not a class file" );
+		}
+		// minor and major version
+		input.readUnsignedShort();
+		input.readUnsignedShort();
+
+		final int count = input.readUnsignedShort();
+		final String[] utf8Entries = new String[count];
+		final List<Integer> classNameIndexes = new ArrayList<>();
+		for ( int i = 1; i < count; i++ ) {
+			final int tag = input.readUnsignedByte();
+			switch ( tag ) {
+				case UTF8:
+					utf8Entries[i] = input.readUTF();
+					break;
+				case CLASS:
+					classNameIndexes.add( input.readUnsignedShort() );
+					break;
+				case STRING:
+				case METHOD_TYPE:
+				case MODULE:
+				case PACKAGE:
+					input.skipBytes( 2 );
+					break;
+				case METHOD_HANDLE:
+					input.skipBytes( 3 );
+					break;
+				case INTEGER:
+				case FLOAT:
+				case FIELD_REF:
+				case METHOD_REF:
+				case INTERFACE_METHOD_REF:
+				case NAME_AND_TYPE:
+				case DYNAMIC:
+				case INVOKE_DYNAMIC:
+					input.skipBytes( 4 );
+					break;
+				case LONG:
+				case DOUBLE:
+					input.skipBytes( 8 );
+					// takes up two entries
+					i++;
+					break;
+				default:
+					throw new IOException( "Unknown constant pool tag " + tag );
+			}
+		}
+
+		final Set<String> references = new TreeSet<>();
+		for ( int index : classNameIndexes ) {
+			final String name = utf8Entries[index];
+			if ( name == null ) {
+				continue;
+			}
+			if ( name.startsWith( "[" ) ) {
+				// array class - its element type, if any, is a descriptor
+				addDescriptorTypes( name, references );
+			}
+			else {
+				references.add( name.replace( '/', '.' ) );
+			}
+		}
+		for ( String utf8Entry : utf8Entries ) {
+			// any string may be a descriptor or signature; strings which merely look like
+			// one at worst add a class which does not exist
+			if ( utf8Entry != null && utf8Entry.indexOf( 'L' ) >= 0 && utf8Entry.indexOf( ';' ) > 0 ) {
+				addDescriptorTypes( utf8Entry, references );
+			}
+		}
+		return references;
+	}
+
+	private static void addDescriptorTypes(String descriptor, Set<String> references) {
+		final Matcher matcher = DESCRIPTOR_TYPE.matcher( descriptor );
+		while ( matcher.find() ) {
+			references.add( matcher.group( 1 ).replace( '/', '.' ) );
+		}
+	}
+}
@@ -0,0 +1,201 @@
+package com.github.sebersole.testkit;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.file.FileVisitResult.CONTINUE;
+
+/**
+ * Deletes staged project directories in the background.
+ *
+ * The number of pending deletions is bounded - once the queue is full, the
+ * thread requesting the deletion performs it itself.  So does any thread requesting
+ * a deletion after the service is closed.
+ */
+class CleanupService {
+	private static final int QUEUE_CAPACITY = 64;
+
+	private final ThreadPoolExecutor executor;
+	private final Object pendingLock = new Object();
+	private int pending;
+
+	private final AtomicLong bytesReclaimed = new AtomicLong();
+	private final AtomicInteger directoriesDeleted = new AtomicInteger();
+
+	CleanupService() {
+		final int threads = Math.max( 1, Math.min( Runtime.getRuntime().availableProcessors(), 4 ) );
+		final AtomicInteger threadCount = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(
+				threads,
+				threads,
+				30,
+				TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>( QUEUE_CAPACITY ),
+				runnable -> {
+					final Thread thread = new Thread( runnable, "testkit-cleanup-" + threadCount.incrementAndGet() );
+					thread.setDaemon( true );
+					return thread;
+				},
+				// back-pressure - unlike `CallerRunsPolicy`, also deleting on the calling thread once
+				// closed, rather than discarding the deletion and leaving it pending forever
+				(runnable, pool) -> runnable.run()
+		);
+		this.executor.allowCoreThreadTimeOut( true );
+	}
+
+	/**
+	 * Schedule the recursive deletion of the given directory
+	 */
+	void delete(Path directory) {
+		delete( directory, null );
+	}
+
+	/**
+	 * @param metrics Records the time taken by the deletion; may be {@code null}
+	 */
+	void delete(Path directory, ScopeMetrics metrics) {
+		synchronized ( pendingLock ) {
+			pending++;
+		}
+
+		try {
+			executor.execute(
+					() -> {
+						final long start = System.nanoTime();
+						try {
+							reclaimed( deleteRecursively( directory ) );
+						}
+						finally {
+							if ( metrics != null ) {
+								metrics.cleanedUp( System.nanoTime() - start );
+							}
+							completed();
+						}
+					}
+			);
+		}
+		catch (RuntimeException e) {
+			completed();
+			throw e;
+		}
+	}
+
+	private void completed() {
+		synchronized ( pendingLock ) {
+			pending--;
+			if ( pending == 0 ) {
+				pendingLock.notifyAll();
+			}
+		}
+	}
+
+	private void reclaimed(long bytes) {
+		bytesReclaimed.addAndGet( bytes );
+		directoriesDeleted.incrementAndGet();
+	}
+
+	/**
+	 * Wait for all scheduled deletions to complete
+	 */
+	void drain() {
+		synchronized ( pendingLock ) {
+			while ( pending > 0 ) {
+				try {
+					pendingLock.wait();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Drain and stop the background threads
+	 */
+	void close() {
+		drain();
+		executor.shutdown();
+	}
+
+	/**
+	 * The number of bytes freed by the deletions performed so far
+	 */
+	long getBytesReclaimed() {
+		return bytesReclaimed.get();
+	}
+
+	int getDirectoriesDeleted() {
+		return directoriesDeleted.get();
+	}
+
+	/**
+	 * Delete the given directory, and everything in it, on the calling thread.
+	 * Deletion is best effort - problems deleting individual files are ignored
+	 *
+	 * @return The number of bytes freed.  Files which are still linked from elsewhere
+	 * (see {@link StagingMode#LINK}) are not counted
+	 */
+	static long deleteRecursively(Path directory) {
+		final AtomicLong bytes = new AtomicLong();
+		try {
+			Files.walkFileTree(
+					directory,
+					new SimpleFileVisitor<Path>() {
+						@Override
+						public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+							final long size = isShared( file ) ? 0 : attrs.size();
+							if ( deleteQuietly( file ) ) {
+								bytes.addAndGet( size );
+							}
+							return CONTINUE;
+						}
+
+						@Override
+						public FileVisitResult visitFileFailed(Path file, IOException exc) {
+							return CONTINUE;
+						}
+
+						@Override
+						public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+							deleteQuietly( dir );
+							return CONTINUE;
+						}
+					}
+			);
+		}
+		catch (IOException ignore) {
+		}
+		return bytes.get();
+	}
+
+	private static boolean isShared(Path file) {
+		try {
+			final Object linkCount = Files.getAttribute( file, "unix:nlink" );
+			return linkCount instanceof Integer && (Integer) linkCount > 1;
+		}
+		catch (UnsupportedOperationException | IllegalArgumentException | IOException e) {
+			return false;
+		}
+	}
+
+	private static boolean deleteQuietly(Path path) {
+		try {
+			Files.delete( path );
+			return true;
+		}
+		catch (IOException e) {
+			return false;
+		}
+	}
+}
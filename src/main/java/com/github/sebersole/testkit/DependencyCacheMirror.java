@@ -0,0 +1,265 @@
+package com.github.sebersole.testkit;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.Set;
+
+import static java.nio.file.FileVisitResult.CONTINUE;
+import static java.nio.file.FileVisitResult.SKIP_SUBTREE;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.COPY_ATTRIBUTES;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Mirrors the dependency cache ({@code caches/modules-2}) of a Gradle user home into a
+ * directory usable as Gradle's read-only dependency cache ({@code GRADLE_RO_DEP_CACHE}).
+ *
+ * The downloaded files ({@code files-2.1}) never change once written, so are hard-linked
+ * where possible; the metadata is copied.  Lock files and {@code gc.properties} are left
+ * out, as Gradle requires for a read-only cache.  Mirroring an unchanged cache again only
+ * compares file sizes and modification times.
+ *
+ * The mirror may be limited to given module versions - the files and descriptors of other
+ * modules are left out.  The metadata stores shared by all modules are always mirrored;
+ * as the cache may be in use by other builds, each is copied aside and only moved into
+ * place if it did not change while being copied.
+ *
+ * @see SeedDependencyCacheTask
+ */
+class DependencyCacheMirror {
+	static final String MODULES_DIR_NAME = "modules-2";
+	private static final String FILES_DIR_NAME = "files-2.1";
+	private static final String METADATA_DIR_PREFIX = "metadata-";
+	private static final String DESCRIPTORS_DIR_NAME = "descriptors";
+	private static final int COPY_ATTEMPTS = 5;
+
+	private final Path source;
+	private final Path target;
+	private final Set<Path> moduleVersions;
+
+	private boolean linking = true;
+	private int filesLinked;
+	private int filesCopied;
+	private int filesDeleted;
+
+	/**
+	 * @param source The {@code modules-2} directory to mirror
+	 * @param target The read-only cache directory - the mirror is written to its
+	 * {@code modules-2} sub-directory
+	 */
+	DependencyCacheMirror(Path source, Path target) {
+		this( source, target, null );
+	}
+
+	/**
+	 * @param moduleVersions The module versions to mirror, as {@code group/module/version}
+	 * paths; {@code null} to mirror all
+	 */
+	DependencyCacheMirror(Path source, Path target, Set<Path> moduleVersions) {
+		this.source = source;
+		this.target = target.resolve( MODULES_DIR_NAME );
+		this.moduleVersions = moduleVersions;
+	}
+
+	/**
+	 * The module version ({@code group/module/version}) of a file downloaded into the
+	 * given {@code modules-2} directory; {@code null} if the file is not part of it
+	 */
+	static Path moduleVersion(Path modulesDir, Path file) {
+		if ( !file.startsWith( modulesDir ) ) {
+			return null;
+		}
+		final Path relativePath = modulesDir.relativize( file );
+		// files-2.1/<group>/<module>/<version>/<hash>/<file>
+		if ( relativePath.getNameCount() < 6 || !relativePath.getName( 0 ).toString().equals( FILES_DIR_NAME ) ) {
+			return null;
+		}
+		return relativePath.subpath( 1, 4 );
+	}
+
+	/**
+	 * Whether the directory (relative to {@code modules-2}) belongs to a module version
+	 * which is not mirrored
+	 */
+	private boolean isSkipped(Path relativeDir) {
+		if ( moduleVersions == null ) {
+			return false;
+		}
+
+		final int moduleVersionStart;
+		final String first = relativeDir.getNameCount() > 0 ? relativeDir.getName( 0 ).toString() : "";
+		if ( first.equals( FILES_DIR_NAME ) ) {
+			moduleVersionStart = 1;
+		}
+		else if ( first.startsWith( METADATA_DIR_PREFIX )
+				&& relativeDir.getNameCount() > 1
+				&& relativeDir.getName( 1 ).toString().equals( DESCRIPTORS_DIR_NAME ) ) {
+			moduleVersionStart = 2;
+		}
+		else {
+			return false;
+		}
+
+		if ( relativeDir.getNameCount() < moduleVersionStart + 3 ) {
+			// a group or module directory - skipped if none of its versions is mirrored
+			final Path prefix = relativeDir.getNameCount() > moduleVersionStart
+					? relativeDir.subpath( moduleVersionStart, relativeDir.getNameCount() )
+					: null;
+			if ( prefix == null ) {
+				return false;
+			}
+			for ( Path moduleVersion : moduleVersions ) {
+				if ( moduleVersion.startsWith( prefix.toString() ) ) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return !moduleVersions.contains( relativeDir.subpath( moduleVersionStart, moduleVersionStart + 3 ) );
+	}
+
+	static boolean isExcluded(Path file) {
+		final String fileName = file.getFileName().toString();
+		return fileName.endsWith( ".lock" ) || fileName.equals( "gc.properties" );
+	}
+
+	void mirror() throws IOException {
+		final Set<Path> mirrored = new HashSet<>();
+
+		if ( Files.isDirectory( source ) ) {
+			Files.walkFileTree(
+					source,
+					new SimpleFileVisitor<Path>() {
+						@Override
+						public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+							if ( isSkipped( source.relativize( dir ) ) ) {
+								return SKIP_SUBTREE;
+							}
+							Files.createDirectories( target.resolve( source.relativize( dir ).toString() ) );
+							return CONTINUE;
+						}
+
+						@Override
+						public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+							if ( isExcluded( file ) ) {
+								return CONTINUE;
+							}
+
+							final Path relativePath = source.relativize( file );
+							mirrored.add( relativePath );
+							mirrorFile( file, attrs, relativePath );
+							return CONTINUE;
+						}
+					}
+			);
+		}
+
+		if ( !Files.isDirectory( target ) ) {
+			return;
+		}
+
+		// entries removed from the source cache, e.g. by Gradle's cache cleanup
+		Files.walkFileTree(
+				target,
+				new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+						final Path relativeDir = target.relativize( dir );
+						if ( !dir.equals( target )
+								&& ( isSkipped( relativeDir ) || !Files.isDirectory( source.resolve( relativeDir.toString() ) ) ) ) {
+							CleanupService.deleteRecursively( dir );
+							filesDeleted++;
+							return SKIP_SUBTREE;
+						}
+						return CONTINUE;
+					}
+
+					@Override
+					public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+						if ( !mirrored.contains( target.relativize( file ) ) ) {
+							Files.delete( file );
+							filesDeleted++;
+						}
+						return CONTINUE;
+					}
+				}
+		);
+	}
+
+	private void mirrorFile(Path file, BasicFileAttributes attrs, Path relativePath) throws IOException {
+		final Path targetFile = target.resolve( relativePath.toString() );
+		if ( Files.exists( targetFile ) ) {
+			final BasicFileAttributes targetAttrs = Files.readAttributes( targetFile, BasicFileAttributes.class );
+			// copies only preserve the modification time up to (about) the millisecond
+			if ( targetAttrs.size() == attrs.size()
+					&& targetAttrs.lastModifiedTime().toMillis() == attrs.lastModifiedTime().toMillis() ) {
+				// unchanged (or a link to the same file)
+				return;
+			}
+			Files.delete( targetFile );
+		}
+
+		if ( linking && relativePath.getName( 0 ).toString().equals( FILES_DIR_NAME ) ) {
+			try {
+				Files.createLink( targetFile, file );
+				filesLinked++;
+				return;
+			}
+			catch (FileAlreadyExistsException e) {
+				throw e;
+			}
+			catch (UnsupportedOperationException | IOException e) {
+				// links are not supported here (e.g. the user home is on another file
+				// store) - copy this file and all the rest
+				linking = false;
+			}
+		}
+
+		copyStable( file, targetFile );
+		filesCopied++;
+	}
+
+	/**
+	 * Copy the file aside and move it into place, unless it changed while being copied
+	 * (e.g. a metadata store written by another build) - in which case the copy is retried
+	 */
+	private static void copyStable(Path file, Path targetFile) throws IOException {
+		final Path tempFile = targetFile.resolveSibling( targetFile.getFileName() + ".tmp" );
+		try {
+			for ( int attempt = 1; attempt <= COPY_ATTEMPTS; attempt++ ) {
+				final BasicFileAttributes before = Files.readAttributes( file, BasicFileAttributes.class );
+				Files.copy( file, tempFile, REPLACE_EXISTING, COPY_ATTRIBUTES );
+				final BasicFileAttributes after = Files.readAttributes( file, BasicFileAttributes.class );
+				if ( before.size() == after.size() && before.lastModifiedTime().equals( after.lastModifiedTime() ) ) {
+					Files.move( tempFile, targetFile, REPLACE_EXISTING, ATOMIC_MOVE );
+					return;
+				}
+			}
+		}
+		finally {
+			Files.deleteIfExists( tempFile );
+		}
+		throw new IOException( "`" + file + "` kept changing while being copied" );
+	}
+
+	int getFilesLinked() {
+		return filesLinked;
+	}
+
+	int getFilesCopied() {
+		return filesCopied;
+	}
+
+	/**
+	 * The files and directories deleted from the mirror as they no longer exist in the source
+	 */
+	int getFilesDeleted() {
+		return filesDeleted;
+	}
+}
@@ -12,14 +12,23 @@ import java.nio.file.FileVisitResult;
 import java.nio.file.FileVisitor;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 
 import static java.nio.file.FileVisitResult.CONTINUE;
 import static java.nio.file.StandardCopyOption.COPY_ATTRIBUTES;
 
 /**
- * Support for performing a directory copy
+ * Support for performing a directory copy.
+ *
+ * The static {@link #copy} and {@link #link} methods walk the source tree once
+ * and copy the files in parallel.  The visitor itself is still available for
+ * performing the copy on the walking thread
  */
 public class DirectoryCopier implements FileVisitor<Path> {
 	/**
@@ -29,29 +38,200 @@ public class DirectoryCopier implements FileVisitor<Path> {
 	 * @param target The directory to copy to
 	 */
 	public static void copy(Path source, Path target) {
+		transfer( source, target, false, null );
+	}
+
+	/**
+	 * Do the copy, hard-linking rather than copying the files considered
+	 * {@linkplain #isLinkable linkable}.  Falls back to copying when the
+	 * file system does not support links between {@code source} and {@code target}
+	 *
+	 * @param source The directory to copy from
+	 * @param target The directory to copy to
+	 *
+	 * @return The files (relative to {@code target}) which were linked
+	 */
+	public static Set<Path> link(Path source, Path target) {
+		return transfer( source, target, true, null );
+	}
+
+	/**
+	 * Whether the given file (relative to the project directory) is an immutable
+	 * payload which is safe to share between the TestKit project and its staged
+	 * copies via a hard link
+	 */
+	public static boolean isLinkable(Path relativePath) {
+		if ( relativePath.getNameCount() > 1
+				&& "gradle".equals( relativePath.getName( 0 ).toString() )
+				&& "wrapper".equals( relativePath.getName( 1 ).toString() ) ) {
+			return true;
+		}
+
+		final String fileName = relativePath.getFileName().toString().toLowerCase( Locale.ROOT );
+		for ( String extension : LINKABLE_EXTENSIONS ) {
+			if ( fileName.endsWith( extension ) ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static final String[] LINKABLE_EXTENSIONS = { ".jar", ".zip", ".war", ".ear", ".aar", ".tar", ".gz", ".tgz" };
+
+	/**
+	 * Copy (or link) the named project as described by the index rather than
+	 * walking the {@code source} directory.  As with {@link #stage}, the
+	 * {@linkplain FixtureTemplate templates} are left out
+	 *
+	 * @return The files (relative to {@code target}) which were linked
+	 */
+	static Set<Path> copy(
+			Path source,
+			Path target,
+			FixtureIndex index,
+			String projectName,
+			boolean linking,
+			ScopeMetrics metrics) {
+		final List<Path> directories = new ArrayList<>();
+		for ( String directory : index.getDirectories( projectName ) ) {
+			directories.add( source.getFileSystem().getPath( directory ) );
+		}
+
+		final List<ParallelCopier.FileEntry> files = new ArrayList<>();
+		for ( FixtureIndex.FileEntry file : index.getFiles( projectName ) ) {
+			// rendered in place of the template, once staged
+			if ( FixtureTemplate.isTemplate( file.getPath() ) ) {
+				continue;
+			}
+			files.add( new ParallelCopier.FileEntry( source.getFileSystem().getPath( file.getPath() ), file.getSize() ) );
+		}
+
 		try {
-			Files.walkFileTree( source, new DirectoryCopier( source, target ) );
+			return ParallelCopier.copy( source, target, directories, files, linking, metrics );
 		}
 		catch (IOException e) {
-			throw new IllegalStateException(
-					String.format(
-							Locale.ROOT,
-							"Unable to copy `%s` to `%s` : %s",
-							source,
-							target,
-							e.getMessage()
-					),
-					e
+			throw copyFailure( source, target, e );
+		}
+	}
+
+	/**
+	 * Copy (or link) {@code source} to {@code target}, recording the copied files
+	 *
+	 * @return The files (relative to {@code target}) which were linked
+	 */
+	static Set<Path> transfer(Path source, Path target, boolean linking, ScopeMetrics metrics) {
+		try {
+			return ParallelCopier.copy( source, target, linking, metrics );
+		}
+		catch (IOException e) {
+			throw copyFailure( source, target, e );
+		}
+	}
+
+	/**
+	 * Stage (copy or link) the TestKit project {@code source} to {@code target}, leaving out
+	 * the {@linkplain FixtureTemplate templates}, which are rendered into the staged project instead
+	 *
+	 * @return The files (relative to {@code target}) which were linked
+	 */
+	static Set<Path> stage(Path source, Path target, boolean linking, ScopeMetrics metrics) {
+		try {
+			return ParallelCopier.copy( source, target, file -> !FixtureTemplate.isTemplate( file ), linking, metrics );
+		}
+		catch (IOException e) {
+			throw copyFailure( source, target, e );
+		}
+	}
+
+	/**
+	 * Add the files of {@code source} which {@code target} does not contain yet, hard-linking
+	 * the {@linkplain #isLinkable linkable} ones if requested.  Used to lay the {@linkplain Project#layers() layers}
+	 * of a project under its already staged files.  Falls back to copying when the file system
+	 * does not support links between {@code source} and {@code target}.  The {@linkplain FixtureTemplate templates}
+	 * of the layer are left out, as they are rendered into the project instead
+	 *
+	 * @return The files (relative to {@code target}) which were linked
+	 */
+	static Set<Path> underlay(Path source, Path target, boolean linking, ScopeMetrics metrics) {
+		final Set<Path> linkedFiles = new HashSet<>();
+		try {
+			Files.walkFileTree(
+					source,
+					new SimpleFileVisitor<Path>() {
+						private boolean linkingFiles = linking;
+
+						@Override
+						public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+							Files.createDirectories( target.resolve( source.relativize( dir ).toString() ) );
+							return CONTINUE;
+						}
+
+						@Override
+						public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+							final Path relativePath = target.getFileSystem().getPath( source.relativize( file ).toString() );
+							final Path targetFile = target.resolve( relativePath );
+							if ( FixtureTemplate.isTemplate( relativePath ) || Files.exists( targetFile ) ) {
+								// overridden by the project (or a later layer)
+								return CONTINUE;
+							}
+
+							// e.g. build scripts, which a test may modify, are copied
+							if ( linkingFiles && isLinkable( relativePath ) ) {
+								try {
+									Files.createLink( targetFile, file );
+									linkedFiles.add( relativePath );
+									if ( metrics != null ) {
+										metrics.fileLinked();
+									}
+									return CONTINUE;
+								}
+								catch (UnsupportedOperationException | IOException e) {
+									linkingFiles = false;
+								}
+							}
+
+							Files.copy( file, targetFile );
+							if ( metrics != null ) {
+								metrics.fileCopied( attrs.size() );
+							}
+							return CONTINUE;
+						}
+					}
 			);
 		}
+		catch (IOException e) {
+			throw copyFailure( source, target, e );
+		}
+		return linkedFiles;
+	}
+
+	private static IllegalStateException copyFailure(Path source, Path target, IOException e) {
+		return new IllegalStateException(
+				String.format(
+						Locale.ROOT,
+						"Unable to copy `%s` to `%s` : %s",
+						source,
+						target,
+						e.getMessage()
+				),
+				e
+		);
 	}
 
 	private final Path sourceBase;
 	private final Path targetBase;
 
+	private boolean linking;
+	private final Set<Path> linkedFiles = new HashSet<>();
+
 	public DirectoryCopier(Path sourceBase, Path targetBase) {
+		this( sourceBase, targetBase, false );
+	}
+
+	public DirectoryCopier(Path sourceBase, Path targetBase, boolean linking) {
 		this.sourceBase = sourceBase;
 		this.targetBase = targetBase;
+		this.linking = linking;
 	}
 
 	@Override
@@ -76,7 +256,26 @@ public class DirectoryCopier implements FileVisitor<Path> {
 
 	@Override
 	public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-		Files.copy( file, targetBase.resolve( sourceBase.relativize( file ) ) );
+		final Path relativePath = sourceBase.relativize( file );
+		final Path target = targetBase.resolve( relativePath );
+
+		if ( linking && isLinkable( relativePath ) ) {
+			try {
+				Files.createLink( target, file );
+				linkedFiles.add( relativePath );
+				return CONTINUE;
+			}
+			catch (FileAlreadyExistsException e) {
+				throw e;
+			}
+			catch (UnsupportedOperationException | IOException e) {
+				// links are not supported here (different file stores, file system
+				// without link support, etc.) - copy this file and all the rest
+				linking = false;
+			}
+		}
+
+		Files.copy( file, target );
 		return CONTINUE;
 	}
 
@@ -0,0 +1,174 @@
+package com.github.sebersole.testkit;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.FileVisitResult.CONTINUE;
+import static java.nio.file.FileVisitResult.SKIP_SUBTREE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * The diagnostics of a failed test packed into a single (zip) file, named after the test:
+ * for each project scope used by the test, the staged project directory as the test left
+ * it, the {@linkplain BuildLog log of its builds} and the {@linkplain BuildHistory outcome
+ * of the tasks of each build}:
+ * <pre>
+ * &lt;project&gt;/project/...
+ * &lt;project&gt;/build.log
+ * &lt;project&gt;/builds.txt
+ * </pre>
+ * The {@code .gradle} directory of the project (Gradle's caches) is left out
+ *
+ * @see TestKitSpec#getBundleFailedProjects()
+ */
+class FailureBundle {
+	static final String EXTENSION = ".zip";
+
+	private static final String GRADLE_DIR_NAME = ".gradle";
+
+	private FailureBundle() {
+	}
+
+	/**
+	 * Write the bundle of the failed test into the given directory
+	 *
+	 * @param testName The name of the test, e.g. {@code com.acme.PluginTests.testBuild}; a
+	 * counter is appended if a bundle of that name already exists, e.g. for repeated tests
+	 *
+	 * @return The bundle file
+	 */
+	static File write(File bundleDir, String testName, List<ProjectScope> scopes) {
+		final Path bundleFile;
+		try {
+			Files.createDirectories( bundleDir.toPath() );
+			bundleFile = createBundleFile( bundleDir.toPath(), toFileName( testName ) );
+		}
+		catch (IOException e) {
+			throw new IllegalStateException( "Unable to create TestKit failure bundle in `" + bundleDir + "`", e );
+		}
+
+		try ( ZipOutputStream zip = new ZipOutputStream( new BufferedOutputStream( Files.newOutputStream( bundleFile, WRITE ) ) ) ) {
+			final Set<String> prefixes = new HashSet<>();
+			for ( ProjectScope scope : scopes ) {
+				final String projectName = scope.getProjectBaseDirectory().getName();
+				String prefix = projectName + "/";
+				for ( int i = 2; !prefixes.add( prefix ); i++ ) {
+					prefix = projectName + "-" + i + "/";
+				}
+
+				addDirectory( zip, scope.getProjectBaseDirectory().toPath(), prefix + "project/" );
+
+				final BuildLog buildLog = scope.getBuildLog();
+				if ( buildLog != null ) {
+					buildLog.flush();
+					addFile( zip, buildLog.getFile().toPath(), prefix + "build.log" );
+				}
+
+				final BuildHistory buildHistory = scope.getBuildHistory();
+				if ( buildHistory != null ) {
+					zip.putNextEntry( new ZipEntry( prefix + "builds.txt" ) );
+					zip.write( buildHistory.format().getBytes( UTF_8 ) );
+					zip.closeEntry();
+				}
+			}
+		}
+		catch (IOException | RuntimeException e) {
+			// rather than leaving a truncated bundle behind
+			try {
+				Files.deleteIfExists( bundleFile );
+			}
+			catch (IOException suppressed) {
+				e.addSuppressed( suppressed );
+			}
+			throw new IllegalStateException( "Unable to write TestKit failure bundle `" + bundleFile + "`", e );
+		}
+
+		return bundleFile.toFile();
+	}
+
+	private static Path createBundleFile(Path bundleDir, String fileName) throws IOException {
+		for ( int i = 1; ; i++ ) {
+			final Path bundleFile = bundleDir.resolve( i == 1 ? fileName + EXTENSION : fileName + "-" + i + EXTENSION );
+			try {
+				return Files.createFile( bundleFile );
+			}
+			catch (FileAlreadyExistsException ignore) {
+			}
+		}
+	}
+
+	static String toFileName(String testName) {
+		return testName.replaceAll( "[^A-Za-z0-9._\\-]", "_" );
+	}
+
+	private static void addDirectory(ZipOutputStream zip, Path directory, String prefix) throws IOException {
+		if ( !Files.isDirectory( directory ) ) {
+			return;
+		}
+
+		Files.walkFileTree(
+				directory,
+				new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+						if ( dir.getParent() != null && dir.getParent().equals( directory )
+								&& GRADLE_DIR_NAME.equals( dir.getFileName().toString() ) ) {
+							return SKIP_SUBTREE;
+						}
+						final String path = toEntryPath( directory.relativize( dir ) );
+						zip.putNextEntry( new ZipEntry( prefix + ( path.isEmpty() ? "" : path + "/" ) ) );
+						zip.closeEntry();
+						return CONTINUE;
+					}
+
+					@Override
+					public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+						addFile( zip, file, prefix + toEntryPath( directory.relativize( file ) ) );
+						return CONTINUE;
+					}
+
+					@Override
+					public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+						// e.g. deleted by a build of a concurrent test sharing the project
+						if ( e instanceof NoSuchFileException ) {
+							return CONTINUE;
+						}
+						throw e;
+					}
+				}
+		);
+	}
+
+	private static void addFile(ZipOutputStream zip, Path file, String entryName) throws IOException {
+		if ( !Files.isRegularFile( file ) ) {
+			return;
+		}
+
+		zip.putNextEntry( new ZipEntry( entryName ) );
+		try {
+			Files.copy( file, zip );
+		}
+		catch (NoSuchFileException ignore) {
+			// e.g. deleted by a build of a concurrent test sharing the project
+		}
+		zip.closeEntry();
+	}
+
+	private static String toEntryPath(Path relativePath) {
+		return relativePath.toString().replace( File.separatorChar, '/' );
+	}
+}
@@ -0,0 +1,320 @@
+package com.github.sebersole.testkit;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.FileVisitResult.CONTINUE;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * A TestKit project packed into a single, uncompressed file.  Staging the project
+ * from the archive streams one memory-mapped file rather than walking and copying
+ * many small ones.
+ *
+ * The archive is a header listing the directories and files of the project followed
+ * by the content of the files, back-to-back in header order:
+ * <pre>
+ * int   magic
+ * int   version
+ * int   directory count, then per directory : path
+ * int   file count, then per file : path, long size, int mode
+ * ...   file content
+ * </pre>
+ * where paths are written as their UTF-8 byte count followed by the bytes, and
+ * {@code mode} is the POSIX mode ({@code -1} if not supported).
+ *
+ * @see PackTestKitProjectsTask
+ * @see StagingMode#ARCHIVE
+ */
+public class FixtureArchive {
+	public static final String EXTENSION = ".tkar";
+
+	private static final int MAGIC = 0x544b4152;
+	private static final int VERSION = 1;
+	private static final int UNKNOWN_MODE = -1;
+
+	private static class FileEntry {
+		private final String path;
+		// relative to the start of the content
+		private final long offset;
+		private final long size;
+		private final int mode;
+
+		private FileEntry(String path, long offset, long size, int mode) {
+			this.path = path;
+			this.offset = offset;
+			this.size = size;
+			this.mode = mode;
+		}
+	}
+
+	private final Path archiveFile;
+	private final MappedByteBuffer content;
+	private final int contentOffset;
+	private final List<String> directories;
+	private final List<FileEntry> files;
+
+	private FixtureArchive(
+			Path archiveFile,
+			MappedByteBuffer content,
+			int contentOffset,
+			List<String> directories,
+			List<FileEntry> files) {
+		this.archiveFile = archiveFile;
+		this.content = content;
+		this.contentOffset = contentOffset;
+		this.directories = directories;
+		this.files = files;
+	}
+
+	/**
+	 * Pack the given project directory into the given archive file, replacing any
+	 * existing archive
+	 */
+	public static void pack(Path projectDir, Path archiveFile) {
+		final Set<String> directories = new TreeSet<>();
+		final Map<String, Path> files = new TreeMap<>();
+
+		try {
+			Files.walkFileTree(
+					projectDir,
+					new SimpleFileVisitor<Path>() {
+						@Override
+						public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+							if ( !dir.equals( projectDir ) ) {
+								directories.add( toArchivePath( projectDir.relativize( dir ) ) );
+							}
+							return CONTINUE;
+						}
+
+						@Override
+						public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+							files.put( toArchivePath( projectDir.relativize( file ) ), file );
+							return CONTINUE;
+						}
+					}
+			);
+
+			Files.createDirectories( archiveFile.getParent() );
+			try ( DataOutputStream out = new DataOutputStream( new BufferedOutputStream( Files.newOutputStream( archiveFile ) ) ) ) {
+				out.writeInt( MAGIC );
+				out.writeInt( VERSION );
+
+				// sorted paths list parents before children
+				out.writeInt( directories.size() );
+				for ( String directory : directories ) {
+					writePath( out, directory );
+				}
+
+				final List<Long> sizes = new ArrayList<>();
+				long totalSize = 0;
+				out.writeInt( files.size() );
+				for ( Map.Entry<String, Path> file : files.entrySet() ) {
+					final long size = Files.size( file.getValue() );
+					writePath( out, file.getKey() );
+					out.writeLong( size );
+					out.writeInt( mode( file.getValue() ) );
+					sizes.add( size );
+					totalSize += size;
+				}
+
+				if ( out.size() + totalSize > Integer.MAX_VALUE ) {
+					throw new IllegalStateException( "TestKit project `" + projectDir + "` is too large to be archived" );
+				}
+
+				int i = 0;
+				for ( Path file : files.values() ) {
+					final long copied = Files.copy( file, out );
+					if ( copied != sizes.get( i++ ) ) {
+						throw new IllegalStateException( "TestKit project file `" + file + "` changed while being archived" );
+					}
+				}
+			}
+		}
+		catch (IOException e) {
+			throw new IllegalStateException( "Unable to archive TestKit project `" + projectDir + "` to `" + archiveFile + "`", e );
+		}
+	}
+
+	private static String toArchivePath(Path relativePath) {
+		return relativePath.toString().replace( File.separatorChar, '/' );
+	}
+
+	private static void writePath(DataOutputStream out, String path) throws IOException {
+		final byte[] bytes = path.getBytes( UTF_8 );
+		out.writeInt( bytes.length );
+		out.write( bytes );
+	}
+
+	private static int mode(Path file) {
+		try {
+			int mode = 0;
+			for ( PosixFilePermission permission : Files.getPosixFilePermissions( file ) ) {
+				// OWNER_READ is the highest bit, OTHERS_EXECUTE the lowest
+				mode |= 1 << ( 8 - permission.ordinal() );
+			}
+			return mode;
+		}
+		catch (UnsupportedOperationException | IOException e) {
+			return UNKNOWN_MODE;
+		}
+	}
+
+	/**
+	 * Map the given archive into memory and read its header
+	 */
+	public static FixtureArchive open(Path archiveFile) {
+		final MappedByteBuffer content;
+		try ( FileChannel channel = FileChannel.open( archiveFile, READ ) ) {
+			// the mapping remains valid after the channel is closed
+			content = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+		}
+		catch (IOException e) {
+			throw new IllegalStateException( "Unable to open TestKit project archive `" + archiveFile + "`", e );
+		}
+
+		final ByteBuffer header = content.duplicate();
+		try {
+			if ( header.getInt() != MAGIC || header.getInt() != VERSION ) {
+				throw new IllegalStateException( "Not a TestKit project archive (or an unsupported version) : " + archiveFile );
+			}
+
+			final int directoryCount = header.getInt();
+			final List<String> directories = new ArrayList<>( directoryCount );
+			for ( int i = 0; i < directoryCount; i++ ) {
+				directories.add( readPath( header ) );
+			}
+
+			final int fileCount = header.getInt();
+			final List<FileEntry> files = new ArrayList<>( fileCount );
+			long offset = 0;
+			for ( int i = 0; i < fileCount; i++ ) {
+				final String path = readPath( header );
+				final long size = header.getLong();
+				files.add( new FileEntry( path, offset, size, header.getInt() ) );
+				offset += size;
+			}
+
+			// the content follows the header
+			final int contentOffset = header.position();
+			if ( contentOffset + offset != content.capacity() ) {
+				throw new IllegalStateException( "Truncated TestKit project archive : " + archiveFile );
+			}
+
+			return new FixtureArchive( archiveFile, content, contentOffset, Collections.unmodifiableList( directories ), Collections.unmodifiableList( files ) );
+		}
+		catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+			throw new IllegalStateException( "Unable to read TestKit project archive `" + archiveFile + "`", e );
+		}
+	}
+
+	private static String readPath(ByteBuffer header) {
+		final byte[] bytes = new byte[ header.getInt() ];
+		header.get( bytes );
+		return new String( bytes, UTF_8 );
+	}
+
+	public Path getArchiveFile() {
+		return archiveFile;
+	}
+
+	/**
+	 * The directories of the project, relative to the project directory, parents before children
+	 */
+	public List<String> getDirectories() {
+		return directories;
+	}
+
+	/**
+	 * Extract the project into the given (existing, empty) directory.  Safe to call
+	 * concurrently
+	 */
+	public void extract(Path target) {
+		extract( target, null, false );
+	}
+
+	/**
+	 * Stage the project into the given (existing, empty) directory, leaving out the
+	 * {@linkplain FixtureTemplate templates}, which are rendered into the project instead
+	 *
+	 * @param metrics Records the extracted files; may be {@code null}
+	 */
+	void extract(Path target, ScopeMetrics metrics) {
+		extract( target, metrics, true );
+	}
+
+	private void extract(Path target, ScopeMetrics metrics, boolean skipTemplates) {
+		try {
+			for ( String directory : directories ) {
+				Files.createDirectories( target.resolve( directory ) );
+			}
+
+			for ( FileEntry file : files ) {
+				if ( skipTemplates && FixtureTemplate.isTemplate( file.path ) ) {
+					continue;
+				}
+
+				final Path targetFile = target.resolve( file.path );
+
+				// each extraction works against its own view of the mapping
+				final ByteBuffer fileContent = content.duplicate();
+				fileContent.position( contentOffset + (int) file.offset );
+				fileContent.limit( contentOffset + (int) ( file.offset + file.size ) );
+
+				try ( FileChannel channel = FileChannel.open( targetFile, CREATE_NEW, WRITE ) ) {
+					while ( fileContent.hasRemaining() ) {
+						channel.write( fileContent );
+					}
+				}
+
+				if ( file.mode != UNKNOWN_MODE ) {
+					applyMode( targetFile, file.mode );
+				}
+				if ( metrics != null ) {
+					metrics.fileCopied( file.size );
+				}
+			}
+		}
+		catch (IOException e) {
+			throw new IllegalStateException( "Unable to extract TestKit project archive `" + archiveFile + "` to `" + target + "`", e );
+		}
+	}
+
+	private static void applyMode(Path file, int mode) throws IOException {
+		final Set<PosixFilePermission> permissions = EnumSet.noneOf( PosixFilePermission.class );
+		for ( PosixFilePermission permission : PosixFilePermission.values() ) {
+			if ( ( mode & ( 1 << ( 8 - permission.ordinal() ) ) ) != 0 ) {
+				permissions.add( permission );
+			}
+		}
+
+		try {
+			Files.setPosixFilePermissions( file, permissions );
+		}
+		catch (UnsupportedOperationException ignore) {
+		}
+	}
+}
@@ -0,0 +1,341 @@
+package com.github.sebersole.testkit;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.FileVisitResult.CONTINUE;
+
+/**
+ * Index of the directories and files making up each TestKit project - the
+ * relative path, size, mode and content hash of every file.
+ *
+ * Generated at build time by {@link GenerateLocatorFileTask} so that the tests
+ * neither have to list the TestKit base directory nor walk a project to stage it.
+ * The index also allows cheaply detecting changes to a project (drift) relative to
+ * when the index was generated.
+ *
+ * The format is line-based, with tab-separated fields:
+ * <pre>
+ * P  name
+ * D  relative/path
+ * F  size  mode  hash  relative/path
+ * </pre>
+ * where {@code mode} is the octal POSIX mode ({@code -} if not supported) and
+ * {@code hash} is the hex encoded SHA-256 of the file content.
+ */
+public class FixtureIndex {
+	private static final String HASH_ALGORITHM = "SHA-256";
+	private static final String UNKNOWN_MODE = "-";
+
+	/**
+	 * A file in a TestKit project
+	 */
+	public static class FileEntry {
+		private final String path;
+		private final long size;
+		private final String mode;
+		private final String hash;
+
+		FileEntry(String path, long size, String mode, String hash) {
+			this.path = path;
+			this.size = size;
+			this.mode = mode;
+			this.hash = hash;
+		}
+
+		/**
+		 * The path relative to the project directory, using {@code /} as separator
+		 */
+		public String getPath() {
+			return path;
+		}
+
+		public long getSize() {
+			return size;
+		}
+
+		/**
+		 * The octal POSIX mode, or {@code -} if unknown
+		 */
+		public String getMode() {
+			return mode;
+		}
+
+		public String getHash() {
+			return hash;
+		}
+	}
+
+	private static class ProjectEntries {
+		private final List<String> directories = new ArrayList<>();
+		private final Map<String, FileEntry> files = new LinkedHashMap<>();
+	}
+
+	private final Map<String, ProjectEntries> projects;
+
+	private FixtureIndex(Map<String, ProjectEntries> projects) {
+		this.projects = projects;
+	}
+
+	/**
+	 * Build the index of all projects (sub-directories) of the given TestKit base directory
+	 */
+	public static FixtureIndex build(File baseDir) {
+		final Map<String, ProjectEntries> projects = new TreeMap<>();
+
+		final File[] projectDirectories = baseDir.listFiles( File::isDirectory );
+		if ( projectDirectories != null ) {
+			for ( File projectDirectory : projectDirectories ) {
+				projects.put( projectDirectory.getName(), scan( projectDirectory.toPath() ) );
+			}
+		}
+
+		return new FixtureIndex( projects );
+	}
+
+	private static ProjectEntries scan(Path projectDir) {
+		final ProjectEntries entries = new ProjectEntries();
+		final Map<String, FileEntry> files = new TreeMap<>();
+		final Set<String> directories = new TreeSet<>();
+
+		try {
+			Files.walkFileTree(
+					projectDir,
+					new SimpleFileVisitor<Path>() {
+						@Override
+						public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+							if ( !dir.equals( projectDir ) ) {
+								directories.add( toIndexPath( projectDir.relativize( dir ) ) );
+							}
+							return CONTINUE;
+						}
+
+						@Override
+						public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+							final String path = toIndexPath( projectDir.relativize( file ) );
+							files.put( path, new FileEntry( path, attrs.size(), mode( file ), hash( file ) ) );
+							return CONTINUE;
+						}
+					}
+			);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException( "Unable to index TestKit project `" + projectDir + "`", e );
+		}
+
+		// sorted paths list parents before children
+		entries.directories.addAll( directories );
+		entries.files.putAll( files );
+		return entries;
+	}
+
+	private static String toIndexPath(Path relativePath) {
+		return relativePath.toString().replace( File.separatorChar, '/' );
+	}
+
+	private static String mode(Path file) {
+		try {
+			int mode = 0;
+			for ( PosixFilePermission permission : Files.getPosixFilePermissions( file ) ) {
+				// OWNER_READ is the highest bit, OTHERS_EXECUTE the lowest
+				mode |= 1 << ( 8 - permission.ordinal() );
+			}
+			return Integer.toOctalString( mode );
+		}
+		catch (UnsupportedOperationException | IOException e) {
+			return UNKNOWN_MODE;
+		}
+	}
+
+	static String hash(Path file) {
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance( HASH_ALGORITHM );
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException( e );
+		}
+
+		final byte[] buffer = new byte[8192];
+		try ( InputStream stream = Files.newInputStream( file ) ) {
+			int read;
+			while ( ( read = stream.read( buffer ) ) != -1 ) {
+				digest.update( buffer, 0, read );
+			}
+		}
+		catch (IOException e) {
+			throw new IllegalStateException( "Unable to hash `" + file + "`", e );
+		}
+
+		final StringBuilder hex = new StringBuilder();
+		for ( byte b : digest.digest() ) {
+			hex.append( String.format( Locale.ROOT, "%02x", b ) );
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * Read a previously {@linkplain #write written} index
+	 */
+	public static FixtureIndex read(File indexFile) {
+		final Map<String, ProjectEntries> projects = new LinkedHashMap<>();
+
+		try ( BufferedReader reader = Files.newBufferedReader( indexFile.toPath(), UTF_8 ) ) {
+			ProjectEntries current = null;
+			String line;
+			while ( ( line = reader.readLine() ) != null ) {
+				if ( line.isEmpty() || line.startsWith( "#" ) ) {
+					continue;
+				}
+
+				final String[] fields = line.split( "\t", 5 );
+				switch ( fields[0] ) {
+					case "P": {
+						current = new ProjectEntries();
+						projects.put( fields[1], current );
+						break;
+					}
+					case "D": {
+						assert current != null;
+						current.directories.add( fields[1] );
+						break;
+					}
+					case "F": {
+						assert current != null;
+						final FileEntry entry = new FileEntry( fields[4], Long.parseLong( fields[1] ), fields[2], fields[3] );
+						current.files.put( entry.getPath(), entry );
+						break;
+					}
+					default: {
+						throw new IllegalStateException( "Unexpected TestKit index line : " + line );
+					}
+				}
+			}
+		}
+		catch (IOException | ArrayIndexOutOfBoundsException | NumberFormatException e) {
+			throw new IllegalStateException( "Unable to read TestKit index `" + indexFile.getAbsolutePath() + "`", e );
+		}
+
+		return new FixtureIndex( projects );
+	}
+
+	/**
+	 * Write the index to the given file
+	 */
+	public void write(File indexFile) {
+		try ( BufferedWriter writer = Files.newBufferedWriter( indexFile.toPath(), UTF_8 ) ) {
+			writer.write( "# TestKit project index - see " + FixtureIndex.class.getName() );
+			writer.newLine();
+
+			for ( Map.Entry<String, ProjectEntries> project : projects.entrySet() ) {
+				writer.write( "P\t" + project.getKey() );
+				writer.newLine();
+
+				for ( String directory : project.getValue().directories ) {
+					writer.write( "D\t" + directory );
+					writer.newLine();
+				}
+
+				for ( FileEntry file : project.getValue().files.values() ) {
+					writer.write( "F\t" + file.getSize() + "\t" + file.getMode() + "\t" + file.getHash() + "\t" + file.getPath() );
+					writer.newLine();
+				}
+			}
+		}
+		catch (IOException e) {
+			throw new IllegalStateException( "Unable to write TestKit index `" + indexFile.getAbsolutePath() + "`", e );
+		}
+	}
+
+	public Set<String> getProjectNames() {
+		return Collections.unmodifiableSet( projects.keySet() );
+	}
+
+	/**
+	 * The directories of the project, relative to the project directory, parents before children
+	 */
+	public List<String> getDirectories(String projectName) {
+		return Collections.unmodifiableList( entries( projectName ).directories );
+	}
+
+	public List<FileEntry> getFiles(String projectName) {
+		return Collections.unmodifiableList( new ArrayList<>( entries( projectName ).files.values() ) );
+	}
+
+	private ProjectEntries entries(String projectName) {
+		final ProjectEntries entries = projects.get( projectName );
+		if ( entries == null ) {
+			throw new IllegalArgumentException( "Unknown TestKit project : " + projectName );
+		}
+		return entries;
+	}
+
+	/**
+	 * Compare the given directory to the indexed content of the named project.  Sizes
+	 * are compared first, content is only hashed for files whose size did not change.
+	 *
+	 * @return The paths (relative, {@code /} separated) of the files which were changed,
+	 * added or removed, sorted
+	 */
+	public List<String> diff(String projectName, Path directory) {
+		final Map<String, FileEntry> indexed = entries( projectName ).files;
+		final Set<String> changes = new TreeSet<>();
+		final Set<String> seen = new TreeSet<>();
+
+		try ( Stream<Path> paths = Files.walk( directory ) ) {
+			paths.filter( Files::isRegularFile ).forEach(
+					file -> {
+						final String path = toIndexPath( directory.relativize( file ) );
+						seen.add( path );
+
+						final FileEntry entry = indexed.get( path );
+						if ( entry == null || entry.getSize() != size( file ) || !entry.getHash().equals( hash( file ) ) ) {
+							changes.add( path );
+						}
+					}
+			);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException( "Unable to compare `" + directory + "` to the TestKit index", e );
+		}
+
+		for ( String path : indexed.keySet() ) {
+			if ( !seen.contains( path ) ) {
+				changes.add( path );
+			}
+		}
+
+		return new ArrayList<>( changes );
+	}
+
+	private static long size(Path file) {
+		try {
+			return Files.size( file );
+		}
+		catch (IOException e) {
+			return -1;
+		}
+	}
+}
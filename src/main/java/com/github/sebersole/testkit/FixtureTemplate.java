@@ -0,0 +1,115 @@
+package com.github.sebersole.testkit;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A templated file of a TestKit project - a file named {@code <name>.template} which
+ * is staged as {@code <name>}, with each {@code @parameter@} token replaced by the value
+ * of the named {@linkplain Project#parameters() parameter}.  {@code @@} stands for a
+ * literal {@code @}.
+ *
+ * Parsed once (per {@link ProjectContainer}) into its literal text and parameter
+ * references, so that rendering a staged copy is a matter of concatenation
+ */
+class FixtureTemplate {
+	static final String EXTENSION = ".template";
+
+	private static final Pattern TOKEN = Pattern.compile( "@@|@([A-Za-z][A-Za-z0-9_.\\-]*)@" );
+
+	private final String templatePath;
+	// alternating literal text and parameter names, starting with text
+	private final List<String> segments;
+	private final Set<String> parameterNames;
+
+	private FixtureTemplate(String templatePath, List<String> segments, Set<String> parameterNames) {
+		this.templatePath = templatePath;
+		this.segments = segments;
+		this.parameterNames = parameterNames;
+	}
+
+	static boolean isTemplate(String path) {
+		return path.endsWith( EXTENSION ) && path.length() > EXTENSION.length();
+	}
+
+	static boolean isTemplate(Path path) {
+		return isTemplate( path.getFileName().toString() );
+	}
+
+	/**
+	 * @param templatePath The path of the template, relative to the project directory
+	 * @param content The content of the template
+	 */
+	static FixtureTemplate compile(String templatePath, String content) {
+		final List<String> segments = new ArrayList<>();
+		final Set<String> parameterNames = new LinkedHashSet<>();
+
+		final StringBuilder text = new StringBuilder();
+		final Matcher matcher = TOKEN.matcher( content );
+		int position = 0;
+		while ( matcher.find() ) {
+			text.append( content, position, matcher.start() );
+			position = matcher.end();
+
+			final String parameterName = matcher.group( 1 );
+			if ( parameterName == null ) {
+				text.append( '@' );
+				continue;
+			}
+
+			segments.add( text.toString() );
+			segments.add( parameterName );
+			parameterNames.add( parameterName );
+			text.setLength( 0 );
+		}
+		text.append( content, position, content.length() );
+		segments.add( text.toString() );
+
+		return new FixtureTemplate( templatePath, segments, Collections.unmodifiableSet( parameterNames ) );
+	}
+
+	/**
+	 * The path of the template, relative to the project directory
+	 */
+	String getTemplatePath() {
+		return templatePath;
+	}
+
+	/**
+	 * The path of the rendered file, relative to the project directory
+	 */
+	String getTargetPath() {
+		return templatePath.substring( 0, templatePath.length() - EXTENSION.length() );
+	}
+
+	Set<String> getParameterNames() {
+		return parameterNames;
+	}
+
+	String render(String projectName, Map<String, String> parameters) {
+		final StringBuilder rendered = new StringBuilder();
+		for ( int i = 0; i < segments.size(); i++ ) {
+			if ( i % 2 == 0 ) {
+				rendered.append( segments.get( i ) );
+				continue;
+			}
+
+			final String value = parameters.get( segments.get( i ) );
+			if ( value == null ) {
+				throw new IllegalStateException(
+						"TestKit project `" + projectName + "` template `" + templatePath
+								+ "` requires parameter `" + segments.get( i ) + "`"
+				);
+			}
+			rendered.append( value );
+		}
+		return rendered.toString();
+	}
+}
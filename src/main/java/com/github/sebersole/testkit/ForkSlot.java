@@ -0,0 +1,76 @@
+package com.github.sebersole.testkit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Identifies the fork of a sharded test run.  Unlike the Gradle worker id, which is
+ * different for each test JVM (including those replacing a JVM after {@code forkEvery}
+ * test classes), a slot is re-used by the next fork once its JVM exits - so the directories
+ * of a slot (and the caches of its TestKit directory) are only ever used by one fork at a
+ * time, but stay warm across forks.
+ *
+ * A slot is claimed by locking its lock file; the lock is held until the JVM exits
+ */
+class ForkSlot {
+	private static final Object CLAIM_LOCK = new Object();
+
+	private static ForkSlot claimed;
+
+	private final int number;
+	// keeps the lock for the lifetime of the JVM
+	private final FileLock lock;
+
+	private ForkSlot(int number, FileLock lock) {
+		this.number = number;
+		this.lock = lock;
+	}
+
+	/**
+	 * Claim the first free slot; subsequent calls return the same slot
+	 *
+	 * @param lockDir The directory containing the lock files of the slots
+	 */
+	static ForkSlot claim(File lockDir) {
+		synchronized ( CLAIM_LOCK ) {
+			if ( claimed == null ) {
+				claimed = doClaim( lockDir );
+			}
+			return claimed;
+		}
+	}
+
+	private static ForkSlot doClaim(File lockDir) {
+		lockDir.mkdirs();
+		for ( int number = 0; ; number++ ) {
+			final File lockFile = new File( lockDir, "fork-" + number + ".lock" );
+			try {
+				final FileChannel channel = FileChannel.open( lockFile.toPath(), CREATE, WRITE );
+				final FileLock lock = channel.tryLock();
+				if ( lock != null ) {
+					return new ForkSlot( number, lock );
+				}
+				channel.close();
+			}
+			catch (IOException e) {
+				throw new IllegalStateException( "Unable to claim TestKit fork slot `" + lockFile + "`", e );
+			}
+		}
+	}
+
+	int getNumber() {
+		return number;
+	}
+
+	/**
+	 * The name of the slot's directories
+	 */
+	String getDirectoryName() {
+		return "fork-" + number;
+	}
+}
@@ -1,69 +1,78 @@
 package com.github.sebersole.testkit;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.time.Instant;
-import java.time.ZoneOffset;
-import java.time.format.DateTimeFormatter;
-import java.time.format.FormatStyle;
-import java.util.Locale;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
 import javax.inject.Inject;
 
 import org.gradle.api.DefaultTask;
-import org.gradle.api.Project;
 import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.ProjectLayout;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.model.ObjectFactory;
-import org.gradle.api.plugins.JavaPluginConvention;
+import org.gradle.api.provider.MapProperty;
 import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputFile;
-import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
 
 import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_BASE_DIR;
 import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_IMPL_PROJ_NAME;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_INDEX_FILE;
 import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_STAGING_DIR;
-import static com.github.sebersole.testkit.TestKitPlugin.TEST_KIT;
-import static java.lang.Character.LINE_SEPARATOR;
-import static java.time.format.DateTimeFormatter.ofLocalizedDateTime;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
+ * Generates the locator file through which the tests find the TestKit projects and
+ * the TestKit settings, along with the {@linkplain FixtureIndex index} of the projects.
+ *
+ * The output only depends on the declared inputs - the locations are written relative
+ * to the locator file's directory - so the task is up-to-date (or loaded from the build
+ * cache) unless the projects or settings changed.
+ *
  * @author Steve Ebersole
  */
+@CacheableTask
 public abstract class GenerateLocatorFileTask extends DefaultTask {
 	private final DirectoryProperty testKitResourcesDirectory;
 	private final DirectoryProperty testKitStagingDir;
 	private final Property<String> implicitProjectName;
+	private final MapProperty<String, String> settings;
+	private final MapProperty<String, File> locationSettings;
 	private final RegularFileProperty locatorFile;
+	private final RegularFileProperty indexFile;
 
 	@Inject
-	public GenerateLocatorFileTask() {
-		final ObjectFactory objectFactory = getProject().getObjects();
-		final ProjectLayout layout = getProject().getLayout();
-
+	public GenerateLocatorFileTask(ObjectFactory objectFactory, ProjectLayout layout) {
 		testKitResourcesDirectory = objectFactory.directoryProperty();
 		testKitStagingDir = objectFactory.directoryProperty();
 		implicitProjectName = objectFactory.property( String.class );
+		settings = objectFactory.mapProperty( String.class, String.class );
+		locationSettings = objectFactory.mapProperty( String.class, File.class );
 		locatorFile = objectFactory.fileProperty();
+		indexFile = objectFactory.fileProperty();
 
-		final SourceSet mainSourceSet = getProject().getConvention()
-				.getPlugin( JavaPluginConvention.class )
-				.getSourceSets()
-				.getByName( TEST_KIT );
-
-		testKitResourcesDirectory.convention( mainSourceSet.getResources().getDestinationDirectory() );
+		testKitResourcesDirectory.convention( layout.getBuildDirectory().dir( "resources/testKit" ) );
 		testKitStagingDir.convention( layout.getBuildDirectory().dir( "tmp/testKit" ) );
 	}
 
 	@InputDirectory
+	@PathSensitive( PathSensitivity.RELATIVE )
 	public DirectoryProperty getTestKitResourcesDirectory() {
 		return testKitResourcesDirectory;
 	}
 
+	@Internal
 	public DirectoryProperty getTestKitStagingDir() {
 		return testKitStagingDir;
 	}
@@ -73,60 +82,103 @@ public abstract class GenerateLocatorFileTask extends DefaultTask {
 		return locatorFile;
 	}
 
+	/**
+	 * The index of the TestKit projects
+	 *
+	 * @see FixtureIndex
+	 */
+	@OutputFile
+	public RegularFileProperty getIndexFile() {
+		return indexFile;
+	}
+
 	@Input
 	public Property<String> getImplicitProjectName() {
 		return implicitProjectName;
 	}
 
+	/**
+	 * The TestKit settings written to the locator file as they are, keyed by the name the
+	 * tests read them by, e.g. {@value TestKitPlugin#TESTKIT_POOL_SIZE}.  A setting the
+	 * locator file does not contain takes its default
+	 *
+	 * @see TestKitSpec
+	 */
+	@Input
+	public MapProperty<String, String> getSettings() {
+		return settings;
+	}
+
+	/**
+	 * The directories and files used by the tests, e.g. {@value TestKitPlugin#TESTKIT_METRICS_DIR},
+	 * keyed by the name the tests read them by.  Written to the locator file (and tracked)
+	 * as {@linkplain #getLocations() relative locations}
+	 */
+	@Internal
+	public MapProperty<String, File> getLocationSettings() {
+		return locationSettings;
+	}
+
+	/**
+	 * The locations written to the locator file, relative to the locator file's directory.
+	 * Tracked in place of the (absolute) directories themselves so that the task output
+	 * can be re-used from another checkout location
+	 */
+	@Input
+	public Map<String, String> getLocations() {
+		final File locatorDir = locatorFile.get().getAsFile().getParentFile();
+
+		final Map<String, String> locations = new LinkedHashMap<>();
+		locations.put( TESTKIT_BASE_DIR, relativize( locatorDir, testKitResourcesDirectory.get().getAsFile() ) );
+		locations.put( TESTKIT_STAGING_DIR, relativize( locatorDir, testKitStagingDir.get().getAsFile() ) );
+		locations.put( TESTKIT_INDEX_FILE, relativize( locatorDir, indexFile.get().getAsFile() ) );
+		for ( Map.Entry<String, File> location : new TreeMap<>( locationSettings.get() ).entrySet() ) {
+			locations.put( location.getKey(), relativize( locatorDir, location.getValue() ) );
+		}
+		return locations;
+	}
+
+	private static String relativize(File base, File location) {
+		final Path path;
+		try {
+			path = base.toPath().relativize( location.toPath() );
+		}
+		catch (IllegalArgumentException e) {
+			// e.g. different drives
+			return location.getAbsolutePath().replace( File.separatorChar, '/' );
+		}
+		return path.toString().replace( File.separatorChar, '/' );
+	}
+
 	@TaskAction
 	public void generateFile() {
 		final File locatorFile = this.locatorFile.get().getAsFile();
+		final File indexFile = this.indexFile.get().getAsFile();
 		final File resourcesDir = testKitResourcesDirectory.get().getAsFile();
-		final File stagingDir = testKitStagingDir.get().getAsFile();
 
 		getLogger().debug( "TestKit locator file : {}", locatorFile.getAbsolutePath() );
 		getLogger().debug( "TestKit resources dir : {}", resourcesDir.getAbsolutePath() );
-		getLogger().debug( "TestKit staging dir : {}", stagingDir.getAbsolutePath() );
 
-		prepareMarkerFile( locatorFile, getProject() );
+		locatorFile.getParentFile().mkdirs();
+		indexFile.getParentFile().mkdirs();
+		FixtureIndex.build( resourcesDir ).write( indexFile );
 
-		final DateTimeFormatter formatter = ofLocalizedDateTime( FormatStyle.MEDIUM )
-				.withLocale( Locale.ROOT )
-				.withZone( ZoneOffset.UTC );
+		final Map<String, String> settings = new LinkedHashMap<>( getLocations() );
+		settings.put( TESTKIT_IMPL_PROJ_NAME, implicitProjectName.getOrElse( "" ) );
+		settings.putAll( new TreeMap<>( this.settings.get() ) );
 
-		try ( FileWriter writer = new FileWriter( locatorFile ) ) {
+		try ( Writer writer = Files.newBufferedWriter( locatorFile.toPath(), UTF_8 ) ) {
 			writer.write( "## Used by tests to locate the TestKit projects dir during test execution via resource lookup" );
-			writer.write( LINE_SEPARATOR );
-			writer.write( "## Generated : " + formatter.format( Instant.now() ) );
-			writer.write( LINE_SEPARATOR );
-			writer.write( TESTKIT_BASE_DIR + "=" + resourcesDir.getAbsolutePath().replace("\\","\\\\" ) );
-			writer.write( LINE_SEPARATOR );
-			writer.write( TESTKIT_STAGING_DIR + "=" + stagingDir.getAbsolutePath().replace("\\","\\\\" ) );
-			writer.write( LINE_SEPARATOR );
-			writer.write( TESTKIT_IMPL_PROJ_NAME + "=" + getImplicitProjectName().getOrElse( "" ) );
-			writer.write( LINE_SEPARATOR );
-			writer.flush();
-		}
-		catch (IOException e) {
-			throw new IllegalStateException( "Unable to open marker file output stream `" + locatorFile.getAbsolutePath() + "`", e );
-		}
-	}
-
-	private static void prepareMarkerFile(File markerFile, Project project) {
-		project.getLogger().lifecycle( "Preparing marker : {}", markerFile.getAbsolutePath() );
-		try {
-			final boolean dirsCreated = markerFile.getParentFile().mkdirs();
-			if ( ! dirsCreated ) {
-				project.getLogger().lifecycle( "Marker file directory not created" );
-			}
-
-			final boolean created = markerFile.createNewFile();
-			if ( ! created ) {
-				project.getLogger().lifecycle( "File creation failed, but with no exception" );
+			writer.write( '\n' );
+			writer.write( "## Locations are relative to this file's directory" );
+			writer.write( '\n' );
+			for ( Map.Entry<String, String> setting : settings.entrySet() ) {
+				writer.write( setting.getKey() + "=" + setting.getValue().replace( "\\", "\\\\" ) );
+				writer.write( '\n' );
 			}
 		}
 		catch (IOException e) {
-			throw new IllegalStateException( "Could not create marker file `" + markerFile.getAbsolutePath() + "`", e );
+			throw new IllegalStateException( "Unable to write locator file `" + locatorFile.getAbsolutePath() + "`", e );
 		}
 	}
 }
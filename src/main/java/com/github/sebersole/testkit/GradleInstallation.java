@@ -0,0 +1,93 @@
+package com.github.sebersole.testkit;
+
+import java.io.File;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A locally available Gradle distribution the TestKit tests are additionally run against
+ *
+ * @see TestKitSpec#getGradleInstallations()
+ */
+public class GradleInstallation {
+	private static final Pattern LAUNCHER_JAR = Pattern.compile( "gradle-launcher-(.+)\\.jar" );
+
+	/**
+	 * Locate the Gradle installation in the given directory, determining its version
+	 *
+	 * @throws IllegalStateException If the directory does not contain a Gradle installation
+	 */
+	public static GradleInstallation locate(File directory) {
+		final GradleInstallation installation = find( directory );
+		if ( installation == null ) {
+			throw new IllegalStateException( "Not a Gradle installation : " + directory.getAbsolutePath() );
+		}
+		return installation;
+	}
+
+	/**
+	 * Locate the Gradle installation in the given directory, determining its version
+	 *
+	 * @return The installation; {@code null} if the directory does not (or no longer)
+	 * contain a Gradle installation
+	 */
+	public static GradleInstallation find(File directory) {
+		final File[] launcherJars = new File( directory, "lib" ).listFiles( (dir, name) -> LAUNCHER_JAR.matcher( name ).matches() );
+		if ( launcherJars == null || launcherJars.length != 1 ) {
+			return null;
+		}
+
+		final Matcher matcher = LAUNCHER_JAR.matcher( launcherJars[0].getName() );
+		final boolean matches = matcher.matches();
+		assert matches;
+		return new GradleInstallation( directory, matcher.group( 1 ) );
+	}
+
+	/**
+	 * The name of the task running the TestKit tests against the Gradle installation in
+	 * the given directory - based on the name of the directory (e.g. {@code gradle-5.6.4}),
+	 * so the directory need not be inspected to name the task
+	 */
+	public static String testTaskName(File directory) {
+		final String name = directory.getName().replaceFirst( "^gradle-", "" );
+		return TestKitPlugin.TEST_TASK_NAME + "Gradle" + name.replaceAll( "[^A-Za-z0-9]", "_" );
+	}
+
+	private final File directory;
+	private final String version;
+
+	public GradleInstallation(File directory, String version) {
+		this.directory = directory;
+		this.version = version;
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public String getVersion() {
+		return version;
+	}
+
+	/**
+	 * The name of the directories specific to this Gradle version, e.g. the TestKit
+	 * directories of its runners
+	 */
+	public String getDirectoryName() {
+		return "gradle-" + version;
+	}
+
+	/**
+	 * The name of the task running the TestKit tests against this installation
+	 *
+	 * @see #testTaskName(File)
+	 */
+	public String getTestTaskName() {
+		return testTaskName( directory );
+	}
+
+	@Override
+	public String toString() {
+		return "Gradle " + version + " (" + directory.getAbsolutePath() + ")";
+	}
+}
@@ -0,0 +1,302 @@
+package com.github.sebersole.testkit;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+
+/**
+ * Creates the {@link GradleRunner} instances handed out by {@link ProjectScope}
+ * and keeps track of the builds they execute.
+ *
+ * With {@link RunnerMode#DAEMON}, all runners of a test worker share one TestKit
+ * directory so that the daemons started for one test are re-used by the next.
+ * Each {@link ProjectContainer} gets a factory of its own, counting the builds of its
+ * tests; the factories for the same TestKit directory share the estimate of the daemons
+ * started in it.
+ */
+public class GradleRunnerFactory {
+	/**
+	 * The system property Gradle uses to identify a test worker
+	 */
+	public static final String WORKER_ID_PROPERTY = "org.gradle.test.worker";
+
+	/**
+	 * The daemons estimated to have been started, by TestKit directory - the daemons
+	 * outlive the containers
+	 */
+	private static final Map<String, DaemonEstimate> DAEMON_ESTIMATES = new ConcurrentHashMap<>();
+
+	/**
+	 * Gradle only starts a new daemon if all the ones it started before are busy; this
+	 * is an estimate as daemons may also expire or be left over from a previous run
+	 */
+	private static class DaemonEstimate {
+		private int buildsInFlight;
+		private int daemonsStarted;
+
+		/**
+		 * @return Whether the build (presumably) starts a new daemon
+		 */
+		private synchronized boolean buildStarting() {
+			buildsInFlight++;
+			if ( buildsInFlight > daemonsStarted ) {
+				daemonsStarted++;
+				return true;
+			}
+			return false;
+		}
+
+		private synchronized void buildFinished() {
+			buildsInFlight--;
+		}
+	}
+
+	/**
+	 * The factory used when no TestKit configuration is available - in-process
+	 * builds using the TestKit default directory
+	 */
+	public static final GradleRunnerFactory DEFAULT = new GradleRunnerFactory( RunnerMode.DEBUG, null, null, new DaemonEstimate() );
+
+	/**
+	 * Create a factory for the current test worker
+	 *
+	 * @param testKitBaseDir The directory under which each test worker gets its own TestKit directory
+	 */
+	public static GradleRunnerFactory forWorker(RunnerMode mode, File testKitBaseDir) {
+		return forWorker( mode, testKitBaseDir, null );
+	}
+
+	/**
+	 * @param gradleInstallation The Gradle installation to run the builds with; {@code null}
+	 * for the Gradle version running the tests
+	 *
+	 * @see #forWorker(RunnerMode, File)
+	 */
+	public static GradleRunnerFactory forWorker(RunnerMode mode, File testKitBaseDir, File gradleInstallation) {
+		return forDirectory(
+				mode,
+				new File( testKitBaseDir, "worker-" + System.getProperty( WORKER_ID_PROPERTY, "0" ) ),
+				gradleInstallation
+		);
+	}
+
+	/**
+	 * Create a factory for the given TestKit directory
+	 */
+	public static GradleRunnerFactory forDirectory(RunnerMode mode, File testKitDir) {
+		return forDirectory( mode, testKitDir, null );
+	}
+
+	/**
+	 * @param gradleInstallation The Gradle installation to run the builds with; {@code null}
+	 * for the Gradle version running the tests
+	 *
+	 * @see #forDirectory(RunnerMode, File)
+	 */
+	public static GradleRunnerFactory forDirectory(RunnerMode mode, File testKitDir, File gradleInstallation) {
+		return new GradleRunnerFactory(
+				mode,
+				testKitDir,
+				gradleInstallation,
+				DAEMON_ESTIMATES.computeIfAbsent( testKitDir.getAbsolutePath(), key -> new DaemonEstimate() )
+		);
+	}
+
+	private final RunnerMode mode;
+	private final File testKitDir;
+	private final File gradleInstallation;
+	private final DaemonEstimate daemonEstimate;
+
+	private int inProcessBuilds;
+	private int estimatedDaemonStarts;
+	private int estimatedDaemonReuses;
+	private int cachedBuilds;
+
+	private GradleRunnerFactory(RunnerMode mode, File testKitDir, File gradleInstallation, DaemonEstimate daemonEstimate) {
+		this.mode = mode;
+		this.testKitDir = testKitDir;
+		this.gradleInstallation = gradleInstallation;
+		this.daemonEstimate = daemonEstimate;
+	}
+
+	public RunnerMode getMode() {
+		return mode;
+	}
+
+	/**
+	 * The TestKit directory (Gradle user home and daemon registry) shared by the
+	 * created runners; {@code null} indicates the TestKit default
+	 */
+	public File getTestKitDir() {
+		return testKitDir;
+	}
+
+	/**
+	 * The Gradle installation the created runners use; {@code null} indicates the
+	 * Gradle version running the tests
+	 *
+	 * @see TestKitSpec#getGradleInstallations()
+	 */
+	public File getGradleInstallation() {
+		return gradleInstallation;
+	}
+
+	public GradleRunner createGradleRunner(File projectDir, String... args) {
+		return createGradleRunner( projectDir, null, null, null, args );
+	}
+
+	ManagedGradleRunner createGradleRunner(
+			File projectDir,
+			ScopeMetrics metrics,
+			BuildLog buildLog,
+			BuildResultCache resultCache,
+			String... args) {
+		return createGradleRunner( projectDir, metrics, buildLog, null, resultCache, args );
+	}
+
+	/**
+	 * @param metrics Records the duration of the builds; may be {@code null}
+	 * @param buildLog The log to stream the build output to; {@code null} forwards
+	 * the output to the console
+	 * @param buildHistory Records the builds and their task outcomes; may be {@code null}
+	 * @param resultCache The cache to replay the results of repeated builds from; {@code null}
+	 * to always run the builds
+	 */
+	ManagedGradleRunner createGradleRunner(
+			File projectDir,
+			ScopeMetrics metrics,
+			BuildLog buildLog,
+			BuildHistory buildHistory,
+			BuildResultCache resultCache,
+			String... args) {
+		final ArrayList<String> arguments = new ArrayList<>( Arrays.asList( args ) );
+		arguments.add( "--stacktrace" );
+
+		final GradleRunner gradleRunner = GradleRunner.create()
+				.withPluginClasspath()
+				.withDebug( mode == RunnerMode.DEBUG )
+				.withProjectDir( projectDir )
+				.withArguments( arguments );
+
+		if ( buildLog == null ) {
+			gradleRunner.forwardOutput();
+		}
+		else {
+			gradleRunner.forwardStdOutput( buildLog.getWriter() );
+			gradleRunner.forwardStdError( buildLog.getWriter() );
+		}
+
+		if ( testKitDir != null ) {
+			gradleRunner.withTestKitDir( testKitDir );
+		}
+
+		final ManagedGradleRunner managedRunner = new ManagedGradleRunner( gradleRunner, this, metrics, buildLog, buildHistory, resultCache );
+		if ( gradleInstallation != null ) {
+			// through the managed runner, which keys the cached results by the distribution
+			managedRunner.withGradleInstallation( gradleInstallation );
+		}
+		return managedRunner;
+	}
+
+	BuildResult execute(GradleRunner gradleRunner, ScopeMetrics metrics, Supplier<BuildResult> build) {
+		final boolean inProcess = gradleRunner.isDebug();
+		buildStarting( inProcess );
+		final long start = System.nanoTime();
+		try {
+			return build.get();
+		}
+		finally {
+			if ( metrics != null ) {
+				metrics.built( System.nanoTime() - start );
+			}
+			buildFinished( inProcess );
+		}
+	}
+
+	private void buildStarting(boolean inProcess) {
+		if ( inProcess ) {
+			synchronized ( this ) {
+				inProcessBuilds++;
+			}
+			return;
+		}
+
+		final boolean daemonStarted = daemonEstimate.buildStarting();
+		synchronized ( this ) {
+			if ( daemonStarted ) {
+				estimatedDaemonStarts++;
+			}
+			else {
+				estimatedDaemonReuses++;
+			}
+		}
+	}
+
+	private void buildFinished(boolean inProcess) {
+		if ( !inProcess ) {
+			daemonEstimate.buildFinished();
+		}
+	}
+
+	/**
+	 * Record a build whose result was replayed from the {@link BuildResultCache}
+	 */
+	synchronized void buildReplayed() {
+		cachedBuilds++;
+	}
+
+	/**
+	 * The number of builds executed in-process ({@link RunnerMode#DEBUG})
+	 */
+	public synchronized int getInProcessBuilds() {
+		return inProcessBuilds;
+	}
+
+	/**
+	 * The estimated number of builds which had to start a new daemon - Gradle does not
+	 * tell, so this assumes a new daemon is only started when all daemons started in the
+	 * TestKit directory so far are busy
+	 */
+	public synchronized int getEstimatedDaemonStarts() {
+		return estimatedDaemonStarts;
+	}
+
+	/**
+	 * The estimated number of builds which re-used a warm daemon
+	 *
+	 * @see #getEstimatedDaemonStarts()
+	 */
+	public synchronized int getEstimatedDaemonReuses() {
+		return estimatedDaemonReuses;
+	}
+
+	/**
+	 * The number of builds which were not run, their result being replayed from the
+	 * {@linkplain TestKitSpec#getCacheBuildResults() build result cache}
+	 */
+	public synchronized int getCachedBuilds() {
+		return cachedBuilds;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format(
+				Locale.ROOT,
+				"GradleRunnerFactory(mode=%s, testKitDir=%s, gradleInstallation=%s, in-process builds=%s, estimated daemon starts=%s, estimated daemon re-uses=%s, cached builds=%s)",
+				mode,
+				testKitDir,
+				gradleInstallation,
+				inProcessBuilds,
+				estimatedDaemonStarts,
+				estimatedDaemonReuses,
+				cachedBuilds
+		);
+	}
+}
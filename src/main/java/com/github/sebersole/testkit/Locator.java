@@ -0,0 +1,124 @@
+package com.github.sebersole.testkit;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Properties;
+
+import static com.github.sebersole.testkit.TestKitPlugin.MARKER_FILE_NAME;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * The marker file along with its settings, as written by {@link GenerateLocatorFileTask}.
+ * Looked up once per container, which is shared by the whole test run.
+ *
+ * A setting the marker file does not contain, or leaves empty, takes its default
+ */
+class Locator {
+	private final File markerDir;
+	private final Properties properties;
+
+	/**
+	 * @param markerDir The directory the relative locations of the settings are resolved against
+	 * @param properties The settings, as written to the locator file
+	 */
+	Locator(File markerDir, Properties properties) {
+		this.markerDir = markerDir;
+		this.properties = properties;
+	}
+
+	static Locator load() {
+		final URL markerFileUrl = locateMarker();
+		if ( markerFileUrl == null ) {
+			throw new IllegalStateException( "Could not locate TestKit project dir marker file (`" + MARKER_FILE_NAME + "`)" );
+		}
+
+		final File markerFile = new File( markerFileUrl.getFile() );
+		return new Locator( markerFile.getParentFile(), loadProperties( markerFile ) );
+	}
+
+	private static URL locateMarker() {
+		final URL withoutSlash = ProjectScope.class.getResource( MARKER_FILE_NAME );
+		if ( withoutSlash != null ) {
+			return withoutSlash;
+		}
+
+		final URL withSlash = ProjectScope.class.getResource( "/" + MARKER_FILE_NAME );
+		if ( withSlash != null ) {
+			return withSlash;
+		}
+
+		return null;
+	}
+
+	private static Properties loadProperties(File markerFile) {
+		final Properties properties = new Properties();
+		try ( Reader reader = Files.newBufferedReader( markerFile.toPath(), UTF_8 ) ) {
+			properties.load( reader );
+		}
+		catch (IOException e) {
+			throw new IllegalStateException( "Unable to read `" + MARKER_FILE_NAME + "`" );
+		}
+		return properties;
+	}
+
+	Properties getProperties() {
+		return properties;
+	}
+
+	/**
+	 * The named setting; {@code null} if not set
+	 */
+	String getSetting(String name) {
+		final String value = properties.getProperty( name );
+		return value == null || value.trim().isEmpty() ? null : value;
+	}
+
+	boolean getFlag(String name, boolean defaultValue) {
+		final String value = getSetting( name );
+		return value == null ? defaultValue : Boolean.parseBoolean( value.trim() );
+	}
+
+	int getInt(String name, int defaultValue) {
+		final String value = getSetting( name );
+		if ( value == null ) {
+			return defaultValue;
+		}
+
+		try {
+			return Integer.parseInt( value.trim() );
+		}
+		catch (NumberFormatException e) {
+			throw new IllegalStateException( "Invalid `" + name + "` in marker file : " + value, e );
+		}
+	}
+
+	/**
+	 * The named location, resolved against the marker file's directory; {@code null} if not set
+	 */
+	File getLocation(String name) {
+		final String location = getSetting( name );
+		return location == null ? null : resolveLocation( location );
+	}
+
+	File getRequiredLocation(String name) {
+		final File location = getLocation( name );
+		if ( location == null ) {
+			throw new IllegalStateException( "Could not find `" + name + "` in marker file" );
+		}
+		return location;
+	}
+
+	/**
+	 * Locations in the marker file are generally relative to the marker file's directory
+	 */
+	private File resolveLocation(String location) {
+		final File file = new File( location );
+		if ( file.isAbsolute() ) {
+			return file;
+		}
+		return new File( markerDir, location ).toPath().normalize().toFile();
+	}
+}
@@ -0,0 +1,348 @@
+package com.github.sebersole.testkit;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.testkit.runner.InvalidPluginMetadataException;
+import org.gradle.testkit.runner.InvalidRunnerConfigurationException;
+import org.gradle.testkit.runner.UnexpectedBuildFailure;
+import org.gradle.testkit.runner.UnexpectedBuildSuccess;
+import org.gradle.util.GradleVersion;
+
+/**
+ * The TestKit {@link GradleRunner} of a {@link ProjectScope} - delegates to the runner
+ * created by TestKit, observing the builds run through it: their duration, output, task
+ * outcomes and (if enabled) their recorded results.
+ *
+ * {@link #run()} is declared without overriding, as {@code GradleRunner#run} only exists
+ * in the TestKit of later Gradle versions
+ */
+public final class ManagedGradleRunner extends GradleRunner {
+	private final GradleRunner delegate;
+	private final GradleRunnerFactory factory;
+	private final ScopeMetrics metrics;
+	private final BuildLog buildLog;
+	private final BuildHistory buildHistory;
+	private final BuildResultCache resultCache;
+
+	// identifies the Gradle distribution for the result cache
+	private String gradleDistribution = "version " + GradleVersion.current().getVersion();
+
+	/**
+	 * @param metrics Records the duration of the builds; may be {@code null}
+	 * @param buildLog The log the build output is streamed to; {@code null} if the
+	 * output is forwarded to the console
+	 * @param buildHistory Records the builds and their task outcomes; may be {@code null}
+	 * @param resultCache The cache to replay the results of repeated builds from; may be {@code null}
+	 */
+	ManagedGradleRunner(
+			GradleRunner delegate,
+			GradleRunnerFactory factory,
+			ScopeMetrics metrics,
+			BuildLog buildLog,
+			BuildHistory buildHistory,
+			BuildResultCache resultCache) {
+		this.delegate = delegate;
+		this.factory = factory;
+		this.metrics = metrics;
+		this.buildLog = buildLog;
+		this.buildHistory = buildHistory;
+		this.resultCache = resultCache;
+	}
+
+	@Override
+	public ManagedGradleRunner withGradleVersion(String versionNumber) {
+		gradleDistribution = "version " + versionNumber;
+		delegate.withGradleVersion( versionNumber );
+		return this;
+	}
+
+	@Override
+	public ManagedGradleRunner withGradleInstallation(File installation) {
+		gradleDistribution = "installation " + installation.getAbsolutePath();
+		delegate.withGradleInstallation( installation );
+		return this;
+	}
+
+	@Override
+	public ManagedGradleRunner withGradleDistribution(URI distribution) {
+		gradleDistribution = "distribution " + distribution;
+		delegate.withGradleDistribution( distribution );
+		return this;
+	}
+
+	@Override
+	public ManagedGradleRunner withTestKitDir(File testKitDir) {
+		delegate.withTestKitDir( testKitDir );
+		return this;
+	}
+
+	@Override
+	public File getProjectDir() {
+		return delegate.getProjectDir();
+	}
+
+	@Override
+	public ManagedGradleRunner withProjectDir(File projectDir) {
+		delegate.withProjectDir( projectDir );
+		return this;
+	}
+
+	@Override
+	public List<String> getArguments() {
+		return delegate.getArguments();
+	}
+
+	@Override
+	public ManagedGradleRunner withArguments(List<String> arguments) {
+		delegate.withArguments( arguments );
+		return this;
+	}
+
+	@Override
+	public ManagedGradleRunner withArguments(String... arguments) {
+		delegate.withArguments( arguments );
+		return this;
+	}
+
+	@Override
+	public List<? extends File> getPluginClasspath() {
+		return delegate.getPluginClasspath();
+	}
+
+	@Override
+	public ManagedGradleRunner withPluginClasspath() throws InvalidPluginMetadataException {
+		delegate.withPluginClasspath();
+		return this;
+	}
+
+	@Override
+	public ManagedGradleRunner withPluginClasspath(Iterable<? extends File> classpath) {
+		delegate.withPluginClasspath( classpath );
+		return this;
+	}
+
+	@Override
+	public boolean isDebug() {
+		return delegate.isDebug();
+	}
+
+	@Override
+	public ManagedGradleRunner withDebug(boolean flag) {
+		delegate.withDebug( flag );
+		return this;
+	}
+
+	@Override
+	public Map<String, String> getEnvironment() {
+		return delegate.getEnvironment();
+	}
+
+	@Override
+	public ManagedGradleRunner withEnvironment(Map<String, String> environmentVariables) {
+		delegate.withEnvironment( environmentVariables );
+		return this;
+	}
+
+	@Override
+	public ManagedGradleRunner forwardStdOutput(Writer writer) {
+		delegate.forwardStdOutput( writer );
+		return this;
+	}
+
+	@Override
+	public ManagedGradleRunner forwardStdError(Writer writer) {
+		delegate.forwardStdError( writer );
+		return this;
+	}
+
+	@Override
+	public ManagedGradleRunner forwardOutput() {
+		delegate.forwardOutput();
+		return this;
+	}
+
+	@Override
+	public BuildResult build() throws InvalidRunnerConfigurationException, UnexpectedBuildFailure {
+		return executeCached( delegate::build, true );
+	}
+
+	@Override
+	public BuildResult buildAndFail() throws InvalidRunnerConfigurationException, UnexpectedBuildSuccess {
+		return executeCached( delegate::buildAndFail, false );
+	}
+
+	/**
+	 * Run the build, regardless of its outcome - overrides {@code GradleRunner#run} where it exists
+	 */
+	public BuildResult run() throws InvalidRunnerConfigurationException {
+		try {
+			return build();
+		}
+		catch (UnexpectedBuildFailure e) {
+			return e.getBuildResult();
+		}
+	}
+
+	/**
+	 * Replay the result of the build from the result cache, if there is one; otherwise
+	 * execute the build and record its result
+	 *
+	 * @param expectSuccess Whether the build is expected to succeed (or fail)
+	 */
+	private BuildResult executeCached(Supplier<BuildResult> build, boolean expectSuccess) {
+		if ( resultCache == null ) {
+			return execute( expectSuccess, build );
+		}
+
+		// the project directory is hashed as it is before the build
+		final String key = BuildResultCache.key(
+				getProjectDir(),
+				getArguments(),
+				gradleDistribution,
+				getPluginClasspath(),
+				getEnvironment(),
+				resultCache.getPreviousKey()
+		);
+
+		final RecordedBuildResult recorded = resultCache.isEnabled() ? resultCache.load( key ) : null;
+		if ( recorded != null ) {
+			final List<String> arguments = new ArrayList<>( getArguments() );
+			resultCache.replayed( key, () -> runReplayed( arguments ) );
+			factory.buildReplayed();
+			replayOutput( recorded.getOutput() );
+			recordBuild( ( recorded.isSuccessful() ? "succeeded" : "failed" ) + " (replayed)", recorded );
+			if ( recorded.isSuccessful() != expectSuccess ) {
+				final String message = String.format(
+						Locale.ROOT,
+						"Unexpected build execution %s in %s with arguments %s (replayed from the TestKit build result cache)\n\nOutput:\n%s",
+						recorded.isSuccessful() ? "success" : "failure",
+						getProjectDir(),
+						getArguments(),
+						recorded.getOutput()
+				);
+				if ( expectSuccess ) {
+					throw new UnexpectedBuildFailure( message, recorded );
+				}
+				throw new UnexpectedBuildSuccess( message, recorded );
+			}
+			return recorded;
+		}
+
+		// the build depends on the outputs of the previous ones
+		resultCache.runPendingBuilds();
+		resultCache.executed( key );
+		if ( !resultCache.isEnabled() ) {
+			return execute( expectSuccess, build );
+		}
+
+		try {
+			final BuildResult result = execute( expectSuccess, build );
+			resultCache.store( key, RecordedBuildResult.of( result, expectSuccess ) );
+			return result;
+		}
+		catch (UnexpectedBuildFailure e) {
+			resultCache.store( key, RecordedBuildResult.of( e.getBuildResult(), false ) );
+			throw e;
+		}
+		catch (UnexpectedBuildSuccess e) {
+			resultCache.store( key, RecordedBuildResult.of( e.getBuildResult(), true ) );
+			throw e;
+		}
+	}
+
+	/**
+	 * Run a build whose result was replayed, for its outputs - regardless of its outcome,
+	 * which was already reported
+	 */
+	private void runReplayed(List<String> arguments) {
+		final List<String> currentArguments = new ArrayList<>( delegate.getArguments() );
+		delegate.withArguments( arguments );
+		if ( buildLog != null ) {
+			buildLog.buildStarting( arguments );
+		}
+		try {
+			factory.execute(
+					delegate,
+					metrics,
+					() -> {
+						try {
+							return delegate.build();
+						}
+						catch (UnexpectedBuildFailure e) {
+							return e.getBuildResult();
+						}
+					}
+			);
+		}
+		finally {
+			delegate.withArguments( currentArguments );
+			if ( buildLog != null ) {
+				buildLog.flush();
+			}
+		}
+	}
+
+	private void replayOutput(String output) {
+		if ( buildLog == null ) {
+			System.out.print( output );
+			return;
+		}
+
+		buildLog.buildStarting( getArguments() );
+		try {
+			final Writer writer = buildLog.getWriter();
+			writer.write( output );
+		}
+		catch (IOException e) {
+			throw new IllegalStateException( "Unable to write TestKit build log `" + buildLog.getFile() + "`", e );
+		}
+		buildLog.flush();
+	}
+
+	/**
+	 * @param expectSuccess Whether the build is expected to succeed (or fail)
+	 */
+	private BuildResult execute(boolean expectSuccess, Supplier<BuildResult> build) {
+		if ( buildLog != null ) {
+			buildLog.buildStarting( delegate.getArguments() );
+		}
+		try {
+			final BuildResult result = factory.execute( delegate, metrics, build );
+			recordBuild( expectSuccess ? "succeeded" : "failed", result );
+			return result;
+		}
+		catch (UnexpectedBuildFailure e) {
+			recordBuild( "failed unexpectedly", e.getBuildResult() );
+			throw e;
+		}
+		catch (UnexpectedBuildSuccess e) {
+			recordBuild( "succeeded unexpectedly", e.getBuildResult() );
+			throw e;
+		}
+		catch (RuntimeException e) {
+			recordBuild( "not run : " + e, null );
+			throw e;
+		}
+		finally {
+			if ( buildLog != null ) {
+				buildLog.flush();
+			}
+		}
+	}
+
+	private void recordBuild(String outcome, BuildResult result) {
+		if ( buildHistory != null ) {
+			buildHistory.record( getArguments(), outcome, result );
+		}
+	}
+}
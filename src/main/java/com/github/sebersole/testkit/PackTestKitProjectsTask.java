@@ -0,0 +1,93 @@
+package com.github.sebersole.testkit;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.inject.Inject;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.FileChange;
+import org.gradle.work.Incremental;
+import org.gradle.work.InputChanges;
+
+/**
+ * Packs each TestKit project into a single {@linkplain FixtureArchive archive}
+ * used for {@linkplain StagingMode#ARCHIVE archive staging}.
+ *
+ * Incremental - only the projects containing changed files are re-packed.
+ */
+public abstract class PackTestKitProjectsTask extends DefaultTask {
+	private final DirectoryProperty testKitResourcesDirectory;
+	private final DirectoryProperty archiveDirectory;
+
+	@Inject
+	public PackTestKitProjectsTask(ObjectFactory objectFactory) {
+		testKitResourcesDirectory = objectFactory.directoryProperty();
+		archiveDirectory = objectFactory.directoryProperty();
+	}
+
+	@Incremental
+	@PathSensitive( PathSensitivity.RELATIVE )
+	@InputDirectory
+	public DirectoryProperty getTestKitResourcesDirectory() {
+		return testKitResourcesDirectory;
+	}
+
+	@OutputDirectory
+	public DirectoryProperty getArchiveDirectory() {
+		return archiveDirectory;
+	}
+
+	@TaskAction
+	public void packProjects(InputChanges inputChanges) {
+		final File resourcesDir = testKitResourcesDirectory.get().getAsFile();
+		final File archiveDir = archiveDirectory.get().getAsFile();
+
+		final Set<String> projectNames = new TreeSet<>();
+		if ( inputChanges.isIncremental() ) {
+			for ( FileChange change : inputChanges.getFileChanges( testKitResourcesDirectory ) ) {
+				final Path relativePath = resourcesDir.toPath().relativize( change.getFile().toPath() );
+				if ( relativePath.getNameCount() > 1 ) {
+					projectNames.add( relativePath.getName( 0 ).toString() );
+				}
+			}
+		}
+		else {
+			final File[] archives = archiveDir.listFiles( (dir, name) -> name.endsWith( FixtureArchive.EXTENSION ) );
+			if ( archives != null ) {
+				for ( File archive : archives ) {
+					archive.delete();
+				}
+			}
+
+			final File[] projectDirectories = resourcesDir.listFiles( File::isDirectory );
+			if ( projectDirectories != null ) {
+				for ( File projectDirectory : projectDirectories ) {
+					projectNames.add( projectDirectory.getName() );
+				}
+			}
+		}
+
+		for ( String projectName : projectNames ) {
+			final File projectDir = new File( resourcesDir, projectName );
+			final File archive = new File( archiveDir, projectName + FixtureArchive.EXTENSION );
+
+			if ( projectDir.isDirectory() ) {
+				getLogger().debug( "Packing TestKit project `{}` : {}", projectName, archive.getAbsolutePath() );
+				FixtureArchive.pack( projectDir.toPath(), archive.toPath() );
+			}
+			else {
+				// the project was removed
+				archive.delete();
+			}
+		}
+	}
+}
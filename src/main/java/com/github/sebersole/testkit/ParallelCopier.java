@@ -0,0 +1,267 @@
+package com.github.sebersole.testkit;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+import static java.nio.file.FileVisitResult.CONTINUE;
+import static java.nio.file.StandardCopyOption.COPY_ATTRIBUTES;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * The engine behind {@link DirectoryCopier#copy} and {@link DirectoryCopier#link}.
+ *
+ * The source tree is walked once, the complete directory structure is created
+ * up front and the files are then copied in batches on a bounded pool.  Files
+ * of at least {@link #TRANSFER_THRESHOLD} bytes are copied using
+ * {@link FileChannel#transferTo} so the kernel can do the copy.
+ */
+final class ParallelCopier {
+	/**
+	 * Files at least this large are copied via {@link FileChannel#transferTo}
+	 */
+	static final long TRANSFER_THRESHOLD = 1024 * 1024;
+
+	/**
+	 * Trees with fewer files than this are copied on the calling thread
+	 */
+	private static final int PARALLEL_THRESHOLD = 64;
+
+	private static final int BATCH_SIZE = 32;
+
+	private static final ForkJoinPool POOL = new ForkJoinPool(
+			Math.max( 2, Math.min( 2 * Runtime.getRuntime().availableProcessors(), 32 ) )
+	);
+
+	private ParallelCopier() {
+	}
+
+	/**
+	 * A file to be copied
+	 */
+	static class FileEntry {
+		private final Path relativePath;
+		private final long size;
+
+		FileEntry(Path relativePath, long size) {
+			this.relativePath = relativePath;
+			this.size = size;
+		}
+
+		Path getRelativePath() {
+			return relativePath;
+		}
+
+		long getSize() {
+			return size;
+		}
+	}
+
+	/**
+	 * Copy the {@code source} tree to {@code target}
+	 *
+	 * @param linking Whether {@linkplain DirectoryCopier#isLinkable linkable} files should be hard-linked
+	 * @param metrics Records the copied and linked files; may be {@code null}
+	 *
+	 * @return The files (relative to {@code target}) which were linked
+	 */
+	static Set<Path> copy(Path source, Path target, boolean linking, ScopeMetrics metrics) throws IOException {
+		return copy( source, target, file -> true, linking, metrics );
+	}
+
+	/**
+	 * Copy the files of the {@code source} tree accepted by the filter to {@code target}
+	 *
+	 * @param filter Accepts the files (relative to {@code source}) to copy
+	 *
+	 * @return The files (relative to {@code target}) which were linked
+	 */
+	static Set<Path> copy(
+			Path source,
+			Path target,
+			Predicate<Path> filter,
+			boolean linking,
+			ScopeMetrics metrics) throws IOException {
+		final List<Path> directories = new ArrayList<>();
+		final List<FileEntry> files = new ArrayList<>();
+
+		Files.walkFileTree(
+				source,
+				new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+						directories.add( source.relativize( dir ) );
+						return CONTINUE;
+					}
+
+					@Override
+					public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+						final Path relativePath = source.relativize( file );
+						if ( filter.test( relativePath ) ) {
+							files.add( new FileEntry( relativePath, attrs.size() ) );
+						}
+						return CONTINUE;
+					}
+
+					@Override
+					public FileVisitResult visitFileFailed(Path file, IOException exc) {
+						throw new IllegalStateException(
+								String.format( Locale.ROOT, "Problem visiting file `%s`", file ),
+								exc
+						);
+					}
+				}
+		);
+
+		return copy( source, target, directories, files, linking, metrics );
+	}
+
+	/**
+	 * Copy the given directories and files from {@code source} to {@code target}.
+	 * {@code directories} is expected in walk order (parents before children)
+	 *
+	 * @return The files (relative to {@code target}) which were linked
+	 */
+	static Set<Path> copy(
+			Path source,
+			Path target,
+			List<Path> directories,
+			List<FileEntry> files,
+			boolean linking,
+			ScopeMetrics metrics) throws IOException {
+		for ( Path directory : directories ) {
+			try {
+				// simply copies the structure, not files...
+				Files.copy( source.resolve( directory ), target.resolve( directory ), COPY_ATTRIBUTES );
+			}
+			catch (FileAlreadyExistsException ignore) {
+			}
+		}
+
+		final Set<Path> linkedFiles = ConcurrentHashMap.newKeySet();
+		final AtomicBoolean linkingSupported = new AtomicBoolean( linking );
+
+		if ( files.size() < PARALLEL_THRESHOLD ) {
+			for ( FileEntry file : files ) {
+				copyFile( source, target, file, linkingSupported, linkedFiles, metrics );
+			}
+			return Collections.unmodifiableSet( linkedFiles );
+		}
+
+		final List<Callable<Void>> batches = new ArrayList<>();
+		for ( int start = 0; start < files.size(); start += BATCH_SIZE ) {
+			final List<FileEntry> batch = files.subList( start, Math.min( start + BATCH_SIZE, files.size() ) );
+			batches.add(
+					() -> {
+						for ( FileEntry file : batch ) {
+							copyFile( source, target, file, linkingSupported, linkedFiles, metrics );
+						}
+						return null;
+					}
+			);
+		}
+
+		final List<Future<Void>> futures = POOL.invokeAll( batches );
+		for ( Future<Void> future : futures ) {
+			try {
+				future.get();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException( "Interrupted while copying `" + source + "`", e );
+			}
+			catch (ExecutionException e) {
+				if ( e.getCause() instanceof IOException ) {
+					throw (IOException) e.getCause();
+				}
+				if ( e.getCause() instanceof RuntimeException ) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new IOException( e.getCause() );
+			}
+		}
+
+		return Collections.unmodifiableSet( linkedFiles );
+	}
+
+	private static void copyFile(
+			Path source,
+			Path target,
+			FileEntry file,
+			AtomicBoolean linkingSupported,
+			Set<Path> linkedFiles,
+			ScopeMetrics metrics) throws IOException {
+		final Path sourceFile = source.resolve( file.getRelativePath() );
+		final Path targetFile = target.resolve( file.getRelativePath() );
+
+		if ( linkingSupported.get() && DirectoryCopier.isLinkable( file.getRelativePath() ) ) {
+			try {
+				Files.createLink( targetFile, sourceFile );
+				linkedFiles.add( file.getRelativePath() );
+				if ( metrics != null ) {
+					metrics.fileLinked();
+				}
+				return;
+			}
+			catch (FileAlreadyExistsException e) {
+				throw e;
+			}
+			catch (UnsupportedOperationException | IOException e) {
+				// links are not supported here - copy this file and all the rest
+				linkingSupported.set( false );
+			}
+		}
+
+		if ( file.getSize() >= TRANSFER_THRESHOLD ) {
+			transfer( sourceFile, targetFile, file.getSize() );
+		}
+		else {
+			Files.copy( sourceFile, targetFile );
+		}
+
+		if ( metrics != null ) {
+			metrics.fileCopied( file.getSize() );
+		}
+	}
+
+	private static void transfer(Path sourceFile, Path targetFile, long size) throws IOException {
+		try ( FileChannel in = FileChannel.open( sourceFile, READ );
+				FileChannel out = FileChannel.open( targetFile, CREATE_NEW, WRITE ) ) {
+			long position = 0;
+			while ( position < size ) {
+				final long transferred = in.transferTo( position, size - position, out );
+				if ( transferred <= 0 ) {
+					// the file shrank underneath us
+					break;
+				}
+				position += transferred;
+			}
+		}
+
+		// Files.copy retains the permissions (e.g. executable scripts); do the same here
+		try {
+			Files.setPosixFilePermissions( targetFile, Files.getPosixFilePermissions( sourceFile ) );
+		}
+		catch (UnsupportedOperationException ignore) {
+		}
+	}
+}
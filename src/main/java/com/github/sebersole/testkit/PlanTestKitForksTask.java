@@ -0,0 +1,185 @@
+package com.github.sebersole.testkit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import javax.inject.Inject;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import static java.nio.file.FileVisitResult.CONTINUE;
+
+/**
+ * Balances the TestKit test classes across the forks of a sharded test run, based on
+ * their {@linkplain TestDurations recorded durations}.
+ *
+ * Gradle hands the test classes to the forks round-robin, in the order in which it
+ * finds them in the test classes directories.  This task lays the class files out as
+ * one numbered directory per class, in the balanced order, which {@code testKitTest}
+ * then uses as its test classes directories.  The classes themselves are still loaded
+ * from the regular output directories.
+ */
+@CacheableTask
+public abstract class PlanTestKitForksTask extends DefaultTask {
+	// classes Gradle does not consider when scanning for tests
+	private static final Pattern ANONYMOUS_CLASS = Pattern.compile( ".*\\$\\d+.*\\.class" );
+
+	private final ConfigurableFileCollection testClassesDirs;
+	private final RegularFileProperty durationsFile;
+	private final Property<Integer> forks;
+	private final DirectoryProperty plannedClassesDirectory;
+
+	@Inject
+	public PlanTestKitForksTask(ObjectFactory objectFactory) {
+		testClassesDirs = objectFactory.fileCollection();
+		durationsFile = objectFactory.fileProperty();
+		forks = objectFactory.property( Integer.class );
+		plannedClassesDirectory = objectFactory.directoryProperty();
+	}
+
+	@InputFiles
+	@PathSensitive( PathSensitivity.RELATIVE )
+	public ConfigurableFileCollection getTestClassesDirs() {
+		return testClassesDirs;
+	}
+
+	/**
+	 * The file recording the durations of the test classes
+	 *
+	 * @see #getDurations()
+	 */
+	@Internal
+	public RegularFileProperty getDurationsFile() {
+		return durationsFile;
+	}
+
+	/**
+	 * The (quantized) recorded durations - only changes of some significance change the plan
+	 */
+	@Input
+	public Map<String, Long> getDurations() {
+		return TestDurations.read( durationsFile.getAsFile().getOrNull() ).quantized();
+	}
+
+	@Input
+	public Property<Integer> getForks() {
+		return forks;
+	}
+
+	@OutputDirectory
+	public DirectoryProperty getPlannedClassesDirectory() {
+		return plannedClassesDirectory;
+	}
+
+	/**
+	 * The planned test classes directories, in order
+	 */
+	static List<File> listPlannedDirectories(File plannedClassesDirectory) {
+		final File[] directories = plannedClassesDirectory.listFiles( File::isDirectory );
+		if ( directories == null ) {
+			return Collections.emptyList();
+		}
+		Arrays.sort( directories );
+		return Arrays.asList( directories );
+	}
+
+	@TaskAction
+	public void planForks() throws IOException {
+		final Path outputDir = plannedClassesDirectory.get().getAsFile().toPath();
+		if ( Files.exists( outputDir ) ) {
+			CleanupService.deleteRecursively( outputDir );
+		}
+		Files.createDirectories( outputDir );
+
+		// the class files of each class Gradle considers, plus its anonymous classes
+		final Map<String, List<Path>> classFiles = new TreeMap<>();
+		final Map<String, Path> classDirs = new TreeMap<>();
+		for ( File classesDir : testClassesDirs.getFiles() ) {
+			if ( classesDir.isDirectory() ) {
+				collectClassFiles( classesDir.toPath(), classFiles, classDirs );
+			}
+		}
+
+		final TestDurations durations = TestDurations.read( durationsFile.getAsFile().getOrNull() );
+		final List<String> plan = durations.balance( classFiles.keySet(), forks.get() );
+		getLogger().debug( "TestKit fork plan ({} forks) : {}", forks.get(), plan );
+
+		final String format = "%0" + Integer.toString( Math.max( 1, plan.size() - 1 ) ).length() + "d";
+		for ( int i = 0; i < plan.size(); i++ ) {
+			final String className = plan.get( i );
+			final Path classesDir = classDirs.get( className );
+			final Path targetDir = outputDir.resolve( String.format( Locale.ROOT, format, i ) );
+			for ( Path classFile : classFiles.get( className ) ) {
+				final Path target = targetDir.resolve( classesDir.relativize( classFile ).toString() );
+				Files.createDirectories( target.getParent() );
+				Files.copy( classFile, target );
+			}
+		}
+	}
+
+	private static void collectClassFiles(Path classesDir, Map<String, List<Path>> classFiles, Map<String, Path> classDirs) throws IOException {
+		final List<Path> anonymousClassFiles = new ArrayList<>();
+		Files.walkFileTree(
+				classesDir,
+				new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+						final String fileName = file.getFileName().toString();
+						if ( !fileName.endsWith( ".class" ) ) {
+							return CONTINUE;
+						}
+						if ( ANONYMOUS_CLASS.matcher( fileName ).matches() ) {
+							anonymousClassFiles.add( file );
+							return CONTINUE;
+						}
+
+						final String className = toClassName( classesDir.relativize( file ) );
+						if ( classFiles.putIfAbsent( className, new ArrayList<>( Collections.singletonList( file ) ) ) == null ) {
+							classDirs.put( className, classesDir );
+						}
+						return CONTINUE;
+					}
+				}
+		);
+
+		// kept with their enclosing class
+		for ( Path file : anonymousClassFiles ) {
+			final String className = toClassName( classesDir.relativize( file ) );
+			final String enclosingClassName = className.substring( 0, className.indexOf( '$' ) );
+			final List<Path> enclosingClassFiles = classFiles.get( enclosingClassName );
+			if ( enclosingClassFiles != null && classesDir.equals( classDirs.get( enclosingClassName ) ) ) {
+				enclosingClassFiles.add( file );
+			}
+		}
+	}
+
+	private static String toClassName(Path relativePath) {
+		final String path = relativePath.toString().replace( File.separatorChar, '/' );
+		return path.substring( 0, path.length() - ".class".length() ).replace( '/', '.' );
+	}
+}
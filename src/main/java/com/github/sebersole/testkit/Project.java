@@ -22,4 +22,46 @@ public @interface Project {
 	 * The name of the TestKit project
 	 */
 	String value();
+
+	/**
+	 * Other TestKit projects the project is layered on, e.g. a base holding build logic,
+	 * included builds or {@code buildSrc} shared by several projects.  The project's own
+	 * files are staged on top of the layers; where more than one layer contains a file,
+	 * the later layer wins.
+	 *
+	 * Each layer is staged once and its files hard-linked into the project's staging
+	 * directory, so a test which needs to modify a file of a layer should obtain it via
+	 * {@link ProjectScope#resolveForWrite}.  Layered projects are neither
+	 * {@linkplain TestKitSpec#getPoolSize() pooled} nor {@linkplain TestKitSpec#getRecycleProjects() recycled}
+	 */
+	String[] layers() default {};
+
+	/**
+	 * Parameters for the templated files of the project (and its layers), as
+	 * {@code name=value}.  A file named {@code <name>.template} is staged as {@code <name>},
+	 * with each {@code @parameter@} token replaced by the parameter's value.
+	 *
+	 * For tests supplying (other) values at runtime, e.g. {@code @ParameterizedTest}s,
+	 * inject a {@link ProjectTemplate} rather than a {@link ProjectScope}; these
+	 * parameters then act as defaults
+	 */
+	String[] parameters() default {};
+
+	/**
+	 * Whether to stage the project in memory (tmpfs) rather than on disk.  Meant for
+	 * tests which only inspect the project model, e.g. via {@code ProjectBuilder}.  The
+	 * project is moved to disk if the test {@linkplain ProjectScope#createGradleRunner creates a runner}.
+	 *
+	 * Ignored if no memory-backed file system is available
+	 */
+	boolean inMemory() default false;
+
+	/**
+	 * Which tests share the staged project.  Sharing a project between tests saves
+	 * staging it over and over, but is only safe if the tests do not change the project
+	 * in conflicting ways - e.g. read-only tests or tests running a sequence of builds
+	 * against the same project.  Shared projects are also shared by concurrently
+	 * executing tests
+	 */
+	ScopeLifecycle lifecycle() default ScopeLifecycle.PER_METHOD;
 }
@@ -1,62 +1,193 @@
 package com.github.sebersole.testkit;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.net.URL;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
-import java.util.Random;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
-import static com.github.sebersole.testkit.TestKitPlugin.MARKER_FILE_NAME;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_ARCHIVE_DIR;
 import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_BASE_DIR;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_BUILD_OUTPUT;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_BUILD_RESULT_CACHE_DIR;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_BUILD_RESULT_CACHE_SIZE;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_BUNDLE_DIR;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_BUNDLE_FAILED;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_DURATIONS_FILE;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_FORKS;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_GRADLE_INSTALLATION;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_GRADLE_VERSION;
 import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_IMPL_PROJ_NAME;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_INDEX_FILE;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_KEEP_FAILED;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_KEEP_LOGS;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_LOG_DIR;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_MEMORY_DIR;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_METRICS_DIR;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_POOL_SIZE;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_RECYCLE;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_RUNNER_DIR;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_RUNNER_MODE;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_SELECTION_INPUTS;
 import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_STAGING_DIR;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_STAGING_MODE;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_USAGE_FILE;
 import static com.github.sebersole.testkit.TestKitPlugin.TEST_KIT;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
- * A manager for the TestKit projects
+ * A manager for the TestKit projects.  Safe for use from concurrently executing tests
  */
-public class ProjectContainer {
+public class ProjectContainer implements ExtensionContext.Store.CloseableResource {
+	/**
+	 * The usual mount points of memory-backed (tmpfs) file systems, in order of preference,
+	 * for {@linkplain Project#inMemory() in-memory} staging
+	 */
+	private static final String[] MEMORY_DIR_CANDIDATES = { "/dev/shm", "/run/shm", "/tmp" };
+	private static final File MOUNTS_FILE = new File( "/proc/mounts" );
+
+	/**
+	 * The prefix of the directory (within the staging directory) containing the {@linkplain Project#layers() layers}
+	 * staged by the container
+	 */
+	private static final String LAYERS_DIR_NAME = "layers";
+	private static final String LOG_DIR_NAME = "logs";
+
+	private static final String[] NO_LAYERS = new String[0];
+	private static final Map<String, String> NO_PARAMETERS = Collections.emptyMap();
+
 	private final File projectBaseDir;
 	private final File projectStagingDir;
-	private final String implicitProjectName;
+	private final String configuredImplicitProjectName;
+	private final StagingMode stagingMode;
+	private final int poolSize;
+	private final boolean keepFailedProjects;
+	private final boolean bundleFailedProjects;
+	private final File bundleDir;
+	private final boolean recycleProjects;
+	private final BuildOutput buildOutput;
+	private final File logDir;
+	private final boolean keepBuildLogs;
+	private final BuildResultCache buildResultCache;
+
+	private final FixtureIndex fixtureIndex;
+	private final File archiveDir;
+	private final ConcurrentMap<String, FixtureArchive> archives = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, FutureTask<ProjectScope>> suiteScopes = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, FutureTask<File>> stagedLayers = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, List<FixtureTemplate>> templates = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, ConcurrentLinkedQueue<ProjectScope>> recycledScopes = new ConcurrentHashMap<>();
+	private volatile boolean closing;
+	private volatile Set<String> projectNames;
+	private final ProjectScopePool scopePool;
+	private final CleanupService cleanupService = new CleanupService();
+	private final GradleRunnerFactory runnerFactory;
 
-	private final Random randomGenerator = new Random();
+	private final File metricsDir;
+	private final GradleInstallation gradleInstallation;
+	private final ConcurrentLinkedQueue<Map.Entry<String, ScopeMetrics>> testMetrics = new ConcurrentLinkedQueue<>();
 
-	private final Set<String> projectNames;
+	private final File durationsFile;
+	private final ConcurrentMap<String, Long> classDurations = new ConcurrentHashMap<>();
+	private final File usageFile;
+	private final Map<String, String> selectionInputs;
+	private final ConcurrentMap<String, ClassUsage> classUsages = new ConcurrentHashMap<>();
+
+	private final File memoryDir;
+	private File memoryStagingDir;
+	private boolean memoryStagingResolved;
+	private File layersDir;
 
 	public ProjectContainer() {
-		final URL markerFileUrl = locateMarker();
-		if ( markerFileUrl == null ) {
-			throw new IllegalStateException( "Could not locate TestKit project dir marker file (`" + MARKER_FILE_NAME + "`)" );
-		}
+		this( Locator.load() );
+	}
+
+	/**
+	 * @param markerDir The directory the relative locations of the settings are resolved against
+	 * @param properties The settings, as written to the locator file
+	 */
+	ProjectContainer(File markerDir, Properties properties) {
+		this( new Locator( markerDir, properties ) );
+	}
 
-		final String markerFilePath = markerFileUrl.getFile();
-		final File markerFile = new File( markerFilePath );
-		final Properties properties = loadProperties( markerFile );
+	private ProjectContainer(Locator locator) {
+		projectBaseDir = extractBaseDir( locator );
+		stagingMode = StagingMode.fromSetting( locator.getSetting( TESTKIT_STAGING_MODE ) );
+		poolSize = Math.max( 0, locator.getInt( TESTKIT_POOL_SIZE, 0 ) );
+		keepFailedProjects = locator.getFlag( TESTKIT_KEEP_FAILED, true );
+		bundleFailedProjects = locator.getFlag( TESTKIT_BUNDLE_FAILED, false );
+		recycleProjects = locator.getFlag( TESTKIT_RECYCLE, false );
+		buildOutput = BuildOutput.fromSetting( locator.getSetting( TESTKIT_BUILD_OUTPUT ) );
+		keepBuildLogs = locator.getFlag( TESTKIT_KEEP_LOGS, false );
+		buildResultCache = extractBuildResultCache( locator );
 
-		projectBaseDir = extractBaseDir( properties );
-		projectStagingDir = extractStagingDir( properties );
+		// set by the tasks running the tests against a declared Gradle installation, each
+		// version using directories of its own
+		gradleInstallation = extractGradleInstallation();
+		final String versionDirName = gradleInstallation == null ? null : gradleInstallation.getDirectoryName();
+
+		// the staging directories are created along with the first staged project
+		final File baseStagingDir = locator.getRequiredLocation( TESTKIT_STAGING_DIR );
+		final File stagingDir = versionDir( baseStagingDir, versionDirName );
+		final File runnerDir = versionDir( extractRunnerDir( locator, baseStagingDir ), versionDirName );
+		// the daemons of the other version are kept warm, rather than loading it in-process for each build
+		final RunnerMode runnerMode = gradleInstallation == null
+				? RunnerMode.fromSetting( locator.getSetting( TESTKIT_RUNNER_MODE ) )
+				: RunnerMode.DAEMON;
+		final File installationDir = gradleInstallation == null ? null : gradleInstallation.getDirectory();
+		if ( locator.getInt( TESTKIT_FORKS, 1 ) > 1 ) {
+			// each fork uses its own directories
+			final ForkSlot forkSlot = ForkSlot.claim( stagingDir );
+			projectStagingDir = new File( stagingDir, forkSlot.getDirectoryName() );
+			runnerFactory = GradleRunnerFactory.forDirectory( runnerMode, new File( runnerDir, forkSlot.getDirectoryName() ), installationDir );
+		}
+		else {
+			projectStagingDir = stagingDir;
+			runnerFactory = GradleRunnerFactory.forWorker( runnerMode, runnerDir, installationDir );
+		}
+		// rather than the temporary directory - the kept logs then keep the staging directory
+		final File configuredLogDir = locator.getLocation( TESTKIT_LOG_DIR );
+		logDir = configuredLogDir == null ? new File( projectStagingDir, LOG_DIR_NAME ) : configuredLogDir;
 
 		System.out.printf( "TestKit project directory : %s\n", projectBaseDir.getAbsolutePath() );
 
-		String implicitProjectName = extractImplicitProjectName( properties );
-		final File[] projectDirectories = projectBaseDir.listFiles();
-		assert projectDirectories != null;
-		final Set<String> projectNames = new HashSet<>();
-		for ( int i = 0; i < projectDirectories.length; i++ ) {
-			if ( projectDirectories[i].exists() && projectDirectories[i].isDirectory() ) {
-				projectNames.add( projectDirectories[i].getName() );
-			}
+		configuredImplicitProjectName = locator.getSetting( TESTKIT_IMPL_PROJ_NAME );
+		fixtureIndex = loadFixtureIndex( locator );
+		archiveDir = locator.getLocation( TESTKIT_ARCHIVE_DIR );
+		metricsDir = versionDir( locator.getLocation( TESTKIT_METRICS_DIR ), versionDirName );
+		bundleDir = versionDir( locator.getLocation( TESTKIT_BUNDLE_DIR ), versionDirName );
+		durationsFile = versionFile( locator.getLocation( TESTKIT_DURATIONS_FILE ), versionDirName );
+		usageFile = locator.getLocation( TESTKIT_USAGE_FILE );
+		// only set when selecting the affected tests
+		selectionInputs = extractSelectionInputs( locator.getProperties() );
+		memoryDir = extractMemoryDir( locator.getProperties() );
+
+		if ( poolSize > 0 ) {
+			// each project is pooled once first requested
+			scopePool = new ProjectScopePool( poolSize, this::stageProject );
 		}
-		this.projectNames = Collections.unmodifiableSet( projectNames );
-		if ( implicitProjectName == null && projectNames.size() == 1 ) {
-			implicitProjectName = projectNames.iterator().next();
+		else {
+			scopePool = null;
 		}
-		this.implicitProjectName = implicitProjectName;
 	}
 
 	public File getProjectBaseDir() {
@@ -67,51 +198,162 @@ public class ProjectContainer {
 		return projectStagingDir;
 	}
 
+	/**
+	 * The project injected when the test does not name one - either the configured
+	 * {@linkplain TestKitSpec#getImplicitProjectName() implicit project} or the
+	 * only TestKit project, if there is just one
+	 */
 	public String getImplicitProjectName() {
-		return implicitProjectName;
+		if ( configuredImplicitProjectName != null ) {
+			return configuredImplicitProjectName;
+		}
+
+		final Set<String> projectNames = getProjectNames();
+		if ( projectNames.size() == 1 ) {
+			return projectNames.iterator().next();
+		}
+		return null;
 	}
 
-	public Set<String> getProjectNames() {
-		return projectNames;
+	public StagingMode getStagingMode() {
+		return stagingMode;
 	}
 
-	private URL locateMarker() {
-		final URL withoutSlash = ProjectScope.class.getResource( MARKER_FILE_NAME );
-		if ( withoutSlash != null ) {
-			return withoutSlash;
-		}
+	/**
+	 * The number of staged copies of each project kept ready ahead of the tests
+	 * requesting them.  {@code 0} indicates that projects are staged on demand
+	 */
+	public int getPoolSize() {
+		return poolSize;
+	}
 
-		final URL withSlash = ProjectScope.class.getResource( "/" + MARKER_FILE_NAME );
-		if ( withSlash != null ) {
-			return withSlash;
-		}
+	/**
+	 * Whether the staged directories of failed tests are kept rather than deleted
+	 */
+	public boolean isKeepFailedProjects() {
+		return keepFailedProjects;
+	}
 
-		return null;
+	/**
+	 * Whether the staged directories of failed tests are packed into a bundle and deleted
+	 * rather than kept
+	 *
+	 * @see TestKitSpec#getBundleFailedProjects()
+	 */
+	public boolean isBundleFailedProjects() {
+		return bundleFailedProjects;
+	}
+
+	/**
+	 * Pack the project scopes used by a failed test into a bundle named after the test
+	 *
+	 * @return The bundle file
+	 *
+	 * @see FailureBundle
+	 */
+	File bundleFailure(String testName, List<ProjectScope> scopes) {
+		final File directory = bundleDir != null ? bundleDir : new File( projectStagingDir.getParentFile(), "failures" );
+		return FailureBundle.write( directory, testName, scopes );
+	}
+
+	/**
+	 * Whether released project directories are restored and re-used rather than deleted
+	 *
+	 * @see TestKitSpec#getRecycleProjects()
+	 */
+	public boolean isRecycleProjects() {
+		return recycleProjects;
+	}
+
+	/**
+	 * The number of bytes freed by deleting released project directories
+	 */
+	public long getBytesReclaimed() {
+		return cleanupService.getBytesReclaimed();
+	}
+
+	/**
+	 * The declared Gradle installation the tests run against; {@code null} for the
+	 * Gradle version running the tests
+	 *
+	 * @see TestKitSpec#getGradleInstallations()
+	 */
+	public GradleInstallation getGradleInstallation() {
+		return gradleInstallation;
 	}
 
-	private Properties loadProperties(File markerFile) {
-		final Properties properties = new Properties();
-		try ( FileInputStream inputStream = new FileInputStream( markerFile ) ) {
-			properties.load( inputStream );
+	/**
+	 * The factory for the runners created by the scopes of this container
+	 */
+	public GradleRunnerFactory getRunnerFactory() {
+		return runnerFactory;
+	}
+
+	/**
+	 * The build-time index of the TestKit projects, or {@code null} if none was generated
+	 */
+	public FixtureIndex getFixtureIndex() {
+		return fixtureIndex;
+	}
+
+	/**
+	 * Find the files of the named project which differ from when the index was
+	 * generated at build time.
+	 *
+	 * @return The relative paths of changed, added or removed files; empty if
+	 * no index is available
+	 *
+	 * @see FixtureIndex#diff
+	 */
+	public List<String> detectDrift(String projectName) {
+		if ( fixtureIndex == null ) {
+			return Collections.emptyList();
 		}
-		catch (IOException e) {
-			throw new IllegalStateException( "Unable to read `" + MARKER_FILE_NAME + "`" );
+		return fixtureIndex.diff( projectName, new File( projectBaseDir, projectName ).toPath() );
+	}
+
+	/**
+	 * The names of the TestKit projects - taken from the fixture index or, without one,
+	 * by listing the base directory the first time they are needed
+	 */
+	public Set<String> getProjectNames() {
+		Set<String> projectNames = this.projectNames;
+		if ( projectNames == null ) {
+			synchronized ( this ) {
+				projectNames = this.projectNames;
+				if ( projectNames == null ) {
+					projectNames = collectProjectNames();
+					this.projectNames = projectNames;
+				}
+			}
 		}
-		return properties;
+		return projectNames;
 	}
 
-	private static File extractBaseDir(Properties properties) {
-		final String baseDirPath = properties.getProperty( TESTKIT_BASE_DIR );
-		if ( baseDirPath == null ) {
-			throw new IllegalStateException( "Could not find `" + TESTKIT_BASE_DIR + "` in marker file" );
+	private Set<String> collectProjectNames() {
+		final Set<String> projectNames = new HashSet<>();
+		if ( fixtureIndex != null ) {
+			projectNames.addAll( fixtureIndex.getProjectNames() );
 		}
+		else {
+			final File[] projectDirectories = projectBaseDir.listFiles();
+			assert projectDirectories != null;
+			for ( int i = 0; i < projectDirectories.length; i++ ) {
+				if ( projectDirectories[i].exists() && projectDirectories[i].isDirectory() ) {
+					projectNames.add( projectDirectories[i].getName() );
+				}
+			}
+		}
+		return Collections.unmodifiableSet( projectNames );
+	}
 
-		final File baseDir = new File( baseDirPath );
+	private static File extractBaseDir(Locator locator) {
+		final File baseDir = locator.getRequiredLocation( TESTKIT_BASE_DIR );
 		if ( ! baseDir.exists() ) {
-			throw new IllegalStateException( "TestKit base directory (`" + baseDirPath + "`) did not exist" );
+			throw new IllegalStateException( "TestKit base directory (`" + baseDir.getPath() + "`) did not exist" );
 		}
 		if ( ! baseDir.isDirectory() ) {
-			throw new IllegalStateException( "TestKit base directory (`" + baseDirPath + "`) is not a directory" );
+			throw new IllegalStateException( "TestKit base directory (`" + baseDir.getPath() + "`) is not a directory" );
 		}
 
 		assert baseDir.exists();
@@ -120,44 +362,862 @@ public class ProjectContainer {
 		return baseDir;
 	}
 
-	private File extractStagingDir(Properties properties) {
-		final String stagingDirPath = properties.getProperty( TESTKIT_STAGING_DIR );
-		if ( stagingDirPath == null ) {
-			throw new IllegalStateException( "Could not find `" + TESTKIT_STAGING_DIR + "` in marker file" );
+	private static File extractRunnerDir(Locator locator, File stagingDir) {
+		final File runnerDir = locator.getLocation( TESTKIT_RUNNER_DIR );
+		return runnerDir == null ? new File( stagingDir.getParentFile(), "testKitRunners" ) : runnerDir;
+	}
+
+	private static FixtureIndex loadFixtureIndex(Locator locator) {
+		final File indexFile = locator.getLocation( TESTKIT_INDEX_FILE );
+		if ( indexFile == null || !indexFile.isFile() ) {
+			return null;
 		}
 
-		final File stagingDir = new File( stagingDirPath );
-		stagingDir.mkdirs();
+		return FixtureIndex.read( indexFile );
+	}
 
-		assert stagingDir.isDirectory();
+	private static BuildResultCache extractBuildResultCache(Locator locator) {
+		final int maxEntries = locator.getInt( TESTKIT_BUILD_RESULT_CACHE_SIZE, 0 );
+		final File cacheDir = locator.getLocation( TESTKIT_BUILD_RESULT_CACHE_DIR );
+		if ( maxEntries <= 0 || cacheDir == null ) {
+			return null;
+		}
+		return new BuildResultCache( cacheDir, maxEntries );
+	}
 
-		return stagingDir;
+	/**
+	 * Whether the outcome of the tests is recorded, i.e. whether {@code testKitTest} runs
+	 * the affected tests
+	 *
+	 * @see TestSelection#AFFECTED
+	 */
+	static boolean isRecordingUsage() {
+		final String inputsFilePath = System.getProperty( TESTKIT_SELECTION_INPUTS );
+		return inputsFilePath != null && !inputsFilePath.trim().isEmpty();
 	}
 
-	private String extractImplicitProjectName(Properties properties) {
-		return properties.getProperty( TESTKIT_IMPL_PROJ_NAME );
+	private static Map<String, String> extractSelectionInputs(Properties properties) {
+		// a system property of `testKitTest` rather than a setting of the locator file
+		final String inputsFilePath = properties.getProperty( TESTKIT_SELECTION_INPUTS, System.getProperty( TESTKIT_SELECTION_INPUTS ) );
+		if ( inputsFilePath == null || inputsFilePath.trim().isEmpty() ) {
+			return null;
+		}
+		return TestUsage.readInputs( new File( inputsFilePath ) );
+	}
+
+	/**
+	 * The directory for in-memory staging - as set through the {@value TestKitPlugin#TESTKIT_MEMORY_DIR}
+	 * system property (an empty value staging such projects on disk), otherwise the first
+	 * of the usual memory-backed mount points found
+	 */
+	static File extractMemoryDir(Properties properties) {
+		final String memoryDirPath = properties.getProperty( TESTKIT_MEMORY_DIR, System.getProperty( TESTKIT_MEMORY_DIR ) );
+		if ( memoryDirPath != null ) {
+			return memoryDirPath.trim().isEmpty() ? null : new File( memoryDirPath );
+		}
+
+		final Set<String> memoryMounts = new HashSet<>();
+		if ( MOUNTS_FILE.isFile() ) {
+			try {
+				for ( String mount : Files.readAllLines( MOUNTS_FILE.toPath(), UTF_8 ) ) {
+					// <device> <mount point> <type> <options> ...
+					final String[] fields = mount.split( " " );
+					if ( fields.length > 2 && fields[2].equals( "tmpfs" ) ) {
+						memoryMounts.add( fields[1] );
+					}
+				}
+			}
+			catch (IOException e) {
+				System.out.printf( "Unable to read `%s` : %s\n", MOUNTS_FILE, e );
+			}
+		}
+		for ( String candidate : MEMORY_DIR_CANDIDATES ) {
+			if ( memoryMounts.contains( candidate ) ) {
+				return new File( candidate );
+			}
+		}
+		return null;
+	}
+
+	private static GradleInstallation extractGradleInstallation() {
+		final String installationPath = System.getProperty( TESTKIT_GRADLE_INSTALLATION );
+		if ( installationPath == null || installationPath.trim().isEmpty() ) {
+			return null;
+		}
+
+		final File installationDir = new File( installationPath );
+		final String version = System.getProperty( TESTKIT_GRADLE_VERSION );
+		return version == null || version.trim().isEmpty()
+				? GradleInstallation.locate( installationDir )
+				: new GradleInstallation( installationDir, version );
+	}
+
+	private static File versionDir(File dir, String versionDirName) {
+		return dir == null || versionDirName == null ? dir : new File( dir, versionDirName );
+	}
+
+	private static File versionFile(File file, String versionDirName) {
+		return file == null || versionDirName == null ? file : new File( versionDir( file.getParentFile(), versionDirName ), file.getName() );
 	}
 
 	public ProjectScope getProjectScope(String projectName) {
-		assert projectNames.contains( projectName );
+		return getProjectScope( projectName, NO_LAYERS, NO_PARAMETERS, false );
+	}
+
+	/**
+	 * A pooled or recycled copy of the project, if available
+	 */
+	private ProjectScope takeProjectScope(String projectName) {
+		assert getProjectNames().contains( projectName );
+
+		final ConcurrentLinkedQueue<ProjectScope> recycled = recycledScopes.get( projectName );
+		if ( recycled != null ) {
+			final ProjectScope scope = recycled.poll();
+			if ( scope != null ) {
+				return scope;
+			}
+		}
+
+		if ( scopePool != null ) {
+			return scopePool.take( projectName );
+		}
+
+		return stageProject( projectName );
+	}
+
+	/**
+	 * @param inMemory Whether to stage the project in memory
+	 *
+	 * @see Project#inMemory()
+	 */
+	public ProjectScope getProjectScope(String projectName, boolean inMemory) {
+		return getProjectScope( projectName, NO_LAYERS, inMemory );
+	}
+
+	/**
+	 * @param layers The projects to lay under the project
+	 * @param inMemory Whether to stage the project in memory
+	 *
+	 * @see Project#layers()
+	 * @see Project#inMemory()
+	 */
+	public ProjectScope getProjectScope(String projectName, String[] layers, boolean inMemory) {
+		return getProjectScope( projectName, layers, NO_PARAMETERS, inMemory );
+	}
+
+	/**
+	 * @param layers The projects to lay under the project
+	 * @param parameters The parameters for the templated files of the project
+	 * @param inMemory Whether to stage the project in memory
+	 *
+	 * @see Project#layers()
+	 * @see Project#parameters()
+	 * @see Project#inMemory()
+	 */
+	public ProjectScope getProjectScope(String projectName, String[] layers, Map<String, String> parameters, boolean inMemory) {
+		final ProjectScope scope = stageScope( projectName, layers, inMemory );
+		try {
+			renderTemplates( projectName, layers, parameters, scope );
+		}
+		catch (RuntimeException e) {
+			scope.release();
+			throw e;
+		}
+		return scope;
+	}
+
+	private ProjectScope stageScope(String projectName, String[] layers, boolean inMemory) {
+		if ( !inMemory ) {
+			return layers.length == 0 ? takeProjectScope( projectName ) : stageProject( projectName, layers );
+		}
+
+		assert getProjectNames().contains( projectName );
+
+		final File memoryDir = resolveMemoryStagingDir();
+		if ( memoryDir == null ) {
+			return stageScope( projectName, layers, false );
+		}
+
+		final long start = System.nanoTime();
+		final ScopeMetrics metrics = new ScopeMetrics( projectName );
+
+		final File testDir = createTestDirectory( memoryDir );
+		final File projectDir = new File( testDir, projectName );
+		projectDir.mkdirs();
+
+		// linking across file systems is not possible
+		if ( fixtureIndex != null ) {
+			DirectoryCopier.copy( new File( projectBaseDir, projectName ).toPath(), projectDir.toPath(), fixtureIndex, projectName, false, metrics );
+		}
+		else {
+			DirectoryCopier.stage( new File( projectBaseDir, projectName ).toPath(), projectDir.toPath(), false, metrics );
+		}
+		for ( int i = layers.length - 1; i >= 0; i-- ) {
+			assert getProjectNames().contains( layers[i] );
+			DirectoryCopier.underlay( new File( projectBaseDir, layers[i] ).toPath(), projectDir.toPath(), false, metrics );
+		}
+
+		metrics.staged( System.nanoTime() - start );
+		final ProjectScope scope = new ProjectScope( projectDir, testDir, this::createTestDirectory, cleanupService, runnerFactory, metrics );
+		configureScope( scope );
+		return scope;
+	}
+
+	/**
+	 * Get the scope shared by all tests of the test run using the named project,
+	 * staging it on first request.  Released with the container
+	 *
+	 * @see ScopeLifecycle#PER_SUITE
+	 */
+	public ProjectScope getSuiteProjectScope(String projectName, boolean inMemory) {
+		return getSuiteProjectScope( projectName, NO_LAYERS, inMemory );
+	}
+
+	/**
+	 * @see #getSuiteProjectScope(String, boolean)
+	 * @see Project#layers()
+	 */
+	public ProjectScope getSuiteProjectScope(String projectName, String[] layers, boolean inMemory) {
+		return getSuiteProjectScope( projectName, layers, NO_PARAMETERS, inMemory );
+	}
+
+	/**
+	 * @see #getSuiteProjectScope(String, boolean)
+	 * @see Project#layers()
+	 * @see Project#parameters()
+	 */
+	public ProjectScope getSuiteProjectScope(String projectName, String[] layers, Map<String, String> parameters, boolean inMemory) {
+		return stageOnce(
+				suiteScopes,
+				scopeKey( projectName, layers, parameters, inMemory ),
+				() -> {
+					final ProjectScope scope = getProjectScope( projectName, layers, parameters, inMemory );
+					// complete once the tests sharing it are done
+					scope.recordMetricsOnRelease( metrics -> recordMetrics( "[suite]", metrics ) );
+					return scope;
+				}
+		);
+	}
+
+	/**
+	 * Stage what is registered under the key on first request.  The staging runs outside of
+	 * the map, on the thread of the first request - concurrent requests for the same key wait
+	 * for it, while requests for other keys proceed.  A failed staging is retried by the next
+	 * request
+	 */
+	private static <T> T stageOnce(ConcurrentMap<String, FutureTask<T>> staged, String key, Callable<T> staging) {
+		FutureTask<T> task = staged.get( key );
+		if ( task == null ) {
+			final FutureTask<T> newTask = new FutureTask<>( staging );
+			task = staged.putIfAbsent( key, newTask );
+			if ( task == null ) {
+				task = newTask;
+				newTask.run();
+			}
+		}
+
+		try {
+			return task.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException( "Interrupted while staging TestKit project `" + key + "`", e );
+		}
+		catch (ExecutionException e) {
+			staged.remove( key, task );
+			if ( e.getCause() instanceof RuntimeException ) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException( "Unable to stage TestKit project `" + key + "`", e.getCause() );
+		}
+	}
+
+	/**
+	 * The values staged successfully so far
+	 */
+	private static <T> List<T> staged(ConcurrentMap<String, FutureTask<T>> staged) {
+		final List<T> values = new ArrayList<>();
+		for ( FutureTask<T> task : staged.values() ) {
+			try {
+				if ( task.isDone() ) {
+					values.add( task.get() );
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			catch (ExecutionException ignore) {
+				// nothing staged
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Identifies the scopes staged the same way, for sharing
+	 */
+	static String scopeKey(String projectName, String[] layers, Map<String, String> parameters, boolean inMemory) {
+		final StringBuilder key = new StringBuilder();
+		for ( String layer : layers ) {
+			key.append( layer ).append( '+' );
+		}
+		key.append( projectName );
+		if ( !parameters.isEmpty() ) {
+			key.append( new TreeMap<>( parameters ) );
+		}
+		if ( inMemory ) {
+			key.append( ":in-memory" );
+		}
+		return key.toString();
+	}
+
+	private synchronized File resolveMemoryStagingDir() {
+		if ( !memoryStagingResolved ) {
+			memoryStagingResolved = true;
+			if ( memoryDir != null && memoryDir.isDirectory() && memoryDir.canWrite() ) {
+				memoryStagingDir = createTestDirectory( memoryDir );
+			}
+			else {
+				System.out.println( "No memory-backed file system available, staging in-memory TestKit projects on disk" );
+			}
+		}
+		return memoryStagingDir;
+	}
+
+	/**
+	 * Apply the build settings to a newly staged (or recycled) scope
+	 */
+	private void configureScope(ProjectScope scope) {
+		scope.configureBuildOutput( buildOutput, logDir, keepBuildLogs );
+		scope.configureBuildResultCache( buildResultCache );
+		if ( bundleFailedProjects ) {
+			scope.recordBuildHistory();
+		}
+	}
+
+	private ProjectScope stageProject(String projectName) {
+		return stageProject( projectName, NO_LAYERS );
+	}
+
+	private ProjectScope stageProject(String projectName, String[] layers) {
+		final long start = System.nanoTime();
+		final ScopeMetrics metrics = new ScopeMetrics( projectName );
 
 		// Locate the project "source" directory
 		final File projectSourceDir = new File( projectBaseDir, projectName );
 
 		// make a new directory in the tmpDir for the test
-		final File projectDir = new File( new File( projectStagingDir, TEST_KIT + randomGenerator.nextInt() ), projectName );
+		final File testDir = createTestDirectory();
+		final File projectDir = new File( testDir, projectName );
 		projectDir.mkdirs();
 
 
 		// Copy the project from the source dir to the temporary, isolated one
-		DirectoryCopier.copy( projectSourceDir.toPath(), projectDir.toPath() );
+		final Set<Path> linkedFiles;
+		final FixtureArchive archive = stagingMode == StagingMode.ARCHIVE ? locateArchive( projectName ) : null;
+		if ( archive != null ) {
+			archive.extract( projectDir.toPath(), metrics );
+			linkedFiles = Collections.emptySet();
+		}
+		else if ( fixtureIndex != null ) {
+			// stage from the index, without walking the source directory
+			linkedFiles = DirectoryCopier.copy(
+					projectSourceDir.toPath(),
+					projectDir.toPath(),
+					fixtureIndex,
+					projectName,
+					stagingMode == StagingMode.LINK,
+					metrics
+			);
+		}
+		else {
+			linkedFiles = DirectoryCopier.stage(
+					projectSourceDir.toPath(),
+					projectDir.toPath(),
+					stagingMode == StagingMode.LINK,
+					metrics
+			);
+		}
+
+		final ProjectScope scope = new ProjectScope(
+				projectDir,
+				underlayLayers( projectDir, layers, linkedFiles, metrics ),
+				testDir,
+				cleanupService,
+				runnerFactory,
+				metrics
+		);
+		configureScope( scope );
+		if ( recycleProjects && layers.length == 0 ) {
+			scope.enableRecycling( ProjectSnapshot.capture( projectDir.toPath(), fixtureIndex, projectName ), this::recycle );
+		}
+
+		metrics.staged( System.nanoTime() - start );
+		return scope;
+	}
+
+	/**
+	 * Link the files of the staged layers which the project does not override into the
+	 * project directory
+	 *
+	 * @return The linked files of the project directory, including those linked while
+	 * staging the project itself
+	 */
+	private Set<Path> underlayLayers(File projectDir, String[] layers, Set<Path> linkedFiles, ScopeMetrics metrics) {
+		if ( layers.length == 0 ) {
+			return linkedFiles;
+		}
+
+		final Set<Path> allLinkedFiles = new HashSet<>( linkedFiles );
+		// the later layers win, so are laid first
+		for ( int i = layers.length - 1; i >= 0; i-- ) {
+			final File layerDir = resolveStagedLayer( layers[i] );
+			allLinkedFiles.addAll( DirectoryCopier.underlay( layerDir.toPath(), projectDir.toPath(), true, metrics ) );
+		}
+		return allLinkedFiles;
+	}
+
+	/**
+	 * The copy of the named layer shared by the projects layered on it, staged on first
+	 * request.  Staged (rather than linked to the TestKit project directly) to be on the
+	 * same file system as the projects linking to it
+	 */
+	private File resolveStagedLayer(String layerName) {
+		assert getProjectNames().contains( layerName );
+
+		return stageOnce(
+				stagedLayers,
+				layerName,
+				() -> {
+					final File layerDir = new File( resolveLayersDir(), layerName );
+					layerDir.mkdirs();
+
+					final Path layerSourceDir = new File( projectBaseDir, layerName ).toPath();
+					if ( fixtureIndex != null ) {
+						DirectoryCopier.copy( layerSourceDir, layerDir.toPath(), fixtureIndex, layerName, false, null );
+					}
+					else {
+						DirectoryCopier.stage( layerSourceDir, layerDir.toPath(), false, null );
+					}
+					return layerDir;
+				}
+		);
+	}
+
+	/**
+	 * The directory of the layers staged by this container - uniquely named, as the staging
+	 * directory may be shared with other test JVMs
+	 */
+	private synchronized File resolveLayersDir() {
+		if ( layersDir == null ) {
+			try {
+				Files.createDirectories( projectStagingDir.toPath() );
+				layersDir = Files.createTempDirectory( projectStagingDir.toPath(), LAYERS_DIR_NAME ).toFile();
+			}
+			catch (IOException e) {
+				throw new IllegalStateException( "Unable to create layers directory in `" + projectStagingDir + "`", e );
+			}
+		}
+		return layersDir;
+	}
+
+	/**
+	 * Render the templated files of the project and its layers into the staged project
+	 * directory - the templates themselves are never staged.  A file of the project (or of a later
+	 * layer) wins over a template of an earlier layer rendering to the same path
+	 *
+	 * @see FixtureTemplate
+	 */
+	private void renderTemplates(String projectName, String[] layers, Map<String, String> parameters, ProjectScope scope) {
+		final List<String> sources = new ArrayList<>( layers.length + 1 );
+		sources.add( projectName );
+		for ( int i = layers.length - 1; i >= 0; i-- ) {
+			sources.add( layers[i] );
+		}
+
+		final long start = System.nanoTime();
+		final Path projectDir = scope.getProjectBaseDirectory().toPath();
+		final Set<String> templatePaths = new HashSet<>();
+		boolean rendered = false;
+
+		for ( int i = 0; i < sources.size(); i++ ) {
+			for ( FixtureTemplate template : resolveTemplates( sources.get( i ) ) ) {
+				if ( !templatePaths.add( template.getTemplatePath() ) ) {
+					// overridden by the project or a later layer, already rendered
+					continue;
+				}
+
+				if ( isOverridden( template.getTargetPath(), sources.subList( 0, i ) ) ) {
+					continue;
+				}
+
+				final Path sourceTemplate = new File( projectBaseDir, sources.get( i ) ).toPath().resolve( template.getTemplatePath() );
+				try {
+					final Path target = projectDir.resolve( template.getTargetPath() );
+					final byte[] content = template.render( projectName, parameters ).getBytes( UTF_8 );
+					// possibly linked to a layer
+					Files.deleteIfExists( target );
+					Files.write( target, content );
+					copyPermissions( sourceTemplate, target );
+					scope.getMetrics().fileCopied( content.length );
+					rendered = true;
+				}
+				catch (IOException e) {
+					throw new IllegalStateException( "Unable to render TestKit project template `" + sourceTemplate + "`", e );
+				}
+			}
+		}
+
+		if ( rendered ) {
+			scope.getMetrics().staged( System.nanoTime() - start );
+		}
+	}
+
+	private boolean isOverridden(String path, List<String> overridingSources) {
+		for ( String source : overridingSources ) {
+			if ( new File( new File( projectBaseDir, source ), path ).exists() ) {
+				return true;
+			}
+		}
+		return false;
+	}
 
-		return new ProjectScope( projectDir );
+	private static void copyPermissions(Path source, Path target) throws IOException {
+		try {
+			// e.g. a templated `gradlew`
+			Files.setPosixFilePermissions( target, Files.getPosixFilePermissions( source ) );
+		}
+		catch (UnsupportedOperationException e) {
+			// not a POSIX file system
+		}
+	}
+
+	/**
+	 * The templates of the named project, parsed on first request
+	 */
+	private List<FixtureTemplate> resolveTemplates(String projectName) {
+		assert getProjectNames().contains( projectName );
+		return templates.computeIfAbsent( projectName, this::compileTemplates );
+	}
+
+	private List<FixtureTemplate> compileTemplates(String projectName) {
+		final Path projectSourceDir = new File( projectBaseDir, projectName ).toPath();
+
+		final List<String> templatePaths = new ArrayList<>();
+		try {
+			if ( fixtureIndex != null ) {
+				for ( FixtureIndex.FileEntry file : fixtureIndex.getFiles( projectName ) ) {
+					if ( FixtureTemplate.isTemplate( file.getPath() ) ) {
+						templatePaths.add( file.getPath() );
+					}
+				}
+			}
+			else {
+				try ( Stream<Path> paths = Files.walk( projectSourceDir ) ) {
+					paths.filter( Files::isRegularFile )
+							.map( path -> projectSourceDir.relativize( path ).toString().replace( File.separatorChar, '/' ) )
+							.filter( FixtureTemplate::isTemplate )
+							.forEach( templatePaths::add );
+				}
+			}
+
+			if ( templatePaths.isEmpty() ) {
+				return Collections.emptyList();
+			}
+
+			final List<FixtureTemplate> compiled = new ArrayList<>( templatePaths.size() );
+			for ( String templatePath : templatePaths ) {
+				final byte[] content = Files.readAllBytes( projectSourceDir.resolve( templatePath ) );
+				compiled.add( FixtureTemplate.compile( templatePath, new String( content, UTF_8 ) ) );
+			}
+			return compiled;
+		}
+		catch (IOException e) {
+			throw new IllegalStateException( "Unable to read templates of TestKit project `" + projectName + "`", e );
+		}
+	}
+
+	/**
+	 * Restore the project directory of a released scope and make it available, as a
+	 * new scope, to the next test using the same project
+	 *
+	 * @return {@code false} if the directory could not be recycled and should be deleted
+	 */
+	private boolean recycle(ProjectScope released) {
+		if ( closing ) {
+			return false;
+		}
+
+		final String projectName = released.getMetrics().getProjectName();
+		final ScopeMetrics metrics = new ScopeMetrics( projectName );
+		final long start = System.nanoTime();
+		try {
+			released.getSnapshot().restore(
+					new File( projectBaseDir, projectName ).toPath(),
+					released.getProjectBaseDirectory().toPath(),
+					metrics
+			);
+		}
+		catch (IOException | RuntimeException e) {
+			System.out.printf( "Unable to restore TestKit project directory `%s` : %s\n", released.getProjectBaseDirectory(), e.getMessage() );
+			return false;
+		}
+
+		final ProjectScope scope = new ProjectScope(
+				released.getProjectBaseDirectory(),
+				released.getLinkedFiles(),
+				released.getStagingDirectory(),
+				cleanupService,
+				runnerFactory,
+				metrics
+		);
+		configureScope( scope );
+		scope.enableRecycling( released.getSnapshot(), this::recycle );
+		metrics.staged( System.nanoTime() - start );
+
+		final ConcurrentLinkedQueue<ProjectScope> recycled = recycledScopes.computeIfAbsent(
+				projectName,
+				name -> new ConcurrentLinkedQueue<>()
+		);
+		recycled.add( scope );
+		if ( closing && recycled.remove( scope ) ) {
+			// missed by `release()`
+			scope.release();
+		}
+		return true;
+	}
+
+	private FixtureArchive locateArchive(String projectName) {
+		if ( archiveDir == null ) {
+			return null;
+		}
+
+		// mapped once, shared by all extractions of the project
+		return archives.computeIfAbsent(
+				projectName,
+				name -> {
+					final File archiveFile = new File( archiveDir, name + FixtureArchive.EXTENSION );
+					return archiveFile.isFile() ? FixtureArchive.open( archiveFile.toPath() ) : null;
+				}
+		);
+	}
+
+	private File createTestDirectory() {
+		return createTestDirectory( projectStagingDir );
+	}
+
+	private static File createTestDirectory(File parentDir) {
+		try {
+			Files.createDirectories( parentDir.toPath() );
+			// atomically creates a uniquely named directory
+			return Files.createTempDirectory( parentDir.toPath(), TEST_KIT ).toFile();
+		}
+		catch (IOException e) {
+			throw new IllegalStateException( "Unable to create staging directory in `" + parentDir + "`", e );
+		}
+	}
+
+	/**
+	 * Record the metrics of a scope used by the given test, to be included in the
+	 * metrics summary written when the container is released
+	 */
+	void recordMetrics(String testId, ScopeMetrics metrics) {
+		testMetrics.add( new AbstractMap.SimpleImmutableEntry<>( testId, metrics ) );
+	}
+
+	/**
+	 * Record the time taken by the tests of the given (top-level) test class, to be
+	 * added to the recorded durations when the container is released
+	 *
+	 * @see TestDurations
+	 */
+	void recordClassDuration(String className, long nanos) {
+		classDurations.merge( className, TimeUnit.NANOSECONDS.toMillis( nanos ), Long::sum );
+	}
+
+	/**
+	 * Record the use of a project (along with its layers) by the tests of the given
+	 * (top-level) test class.  The scope's metrics tell whether the tests ran builds
+	 *
+	 * @see TestUsage
+	 */
+	void recordProjectUse(String className, String projectName, String[] layers, ScopeMetrics metrics) {
+		final ClassUsage usage = classUsage( className );
+		usage.projectNames.add( projectName );
+		Collections.addAll( usage.projectNames, layers );
+		usage.metrics.add( metrics );
+	}
+
+	/**
+	 * Record the failure of a test of the given (top-level) test class
+	 */
+	void recordTestFailure(String className) {
+		classUsage( className ).failed = true;
+	}
+
+	/**
+	 * Record the completion of the given (top-level) test class - only completed classes
+	 * are recorded when the container is released
+	 */
+	void recordClassCompletion(String className) {
+		classUsage( className ).completed = true;
+	}
+
+	private ClassUsage classUsage(String className) {
+		return classUsages.computeIfAbsent( className, name -> new ClassUsage() );
+	}
+
+	/**
+	 * What the tests of a test class used while running
+	 */
+	private static class ClassUsage {
+		private final Set<String> projectNames = ConcurrentHashMap.newKeySet();
+		private final ConcurrentLinkedQueue<ScopeMetrics> metrics = new ConcurrentLinkedQueue<>();
+		private volatile boolean failed;
+		private volatile boolean completed;
+
+		private TestUsage.Record toRecord(String className, Map<String, String> currentInputs) {
+			final Map<String, String> inputs = new TreeMap<>();
+			addInput( TestUsage.CLASS_INPUT_PREFIX + className, currentInputs, inputs );
+			for ( String projectName : projectNames ) {
+				addInput( TestUsage.FIXTURE_INPUT_PREFIX + projectName, currentInputs, inputs );
+			}
+			if ( metrics.stream().anyMatch( scopeMetrics -> scopeMetrics.getBuilds() > 0 ) ) {
+				addInput( TestUsage.PLUGIN_INPUT, currentInputs, inputs );
+			}
+			return new TestUsage.Record( className, !failed, inputs );
+		}
+
+		private static void addInput(String input, Map<String, String> currentInputs, Map<String, String> inputs) {
+			inputs.put( input, currentInputs.getOrDefault( input, TestUsage.UNKNOWN_HASH ) );
+		}
+	}
+
+	/**
+	 * Wait for the deletion of all released project directories to complete
+	 */
+	void drainCleanup() {
+		cleanupService.drain();
+	}
+
+	private void writeMetricsSummary() {
+		if ( metricsDir == null || testMetrics.isEmpty() ) {
+			return;
+		}
+
+		// one file per test worker, the same as for the runners
+		final String workerId = System.getProperty( GradleRunnerFactory.WORKER_ID_PROPERTY, "0" );
+		final File summaryFile = new File( metricsDir, "worker-" + workerId + ".tsv" );
+		summaryFile.getParentFile().mkdirs();
+
+		try ( Writer writer = Files.newBufferedWriter( summaryFile.toPath(), UTF_8 ) ) {
+			writer.write( ScopeMetrics.SUMMARY_HEADER );
+			writer.write( '\n' );
+			for ( Map.Entry<String, ScopeMetrics> entry : testMetrics ) {
+				writer.write( entry.getValue().toSummaryLine( entry.getKey() ) );
+				writer.write( '\n' );
+			}
+		}
+		catch (IOException e) {
+			System.out.printf( "Unable to write TestKit metrics summary `%s` : %s\n", summaryFile.getAbsolutePath(), e.getMessage() );
+			return;
+		}
+
+		System.out.printf( "TestKit metrics : %s\n", summaryFile.getAbsolutePath() );
+	}
+
+	private void writeDurations() {
+		if ( durationsFile == null || classDurations.isEmpty() ) {
+			return;
+		}
+
+		try {
+			TestDurations.record( durationsFile, classDurations );
+		}
+		catch (IOException e) {
+			System.out.printf( "Unable to record TestKit test durations `%s` : %s\n", durationsFile.getAbsolutePath(), e.getMessage() );
+		}
+	}
+
+	private void writeUsage() {
+		if ( usageFile == null || selectionInputs == null ) {
+			return;
+		}
+
+		final List<TestUsage.Record> records = new ArrayList<>();
+		for ( Map.Entry<String, ClassUsage> entry : classUsages.entrySet() ) {
+			if ( entry.getValue().completed ) {
+				records.add( entry.getValue().toRecord( entry.getKey(), selectionInputs ) );
+			}
+		}
+		if ( records.isEmpty() ) {
+			return;
+		}
+
+		try {
+			TestUsage.record( usageFile, records );
+		}
+		catch (IOException e) {
+			System.out.printf( "Unable to record TestKit test usage `%s` : %s\n", usageFile.getAbsolutePath(), e.getMessage() );
+		}
+	}
+
+	@Override
+	public void close() {
+		release();
 	}
 
 	void release() {
+		closing = true;
+
+		for ( ProjectScope suiteScope : staged( suiteScopes ) ) {
+			suiteScope.release();
+		}
+
+		for ( ConcurrentLinkedQueue<ProjectScope> recycled : recycledScopes.values() ) {
+			ProjectScope scope;
+			while ( ( scope = recycled.poll() ) != null ) {
+				scope.release();
+			}
+		}
+
+		if ( scopePool != null ) {
+			scopePool.close();
+		}
+
+		// wait for the pending deletions
+		cleanupService.close();
+		synchronized ( this ) {
+			if ( layersDir != null ) {
+				// the projects linking to them hold their own links
+				CleanupService.deleteRecursively( layersDir.toPath() );
+			}
+		}
+		writeMetricsSummary();
+		writeDurations();
+		writeUsage();
+		System.out.printf(
+				"TestKit cleanup : deleted %s project directories, reclaiming %s bytes\n",
+				cleanupService.getDirectoriesDeleted(),
+				cleanupService.getBytesReclaimed()
+		);
+		System.out.printf(
+				"TestKit builds : %s in-process, %s started a daemon (estimated), %s re-used a daemon (estimated), %s replayed from cache\n",
+				runnerFactory.getInProcessBuilds(),
+				runnerFactory.getEstimatedDaemonStarts(),
+				runnerFactory.getEstimatedDaemonReuses(),
+				runnerFactory.getCachedBuilds()
+		);
+
 		if ( projectStagingDir.exists() ) {
+			// both only succeed if empty, which is what we want - e.g. kept logs or directories of failed tests
+			new File( projectStagingDir, LOG_DIR_NAME ).delete();
 			projectStagingDir.delete();
 		}
+		synchronized ( this ) {
+			if ( memoryStagingDir != null && memoryStagingDir.exists() ) {
+				memoryStagingDir.delete();
+			}
+		}
 	}
 }
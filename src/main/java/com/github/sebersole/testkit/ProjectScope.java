@@ -1,46 +1,437 @@
 package com.github.sebersole.testkit;
 
 import java.io.File;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import org.gradle.testkit.runner.GradleRunner;
 
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
 /**
  * Provides the test with access to a TestKit {@link GradleRunner}
  * for the specified project.
  *
- * Manages a temp directory for the project for a specific test
+ * Manages a temp directory for the project for a specific test, or for the tests
+ * sharing it (see {@link ScopeLifecycle})
  */
-public class ProjectScope {
-	private final File projectBaseDirectory;
+public class ProjectScope implements ExtensionContext.Store.CloseableResource {
+	private volatile File projectBaseDirectory;
+	private final Set<Path> linkedFiles;
+	private volatile File stagingDirectory;
+	private final CleanupService cleanupService;
+	private final GradleRunnerFactory runnerFactory;
+	private volatile Supplier<File> diskStagingDirectory;
+	private final ScopeMetrics metrics;
+
+	private volatile BuildOutput buildOutput = BuildOutput.CONSOLE;
+	private volatile File logDirectory;
+	private volatile boolean keepBuildLog;
+	private BuildLog buildLog;
+	private volatile BuildHistory buildHistory;
+	private volatile BuildResultCache buildResultCache;
+	private volatile boolean cacheBuildResults = true;
+
+	private final AtomicBoolean released = new AtomicBoolean();
+	private volatile boolean retained;
+
+	private ProjectSnapshot snapshot;
+	private Predicate<ProjectScope> recycler;
+	private Consumer<ScopeMetrics> metricsRecorder;
 
 	public ProjectScope(File projectBaseDirectory) {
+		this( projectBaseDirectory, Collections.emptySet() );
+	}
+
+	/**
+	 * @param linkedFiles The files (relative to the project directory) which were
+	 * hard-linked, rather than copied, from the TestKit project
+	 *
+	 * @see StagingMode#LINK
+	 */
+	public ProjectScope(File projectBaseDirectory, Set<Path> linkedFiles) {
+		this(
+				projectBaseDirectory,
+				linkedFiles,
+				projectBaseDirectory,
+				null,
+				GradleRunnerFactory.DEFAULT,
+				new ScopeMetrics( projectBaseDirectory.getName() )
+		);
+	}
+
+	/**
+	 * @param stagingDirectory The directory to delete on {@link #release()} - the
+	 * project directory or a directory containing it
+	 * @param cleanupService Performs the deletion in the background; {@code null}
+	 * indicates to delete on the releasing thread
+	 * @param runnerFactory Creates the runners for {@link #createGradleRunner(String...)}
+	 * @param metrics The metrics of staging the project, to which those of the builds
+	 * and cleanup are added
+	 */
+	ProjectScope(
+			File projectBaseDirectory,
+			Set<Path> linkedFiles,
+			File stagingDirectory,
+			CleanupService cleanupService,
+			GradleRunnerFactory runnerFactory,
+			ScopeMetrics metrics) {
 		this.projectBaseDirectory = projectBaseDirectory;
+		this.linkedFiles = new HashSet<>( linkedFiles );
+		this.stagingDirectory = stagingDirectory;
+		this.cleanupService = cleanupService;
+		this.runnerFactory = runnerFactory;
+		this.metrics = metrics;
 	}
 
+	/**
+	 * Creates a scope for a project staged in memory, which is moved to disk on
+	 * first {@linkplain #createGradleRunner(String...) runner creation}
+	 *
+	 * @param diskStagingDirectory Supplies the (new, empty) directory to move the project to
+	 *
+	 * @see Project#inMemory()
+	 */
+	ProjectScope(
+			File projectBaseDirectory,
+			File stagingDirectory,
+			Supplier<File> diskStagingDirectory,
+			CleanupService cleanupService,
+			GradleRunnerFactory runnerFactory,
+			ScopeMetrics metrics) {
+		this( projectBaseDirectory, Collections.emptySet(), stagingDirectory, cleanupService, runnerFactory, metrics );
+		this.diskStagingDirectory = diskStagingDirectory;
+	}
+
+	/**
+	 * The directory of the staged project.  Note that for {@linkplain #isInMemory() in-memory}
+	 * scopes, the directory changes once a runner is created
+	 */
 	public File getProjectBaseDirectory() {
 		return projectBaseDirectory;
 	}
 
+	/**
+	 * The time spent staging the project, running builds against it and deleting it
+	 */
+	public ScopeMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Whether the project is (still) staged in memory
+	 *
+	 * @see Project#inMemory()
+	 */
+	public boolean isInMemory() {
+		return diskStagingDirectory != null;
+	}
+
+	/**
+	 * Where the output of the builds goes
+	 */
+	public BuildOutput getBuildOutput() {
+		return buildOutput;
+	}
+
+	/**
+	 * Change where the output of the builds of runners created from now on goes.  Defaults
+	 * to the {@linkplain TestKitSpec#getBuildOutput() configured} build output
+	 */
+	public void setBuildOutput(BuildOutput buildOutput) {
+		this.buildOutput = buildOutput;
+	}
+
+	/**
+	 * @param logDirectory The directory for the {@linkplain BuildLog build logs}
+	 * @param keepBuildLog Whether the log is kept once the scope is released
+	 */
+	void configureBuildOutput(BuildOutput buildOutput, File logDirectory, boolean keepBuildLog) {
+		this.buildOutput = buildOutput;
+		this.logDirectory = logDirectory;
+		this.keepBuildLog = keepBuildLog;
+	}
+
+	/**
+	 * Have {@link #release()} keep the build log, e.g. for a failed test
+	 */
+	void keepBuildLog() {
+		this.keepBuildLog = true;
+	}
+
+	/**
+	 * Record the builds run by the runners of this scope, for the {@linkplain FailureBundle bundle}
+	 * of a failed test
+	 */
+	void recordBuildHistory() {
+		buildHistory = new BuildHistory();
+	}
+
+	/**
+	 * @param buildResultCache The cache to replay the results of repeated builds from
+	 */
+	void configureBuildResultCache(BuildResultCache buildResultCache) {
+		this.buildResultCache = buildResultCache == null ? null : buildResultCache.forProject();
+		if ( this.buildResultCache != null ) {
+			this.buildResultCache.setEnabled( cacheBuildResults );
+		}
+	}
+
+	/**
+	 * Whether the results of the builds from now on are replayed from
+	 * (and recorded in) the build result cache, if {@linkplain TestKitSpec#getCacheBuildResults() enabled}.
+	 * Defaults to {@code true}
+	 */
+	public boolean isCacheBuildResults() {
+		return cacheBuildResults && buildResultCache != null;
+	}
+
+	/**
+	 * Opt the builds of this scope out of the build result cache - e.g. for tests which
+	 * inspect the files written by the build, which a replayed build does not write
+	 */
+	public void setCacheBuildResults(boolean cacheBuildResults) {
+		this.cacheBuildResults = cacheBuildResults;
+		final BuildResultCache buildResultCache = this.buildResultCache;
+		if ( buildResultCache != null ) {
+			buildResultCache.setEnabled( cacheBuildResults );
+		}
+	}
+
+	/**
+	 * The log the output of the builds is streamed to with {@link BuildOutput#FILE}; {@code null}
+	 * until the first such runner is created
+	 */
+	public synchronized BuildLog getBuildLog() {
+		return buildLog;
+	}
+
+	private synchronized BuildLog resolveBuildLog() {
+		if ( buildOutput != BuildOutput.FILE ) {
+			return null;
+		}
+		if ( buildLog == null ) {
+			buildLog = BuildLog.create( logDirectory, projectBaseDirectory.getName() );
+		}
+		return buildLog;
+	}
+
+	/**
+	 * The builds run by the runners of this scope, along with their task outcomes; {@code null}
+	 * if not {@linkplain #recordBuildHistory() recorded}
+	 */
+	BuildHistory getBuildHistory() {
+		return buildHistory;
+	}
+
+	/**
+	 * Resolve a file in the project which the test intends to modify.  If the file
+	 * was hard-linked from the TestKit project during staging, the link is first
+	 * replaced by a private copy so that the change cannot leak into the TestKit
+	 * project (and from there into other tests)
+	 *
+	 * @param relativePath The path, relative to the project directory
+	 */
+	public File resolveForWrite(String relativePath) {
+		final Path projectPath = projectBaseDirectory.toPath();
+		final Path relative = projectPath.relativize( projectPath.resolve( relativePath ) );
+		final Path file = projectPath.resolve( relative );
+
+		synchronized ( linkedFiles ) {
+			if ( linkedFiles.remove( relative ) ) {
+				breakLink( file );
+			}
+		}
+
+		return file.toFile();
+	}
+
+	private static void breakLink(Path file) {
+		final Path privateCopy = file.resolveSibling( file.getFileName() + ".testkit-copy" );
+		try {
+			Files.copy( file, privateCopy );
+			Files.move( privateCopy, file, REPLACE_EXISTING );
+		}
+		catch (IOException e) {
+			throw new IllegalStateException( "Unable to make private copy of linked file `" + file + "`", e );
+		}
+		finally {
+			// left over if the copy or move failed
+			try {
+				Files.deleteIfExists( privateCopy );
+			}
+			catch (IOException ignore) {
+			}
+		}
+	}
+
+	/**
+	 * Keep the project directory rather than deleting it on {@link #release()}, e.g.
+	 * for inspecting the project of a failed test
+	 */
+	void retain() {
+		retained = true;
+	}
+
+	boolean isRetained() {
+		return retained;
+	}
+
+	/**
+	 * Closes the scope when stored in a JUnit {@link ExtensionContext.Store}
+	 */
+	@Override
+	public void close() {
+		release();
+	}
+
+	/**
+	 * Have {@link #release()} hand the project directory to the given recycler, rather
+	 * than delete it
+	 *
+	 * @param snapshot The state of the project directory as staged
+	 * @param recycler Restores the project directory to the snapshot state for re-use;
+	 * returns {@code false} if the directory should be deleted instead
+	 *
+	 * @see TestKitSpec#getRecycleProjects()
+	 */
+	void enableRecycling(ProjectSnapshot snapshot, Predicate<ProjectScope> recycler) {
+		this.snapshot = snapshot;
+		this.recycler = recycler;
+	}
+
+	/**
+	 * Have the (first) {@link #release()} hand the metrics to the given recorder - for a
+	 * scope shared by several tests, whose metrics are only complete once they are done.
+	 * Also applies to a {@linkplain #retain() retained} scope
+	 */
+	synchronized void recordMetricsOnRelease(Consumer<ScopeMetrics> recorder) {
+		this.metricsRecorder = recorder;
+	}
+
+	/**
+	 * Have {@link #release()} delete the project directory even if recycling was enabled,
+	 * e.g. for the project of a failed test
+	 */
+	void disableRecycling() {
+		this.recycler = null;
+	}
+
+	ProjectSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	Set<Path> getLinkedFiles() {
+		synchronized ( linkedFiles ) {
+			return new HashSet<>( linkedFiles );
+		}
+	}
+
+	File getStagingDirectory() {
+		return stagingDirectory;
+	}
+
 	void release() {
-		// delete the directory after we are done with it
-		projectBaseDirectory.deleteOnExit();
+		final Consumer<ScopeMetrics> recorder;
+		synchronized ( this ) {
+			recorder = metricsRecorder;
+			metricsRecorder = null;
+		}
+		if ( recorder != null ) {
+			recorder.accept( metrics );
+		}
+
+		if ( retained || !released.compareAndSet( false, true ) ) {
+			return;
+		}
+
+		synchronized ( this ) {
+			if ( buildLog != null ) {
+				if ( keepBuildLog ) {
+					buildLog.close();
+				}
+				else {
+					buildLog.delete();
+				}
+			}
+		}
+
+		if ( recycler != null && !isInMemory() && recycler.test( this ) ) {
+			return;
+		}
+
+		synchronized ( this ) {
+			// delete the directory after we are done with it
+			delete( stagingDirectory );
+		}
+	}
+
+	private void delete(File directory) {
+		if ( cleanupService != null ) {
+			cleanupService.delete( directory.toPath(), metrics );
+		}
+		else {
+			final long start = System.nanoTime();
+			CleanupService.deleteRecursively( directory.toPath() );
+			metrics.cleanedUp( System.nanoTime() - start );
+		}
+	}
+
+	/**
+	 * Move an in-memory project to disk, including any changes made by the test so far
+	 *
+	 * @return The (new) project directory
+	 */
+	synchronized File materialize() {
+		if ( diskStagingDirectory == null ) {
+			return projectBaseDirectory;
+		}
+
+		final long start = System.nanoTime();
+		final File memoryStagingDirectory = stagingDirectory;
+		final File diskDirectory = diskStagingDirectory.get();
+		final File projectDirectory = new File( diskDirectory, projectBaseDirectory.getName() );
+		projectDirectory.mkdirs();
+		DirectoryCopier.transfer( projectBaseDirectory.toPath(), projectDirectory.toPath(), false, metrics );
+		metrics.staged( System.nanoTime() - start );
+
+		projectBaseDirectory = projectDirectory;
+		stagingDirectory = diskDirectory;
+		diskStagingDirectory = null;
+
+		// free the memory right away
+		delete( memoryStagingDirectory );
+
+		return projectDirectory;
 	}
 
+	/**
+	 * Create a runner for the project, configured according to the
+	 * {@linkplain RunnerMode runner mode}
+	 */
 	public GradleRunner createGradleRunner(String... args) {
-		return createGradleRunner( projectBaseDirectory, args );
+		return runnerFactory.createGradleRunner(
+				materialize(),
+				metrics,
+				resolveBuildLog(),
+				buildHistory,
+				// even if disabled, for the builds to run those replayed earlier
+				buildResultCache,
+				args
+		);
 	}
 
 	public static GradleRunner createGradleRunner(File projectBaseDir, String... args) {
-		final ArrayList<String> arguments = new ArrayList<>( Arrays.asList( args ) );
-		arguments.add( "--stacktrace" );
-
-		return GradleRunner.create()
-				.withPluginClasspath()
-				.withDebug( true )
-				.forwardOutput()
-				.withProjectDir( projectBaseDir )
-				.withArguments( arguments );
+		return GradleRunnerFactory.DEFAULT.createGradleRunner( projectBaseDir, args );
 	}
 }
@@ -0,0 +1,136 @@
+package com.github.sebersole.testkit;
+
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Keeps a number of fully staged copies of each TestKit project ready so that
+ * tests do not have to wait for the project to be staged.  The copies of a project
+ * are staged in the background once it is first requested, and taken copies are
+ * replaced while the tests run.
+ *
+ * @see ProjectContainer#getProjectScope
+ */
+class ProjectScopePool {
+	private final int poolSize;
+	private final Function<String, ProjectScope> stager;
+
+	private final Map<String, BlockingQueue<ProjectScope>> readyScopes = new ConcurrentHashMap<>();
+	private final ExecutorService executor;
+
+	private volatile boolean closed;
+
+	/**
+	 * @param poolSize The number of staged copies to keep ready per project
+	 * @param stager Performs the actual staging of a project by name
+	 */
+	ProjectScopePool(int poolSize, Function<String, ProjectScope> stager) {
+		assert poolSize > 0;
+
+		this.poolSize = poolSize;
+		this.stager = stager;
+
+		final AtomicInteger threadCount = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(
+				Math.min( poolSize, Runtime.getRuntime().availableProcessors() ),
+				runnable -> {
+					final Thread thread = new Thread( runnable, "testkit-staging-" + threadCount.incrementAndGet() );
+					thread.setDaemon( true );
+					return thread;
+				}
+		);
+	}
+
+	/**
+	 * Take a staged copy of the named project.  If none is ready yet (e.g. on the first
+	 * request of the project), the copy is staged on the calling thread
+	 */
+	ProjectScope take(String projectName) {
+		final BlockingQueue<ProjectScope> ready = queue( projectName );
+
+		final ProjectScope pooled = ready.poll();
+		if ( pooled == null ) {
+			// the background staging has not caught up (or failed) - staging here
+			// also surfaces any staging problem to the test
+			return stager.apply( projectName );
+		}
+
+		refill( projectName, ready );
+		return pooled;
+	}
+
+	private BlockingQueue<ProjectScope> queue(String projectName) {
+		return readyScopes.computeIfAbsent(
+				projectName,
+				name -> {
+					final BlockingQueue<ProjectScope> ready = new LinkedBlockingQueue<>( poolSize );
+					for ( int i = 0; i < poolSize; i++ ) {
+						refill( name, ready );
+					}
+					return ready;
+				}
+		);
+	}
+
+	private void refill(String projectName, BlockingQueue<ProjectScope> ready) {
+		if ( closed ) {
+			return;
+		}
+
+		try {
+			executor.execute(
+					() -> {
+						if ( closed ) {
+							return;
+						}
+
+						final ProjectScope scope;
+						try {
+							scope = stager.apply( projectName );
+						}
+						catch (RuntimeException e) {
+							// the test taking the next copy stages it itself and sees the problem
+							return;
+						}
+
+						if ( closed || !ready.offer( scope ) ) {
+							scope.release();
+						}
+					}
+			);
+		}
+		catch (RejectedExecutionException ignore) {
+			// closed concurrently
+		}
+	}
+
+	/**
+	 * Stop staging and release the copies which were never taken
+	 */
+	void close() {
+		closed = true;
+		executor.shutdownNow();
+		try {
+			executor.awaitTermination( 30, TimeUnit.SECONDS );
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		for ( BlockingQueue<ProjectScope> ready : readyScopes.values() ) {
+			ProjectScope scope;
+			while ( ( scope = ready.poll() ) != null ) {
+				scope.release();
+			}
+		}
+		readyScopes.clear();
+	}
+}
@@ -0,0 +1,220 @@
+package com.github.sebersole.testkit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static java.nio.file.FileVisitResult.CONTINUE;
+import static java.nio.file.FileVisitResult.SKIP_SUBTREE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * The state (size and content hash) of the files of a staged project, used to restore
+ * the project to its staged state after a test changed it - rather than deleting it and
+ * staging a new copy.
+ *
+ * A file is considered changed if its size or content differ from the TestKit project
+ * it was staged from.  The content hashes are taken from the {@link FixtureIndex} if
+ * available, otherwise each is computed from the TestKit project once it is needed.
+ * Files still linked to the TestKit project are unchanged by definition.  Not safe for
+ * concurrent use - a snapshot belongs to one staged project directory, which is used by
+ * one test at a time
+ *
+ * @see TestKitSpec#getRecycleProjects()
+ */
+class ProjectSnapshot {
+	private static class FileState {
+		private final long size;
+		private String hash;
+
+		private FileState(long size, String hash) {
+			this.size = size;
+			this.hash = hash;
+		}
+	}
+
+	private final Map<Path, FileState> files = new HashMap<>();
+	private final Set<Path> directories = new HashSet<>();
+	private final Map<String, String> indexedHashes;
+
+	private ProjectSnapshot(Map<String, String> indexedHashes) {
+		this.indexedHashes = indexedHashes;
+	}
+
+	/**
+	 * Capture the state of the given (staged) project directory
+	 */
+	static ProjectSnapshot capture(Path projectDir) {
+		return capture( projectDir, null, null );
+	}
+
+	/**
+	 * Capture the state of the given (staged) project directory
+	 *
+	 * @param index The index of the TestKit projects, if available
+	 * @param projectName The name of the TestKit project staged into the directory
+	 */
+	static ProjectSnapshot capture(Path projectDir, FixtureIndex index, String projectName) {
+		Map<String, String> indexedHashes = null;
+		if ( index != null ) {
+			indexedHashes = new HashMap<>();
+			for ( FixtureIndex.FileEntry file : index.getFiles( projectName ) ) {
+				indexedHashes.put( file.getPath(), file.getHash() );
+			}
+		}
+
+		final ProjectSnapshot snapshot = new ProjectSnapshot( indexedHashes );
+		try {
+			snapshot.capture( projectDir, projectDir );
+		}
+		catch (IOException e) {
+			throw new IllegalStateException( "Unable to capture the state of `" + projectDir + "`", e );
+		}
+		return snapshot;
+	}
+
+	private void capture(Path projectDir, Path start) throws IOException {
+		Files.walkFileTree(
+				start,
+				new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+						if ( !dir.equals( projectDir ) ) {
+							directories.add( projectDir.relativize( dir ) );
+						}
+						return CONTINUE;
+					}
+
+					@Override
+					public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+						final Path relativePath = projectDir.relativize( file );
+						final String hash = indexedHashes == null ? null : indexedHashes.get( toIndexPath( relativePath ) );
+						files.put( relativePath, new FileState( attrs.size(), hash ) );
+						return CONTINUE;
+					}
+				}
+		);
+	}
+
+	private static String toIndexPath(Path relativePath) {
+		return relativePath.toString().replace( File.separatorChar, '/' );
+	}
+
+	private static boolean isChanged(FileState state, Path sourceFile, Path file, BasicFileAttributes attrs) throws IOException {
+		if ( state.size != attrs.size() ) {
+			return true;
+		}
+		if ( Files.isSameFile( sourceFile, file ) ) {
+			// still linked
+			return false;
+		}
+		if ( state.hash == null ) {
+			state.hash = FixtureIndex.hash( sourceFile );
+		}
+		// e.g. rewritten with the same size, or within the resolution of the modification time
+		return !state.hash.equals( FixtureIndex.hash( file ) );
+	}
+
+	/**
+	 * Restore {@code target} to the captured state - changed and deleted files are copied
+	 * again from {@code source}, added files and directories are deleted.
+	 *
+	 * @return The number of paths which had to be restored or deleted
+	 */
+	int restore(Path source, Path target, ScopeMetrics metrics) throws IOException {
+		final Set<Path> seenFiles = new HashSet<>();
+		final Set<Path> seenDirectories = new HashSet<>();
+		final Set<Path> changedFiles = new HashSet<>();
+		final int[] deleted = new int[1];
+
+		Files.walkFileTree(
+				target,
+				new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+						final Path relativePath = target.relativize( dir );
+						if ( dir.equals( target ) ) {
+							return CONTINUE;
+						}
+						if ( !directories.contains( relativePath ) ) {
+							// e.g. `build/` or `.gradle/`
+							CleanupService.deleteRecursively( dir );
+							deleted[0]++;
+							return SKIP_SUBTREE;
+						}
+						seenDirectories.add( relativePath );
+						return CONTINUE;
+					}
+
+					@Override
+					public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+						final Path relativePath = target.relativize( file );
+						final FileState state = files.get( relativePath );
+						if ( state == null ) {
+							Files.delete( file );
+							deleted[0]++;
+						}
+						else {
+							seenFiles.add( relativePath );
+							if ( isChanged( state, source.resolve( relativePath ), file, attrs ) ) {
+								changedFiles.add( relativePath );
+							}
+						}
+						return CONTINUE;
+					}
+				}
+		);
+
+		int restored = deleted[0];
+
+		// deleted directories, including their content - sorted, parents before children
+		final Set<Path> restoredDirectories = new HashSet<>();
+		for ( Path directory : new TreeSet<>( directories ) ) {
+			if ( seenDirectories.contains( directory ) || isWithin( directory, restoredDirectories ) ) {
+				continue;
+			}
+			DirectoryCopier.stage( source.resolve( directory ), target.resolve( directory ), false, metrics );
+			capture( target, target.resolve( directory ) );
+			restoredDirectories.add( directory );
+			restored++;
+		}
+
+		// changed and deleted files
+		for ( Map.Entry<Path, FileState> entry : files.entrySet() ) {
+			final Path relativePath = entry.getKey();
+			if ( seenFiles.contains( relativePath ) && !changedFiles.contains( relativePath ) ) {
+				continue;
+			}
+			if ( isWithin( relativePath, restoredDirectories ) ) {
+				continue;
+			}
+
+			final Path targetFile = target.resolve( relativePath );
+			Files.copy( source.resolve( relativePath ), targetFile, REPLACE_EXISTING );
+			if ( metrics != null ) {
+				metrics.fileCopied( Files.size( targetFile ) );
+			}
+			restored++;
+		}
+
+		return restored;
+	}
+
+	private static boolean isWithin(Path path, Set<Path> directories) {
+		for ( Path parent = path.getParent(); parent != null; parent = parent.getParent() ) {
+			if ( directories.contains( parent ) ) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,91 @@
+package com.github.sebersole.testkit;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A TestKit project staged with parameters supplied by the test, rather than (only) those
+ * named by {@link Project#parameters()}.  Injected in place of a {@link ProjectScope},
+ * mainly for {@code @ParameterizedTest} methods covering a matrix of configurations
+ * with a single templated project:
+ *
+ * <pre>
+ * &#64;ParameterizedTest
+ * &#64;ValueSource( strings = { "1.8", "11" } )
+ * public void compile(String javaVersion, &#64;Project( "java-library" ) ProjectTemplate template) {
+ *   final ProjectScope scope = template.with( "javaVersion", javaVersion ).stage();
+ *   ...
+ * }
+ * </pre>
+ *
+ * The staged scopes are released along with the test, same as injected scopes.
+ *
+ * @see FixtureTemplate
+ */
+public class ProjectTemplate {
+	private final String projectName;
+	private final Map<String, String> parameters;
+	private final Function<Map<String, String>, ProjectScope> stager;
+
+	ProjectTemplate(String projectName, Map<String, String> parameters, Function<Map<String, String>, ProjectScope> stager) {
+		this.projectName = projectName;
+		this.parameters = Collections.unmodifiableMap( parameters );
+		this.stager = stager;
+	}
+
+	public String getProjectName() {
+		return projectName;
+	}
+
+	/**
+	 * The parameters the project is staged with
+	 */
+	public Map<String, String> getParameters() {
+		return parameters;
+	}
+
+	/**
+	 * A template staging the project with the given parameter as well, replacing any
+	 * value previously given for the parameter
+	 */
+	public ProjectTemplate with(String name, Object value) {
+		final Map<String, String> parameters = new LinkedHashMap<>( this.parameters );
+		parameters.put( name, String.valueOf( value ) );
+		return new ProjectTemplate( projectName, parameters, stager );
+	}
+
+	/**
+	 * Stage the project, rendering its templated files using the parameters
+	 */
+	public ProjectScope stage() {
+		return stager.apply( parameters );
+	}
+
+	/**
+	 * Parse parameters given as {@code name=value}
+	 *
+	 * @see Project#parameters()
+	 */
+	static Map<String, String> parseParameters(String[] parameters) {
+		if ( parameters.length == 0 ) {
+			return Collections.emptyMap();
+		}
+
+		final Map<String, String> parsed = new LinkedHashMap<>();
+		for ( String parameter : parameters ) {
+			final int separator = parameter.indexOf( '=' );
+			if ( separator <= 0 ) {
+				throw new IllegalStateException( "Expecting TestKit project parameter as `name=value` : " + parameter );
+			}
+			parsed.put( parameter.substring( 0, separator ).trim(), parameter.substring( separator + 1 ) );
+		}
+		return parsed;
+	}
+
+	@Override
+	public String toString() {
+		return "ProjectTemplate(" + projectName + ")" + parameters;
+	}
+}
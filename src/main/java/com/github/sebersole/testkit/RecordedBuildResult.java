@@ -0,0 +1,141 @@
+package com.github.sebersole.testkit;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.BuildTask;
+import org.gradle.testkit.runner.TaskOutcome;
+
+/**
+ * A {@link BuildResult} recorded by the {@link BuildResultCache}, along with whether
+ * the build succeeded
+ */
+class RecordedBuildResult implements BuildResult {
+	private static final String FORMAT = "testkit-build-result 1";
+
+	private final boolean successful;
+	private final List<BuildTask> tasks;
+	private final String output;
+
+	RecordedBuildResult(boolean successful, List<BuildTask> tasks, String output) {
+		this.successful = successful;
+		this.tasks = Collections.unmodifiableList( tasks );
+		this.output = output;
+	}
+
+	static RecordedBuildResult of(BuildResult result, boolean successful) {
+		final List<BuildTask> tasks = new ArrayList<>();
+		for ( BuildTask task : result.getTasks() ) {
+			tasks.add( new RecordedBuildTask( task.getPath(), task.getOutcome() ) );
+		}
+		return new RecordedBuildResult( successful, tasks, result.getOutput() );
+	}
+
+	boolean isSuccessful() {
+		return successful;
+	}
+
+	@Override
+	public String getOutput() {
+		return output;
+	}
+
+	@Override
+	public List<BuildTask> getTasks() {
+		return tasks;
+	}
+
+	@Override
+	public List<BuildTask> tasks(TaskOutcome outcome) {
+		return Collections.unmodifiableList(
+				tasks.stream().filter( task -> task.getOutcome() == outcome ).collect( Collectors.toList() )
+		);
+	}
+
+	@Override
+	public List<String> taskPaths(TaskOutcome outcome) {
+		return Collections.unmodifiableList(
+				tasks( outcome ).stream().map( BuildTask::getPath ).collect( Collectors.toList() )
+		);
+	}
+
+	@Override
+	public BuildTask task(String taskPath) {
+		for ( BuildTask task : tasks ) {
+			if ( task.getPath().equals( taskPath ) ) {
+				return task;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Write the result : a header, the tasks (one per line) and the output
+	 */
+	void write(Writer writer) throws IOException {
+		writer.write( FORMAT + '\n' );
+		writer.write( successful + "\n" );
+		writer.write( tasks.size() + "\n" );
+		for ( BuildTask task : tasks ) {
+			writer.write( task.getOutcome().name() + '\t' + task.getPath() + '\n' );
+		}
+		writer.write( output );
+	}
+
+	/**
+	 * @return The result, or {@code null} if it was written in a different format
+	 */
+	static RecordedBuildResult read(BufferedReader reader) throws IOException {
+		if ( !FORMAT.equals( reader.readLine() ) ) {
+			return null;
+		}
+
+		final boolean successful = Boolean.parseBoolean( reader.readLine() );
+		final int taskCount = Integer.parseInt( reader.readLine() );
+		final List<BuildTask> tasks = new ArrayList<>( taskCount );
+		for ( int i = 0; i < taskCount; i++ ) {
+			final String[] fields = reader.readLine().split( "\t", 2 );
+			tasks.add( new RecordedBuildTask( fields[1], TaskOutcome.valueOf( fields[0] ) ) );
+		}
+
+		final StringBuilder output = new StringBuilder();
+		final char[] buffer = new char[8192];
+		int read;
+		while ( ( read = reader.read( buffer ) ) != -1 ) {
+			output.append( buffer, 0, read );
+		}
+
+		return new RecordedBuildResult( successful, tasks, output.toString() );
+	}
+
+	private static class RecordedBuildTask implements BuildTask {
+		private final String path;
+		private final TaskOutcome outcome;
+
+		private RecordedBuildTask(String path, TaskOutcome outcome) {
+			this.path = path;
+			this.outcome = outcome;
+		}
+
+		@Override
+		public String getPath() {
+			return path;
+		}
+
+		@Override
+		public TaskOutcome getOutcome() {
+			return outcome;
+		}
+
+		@Override
+		public String toString() {
+			return path + "=" + outcome;
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package com.github.sebersole.testkit;
+
+import java.util.Locale;
+
+/**
+ * How the builds of {@link ProjectScope#createGradleRunner} runners are executed
+ */
+public enum RunnerMode {
+	/**
+	 * Builds run in-process with the test, which allows debugging the plugin
+	 * code from the test.  A fresh build environment is used for every build.
+	 * The default
+	 */
+	DEBUG,
+
+	/**
+	 * Builds run in Gradle daemons which are kept warm and re-used across the
+	 * tests of a test worker.  Much faster, but plugin code can no longer be
+	 * debugged from the test
+	 */
+	DAEMON;
+
+	/**
+	 * Interpret the setting from the locator file or DSL.  {@code null} or
+	 * empty is interpreted as {@link #DEBUG}
+	 */
+	public static RunnerMode fromSetting(String setting) {
+		if ( setting == null || setting.trim().isEmpty() ) {
+			return DEBUG;
+		}
+
+		try {
+			return valueOf( setting.trim().toUpperCase( Locale.ROOT ) );
+		}
+		catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException( "Unrecognized TestKit runner mode : `" + setting + "`", e );
+		}
+	}
+}
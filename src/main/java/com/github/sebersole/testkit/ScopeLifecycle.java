@@ -0,0 +1,26 @@
+package com.github.sebersole.testkit;
+
+/**
+ * How long a staged TestKit project is used - which tests share the same
+ * {@link ProjectScope}
+ *
+ * @see Project#lifecycle()
+ */
+public enum ScopeLifecycle {
+	/**
+	 * Each test method gets its own copy of the project.  The default
+	 */
+	PER_METHOD,
+
+	/**
+	 * All test methods of a test class share one copy of the project, released
+	 * after all tests of the class completed
+	 */
+	PER_CLASS,
+
+	/**
+	 * All tests of the test run share one copy of the project, released at the
+	 * end of the test run
+	 */
+	PER_SUITE
+}
@@ -0,0 +1,153 @@
+package com.github.sebersole.testkit;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Where the time of a {@link ProjectScope} goes - staging the project, the builds
+ * run against it and deleting it afterwards.  Safe for concurrent updates (files are
+ * copied and deletions performed on other threads)
+ *
+ * @see ProjectScope#getMetrics()
+ */
+public class ScopeMetrics {
+	/**
+	 * The columns of the {@linkplain #toSummaryLine summary line}, tab separated
+	 */
+	static final String SUMMARY_HEADER = "test\tproject\tstaging-ms\tfiles-copied\tbytes-copied\tfiles-linked\tbuilds\tbuild-ms\tcleanup-ms";
+
+	private final String projectName;
+
+	private final LongAdder stagingNanos = new LongAdder();
+	private final LongAdder filesCopied = new LongAdder();
+	private final LongAdder bytesCopied = new LongAdder();
+	private final LongAdder filesLinked = new LongAdder();
+	private final LongAdder builds = new LongAdder();
+	private final LongAdder buildNanos = new LongAdder();
+	private final LongAdder cleanupNanos = new LongAdder();
+
+	public ScopeMetrics(String projectName) {
+		this.projectName = projectName;
+	}
+
+	public String getProjectName() {
+		return projectName;
+	}
+
+	void staged(long nanos) {
+		stagingNanos.add( nanos );
+	}
+
+	void fileCopied(long bytes) {
+		filesCopied.increment();
+		bytesCopied.add( bytes );
+	}
+
+	void fileLinked() {
+		filesLinked.increment();
+	}
+
+	void built(long nanos) {
+		builds.increment();
+		buildNanos.add( nanos );
+	}
+
+	void cleanedUp(long nanos) {
+		cleanupNanos.add( nanos );
+	}
+
+	public long getStagingMillis() {
+		return TimeUnit.NANOSECONDS.toMillis( stagingNanos.sum() );
+	}
+
+	public long getFilesCopied() {
+		return filesCopied.sum();
+	}
+
+	public long getBytesCopied() {
+		return bytesCopied.sum();
+	}
+
+	/**
+	 * The number of files hard-linked rather than copied
+	 *
+	 * @see StagingMode#LINK
+	 */
+	public long getFilesLinked() {
+		return filesLinked.sum();
+	}
+
+	public long getBuilds() {
+		return builds.sum();
+	}
+
+	/**
+	 * The total duration of all builds
+	 */
+	public long getBuildMillis() {
+		return TimeUnit.NANOSECONDS.toMillis( buildNanos.sum() );
+	}
+
+	/**
+	 * The time taken deleting the staged project.  Deletion happens in the background,
+	 * so this is only known once the deletion completed
+	 */
+	public long getCleanupMillis() {
+		return TimeUnit.NANOSECONDS.toMillis( cleanupNanos.sum() );
+	}
+
+	/**
+	 * The metrics as JUnit report entries
+	 */
+	Map<String, String> toReportEntries() {
+		final Map<String, String> entries = new LinkedHashMap<>();
+		entries.put( "testkit.project", projectName );
+		entries.put( "testkit.staging-ms", Long.toString( getStagingMillis() ) );
+		entries.put( "testkit.files-copied", Long.toString( getFilesCopied() ) );
+		entries.put( "testkit.bytes-copied", Long.toString( getBytesCopied() ) );
+		entries.put( "testkit.files-linked", Long.toString( getFilesLinked() ) );
+		entries.put( "testkit.builds", Long.toString( getBuilds() ) );
+		entries.put( "testkit.build-ms", Long.toString( getBuildMillis() ) );
+		return entries;
+	}
+
+	/**
+	 * The metrics as a line of the summary file
+	 *
+	 * @see #SUMMARY_HEADER
+	 */
+	String toSummaryLine(String testId) {
+		return String.format(
+				Locale.ROOT,
+				"%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s",
+				testId,
+				projectName,
+				getStagingMillis(),
+				getFilesCopied(),
+				getBytesCopied(),
+				getFilesLinked(),
+				getBuilds(),
+				getBuildMillis(),
+				getCleanupMillis()
+		);
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				Locale.ROOT,
+				"ScopeMetrics(project=%s, staging=%sms, files copied=%s, bytes copied=%s, files linked=%s, builds=%s, build=%sms, cleanup=%sms)",
+				projectName,
+				getStagingMillis(),
+				getFilesCopied(),
+				getBytesCopied(),
+				getFilesLinked(),
+				getBuilds(),
+				getBuildMillis(),
+				getCleanupMillis()
+		);
+	}
+}
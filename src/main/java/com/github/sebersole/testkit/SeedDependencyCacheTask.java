@@ -0,0 +1,152 @@
+package com.github.sebersole.testkit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import javax.inject.Inject;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.util.GradleVersion;
+
+/**
+ * Seeds the read-only dependency cache used by the TestKit builds, so that they resolve
+ * plugins and dependencies without network access and without populating the (initially
+ * empty) Gradle user home of the TestKit directory first.
+ *
+ * The {@code testKitDependencyCache} dependencies are resolved by this (outer) build,
+ * after which their part of the dependency cache of its Gradle user home is mirrored into
+ * the cache directory.  {@code testKitTest} points the builds to the cache directory
+ * through the {@value #RO_DEP_CACHE_ENV} environment variable, which requires the builds
+ * to run Gradle {@link #MIN_GRADLE_VERSION} or later.
+ *
+ * @see DependencyCacheMirror
+ */
+public abstract class SeedDependencyCacheTask extends DefaultTask {
+	/**
+	 * The environment variable through which Gradle locates the read-only dependency cache
+	 */
+	public static final String RO_DEP_CACHE_ENV = "GRADLE_RO_DEP_CACHE";
+
+	/**
+	 * The first Gradle version supporting the read-only dependency cache
+	 */
+	public static final GradleVersion MIN_GRADLE_VERSION = GradleVersion.version( "6.2" );
+
+	private final ConfigurableFileCollection dependencies;
+	private final DirectoryProperty gradleUserHome;
+	private final DirectoryProperty cacheDirectory;
+
+	@Inject
+	public SeedDependencyCacheTask(ObjectFactory objectFactory) {
+		dependencies = objectFactory.fileCollection();
+		gradleUserHome = objectFactory.directoryProperty();
+		cacheDirectory = objectFactory.directoryProperty();
+	}
+
+	/**
+	 * Whether builds run by the given Gradle version use the seeded cache
+	 */
+	public static boolean isSupported(GradleVersion gradleVersion) {
+		return gradleVersion.getBaseVersion().compareTo( MIN_GRADLE_VERSION ) >= 0;
+	}
+
+	/**
+	 * The dependencies to seed into the cache - resolving them makes sure they are part
+	 * of the Gradle user home; only their module versions are mirrored
+	 */
+	@Classpath
+	public ConfigurableFileCollection getDependencies() {
+		return dependencies;
+	}
+
+	/**
+	 * The Gradle user home of this build, whose dependency cache is mirrored
+	 */
+	@Internal
+	public DirectoryProperty getGradleUserHome() {
+		return gradleUserHome;
+	}
+
+	/**
+	 * The read-only dependency cache directory
+	 */
+	@OutputDirectory
+	public DirectoryProperty getCacheDirectory() {
+		return cacheDirectory;
+	}
+
+	/**
+	 * The value of the {@value #RO_DEP_CACHE_ENV} environment variable of a test task, resolved
+	 * as the test JVM is forked (Gradle converts the environment values using {@code toString}):
+	 * the cache directory when seeding the cache for builds running a supporting Gradle
+	 * version, empty - which Gradle ignores - otherwise
+	 */
+	public static class CacheLocation {
+		private final Provider<Boolean> seedCache;
+		private final Provider<GradleVersion> buildsVersion;
+		private final Provider<File> cacheDirectory;
+
+		public CacheLocation(Provider<Boolean> seedCache, Provider<GradleVersion> buildsVersion, Provider<File> cacheDirectory) {
+			this.seedCache = seedCache;
+			this.buildsVersion = buildsVersion;
+			this.cacheDirectory = cacheDirectory;
+		}
+
+		/**
+		 * Whether the cache is seeded, but the builds run a Gradle version ignoring it
+		 */
+		public boolean isIgnored() {
+			return seedCache.get() && !isSupported( buildsVersion.get() );
+		}
+
+		public GradleVersion getBuildsVersion() {
+			return buildsVersion.get();
+		}
+
+		@Override
+		public String toString() {
+			return seedCache.get() && isSupported( buildsVersion.get() )
+					? cacheDirectory.get().getAbsolutePath()
+					: "";
+		}
+	}
+
+	@TaskAction
+	public void seedCache() throws IOException {
+		final File modulesDir = new File(
+				gradleUserHome.get().getAsFile(),
+				"caches/" + DependencyCacheMirror.MODULES_DIR_NAME
+		);
+		final File cacheDir = cacheDirectory.get().getAsFile();
+
+		final Set<Path> moduleVersions = new HashSet<>();
+		for ( File dependency : dependencies.getFiles() ) {
+			final Path moduleVersion = DependencyCacheMirror.moduleVersion( modulesDir.toPath(), dependency.toPath() );
+			if ( moduleVersion != null ) {
+				moduleVersions.add( moduleVersion );
+			}
+		}
+
+		final DependencyCacheMirror mirror = new DependencyCacheMirror( modulesDir.toPath(), cacheDir.toPath(), moduleVersions );
+		mirror.mirror();
+
+		getLogger().info(
+				"Seeded TestKit dependency cache `{}` from `{}` : {} files linked, {} copied, {} deleted",
+				cacheDir,
+				modulesDir,
+				mirror.getFilesLinked(),
+				mirror.getFilesCopied(),
+				mirror.getFilesDeleted()
+		);
+	}
+}
@@ -0,0 +1,451 @@
+package com.github.sebersole.testkit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javax.inject.Inject;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.process.CommandLineArgumentProvider;
+
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_SELECTION_INPUTS;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.FileVisitResult.CONTINUE;
+
+/**
+ * Selects the TestKit test classes affected by the changes since they last passed, for
+ * {@code testKitTest} to run only those.
+ *
+ * Computes the current hash of each input a test class may depend on - each test class
+ * along with the classes it refers to (transitively, within the test and plugin classes,
+ * plus the plugin jars containing classes it refers to directly), each TestKit project and
+ * the plugin classpath as a whole - and compares them to the
+ * hashes {@linkplain TestUsage recorded} with the last run of each test class.  The current
+ * hashes are handed to the tests, which record those of the inputs they used.
+ *
+ * @see TestSelection#AFFECTED
+ */
+public abstract class SelectTestKitTestsTask extends DefaultTask {
+	private final ConfigurableFileCollection testClassesDirs;
+	private final ConfigurableFileCollection pluginClasspath;
+	private final RegularFileProperty indexFile;
+	private final RegularFileProperty usageFile;
+	private final RegularFileProperty inputsFile;
+	private final RegularFileProperty selectionFile;
+
+	@Inject
+	public SelectTestKitTestsTask(ObjectFactory objectFactory) {
+		testClassesDirs = objectFactory.fileCollection();
+		pluginClasspath = objectFactory.fileCollection();
+		indexFile = objectFactory.fileProperty();
+		usageFile = objectFactory.fileProperty();
+		inputsFile = objectFactory.fileProperty();
+		selectionFile = objectFactory.fileProperty();
+	}
+
+	@InputFiles
+	@PathSensitive( PathSensitivity.RELATIVE )
+	public ConfigurableFileCollection getTestClassesDirs() {
+		return testClassesDirs;
+	}
+
+	/**
+	 * The classpath of the plugin under test, as injected into the TestKit builds
+	 */
+	@Classpath
+	public ConfigurableFileCollection getPluginClasspath() {
+		return pluginClasspath;
+	}
+
+	/**
+	 * The index of the TestKit projects
+	 *
+	 * @see FixtureIndex
+	 */
+	@InputFile
+	@PathSensitive( PathSensitivity.NONE )
+	public RegularFileProperty getIndexFile() {
+		return indexFile;
+	}
+
+	/**
+	 * The file recording the last run of each test class
+	 *
+	 * @see #getRecordedUsage()
+	 */
+	@Internal
+	public RegularFileProperty getUsageFile() {
+		return usageFile;
+	}
+
+	/**
+	 * The recorded runs of the test classes, keyed by class name
+	 */
+	@Input
+	public Map<String, String> getRecordedUsage() {
+		final Map<String, String> recordedUsage = new TreeMap<>();
+		final File usageFile = this.usageFile.getAsFile().getOrNull();
+		if ( usageFile != null && usageFile.isFile() ) {
+			try {
+				for ( String line : Files.readAllLines( usageFile.toPath(), UTF_8 ) ) {
+					final int separator = line.indexOf( '\t' );
+					if ( separator > 0 ) {
+						recordedUsage.put( line.substring( 0, separator ), line.substring( separator + 1 ) );
+					}
+				}
+			}
+			catch (IOException e) {
+				throw new IllegalStateException( "Unable to read TestKit test usage `" + usageFile + "`", e );
+			}
+		}
+		return recordedUsage;
+	}
+
+	/**
+	 * The file listing the current hash of each input, handed to the tests
+	 */
+	@OutputFile
+	public RegularFileProperty getInputsFile() {
+		return inputsFile;
+	}
+
+	/**
+	 * The file listing the names of the selected test classes
+	 *
+	 * @see #readSelection(File)
+	 */
+	@OutputFile
+	public RegularFileProperty getSelectionFile() {
+		return selectionFile;
+	}
+
+	/**
+	 * The names of the selected test classes
+	 */
+	static List<String> readSelection(File selectionFile) {
+		try {
+			return Files.readAllLines( selectionFile.toPath(), UTF_8 );
+		}
+		catch (IOException e) {
+			throw new IllegalStateException( "Unable to read TestKit test selection `" + selectionFile + "`", e );
+		}
+	}
+
+	/**
+	 * Includes the class files of the selected test classes (along with their nested
+	 * classes) in the test task - evaluated as the test task's inputs are fingerprinted,
+	 * which is after the selection is made.  Includes all class files if the selection file
+	 * is not set, i.e. when not selecting tests
+	 */
+	public static class SelectedClasses implements Spec<FileTreeElement> {
+		private final Provider<RegularFile> selectionFile;
+		private File readFile;
+		private long readTimestamp;
+		private Set<String> selection;
+
+		public SelectedClasses(Provider<RegularFile> selectionFile) {
+			this.selectionFile = selectionFile;
+		}
+
+		@Override
+		public boolean isSatisfiedBy(FileTreeElement element) {
+			if ( element.isDirectory() || !selectionFile.isPresent() ) {
+				return true;
+			}
+
+			final String path = element.getRelativePath().getPathString();
+			if ( !path.endsWith( ".class" ) ) {
+				return true;
+			}
+			final String className = path.substring( 0, path.length() - ".class".length() ).replace( '/', '.' );
+			final int nested = className.indexOf( '$' );
+			return selection().contains( nested < 0 ? className : className.substring( 0, nested ) );
+		}
+
+		private synchronized Set<String> selection() {
+			final File file = selectionFile.get().getAsFile();
+			if ( selection == null || !file.equals( readFile ) || file.lastModified() != readTimestamp ) {
+				readFile = file;
+				readTimestamp = file.lastModified();
+				selection = new HashSet<>( readSelection( file ) );
+			}
+			return selection;
+		}
+	}
+
+	/**
+	 * Hands the file listing the current hashes of the inputs to the tests - nothing if the
+	 * file is not set, i.e. when not selecting tests
+	 */
+	public static class InputsArgument implements CommandLineArgumentProvider {
+		private final Provider<RegularFile> inputsFile;
+
+		public InputsArgument(Provider<RegularFile> inputsFile) {
+			this.inputsFile = inputsFile;
+		}
+
+		@InputFile
+		@Optional
+		@PathSensitive( PathSensitivity.NONE )
+		public Provider<RegularFile> getInputsFile() {
+			return inputsFile;
+		}
+
+		@Override
+		public Iterable<String> asArguments() {
+			if ( !inputsFile.isPresent() ) {
+				return Collections.emptyList();
+			}
+			return Collections.singletonList( "-D" + TESTKIT_SELECTION_INPUTS + "=" + inputsFile.get().getAsFile().getAbsolutePath() );
+		}
+	}
+
+	@TaskAction
+	public void selectTests() throws IOException {
+		final ClassGraph classGraph = new ClassGraph();
+		final Set<String> testClassNames = new TreeSet<>();
+		for ( File classesDir : testClassesDirs.getFiles() ) {
+			if ( classesDir.isDirectory() ) {
+				testClassNames.addAll( classGraph.addClassesDir( classesDir.toPath() ) );
+			}
+		}
+		// the test classes may refer to plugin classes directly - jars are only hashed as a whole
+		final Set<String> pluginFileHashes = new TreeSet<>();
+		for ( File entry : pluginClasspath.getFiles() ) {
+			if ( entry.isDirectory() ) {
+				classGraph.addClassesDir( entry.toPath() );
+				pluginFileHashes.addAll( hashDirectory( entry.toPath() ) );
+			}
+			else if ( entry.isFile() ) {
+				final String entryHash = FixtureIndex.hash( entry.toPath() );
+				pluginFileHashes.add( entry.getName() + '\t' + entryHash );
+				classGraph.addJar( entry.toPath(), entryHash );
+			}
+		}
+
+		// nested and anonymous classes are run and recorded along with their top-level class
+		final Set<String> topLevelClassNames = new TreeSet<>();
+		for ( String className : testClassNames ) {
+			if ( className.indexOf( '$' ) < 0 ) {
+				topLevelClassNames.add( className );
+			}
+		}
+
+		final Map<String, String> inputs = new TreeMap<>();
+		inputs.put( TestUsage.PLUGIN_INPUT, hash( pluginFileHashes ) );
+		for ( String className : topLevelClassNames ) {
+			inputs.put( TestUsage.CLASS_INPUT_PREFIX + className, classGraph.hashClosure( className ) );
+		}
+		final FixtureIndex fixtureIndex = FixtureIndex.read( indexFile.get().getAsFile() );
+		for ( String projectName : fixtureIndex.getProjectNames() ) {
+			inputs.put( TestUsage.FIXTURE_INPUT_PREFIX + projectName, hashProject( fixtureIndex, projectName ) );
+		}
+		TestUsage.writeInputs( inputsFile.get().getAsFile(), inputs );
+
+		final TestUsage usage = TestUsage.read( usageFile.getAsFile().getOrNull() );
+		final Set<String> selection = usage.selectAffected( topLevelClassNames, inputs );
+		getLogger().lifecycle( "TestKit test selection : {} of {} test classes affected", selection.size(), topLevelClassNames.size() );
+		for ( String className : topLevelClassNames ) {
+			getLogger().info( "  {} : {}", className, describe( usage.get( className ), inputs ) );
+		}
+
+		final File selectionFile = this.selectionFile.get().getAsFile();
+		selectionFile.getParentFile().mkdirs();
+		Files.write( selectionFile.toPath(), selection, UTF_8 );
+	}
+
+	private static String describe(TestUsage.Record record, Map<String, String> inputs) {
+		if ( record == null ) {
+			return "not recorded";
+		}
+		if ( !record.isPassed() ) {
+			return "failed";
+		}
+		final Set<String> changedInputs = record.changedInputs( inputs );
+		return changedInputs.isEmpty() ? "unaffected" : "changed " + changedInputs;
+	}
+
+	private static String hashProject(FixtureIndex fixtureIndex, String projectName) {
+		final List<String> entries = new ArrayList<>();
+		for ( String directory : fixtureIndex.getDirectories( projectName ) ) {
+			entries.add( "D\t" + directory );
+		}
+		for ( FixtureIndex.FileEntry file : fixtureIndex.getFiles( projectName ) ) {
+			entries.add( "F\t" + file.getPath() + '\t' + file.getMode() + '\t' + file.getHash() );
+		}
+		return hash( entries );
+	}
+
+	private static Collection<String> hashDirectory(Path directory) throws IOException {
+		final Set<String> fileHashes = new TreeSet<>();
+		Files.walkFileTree(
+				directory,
+				new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+						final String path = directory.relativize( file ).toString().replace( File.separatorChar, '/' );
+						fileHashes.add( path + '\t' + FixtureIndex.hash( file ) );
+						return CONTINUE;
+					}
+				}
+		);
+		return fileHashes;
+	}
+
+	static String hash(Collection<String> entries) {
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance( "SHA-256" );
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException( e );
+		}
+
+		for ( String entry : entries ) {
+			digest.update( entry.getBytes( UTF_8 ) );
+			digest.update( (byte) '\n' );
+		}
+
+		final StringBuilder hex = new StringBuilder();
+		for ( byte b : digest.digest() ) {
+			hex.append( String.format( Locale.ROOT, "%02x", b ) );
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * The class files of the test and plugin classes directories, along with the classes
+	 * each of them refers to.  The first class file found for a class name wins, as it
+	 * would on the classpath.  The classes of jars are not followed, the jar is hashed as
+	 * a whole
+	 */
+	static class ClassGraph {
+		private final Map<String, Path> classFiles = new HashMap<>();
+		private final Map<String, String> classHashes = new HashMap<>();
+		private final Map<String, Set<String>> references = new HashMap<>();
+		private final Map<String, String> jarClassHashes = new HashMap<>();
+
+		/**
+		 * Add the class files of the directory
+		 *
+		 * @return The names of the classes added
+		 */
+		Set<String> addClassesDir(Path classesDir) throws IOException {
+			final Set<String> added = new TreeSet<>();
+			Files.walkFileTree(
+					classesDir,
+					new SimpleFileVisitor<Path>() {
+						@Override
+						public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+							final String path = classesDir.relativize( file ).toString().replace( File.separatorChar, '/' );
+							if ( path.endsWith( ".class" ) ) {
+								final String className = path.substring( 0, path.length() - ".class".length() ).replace( '/', '.' );
+								if ( classFiles.putIfAbsent( className, file ) == null ) {
+									added.add( className );
+								}
+							}
+							return CONTINUE;
+						}
+					}
+			);
+			return added;
+		}
+
+		/**
+		 * Add the classes of the jar, identified by the hash of the jar
+		 */
+		void addJar(Path jar, String jarHash) throws IOException {
+			try ( ZipFile zip = new ZipFile( jar.toFile() ) ) {
+				final Enumeration<? extends ZipEntry> entries = zip.entries();
+				while ( entries.hasMoreElements() ) {
+					final String path = entries.nextElement().getName();
+					if ( path.endsWith( ".class" ) ) {
+						final String className = path.substring( 0, path.length() - ".class".length() ).replace( '/', '.' );
+						if ( !classFiles.containsKey( className ) ) {
+							jarClassHashes.putIfAbsent( className, jarHash );
+						}
+					}
+				}
+			}
+		}
+
+		/**
+		 * The hash of the class along with all classes it refers to, directly or indirectly,
+		 * and the jars of the classes they refer to
+		 */
+		String hashClosure(String className) {
+			final Set<String> closure = new TreeSet<>();
+			final Deque<String> pending = new ArrayDeque<>( Collections.singleton( className ) );
+			while ( !pending.isEmpty() ) {
+				final String current = pending.pop();
+				if ( !closure.add( current ) ) {
+					continue;
+				}
+				for ( String reference : references( current ) ) {
+					if ( classFiles.containsKey( reference ) && !closure.contains( reference ) ) {
+						pending.push( reference );
+					}
+				}
+			}
+
+			final Set<String> jarHashes = new TreeSet<>();
+			final List<String> entries = new ArrayList<>();
+			for ( String member : closure ) {
+				entries.add( member + '\t' + classHashes.computeIfAbsent( member, name -> FixtureIndex.hash( classFiles.get( name ) ) ) );
+				for ( String reference : references( member ) ) {
+					final String jarHash = jarClassHashes.get( reference );
+					if ( jarHash != null && !classFiles.containsKey( reference ) ) {
+						jarHashes.add( jarHash );
+					}
+				}
+			}
+			for ( String jarHash : jarHashes ) {
+				entries.add( "jar\t" + jarHash );
+			}
+			return hash( entries );
+		}
+
+		private Set<String> references(String className) {
+			return references.computeIfAbsent( className, name -> ClassReferences.read( classFiles.get( name ) ) );
+		}
+	}
+}
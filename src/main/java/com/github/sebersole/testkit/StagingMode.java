@@ -0,0 +1,51 @@
+package com.github.sebersole.testkit;
+
+import java.util.Locale;
+
+/**
+ * How a TestKit project is materialized into its staging directory
+ *
+ * @see ProjectContainer#getProjectScope
+ */
+public enum StagingMode {
+	/**
+	 * Every file is copied byte-for-byte.  The default
+	 */
+	COPY,
+
+	/**
+	 * Immutable payloads (jars, archives, the Gradle wrapper) are hard-linked
+	 * into the staging directory rather than copied; everything else is copied.
+	 * Falls back to {@link #COPY} behavior when links cannot be created, e.g. when
+	 * the staging directory is on a different file system.
+	 *
+	 * @see ProjectScope#resolveForWrite
+	 */
+	LINK,
+
+	/**
+	 * The project is extracted from its {@linkplain FixtureArchive archive}, packed at
+	 * build time, rather than copied file by file.  Falls back to {@link #COPY} behavior
+	 * for projects without an archive
+	 *
+	 * @see PackTestKitProjectsTask
+	 */
+	ARCHIVE;
+
+	/**
+	 * Interpret the setting from the locator file or DSL.  {@code null} or
+	 * empty is interpreted as {@link #COPY}
+	 */
+	public static StagingMode fromSetting(String setting) {
+		if ( setting == null || setting.trim().isEmpty() ) {
+			return COPY;
+		}
+
+		try {
+			return valueOf( setting.trim().toUpperCase( Locale.ROOT ) );
+		}
+		catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException( "Unrecognized TestKit staging mode : `" + setting + "`", e );
+		}
+	}
+}
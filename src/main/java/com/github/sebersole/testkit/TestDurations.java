@@ -0,0 +1,179 @@
+package com.github.sebersole.testkit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * The recorded durations of the TestKit test classes, in milliseconds - written by the
+ * test workers at the end of each test run and used to balance the test classes across
+ * forks.  The file is tab-separated, one line per test class
+ *
+ * @see PlanTestKitForksTask
+ */
+class TestDurations {
+	private static final int READ_BUFFER_SIZE = 8 * 1024;
+
+	private final Map<String, Long> durations;
+
+	private TestDurations(Map<String, Long> durations) {
+		this.durations = durations;
+	}
+
+	/**
+	 * Read the recorded durations; empty if none were recorded yet
+	 */
+	static TestDurations read(File durationsFile) {
+		if ( durationsFile == null || !durationsFile.isFile() ) {
+			return new TestDurations( Collections.emptyMap() );
+		}
+
+		try {
+			return new TestDurations( parse( new String( Files.readAllBytes( durationsFile.toPath() ), UTF_8 ) ) );
+		}
+		catch (IOException e) {
+			throw new IllegalStateException( "Unable to read TestKit test durations `" + durationsFile + "`", e );
+		}
+	}
+
+	private static Map<String, Long> parse(String content) {
+		final Map<String, Long> durations = new TreeMap<>();
+		for ( String line : content.split( "\n" ) ) {
+			final int separator = line.indexOf( '\t' );
+			if ( separator <= 0 ) {
+				continue;
+			}
+			try {
+				durations.put( line.substring( 0, separator ), Long.parseLong( line.substring( separator + 1 ).trim() ) );
+			}
+			catch (NumberFormatException ignore) {
+			}
+		}
+		return durations;
+	}
+
+	/**
+	 * Merge the durations of the test classes run by this worker into the file.  The
+	 * file is locked while being updated, as all forks write to the same file
+	 *
+	 * @param classDurations The durations, in milliseconds, keyed by class name
+	 */
+	static void record(File durationsFile, Map<String, Long> classDurations) throws IOException {
+		durationsFile.getParentFile().mkdirs();
+
+		try ( FileChannel channel = FileChannel.open( durationsFile.toPath(), CREATE, READ, WRITE );
+				FileLock ignored = channel.lock() ) {
+			final Map<String, Long> durations = parse( readAll( channel ) );
+			for ( Map.Entry<String, Long> entry : classDurations.entrySet() ) {
+				// averaged with the previous runs, evening out the odd slow run
+				durations.merge( entry.getKey(), entry.getValue(), (previous, current) -> ( previous + current ) / 2 );
+			}
+
+			final StringBuilder content = new StringBuilder();
+			for ( Map.Entry<String, Long> entry : durations.entrySet() ) {
+				content.append( entry.getKey() ).append( '\t' ).append( entry.getValue() ).append( '\n' );
+			}
+
+			channel.truncate( 0 );
+			channel.position( 0 );
+			final ByteBuffer updated = ByteBuffer.wrap( content.toString().getBytes( UTF_8 ) );
+			while ( updated.hasRemaining() ) {
+				channel.write( updated );
+			}
+		}
+	}
+
+	/**
+	 * Read the (remaining) content of the channel - in chunks, rather than sizing a single
+	 * buffer from the size of the file, which may still grow while it is read
+	 */
+	static String readAll(FileChannel channel) throws IOException {
+		final ByteArrayOutputStream content = new ByteArrayOutputStream();
+		final ByteBuffer buffer = ByteBuffer.allocate( READ_BUFFER_SIZE );
+		while ( channel.read( buffer ) >= 0 ) {
+			content.write( buffer.array(), 0, buffer.position() );
+			buffer.clear();
+		}
+		return new String( content.toByteArray(), UTF_8 );
+	}
+
+	/**
+	 * The durations, each rounded to the nearest power of {@code sqrt(2)} - so that the
+	 * plan based on them does not change with each run
+	 */
+	Map<String, Long> quantized() {
+		final Map<String, Long> quantized = new TreeMap<>();
+		for ( Map.Entry<String, Long> entry : durations.entrySet() ) {
+			quantized.put( entry.getKey(), quantize( entry.getValue() ) );
+		}
+		return quantized;
+	}
+
+	static long quantize(long millis) {
+		if ( millis <= 1 ) {
+			return Math.max( 0, millis );
+		}
+		final double halfPowers = Math.rint( 2 * Math.log( millis ) / Math.log( 2 ) );
+		return Math.round( Math.pow( 2, halfPowers / 2 ) );
+	}
+
+	/**
+	 * The recorded duration of the test class; {@code 0} if not known
+	 */
+	long get(String className) {
+		return durations.getOrDefault( className, 0L );
+	}
+
+	/**
+	 * Order the given classes such that distributing them round-robin over the given
+	 * number of forks (as Gradle does) gives each fork about the same total duration.
+	 *
+	 * The classes are taken heaviest first, one round of {@code forks} classes at a time,
+	 * the heaviest class of each round going to the fork with the least total so far
+	 */
+	List<String> balance(Collection<String> classNames, int forks) {
+		final List<String> sorted = new ArrayList<>( classNames );
+		sorted.sort( Comparator.comparingLong( this::get ).reversed().thenComparing( Comparator.naturalOrder() ) );
+		if ( forks <= 1 ) {
+			return sorted;
+		}
+
+		final long[] loads = new long[forks];
+		final List<String> ordered = new ArrayList<>( sorted.size() );
+		for ( int roundStart = 0; roundStart < sorted.size(); roundStart += forks ) {
+			// a partial (last) round only reaches the first forks
+			final int roundSize = Math.min( forks, sorted.size() - roundStart );
+			final Integer[] forkOrder = new Integer[roundSize];
+			for ( int i = 0; i < roundSize; i++ ) {
+				forkOrder[i] = i;
+			}
+			Arrays.sort( forkOrder, Comparator.comparingLong( fork -> loads[fork] ) );
+
+			final String[] round = new String[roundSize];
+			for ( int i = 0; i < roundSize; i++ ) {
+				final String className = sorted.get( roundStart + i );
+				round[ forkOrder[i] ] = className;
+				loads[ forkOrder[i] ] += get( className );
+			}
+			ordered.addAll( Arrays.asList( round ) );
+		}
+		return ordered;
+	}
+}
@@ -1,6 +1,11 @@
 package com.github.sebersole.testkit;
 
+import java.io.File;
 import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.junit.jupiter.api.extension.AfterAllCallback;
 import org.junit.jupiter.api.extension.AfterEachCallback;
@@ -11,9 +16,12 @@ import org.junit.jupiter.api.extension.ParameterResolutionException;
 import org.junit.jupiter.api.extension.ParameterResolver;
 
 /**
- * JUnit5 extension for TesKit-based testing
+ * JUnit5 extension for TesKit-based testing.  Supports concurrent test execution
  */
 public class TestKitJunitExtension implements ParameterResolver, AfterEachCallback, BeforeAllCallback, AfterAllCallback {
+	private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create( TestKitPlugin.TEST_KIT );
+	private static final String CLASS_START_KEY = "class-start";
+
 	@Override
 	public boolean supportsParameter(
 			ParameterContext parameterContext,
@@ -22,15 +30,17 @@ public class TestKitJunitExtension implements ParameterResolver, AfterEachCallba
 			return false;
 		}
 
-		final ProjectContainer projectContainer = resolveProjectContainer( extensionContext );
-		final Project projectSelectionAnn = findTestKitProject( projectContainer, parameterContext, extensionContext );
+		// checked first - the container is only created once a test asks for a scope
 		final Class<?> parameterJavaType = parameterContext.getParameter().getType();
+		if ( ! parameterJavaType.isAssignableFrom( ProjectScope.class )
+				&& ! parameterJavaType.isAssignableFrom( ProjectTemplate.class ) ) {
+			return false;
+		}
 
-		return projectSelectionAnn != null && parameterJavaType.isAssignableFrom( ProjectScope.class );
+		return findTestKitProject( parameterContext, extensionContext ) != null;
 	}
 
 	private Project findTestKitProject(
-			ProjectContainer projectContainer,
 			ParameterContext parameterContext,
 			ExtensionContext extensionContext) {
 		final Project paramAnnotation = parameterContext.findAnnotation( Project.class ).orElse( null );
@@ -46,11 +56,32 @@ public class TestKitJunitExtension implements ParameterResolver, AfterEachCallba
 			return extensionContext.getRequiredTestClass().getDeclaredAnnotation( Project.class );
 		}
 
-		if ( projectContainer.getImplicitProjectName() != null ) {
+		final String implicitProjectName = resolveProjectContainer( extensionContext ).getImplicitProjectName();
+		if ( implicitProjectName != null ) {
 			return new Project() {
 				@Override
 				public String value() {
-					return projectContainer.getImplicitProjectName();
+					return implicitProjectName;
+				}
+
+				@Override
+				public String[] layers() {
+					return new String[0];
+				}
+
+				@Override
+				public String[] parameters() {
+					return new String[0];
+				}
+
+				@Override
+				public boolean inMemory() {
+					return false;
+				}
+
+				@Override
+				public ScopeLifecycle lifecycle() {
+					return ScopeLifecycle.PER_METHOD;
 				}
 
 				@Override
@@ -73,44 +104,327 @@ public class TestKitJunitExtension implements ParameterResolver, AfterEachCallba
 
 		final ProjectContainer projectContainer = resolveProjectContainer( extensionContext );
 
-		final Project projectSelectionAnn = findTestKitProject( projectContainer, parameterContext, extensionContext );
+		final Project projectSelectionAnn = findTestKitProject( parameterContext, extensionContext );
 		// we already checked while checking support
 		assert projectSelectionAnn != null;
 		final String projectName = projectSelectionAnn.value();
 
-		final ProjectScope projectScope = projectContainer.getProjectScope( projectName );
+		final String[] layers = projectSelectionAnn.layers();
+		final Map<String, String> parameters = ProjectTemplate.parseParameters( projectSelectionAnn.parameters() );
+		final boolean inMemory = projectSelectionAnn.inMemory();
+		final ScopeLifecycle lifecycle = projectSelectionAnn.lifecycle();
+
+		if ( ProjectTemplate.class.isAssignableFrom( parameterContext.getParameter().getType() ) ) {
+			// staged by the test, with the parameters of its choosing
+			return new ProjectTemplate(
+					projectName,
+					parameters,
+					stagingParameters -> resolveProjectScope(
+							projectContainer,
+							projectName,
+							layers,
+							stagingParameters,
+							inMemory,
+							lifecycle,
+							extensionContext
+					)
+			);
+		}
+
+		return resolveProjectScope( projectContainer, projectName, layers, parameters, inMemory, lifecycle, extensionContext );
+	}
+
+	private static ProjectScope resolveProjectScope(
+			ProjectContainer projectContainer,
+			String projectName,
+			String[] layers,
+			Map<String, String> parameters,
+			boolean inMemory,
+			ScopeLifecycle lifecycle,
+			ExtensionContext extensionContext) {
+		// keyed by the unique id - the same method may be invoked concurrently (repeated,
+		// parameterized tests) and may accept more than one scope
+		final ExtensionContext.Store store = extensionContext.getStore( NAMESPACE );
 
-		final ExtensionContext.Store store = extensionContext.getStore( ExtensionContext.Namespace.create( TestKitPlugin.TEST_KIT ) );
-		store.put( extensionContext.getRequiredTestMethod(), projectScope );
+		final ProjectScope projectScope;
+		switch ( lifecycle ) {
+			case PER_CLASS: {
+				projectScope = resolveClassScope( projectContainer, projectName, layers, parameters, inMemory, extensionContext );
+				invocationScopes( store, sharedScopesKey( extensionContext ) ).add( projectScope );
+				break;
+			}
+			case PER_SUITE: {
+				projectScope = projectContainer.getSuiteProjectScope( projectName, layers, parameters, inMemory );
+				invocationScopes( store, sharedScopesKey( extensionContext ) ).add( projectScope );
+				break;
+			}
+			default: {
+				projectScope = projectContainer.getProjectScope( projectName, layers, parameters, inMemory );
+				invocationScopes( store, extensionContext.getUniqueId() ).add( projectScope );
+			}
+		}
 
+		projectContainer.recordProjectUse( topLevelClassName( extensionContext ), projectName, layers, projectScope.getMetrics() );
+		final BuildHistory buildHistory = projectScope.getBuildHistory();
+		if ( buildHistory != null ) {
+			buildHistory.testStarting( testName( extensionContext ) + " (" + extensionContext.getDisplayName() + ")" );
+		}
 		return projectScope;
 	}
 
+	private static String testName(ExtensionContext extensionContext) {
+		return extensionContext.getRequiredTestClass().getName() + "." + extensionContext.getRequiredTestMethod().getName();
+	}
+
+	/**
+	 * The name of the class Gradle handed to the test worker - the outermost class
+	 * enclosing the test
+	 */
+	private static String topLevelClassName(ExtensionContext extensionContext) {
+		Class<?> testClass = extensionContext.getRequiredTestClass();
+		while ( testClass.getEnclosingClass() != null ) {
+			testClass = testClass.getEnclosingClass();
+		}
+		return testClass.getName();
+	}
+
+	private static ProjectScope resolveClassScope(
+			ProjectContainer projectContainer,
+			String projectName,
+			String[] layers,
+			Map<String, String> parameters,
+			boolean inMemory,
+			ExtensionContext extensionContext) {
+		// the closest context without a test method is that of the test class
+		ExtensionContext classContext = extensionContext;
+		while ( classContext.getTestMethod().isPresent() && classContext.getParent().isPresent() ) {
+			classContext = classContext.getParent().get();
+		}
+		final String classId = classContext.getUniqueId();
+
+		// the scope is released when the class-level store is closed, after `afterAll`
+		return classContext.getStore( NAMESPACE ).getOrComputeIfAbsent(
+				ProjectContainer.scopeKey( projectName, layers, parameters, inMemory ),
+				key -> {
+					final ProjectScope scope = projectContainer.getProjectScope( projectName, layers, parameters, inMemory );
+					// complete once the tests of the class are done
+					scope.recordMetricsOnRelease( metrics -> projectContainer.recordMetrics( classId, metrics ) );
+					return scope;
+				},
+				ProjectScope.class
+		);
+	}
+
+	private static String sharedScopesKey(ExtensionContext extensionContext) {
+		return extensionContext.getUniqueId() + ":shared";
+	}
+
+	@SuppressWarnings( "unchecked" )
+	private static List<ProjectScope> invocationScopes(ExtensionContext.Store store, String invocationId) {
+		return store.getOrComputeIfAbsent( invocationId, key -> new CopyOnWriteArrayList<ProjectScope>(), List.class );
+	}
+
 	@Override
+	@SuppressWarnings( "unchecked" )
 	public void afterEach(ExtensionContext extensionContext) {
-		final ExtensionContext.Store store = extensionContext.getStore( ExtensionContext.Namespace.create( TestKitPlugin.TEST_KIT ) );
-		final ProjectScope scope = (ProjectScope) store.remove( extensionContext.getRequiredTestMethod() );
-		if ( scope != null ) {
-			scope.release();
+		if ( extensionContext.getExecutionException().isPresent() ) {
+			final ProjectContainer projectContainer = findUsageContainer( extensionContext );
+			if ( projectContainer != null ) {
+				projectContainer.recordTestFailure( topLevelClassName( extensionContext ) );
+			}
+		}
+
+		final ExtensionContext.Store store = extensionContext.getStore( NAMESPACE );
+		final List<ProjectScope> scopes = store.remove( extensionContext.getUniqueId(), List.class );
+		final List<ProjectScope> sharedScopes = store.remove( sharedScopesKey( extensionContext ), List.class );
+		if ( scopes == null && sharedScopes == null ) {
+			return;
+		}
+
+		final ProjectContainer projectContainer = resolveProjectContainer( extensionContext );
+		final boolean failed = extensionContext.getExecutionException().isPresent();
+		// the directories of bundled failures are deleted along with those of successful tests
+		final boolean bundled = failed
+				&& projectContainer.isBundleFailedProjects()
+				&& bundleFailure( projectContainer, scopes, sharedScopes, extensionContext );
+		final boolean keep = failed && !bundled && projectContainer.isKeepFailedProjects();
+		if ( failed ) {
+			// the logs of passing tests are deleted along with their scope
+			keepBuildLogs( scopes );
+			keepBuildLogs( sharedScopes );
+		}
+
+		if ( scopes != null ) {
+			for ( ProjectScope scope : scopes ) {
+				// cleanup happens in the background - its timing is only part of the summary
+				extensionContext.publishReportEntry( scope.getMetrics().toReportEntries() );
+				publishBuildLog( scope, extensionContext );
+				projectContainer.recordMetrics( extensionContext.getUniqueId(), scope.getMetrics() );
+
+				if ( keep ) {
+					keepFailed( scope, extensionContext );
+				}
+				else {
+					if ( failed ) {
+						// the state the test left the project in is not trusted
+						scope.disableRecycling();
+					}
+					scope.release();
+				}
+			}
+		}
+
+		if ( sharedScopes != null ) {
+			for ( ProjectScope scope : sharedScopes ) {
+				publishBuildLog( scope, extensionContext );
+			}
+		}
+
+		if ( sharedScopes != null && keep ) {
+			// released along with the class or the suite - unless a test using them failed
+			for ( ProjectScope scope : sharedScopes ) {
+				keepFailed( scope, extensionContext );
+			}
+		}
+	}
+
+	private static void keepBuildLogs(List<ProjectScope> scopes) {
+		if ( scopes != null ) {
+			for ( ProjectScope scope : scopes ) {
+				scope.keepBuildLog();
+			}
+		}
+	}
+
+	private static void publishBuildLog(ProjectScope scope, ExtensionContext extensionContext) {
+		final BuildLog buildLog = scope.getBuildLog();
+		if ( buildLog != null ) {
+			extensionContext.publishReportEntry( "testkit.build-log", buildLog.getFile().getAbsolutePath() );
+		}
+	}
+
+	/**
+	 * Pack the scopes used by the failed test into a bundle named after the test
+	 *
+	 * @return Whether the bundle was written
+	 */
+	private static boolean bundleFailure(
+			ProjectContainer projectContainer,
+			List<ProjectScope> scopes,
+			List<ProjectScope> sharedScopes,
+			ExtensionContext extensionContext) {
+		final List<ProjectScope> failedScopes = new ArrayList<>();
+		if ( scopes != null ) {
+			failedScopes.addAll( scopes );
 		}
+		if ( sharedScopes != null ) {
+			failedScopes.addAll( sharedScopes );
+		}
+		final String testName = testName( extensionContext );
+
+		final File bundle;
+		try {
+			bundle = projectContainer.bundleFailure( testName, failedScopes );
+		}
+		catch (RuntimeException e) {
+			System.out.printf( "Unable to bundle TestKit projects of failed test `%s` : %s\n", extensionContext.getDisplayName(), e.getMessage() );
+			return false;
+		}
+
+		extensionContext.publishReportEntry( "testkit.failure-bundle", bundle.getAbsolutePath() );
+		System.out.printf(
+				"Bundled TestKit projects of failed test `%s` : %s\n",
+				extensionContext.getDisplayName(),
+				bundle.getAbsolutePath()
+		);
+		return true;
+	}
+
+	private static void keepFailed(ProjectScope scope, ExtensionContext extensionContext) {
+		scope.retain();
+		System.out.printf(
+				"Keeping TestKit project directory of failed test `%s` : %s\n",
+				extensionContext.getDisplayName(),
+				scope.getProjectBaseDirectory().getAbsolutePath()
+		);
 	}
 
 	@Override
 	public void beforeAll(ExtensionContext extensionContext) {
-		resolveProjectContainer( extensionContext );
+		if ( isTopLevelClass( extensionContext ) ) {
+			extensionContext.getStore( NAMESPACE ).put( CLASS_START_KEY, System.nanoTime() );
+		}
+	}
+
+	/**
+	 * Whether the context is that of a class which Gradle hands to a test worker - as
+	 * opposed to a {@code @Nested} class
+	 */
+	private static boolean isTopLevelClass(ExtensionContext extensionContext) {
+		return extensionContext.getParent()
+				.map( parent -> !parent.getTestClass().isPresent() )
+				.orElse( true );
 	}
 
 	private ProjectContainer resolveProjectContainer(ExtensionContext extensionContext) {
+		// the container is shared by all (possibly concurrently executing) test classes and
+		// released when the root store is closed at the end of the test run
 		final ExtensionContext.Store globalStore = extensionContext.getRoot().getStore( ExtensionContext.Namespace.GLOBAL );
 		return globalStore.getOrComputeIfAbsent( ProjectContainer.class );
 	}
 
+	/**
+	 * The container, if already created
+	 */
+	private static ProjectContainer findProjectContainer(ExtensionContext extensionContext) {
+		final ExtensionContext.Store globalStore = extensionContext.getRoot().getStore( ExtensionContext.Namespace.GLOBAL );
+		return globalStore.get( ProjectContainer.class, ProjectContainer.class );
+	}
+
+	/**
+	 * The container to record the outcome of the tests in.  When selecting the affected tests,
+	 * created if needed - test classes which never use a project are recorded as well, rather
+	 * than being selected again and again
+	 *
+	 * @see TestSelection#AFFECTED
+	 */
+	private ProjectContainer findUsageContainer(ExtensionContext extensionContext) {
+		if ( ProjectContainer.isRecordingUsage() ) {
+			return resolveProjectContainer( extensionContext );
+		}
+		return findProjectContainer( extensionContext );
+	}
+
 	@Override
 	public void afterAll(ExtensionContext extensionContext) {
-		final ExtensionContext.Store globalStore = extensionContext.getRoot().getStore( ExtensionContext.Namespace.GLOBAL );
-		final ProjectContainer removed = (ProjectContainer) globalStore.remove( ProjectContainer.class );
-		if ( removed != null ) {
-			removed.release();
+		final ProjectContainer projectContainer = findUsageContainer( extensionContext );
+		if ( projectContainer != null ) {
+			// e.g. a failing `@BeforeAll` method
+			if ( extensionContext.getExecutionException().isPresent() ) {
+				projectContainer.recordTestFailure( topLevelClassName( extensionContext ) );
+			}
+			if ( isTopLevelClass( extensionContext ) ) {
+				projectContainer.recordClassCompletion( extensionContext.getRequiredTestClass().getName() );
+			}
+
+			final Long start = extensionContext.getStore( NAMESPACE ).remove( CLASS_START_KEY, Long.class );
+			if ( start != null ) {
+				projectContainer.recordClassDuration( extensionContext.getRequiredTestClass().getName(), System.nanoTime() - start );
+			}
+
+			projectContainer.drainCleanup();
+			extensionContext.publishReportEntry( "testkit.bytes-reclaimed", Long.toString( projectContainer.getBytesReclaimed() ) );
+
+			final GradleRunnerFactory runnerFactory = projectContainer.getRunnerFactory();
+			extensionContext.publishReportEntry( "testkit.builds.in-process", Integer.toString( runnerFactory.getInProcessBuilds() ) );
+			extensionContext.publishReportEntry( "testkit.builds.daemon-started-estimate", Integer.toString( runnerFactory.getEstimatedDaemonStarts() ) );
+			extensionContext.publishReportEntry( "testkit.builds.daemon-reused-estimate", Integer.toString( runnerFactory.getEstimatedDaemonReuses() ) );
+			extensionContext.publishReportEntry( "testkit.builds.cached", Integer.toString( runnerFactory.getCachedBuilds() ) );
+
+			final GradleInstallation gradleInstallation = projectContainer.getGradleInstallation();
+			if ( gradleInstallation != null ) {
+				extensionContext.publishReportEntry( "testkit.gradle-version", gradleInstallation.getVersion() );
+			}
 		}
 	}
 }
@@ -1,7 +1,12 @@
 package com.github.sebersole.testkit;
 
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
+import org.gradle.api.Action;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.Task;
@@ -9,12 +14,22 @@ import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.ModuleVersionIdentifier;
 import org.gradle.api.artifacts.ResolvedArtifact;
 import org.gradle.api.artifacts.dsl.DependencyHandler;
+import org.gradle.api.file.Directory;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.ProjectLayout;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.plugins.JavaPluginConvention;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.Copy;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.SourceSetContainer;
+import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.testing.Test;
 import org.gradle.plugin.devel.plugins.JavaGradlePluginPlugin;
+import org.gradle.plugin.devel.tasks.PluginUnderTestMetadata;
+import org.gradle.util.GradleVersion;
 
 /**
  * Plugin for easier integration of Gradle's TestKit (functional plugin testing)
@@ -25,12 +40,41 @@ public class TestKitPlugin implements Plugin<Project> {
 
 	public static final String COMPILE_DEPENDENCIES_NAME = TEST_KIT + "CompileClasspath";
 	public static final String RUNTIME_DEPENDENCIES_NAME = TEST_KIT + "RuntimeClasspath";
+	public static final String CACHE_DEPENDENCIES_NAME = TEST_KIT + "DependencyCache";
 	public static final String TEST_TASK_NAME = TEST_KIT + "Test";
 
 	public static final String MARKER_FILE_NAME = "testkit_locator.properties";
+	public static final String INDEX_FILE_NAME = "testkit_projects.index";
 	public static final String TESTKIT_BASE_DIR = "testkit.base-dir";
 	public static final String TESTKIT_STAGING_DIR = "testkit.staging-dir";
 	public static final String TESTKIT_IMPL_PROJ_NAME = "testkit.implicit-project-name";
+	public static final String TESTKIT_STAGING_MODE = "testkit.staging-mode";
+	public static final String TESTKIT_POOL_SIZE = "testkit.pool-size";
+	public static final String TESTKIT_KEEP_FAILED = "testkit.keep-failed-projects";
+	public static final String TESTKIT_RUNNER_MODE = "testkit.runner-mode";
+	public static final String TESTKIT_RUNNER_DIR = "testkit.runner-dir";
+	public static final String TESTKIT_INDEX_FILE = "testkit.index-file";
+	public static final String TESTKIT_ARCHIVE_DIR = "testkit.archive-dir";
+	public static final String TESTKIT_METRICS_DIR = "testkit.metrics-dir";
+	public static final String TESTKIT_RECYCLE = "testkit.recycle-projects";
+	public static final String TESTKIT_FORKS = "testkit.forks";
+	public static final String TESTKIT_DURATIONS_FILE = "testkit.durations-file";
+	public static final String TESTKIT_BUILD_OUTPUT = "testkit.build-output";
+	public static final String TESTKIT_LOG_DIR = "testkit.log-dir";
+	public static final String TESTKIT_KEEP_LOGS = "testkit.keep-build-logs";
+	public static final String TESTKIT_BUILD_RESULT_CACHE_SIZE = "testkit.build-result-cache-size";
+	public static final String TESTKIT_BUILD_RESULT_CACHE_DIR = "testkit.build-result-cache-dir";
+	public static final String TESTKIT_USAGE_FILE = "testkit.usage-file";
+	public static final String TESTKIT_BUNDLE_FAILED = "testkit.bundle-failed-projects";
+	public static final String TESTKIT_BUNDLE_DIR = "testkit.bundle-dir";
+	// system properties of the tasks running the tests against a declared Gradle installation - the
+	// version is determined from the installation unless given
+	public static final String TESTKIT_GRADLE_INSTALLATION = "testkit.gradle-installation";
+	public static final String TESTKIT_GRADLE_VERSION = "testkit.gradle-version";
+	// system property of testKitTest, when selecting the affected tests
+	public static final String TESTKIT_SELECTION_INPUTS = "testkit.selection-inputs";
+	// system property of the test JVM, overriding the detected directory for in-memory staging
+	public static final String TESTKIT_MEMORY_DIR = "testkit.memory-dir";
 
 	public static final String JUNIT_VERSION = "5.3.1";
 	public static final String HAMCREST_VERSION = "1.3";
@@ -47,6 +91,7 @@ public class TestKitPlugin implements Plugin<Project> {
 
 		final Configuration compileDependencies = prepareCompileDependencies( project );
 		final Configuration runtimeDependencies = prepareRuntimeDependencies( project );
+		final Configuration cacheDependencies = prepareCacheDependencies( project );
 
 
 		// ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
@@ -57,8 +102,10 @@ public class TestKitPlugin implements Plugin<Project> {
 
 		final SourceSetContainer sourceSetContainer = javaPluginConvention.getSourceSets();
 		final SourceSet testKitSourceSet = sourceSetContainer.create( TEST_KIT );
-		final Test mainTestTask = (Test) project.getTasks().getByName( "test" );
-		testKitSourceSet.setCompileClasspath( testKitSourceSet.getCompileClasspath().plus( compileDependencies ).plus( mainTestTask.getClasspath() ) );
+		final TaskProvider<Test> mainTestTask = project.getTasks().named( "test", Test.class );
+		// resolved lazily - only when compiling the TestKit sources
+		final FileCollection mainTestClasspath = project.files( (Callable<FileCollection>) () -> mainTestTask.get().getClasspath() );
+		testKitSourceSet.setCompileClasspath( testKitSourceSet.getCompileClasspath().plus( compileDependencies ).plus( mainTestClasspath ) );
 		testKitSourceSet.setRuntimeClasspath( testKitSourceSet.getRuntimeClasspath().plus( runtimeDependencies ).plus( testKitSourceSet.getOutput() ) );
 
 		testKitSourceSet.getResources().getDestinationDirectory().convention(
@@ -69,64 +116,375 @@ public class TestKitPlugin implements Plugin<Project> {
 		// ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
 		// create the TestKit tasks
 
-		final Copy copyTask = (Copy) project.getTasks().getByName( testKitSourceSet.getTaskName( "process", "Resources" ) );
-		copyTask.setGroup( TEST_KIT );
-		copyTask.setDescription( "Copies the TestKit projects" );
+		final TaskProvider<Copy> copyTask = project.getTasks().named( testKitSourceSet.getProcessResourcesTaskName(), Copy.class );
+		copyTask.configure(
+				task -> {
+					task.setGroup( TEST_KIT );
+					task.setDescription( "Copies the TestKit projects" );
+					task.dependsOn( compileDependencies );
+					task.dependsOn( mainTestTask );
+				}
+		);
 
-		final Task compileTask = project.getTasks().getByName( testKitSourceSet.getTaskName( "compile", "Java" ) );
-		compileTask.setGroup( TEST_KIT );
-		compileTask.setDescription( "Compiles the TestKit sources" );
+		final TaskProvider<Task> compileTask = project.getTasks().named( testKitSourceSet.getCompileJavaTaskName() );
+		compileTask.configure(
+				task -> {
+					task.setGroup( TEST_KIT );
+					task.setDescription( "Compiles the TestKit sources" );
+					task.dependsOn( mainTestTask );
+				}
+		);
 
-		final Test testKitTest = project.getTasks().create( TEST_TASK_NAME, Test.class );
-		compileTask.setGroup( TEST_KIT );
-		compileTask.setDescription( "Executes the TestKit tests" );
-		testKitTest.setTestClassesDirs( testKitSourceSet.getOutput().getClassesDirs() );
-		testKitTest.setClasspath( testKitSourceSet.getRuntimeClasspath() );
+		final TaskProvider<PackTestKitProjectsTask> packTask = registerPackProjectsTask( project, testKitSourceSet, copyTask );
 
-		copyTask.dependsOn( compileDependencies );
-		copyTask.dependsOn( mainTestTask );
-		compileTask.dependsOn( mainTestTask );
-		testKitTest.dependsOn( copyTask );
-		testKitTest.dependsOn( compileTask );
-		testKitTest.dependsOn( "pluginDescriptors" );
-		testKitTest.dependsOn( "pluginUnderTestMetadata" );
+		final TaskProvider<GenerateLocatorFileTask> generateLocatorFileTask = registerGenerateMarkerFileTask(
+				project,
+				testKitSourceSet,
+				testKitSpec,
+				copyTask
+		);
+		// the locator is put on the classpath directly rather than being processed as a
+		// resource - it describes the processed resources, so must not be part of them
+		testKitSourceSet.getOutput().dir(
+				Collections.singletonMap( "builtBy", generateLocatorFileTask ),
+				generateLocatorFileTask.flatMap( GenerateLocatorFileTask::getLocatorFile )
+						.map( locatorFile -> locatorFile.getAsFile().getParentFile() )
+		);
 
-		project.getTasks().getByName( "check" ).dependsOn( testKitTest );
+		final TaskProvider<PlanTestKitForksTask> planForksTask = registerPlanForksTask( project, testKitSourceSet, testKitSpec );
+		final Provider<List<File>> plannedClassesDirs = planForksTask
+				.flatMap( PlanTestKitForksTask::getPlannedClassesDirectory )
+				.map( directory -> PlanTestKitForksTask.listPlannedDirectories( directory.getAsFile() ) );
+
+		final Provider<Integer> forks = testKitSpec.getForks();
+		final Provider<Long> forkEvery = testKitSpec.getForkEvery();
+
+		final TaskProvider<SeedDependencyCacheTask> seedCacheTask = registerSeedCacheTask( project, cacheDependencies );
+		final Provider<Boolean> seedDependencyCache = testKitSpec.getSeedDependencyCache();
+		final Provider<File> dependencyCacheDir = seedCacheTask
+				.flatMap( SeedDependencyCacheTask::getCacheDirectory )
+				.map( Directory::getAsFile );
+
+		// shared by the tasks running the tests against the declared Gradle installations
+		final Action<Test> testTaskConfiguration = task -> {
+			task.setGroup( TEST_KIT );
+			task.setClasspath( testKitSourceSet.getRuntimeClasspath() );
+
+			// with more than one fork, Gradle finds the test classes in the balanced
+			// order of the fork plan (the classes are still loaded from the classpath)
+			task.setTestClassesDirs(
+					project.files(
+							forks.map(
+									count -> count > 1
+											? plannedClassesDirs
+											: testKitSourceSet.getOutput().getClassesDirs()
+							)
+					)
+			);
+			task.dependsOn(
+					forks.map(
+							count -> count > 1
+									? Collections.singletonList( planForksTask )
+									: Collections.emptyList()
+					)
+			);
+			task.dependsOn(
+					seedDependencyCache.map(
+							seed -> seed
+									? Collections.singletonList( seedCacheTask )
+									: Collections.emptyList()
+					)
+			);
+			// not lazy properties of Test - set once the DSL is sure to be configured
+			afterEvaluation(
+					project,
+					evaluated -> {
+						task.setMaxParallelForks( Math.max( 1, forks.get() ) );
+						task.setForkEvery( forkEvery.get() );
+					}
+			);
+			// inherited by the TestKit builds, in-process as well as daemons
+			final SeedDependencyCacheTask.CacheLocation cacheLocation = new SeedDependencyCacheTask.CacheLocation(
+					seedDependencyCache,
+					project.provider( () -> buildsVersion( task ) ),
+					dependencyCacheDir
+			);
+			task.environment( SeedDependencyCacheTask.RO_DEP_CACHE_ENV, cacheLocation );
+			task.doFirst(
+					testTask -> {
+						if ( cacheLocation.isIgnored() ) {
+							testTask.getLogger().warn(
+									"The TestKit builds of {} run {}, which ignores the seeded dependency cache (requires Gradle {} or later)",
+									testTask.getPath(),
+									cacheLocation.getBuildsVersion(),
+									SeedDependencyCacheTask.MIN_GRADLE_VERSION.getVersion()
+							);
+						}
+					}
+			);
+
+			task.dependsOn( copyTask );
+			task.dependsOn( compileTask );
+			task.dependsOn( "pluginDescriptors" );
+			task.dependsOn( "pluginUnderTestMetadata" );
+			// only needed when staging from the archives
+			task.dependsOn(
+					testKitSpec.getStagingMode().map(
+							stagingMode -> stagingMode == StagingMode.ARCHIVE
+									? Collections.singletonList( packTask )
+									: Collections.emptyList()
+					)
+			);
+
+			// the plugin functionality is based on JUnit5...
+			task.useJUnitPlatform();
+		};
+
+		final TaskProvider<SelectTestKitTestsTask> selectTestsTask = registerSelectTestsTask(
+				project,
+				testKitSourceSet,
+				generateLocatorFileTask
+		);
+		final Provider<TestSelection> testSelection = testKitSpec.getTestSelection();
+		// not set unless selecting the affected tests
+		final RegularFileProperty noFile = project.getObjects().fileProperty();
+		final Provider<RegularFile> selectionFile = testSelection.flatMap(
+				selection -> selection == TestSelection.AFFECTED
+						? selectTestsTask.flatMap( SelectTestKitTestsTask::getSelectionFile )
+						: noFile
+		);
+		final Provider<RegularFile> selectionInputsFile = testSelection.flatMap(
+				selection -> selection == TestSelection.AFFECTED
+						? selectTestsTask.flatMap( SelectTestKitTestsTask::getInputsFile )
+						: noFile
+		);
 
-		// the plugin functionality is based on JUnit5...
-		testKitTest.useJUnitPlatform();
+		final TaskProvider<Test> testKitTest = project.getTasks().register(
+				TEST_TASK_NAME,
+				Test.class,
+				task -> {
+					task.setDescription( "Executes the TestKit tests" );
+					testTaskConfiguration.execute( task );
+
+					// only this task selects tests - the runs against other Gradle installations
+					// would otherwise record their runs over each other's
+					task.dependsOn(
+							testSelection.map(
+									selection -> selection == TestSelection.AFFECTED
+											? Collections.singletonList( selectTestsTask )
+											: Collections.emptyList()
+							)
+					);
+					// evaluated as the task's inputs are fingerprinted, once the selection is made - an empty
+					// selection leaves the task without test classes, so it is skipped
+					task.getInputs().files(
+							project.files(
+									testSelection.map(
+											selection -> selection == TestSelection.AFFECTED
+													? selectTestsTask.flatMap( SelectTestKitTestsTask::getSelectionFile )
+													: Collections.emptyList()
+									)
+							)
+					).withPropertyName( "testKitSelection" ).withPathSensitivity( PathSensitivity.NONE );
+					task.include( new SelectTestKitTestsTask.SelectedClasses( selectionFile ) );
+					task.getJvmArgumentProviders().add( new SelectTestKitTestsTask.InputsArgument( selectionInputsFile ) );
+				}
+		);
 
-		final GenerateLocatorFileTask generateLocatorFileTask = createGenerateMarkerFileTask( project, testKitSourceSet, testKitSpec );
-		copyTask.finalizedBy( generateLocatorFileTask );
-		testKitSourceSet.getResources().srcDir( generateLocatorFileTask.getLocatorFile().get().getAsFile().getParentFile() );
+		project.getTasks().named( "check" ).configure( task -> task.dependsOn( testKitTest ) );
+
+		testKitSpec.getGradleInstallations().all(
+				directory -> {
+					// named after the directory, which is only inspected once the task is about to run
+					final TaskProvider<Test> versionTest = project.getTasks().register(
+							GradleInstallation.testTaskName( directory ),
+							Test.class,
+							task -> {
+								task.setDescription( "Executes the TestKit tests against the Gradle installation `" + directory.getAbsolutePath() + "`" );
+								testTaskConfiguration.execute( task );
+								// the test JVM determines the version of the installation
+								task.systemProperty( TESTKIT_GRADLE_INSTALLATION, directory.getAbsolutePath() );
+								// e.g. an installation declared for all developers, but missing on this machine
+								task.onlyIf(
+										testTask -> {
+											if ( GradleInstallation.find( directory ) == null ) {
+												testTask.getLogger().warn(
+														"Not running the TestKit tests against `{}`, which is not a Gradle installation",
+														directory.getAbsolutePath()
+												);
+												return false;
+											}
+											return true;
+										}
+								);
+							}
+					);
+					project.getTasks().named( "check" ).configure( task -> task.dependsOn( versionTest ) );
+				}
+		);
 	}
 
-	private static GenerateLocatorFileTask createGenerateMarkerFileTask(
+	/**
+	 * Perform the action once the project (and so its DSL) is evaluated - right away if
+	 * it already is, e.g. for tasks realized while building the task graph
+	 */
+	private static void afterEvaluation(Project project, Action<Project> action) {
+		if ( project.getState().getExecuted() ) {
+			action.execute( project );
+		}
+		else {
+			project.afterEvaluate( action );
+		}
+	}
+
+	/**
+	 * The Gradle version run by the TestKit builds of the given test task - that of the
+	 * {@linkplain GradleInstallation installation} it tests against, if any
+	 */
+	private static GradleVersion buildsVersion(Test task) {
+		final Object installationVersion = task.getSystemProperties().get( TESTKIT_GRADLE_VERSION );
+		if ( installationVersion != null ) {
+			return GradleVersion.version( installationVersion.toString() );
+		}
+
+		final Object installationDir = task.getSystemProperties().get( TESTKIT_GRADLE_INSTALLATION );
+		return installationDir == null
+				? GradleVersion.current()
+				: GradleVersion.version( GradleInstallation.locate( new File( installationDir.toString() ) ).getVersion() );
+	}
+
+	private static TaskProvider<GenerateLocatorFileTask> registerGenerateMarkerFileTask(
 			Project project,
 			SourceSet testKitSourceSet,
-			TestKitSpec testKitSpec) {
-		final GenerateLocatorFileTask generateLocatorFileTask = project.getTasks().create(
+			TestKitSpec testKitSpec,
+			TaskProvider<Copy> copyTask) {
+		final ProjectLayout layout = project.getLayout();
+		return project.getTasks().register(
 				"generateTestKitMarkerFile",
-				GenerateLocatorFileTask.class
+				GenerateLocatorFileTask.class,
+				task -> {
+					task.setGroup( TEST_KIT );
+					task.setDescription( "Generates the file through which the TestKit tests locate the TestKit projects" );
+					task.dependsOn( copyTask );
+
+					task.getLocatorFile().set( layout.getBuildDirectory().file( TEST_KIT + "/locator/" + MARKER_FILE_NAME ) );
+					task.getIndexFile().set( layout.getBuildDirectory().file( TEST_KIT + "/" + INDEX_FILE_NAME ) );
+					task.getTestKitResourcesDirectory().set( testKitSourceSet.getResources().getDestinationDirectory() );
+					task.getTestKitStagingDir().set( layout.getBuildDirectory().dir( "tmp/" + TEST_KIT ) );
+					task.getImplicitProjectName().set( testKitSpec.getImplicitProjectName().orElse( "" ) );
+
+					task.getSettings().put( TESTKIT_STAGING_MODE, testKitSpec.getStagingMode().map( StagingMode::name ) );
+					task.getSettings().put( TESTKIT_POOL_SIZE, testKitSpec.getPoolSize().map( String::valueOf ) );
+					task.getSettings().put( TESTKIT_KEEP_FAILED, testKitSpec.getKeepFailedProjects().map( String::valueOf ) );
+					task.getSettings().put( TESTKIT_BUNDLE_FAILED, testKitSpec.getBundleFailedProjects().map( String::valueOf ) );
+					task.getSettings().put( TESTKIT_RUNNER_MODE, testKitSpec.getRunnerMode().map( RunnerMode::name ) );
+					task.getSettings().put( TESTKIT_BUILD_OUTPUT, testKitSpec.getBuildOutput().map( BuildOutput::name ) );
+					task.getSettings().put( TESTKIT_KEEP_LOGS, testKitSpec.getKeepBuildLogs().map( String::valueOf ) );
+					task.getSettings().put(
+							TESTKIT_BUILD_RESULT_CACHE_SIZE,
+							// `0` disables the cache
+							testKitSpec.getCacheBuildResults().flatMap(
+									cache -> testKitSpec.getBuildResultCacheSize().map( size -> cache ? size.toString() : "0" )
+							)
+					);
+					task.getSettings().put( TESTKIT_RECYCLE, testKitSpec.getRecycleProjects().map( String::valueOf ) );
+					task.getSettings().put( TESTKIT_FORKS, testKitSpec.getForks().map( String::valueOf ) );
+
+					task.getLocationSettings().put( TESTKIT_RUNNER_DIR, testKitLocation( layout, "runners" ) );
+					task.getLocationSettings().put( TESTKIT_ARCHIVE_DIR, testKitLocation( layout, "archives" ) );
+					task.getLocationSettings().put( TESTKIT_METRICS_DIR, testKitLocation( layout, "metrics" ) );
+					task.getLocationSettings().put( TESTKIT_DURATIONS_FILE, testKitLocation( layout, "durations.tsv" ) );
+					task.getLocationSettings().put( TESTKIT_LOG_DIR, testKitLocation( layout, "logs" ) );
+					task.getLocationSettings().put( TESTKIT_BUILD_RESULT_CACHE_DIR, testKitLocation( layout, "build-results" ) );
+					task.getLocationSettings().put( TESTKIT_USAGE_FILE, testKitLocation( layout, "usage.tsv" ) );
+					task.getLocationSettings().put( TESTKIT_BUNDLE_DIR, testKitLocation( layout, "failures" ) );
+				}
 		);
+	}
 
-		generateLocatorFileTask.getLocatorFile().set(
-				project.getLayout().getBuildDirectory().file( "testKit/locator/" + MARKER_FILE_NAME )
+	/**
+	 * A location under {@code $buildDir/testKit}
+	 */
+	private static Provider<File> testKitLocation(ProjectLayout layout, String path) {
+		return layout.getBuildDirectory().map( buildDir -> buildDir.file( TEST_KIT + "/" + path ).getAsFile() );
+	}
+
+	private static TaskProvider<PlanTestKitForksTask> registerPlanForksTask(
+			Project project,
+			SourceSet testKitSourceSet,
+			TestKitSpec testKitSpec) {
+		return project.getTasks().register(
+				"planTestKitForks",
+				PlanTestKitForksTask.class,
+				task -> {
+					task.setGroup( TEST_KIT );
+					task.setDescription( "Balances the TestKit test classes across the test forks" );
+
+					task.getTestClassesDirs().from( testKitSourceSet.getOutput().getClassesDirs() );
+					task.getDurationsFile().set( project.getLayout().getBuildDirectory().file( TEST_KIT + "/durations.tsv" ) );
+					task.getForks().set( testKitSpec.getForks() );
+					task.getPlannedClassesDirectory().set( project.getLayout().getBuildDirectory().dir( TEST_KIT + "/forks" ) );
+				}
+		);
+	}
+
+	private static TaskProvider<SelectTestKitTestsTask> registerSelectTestsTask(
+			Project project,
+			SourceSet testKitSourceSet,
+			TaskProvider<GenerateLocatorFileTask> generateLocatorFileTask) {
+		final TaskProvider<PluginUnderTestMetadata> metadataTask = project.getTasks().named(
+				"pluginUnderTestMetadata",
+				PluginUnderTestMetadata.class
 		);
-		generateLocatorFileTask.getTestKitResourcesDirectory().set(
-				testKitSourceSet.getResources().getDestinationDirectory()
+		return project.getTasks().register(
+				"selectTestKitTests",
+				SelectTestKitTestsTask.class,
+				task -> {
+					task.setGroup( TEST_KIT );
+					task.setDescription( "Selects the TestKit test classes affected by the changes since they last passed" );
+
+					task.getTestClassesDirs().from( testKitSourceSet.getOutput().getClassesDirs() );
+					task.getPluginClasspath().from( metadataTask.map( PluginUnderTestMetadata::getPluginClasspath ) );
+					task.getIndexFile().set( generateLocatorFileTask.flatMap( GenerateLocatorFileTask::getIndexFile ) );
+					task.getUsageFile().set( project.getLayout().getBuildDirectory().file( TEST_KIT + "/usage.tsv" ) );
+					task.getInputsFile().set( project.getLayout().getBuildDirectory().file( TEST_KIT + "/selection/inputs.tsv" ) );
+					task.getSelectionFile().set( project.getLayout().getBuildDirectory().file( TEST_KIT + "/selection/selected.txt" ) );
+				}
 		);
-		generateLocatorFileTask.getTestKitStagingDir().set(
-				project.getLayout().getBuildDirectory().dir( "tmp/" + TEST_KIT )
+	}
+
+	private static TaskProvider<SeedDependencyCacheTask> registerSeedCacheTask(Project project, Configuration cacheDependencies) {
+		final File gradleUserHome = project.getGradle().getGradleUserHomeDir();
+		return project.getTasks().register(
+				"seedTestKitDependencyCache",
+				SeedDependencyCacheTask.class,
+				task -> {
+					task.setGroup( TEST_KIT );
+					task.setDescription( "Seeds the read-only dependency cache used by the TestKit builds" );
+
+					task.getDependencies().from( cacheDependencies );
+					task.getGradleUserHome().set( gradleUserHome );
+					task.getCacheDirectory().set( project.getLayout().getBuildDirectory().dir( TEST_KIT + "/dependency-cache" ) );
+				}
 		);
-		if ( testKitSpec.getImplicitProjectName().isPresent() ) {
-			generateLocatorFileTask.getImplicitProjectName().set( testKitSpec.getImplicitProjectName().get() );
-		}
-		else {
-			generateLocatorFileTask.getImplicitProjectName().set( "" );
-		}
+	}
 
-		return generateLocatorFileTask;
+	private static TaskProvider<PackTestKitProjectsTask> registerPackProjectsTask(
+			Project project,
+			SourceSet testKitSourceSet,
+			TaskProvider<Copy> copyTask) {
+		return project.getTasks().register(
+				"packTestKitProjects",
+				PackTestKitProjectsTask.class,
+				task -> {
+					task.setGroup( TEST_KIT );
+					task.setDescription( "Packs each TestKit project into a single archive" );
+					task.dependsOn( copyTask );
+
+					task.getTestKitResourcesDirectory().set( testKitSourceSet.getResources().getDestinationDirectory() );
+					task.getArchiveDirectory().set( project.getLayout().getBuildDirectory().dir( TEST_KIT + "/archives" ) );
+				}
+		);
 	}
 
 	private static Configuration prepareCompileDependencies(Project project) {
@@ -144,6 +502,22 @@ public class TestKitPlugin implements Plugin<Project> {
 		dependencyHandler.add( dependencies.getName(), "org.junit.jupiter:junit-jupiter-api:" + JUNIT_VERSION );
 		dependencyHandler.add( dependencies.getName(), "org.junit.jupiter:junit-jupiter-params:" + JUNIT_VERSION );
 
+		// resolving the buildscript classpath is expensive - only do it once (and if) the
+		// TestKit classpath is actually resolved
+		dependencies.withDependencies(
+				dependencySet -> {
+					final File pluginArtifact = locatePluginArtifact( project );
+					if ( pluginArtifact != null ) {
+						// we found this plugin's dependency... add it to the TestKit compile-classpath
+						dependencySet.add( dependencyHandler.create( project.files( pluginArtifact ) ) );
+					}
+				}
+		);
+
+		return dependencies;
+	}
+
+	private static File locatePluginArtifact(Project project) {
 		final Configuration buildScriptClasspath = project.getBuildscript().getConfigurations().getByName( "classpath" );
 		final Set<ResolvedArtifact> resolvedArtifacts = buildScriptClasspath.getResolvedConfiguration().getResolvedArtifacts();
 		for ( ResolvedArtifact resolvedArtifact : resolvedArtifacts ) {
@@ -151,16 +525,18 @@ public class TestKitPlugin implements Plugin<Project> {
 			project.getLogger().debug( "Checking buildscript classpath entry: {}", dependencyId );
 			if ( "com.github.sebersole".equals( dependencyId.getGroup() ) ) {
 				if ( "testkit-junit5-plugin".equals( dependencyId.getName() ) ) {
-
-					// we found this plugin's dependency... add it to the TestKit compile-classpath
 					project.getLogger().debug( "  > Found testkit-junit5-plugin dependency : `{}`", resolvedArtifact.getFile() );
-					dependencyHandler.add( dependencies.getName(), project.files( resolvedArtifact.getFile() ) );
-
-					break;
+					return resolvedArtifact.getFile();
 				}
 			}
 		}
+		return null;
+	}
 
+	private static Configuration prepareCacheDependencies(Project project) {
+		final Configuration dependencies = project.getConfigurations().maybeCreate( CACHE_DEPENDENCIES_NAME );
+		dependencies.setDescription( "Dependencies of the TestKit projects, seeded into the read-only dependency cache of the TestKit builds" );
+		dependencies.setCanBeConsumed( false );
 		return dependencies;
 	}
 
@@ -1,7 +1,9 @@
 package com.github.sebersole.testkit;
 
+import java.io.File;
 import javax.inject.Inject;
 
+import org.gradle.api.DomainObjectSet;
 import org.gradle.api.Project;
 import org.gradle.api.provider.Property;
 
@@ -12,10 +14,44 @@ public class TestKitSpec {
 	public static final String DSL_NAME = "testKit";
 
 	private final Property<String> implicitProjectName;
+	private final Property<StagingMode> stagingMode;
+	private final Property<Integer> poolSize;
+	private final Property<Boolean> keepFailedProjects;
+	private final Property<Boolean> bundleFailedProjects;
+	private final Property<RunnerMode> runnerMode;
+	private final Property<BuildOutput> buildOutput;
+	private final Property<Boolean> keepBuildLogs;
+	private final Property<Boolean> cacheBuildResults;
+	private final Property<Integer> buildResultCacheSize;
+	private final Property<Boolean> recycleProjects;
+	private final Property<Integer> forks;
+	private final Property<Long> forkEvery;
+	private final Property<Boolean> seedDependencyCache;
+	private final Property<TestSelection> testSelection;
+	private final DomainObjectSet<File> gradleInstallations;
+
+	private final Project project;
 
 	@Inject
 	public TestKitSpec(Project project) {
+		this.project = project;
+
 		this.implicitProjectName = project.getObjects().property( String.class );
+		this.stagingMode = project.getObjects().property( StagingMode.class ).convention( StagingMode.COPY );
+		this.poolSize = project.getObjects().property( Integer.class ).convention( 0 );
+		this.keepFailedProjects = project.getObjects().property( Boolean.class ).convention( true );
+		this.bundleFailedProjects = project.getObjects().property( Boolean.class ).convention( false );
+		this.runnerMode = project.getObjects().property( RunnerMode.class ).convention( RunnerMode.DEBUG );
+		this.buildOutput = project.getObjects().property( BuildOutput.class ).convention( BuildOutput.CONSOLE );
+		this.keepBuildLogs = project.getObjects().property( Boolean.class ).convention( false );
+		this.cacheBuildResults = project.getObjects().property( Boolean.class ).convention( false );
+		this.buildResultCacheSize = project.getObjects().property( Integer.class ).convention( 256 );
+		this.recycleProjects = project.getObjects().property( Boolean.class ).convention( false );
+		this.forks = project.getObjects().property( Integer.class ).convention( 1 );
+		this.forkEvery = project.getObjects().property( Long.class ).convention( 0L );
+		this.seedDependencyCache = project.getObjects().property( Boolean.class ).convention( false );
+		this.testSelection = project.getObjects().property( TestSelection.class ).convention( TestSelection.ALL );
+		this.gradleInstallations = project.getObjects().domainObjectSet( File.class );
 	}
 
 	public Property<String> getImplicitProjectName() {
@@ -29,4 +65,273 @@ public class TestKitSpec {
 	public void setImplicitProject(String projectName) {
 		implicitProjectName.set( projectName );
 	}
+
+	/**
+	 * How TestKit projects are staged for each test
+	 */
+	public Property<StagingMode> getStagingMode() {
+		return stagingMode;
+	}
+
+	public void stagingMode(String mode) {
+		stagingMode.set( StagingMode.fromSetting( mode ) );
+	}
+
+	public void setStagingMode(String mode) {
+		stagingMode.set( StagingMode.fromSetting( mode ) );
+	}
+
+	/**
+	 * The number of staged copies of each TestKit project to keep ready in the
+	 * background, ahead of the tests requesting them.  The default, {@code 0},
+	 * stages each copy when the test requests it
+	 */
+	public Property<Integer> getPoolSize() {
+		return poolSize;
+	}
+
+	public void poolSize(int size) {
+		poolSize.set( size );
+	}
+
+	public void setPoolSize(int size) {
+		poolSize.set( size );
+	}
+
+	/**
+	 * Whether the staged project directories of failed tests should be kept for
+	 * inspection.  Defaults to {@code true}; the directories of successful tests
+	 * are always deleted
+	 */
+	public Property<Boolean> getKeepFailedProjects() {
+		return keepFailedProjects;
+	}
+
+	public void keepFailedProjects(boolean keep) {
+		keepFailedProjects.set( keep );
+	}
+
+	public void setKeepFailedProjects(boolean keep) {
+		keepFailedProjects.set( keep );
+	}
+
+	/**
+	 * Whether the staged project directories of failed tests are packed, along with the logs
+	 * and task outcomes of their builds, into one compressed bundle per test (named after the
+	 * test, under {@code $buildDir/testKit/failures}) and then deleted - rather than kept as
+	 * they are.  Defaults to {@code false}
+	 *
+	 * @see FailureBundle
+	 */
+	public Property<Boolean> getBundleFailedProjects() {
+		return bundleFailedProjects;
+	}
+
+	public void bundleFailedProjects(boolean bundle) {
+		bundleFailedProjects.set( bundle );
+	}
+
+	public void setBundleFailedProjects(boolean bundle) {
+		bundleFailedProjects.set( bundle );
+	}
+
+	/**
+	 * Whether the builds of TestKit runners run in-process (debuggable) or
+	 * in shared, warm daemons (fast)
+	 */
+	public Property<RunnerMode> getRunnerMode() {
+		return runnerMode;
+	}
+
+	public void runnerMode(String mode) {
+		runnerMode.set( RunnerMode.fromSetting( mode ) );
+	}
+
+	public void setRunnerMode(String mode) {
+		runnerMode.set( RunnerMode.fromSetting( mode ) );
+	}
+
+	/**
+	 * Whether the output of the TestKit builds is forwarded to the console (the default) or
+	 * streamed to a log file per project scope
+	 *
+	 * @see BuildLog
+	 */
+	public Property<BuildOutput> getBuildOutput() {
+		return buildOutput;
+	}
+
+	public void buildOutput(String output) {
+		buildOutput.set( BuildOutput.fromSetting( output ) );
+	}
+
+	public void setBuildOutput(String output) {
+		buildOutput.set( BuildOutput.fromSetting( output ) );
+	}
+
+	/**
+	 * Whether the {@linkplain BuildLog build logs} of passing tests are kept once their project
+	 * scope is released.  The logs of failed tests are always kept.  Defaults to {@code false}
+	 */
+	public Property<Boolean> getKeepBuildLogs() {
+		return keepBuildLogs;
+	}
+
+	public void keepBuildLogs(boolean keep) {
+		keepBuildLogs.set( keep );
+	}
+
+	public void setKeepBuildLogs(boolean keep) {
+		keepBuildLogs.set( keep );
+	}
+
+	/**
+	 * Whether the results of TestKit builds are cached, so that repeating a build of the same
+	 * project content with the same arguments, Gradle version, plugin classpath and environment
+	 * replays the recorded outcome, task outcomes and output rather than running Gradle.  A
+	 * replayed build does not write any files, so tests inspecting the build's files should opt
+	 * out using {@link ProjectScope#setCacheBuildResults}.  Defaults to {@code false}
+	 */
+	public Property<Boolean> getCacheBuildResults() {
+		return cacheBuildResults;
+	}
+
+	public void cacheBuildResults(boolean cache) {
+		cacheBuildResults.set( cache );
+	}
+
+	public void setCacheBuildResults(boolean cache) {
+		cacheBuildResults.set( cache );
+	}
+
+	/**
+	 * The maximum number of build results kept in the cache; the least recently used
+	 * results are evicted first.  Defaults to {@code 256}
+	 *
+	 * @see #getCacheBuildResults()
+	 */
+	public Property<Integer> getBuildResultCacheSize() {
+		return buildResultCacheSize;
+	}
+
+	public void buildResultCacheSize(int size) {
+		buildResultCacheSize.set( size );
+	}
+
+	public void setBuildResultCacheSize(int size) {
+		buildResultCacheSize.set( size );
+	}
+
+	/**
+	 * Whether the staged project directories of completed tests are restored to their
+	 * staged state and handed to the next test using the same project, rather than
+	 * deleted.  Only the files the test changed, added or deleted are restored, which
+	 * is much cheaper than staging a new copy for tests touching only a few files.
+	 * Defaults to {@code false}
+	 */
+	public Property<Boolean> getRecycleProjects() {
+		return recycleProjects;
+	}
+
+	public void recycleProjects(boolean recycle) {
+		recycleProjects.set( recycle );
+	}
+
+	public void setRecycleProjects(boolean recycle) {
+		recycleProjects.set( recycle );
+	}
+
+	/**
+	 * The number of forks (JVMs) running the TestKit tests in parallel.  With more than
+	 * one fork, each fork gets its own staging and TestKit directories and the test
+	 * classes are balanced across the forks based on their recorded durations.
+	 * Defaults to {@code 1}
+	 */
+	public Property<Integer> getForks() {
+		return forks;
+	}
+
+	public void forks(int count) {
+		forks.set( count );
+	}
+
+	public void setForks(int count) {
+		forks.set( count );
+	}
+
+	/**
+	 * The number of test classes after which a fork is replaced by a new JVM.  Defaults
+	 * to {@code 0}, never replacing a fork
+	 */
+	public Property<Long> getForkEvery() {
+		return forkEvery;
+	}
+
+	public void forkEvery(long count) {
+		forkEvery.set( count );
+	}
+
+	public void setForkEvery(long count) {
+		forkEvery.set( count );
+	}
+
+	/**
+	 * Whether the TestKit builds resolve plugins and dependencies from a read-only
+	 * dependency cache seeded from this build's Gradle user home (including the
+	 * {@code testKitDependencyCache} dependencies).  Defaults to {@code false}
+	 *
+	 * @see SeedDependencyCacheTask
+	 */
+	public Property<Boolean> getSeedDependencyCache() {
+		return seedDependencyCache;
+	}
+
+	public void seedDependencyCache(boolean seed) {
+		seedDependencyCache.set( seed );
+	}
+
+	public void setSeedDependencyCache(boolean seed) {
+		seedDependencyCache.set( seed );
+	}
+
+	/**
+	 * Whether {@code testKitTest} runs all TestKit test classes (the default) or only those
+	 * affected by the changes since they last passed
+	 *
+	 * @see TestSelection
+	 */
+	public Property<TestSelection> getTestSelection() {
+		return testSelection;
+	}
+
+	public void testSelection(String selection) {
+		testSelection.set( TestSelection.fromSetting( selection ) );
+	}
+
+	public void setTestSelection(String selection) {
+		testSelection.set( TestSelection.fromSetting( selection ) );
+	}
+
+	/**
+	 * The directories of locally available Gradle installations to run the TestKit tests
+	 * against, in addition to the Gradle version running the build.  Each installation
+	 * gets a test task of its own (e.g. {@code testKitTestGradle5_6_4}), run by {@code check},
+	 * whose builds use the installation via {@code GradleRunner#withGradleInstallation} -
+	 * always in daemons, kept warm in a TestKit directory of the version's own
+	 *
+	 * @see GradleInstallation
+	 */
+	public DomainObjectSet<File> getGradleInstallations() {
+		return gradleInstallations;
+	}
+
+	public void gradleInstallation(Object directory) {
+		gradleInstallations.add( project.file( directory ) );
+	}
+
+	public void gradleInstallations(Object... directories) {
+		for ( Object directory : directories ) {
+			gradleInstallation( directory );
+		}
+	}
 }
@@ -0,0 +1,48 @@
+package com.github.sebersole.testkit;
+
+import java.util.Locale;
+
+/**
+ * Which of the TestKit test classes {@code testKitTest} runs
+ *
+ * @see TestKitSpec#getTestSelection()
+ */
+public enum TestSelection {
+	/**
+	 * Every test class is run.  The default
+	 */
+	ALL,
+
+	/**
+	 * Only the test classes affected by a change since they last passed are run: classes
+	 * which changed themselves (or any of the classes they refer to, or the plugin jar of a
+	 * class they refer to directly), which staged a TestKit
+	 * project whose files changed or which ran builds while the plugin's classes, resources
+	 * or dependencies changed.  Classes which failed or were not recorded - e.g. new classes -
+	 * are always run.
+	 *
+	 * Which plugin classes the builds load cannot be observed from the tests (the builds run
+	 * in daemons or isolated class loaders), so any change to the plugin affects all tests
+	 * running builds
+	 *
+	 * @see SelectTestKitTestsTask
+	 * @see TestUsage
+	 */
+	AFFECTED;
+
+	/**
+	 * Interpret the setting from the DSL.  {@code null} or empty is interpreted as {@link #ALL}
+	 */
+	public static TestSelection fromSetting(String setting) {
+		if ( setting == null || setting.trim().isEmpty() ) {
+			return ALL;
+		}
+
+		try {
+			return valueOf( setting.trim().toUpperCase( Locale.ROOT ) );
+		}
+		catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException( "Unrecognized TestKit test selection : `" + setting + "`", e );
+		}
+	}
+}
@@ -0,0 +1,223 @@
+package com.github.sebersole.testkit;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * What each TestKit test class depended upon when it last ran, and whether it passed -
+ * written by the test workers at the end of each test run and used to select the test
+ * classes affected by a change.
+ *
+ * The inputs are identified by key - the test class itself (along with the classes it
+ * refers to), each TestKit project staged by its tests and, if its tests ran builds,
+ * the plugin - and recorded with the hash they had when the test class ran.  The hashes
+ * are computed by {@link SelectTestKitTestsTask} before the run and handed to the tests
+ * in the {@linkplain #readInputs inputs file}.
+ *
+ * Both files are tab-separated, one line per test class or input
+ *
+ * @see TestSelection#AFFECTED
+ */
+class TestUsage {
+	static final String CLASS_INPUT_PREFIX = "class:";
+	static final String FIXTURE_INPUT_PREFIX = "fixture:";
+	static final String PLUGIN_INPUT = "plugin";
+	// the hash of an input unknown when the test class ran - never matching a current hash
+	static final String UNKNOWN_HASH = "-";
+
+	private static final String PASSED = "passed";
+	private static final String FAILED = "failed";
+
+	/**
+	 * The recorded run of a test class
+	 */
+	static class Record {
+		private final String className;
+		private final boolean passed;
+		private final Map<String, String> inputs;
+
+		Record(String className, boolean passed, Map<String, String> inputs) {
+			this.className = className;
+			this.passed = passed;
+			this.inputs = inputs;
+		}
+
+		String getClassName() {
+			return className;
+		}
+
+		boolean isPassed() {
+			return passed;
+		}
+
+		/**
+		 * The hashes of the inputs of the run, keyed by input
+		 */
+		Map<String, String> getInputs() {
+			return inputs;
+		}
+
+		/**
+		 * The inputs whose current hash differs from the recorded one
+		 */
+		Set<String> changedInputs(Map<String, String> currentInputs) {
+			final Set<String> changed = new TreeSet<>();
+			for ( Map.Entry<String, String> input : inputs.entrySet() ) {
+				if ( !input.getValue().equals( currentInputs.get( input.getKey() ) ) ) {
+					changed.add( input.getKey() );
+				}
+			}
+			return changed;
+		}
+
+		private String toLine() {
+			final StringBuilder line = new StringBuilder( className ).append( '\t' ).append( passed ? PASSED : FAILED );
+			for ( Map.Entry<String, String> input : inputs.entrySet() ) {
+				line.append( '\t' ).append( input.getKey() ).append( '=' ).append( input.getValue() );
+			}
+			return line.toString();
+		}
+	}
+
+	private final Map<String, Record> records;
+
+	private TestUsage(Map<String, Record> records) {
+		this.records = records;
+	}
+
+	/**
+	 * Read the recorded test classes; empty if none were recorded yet
+	 */
+	static TestUsage read(File usageFile) {
+		if ( usageFile == null || !usageFile.isFile() ) {
+			return new TestUsage( Collections.emptyMap() );
+		}
+
+		try {
+			return new TestUsage( parse( new String( Files.readAllBytes( usageFile.toPath() ), UTF_8 ) ) );
+		}
+		catch (IOException e) {
+			throw new IllegalStateException( "Unable to read TestKit test usage `" + usageFile + "`", e );
+		}
+	}
+
+	private static Map<String, Record> parse(String content) {
+		final Map<String, Record> records = new TreeMap<>();
+		for ( String line : content.split( "\n" ) ) {
+			final String[] fields = line.split( "\t" );
+			if ( fields.length < 2 || fields[0].isEmpty() ) {
+				continue;
+			}
+
+			final Map<String, String> inputs = new TreeMap<>();
+			for ( int i = 2; i < fields.length; i++ ) {
+				final int separator = fields[i].lastIndexOf( '=' );
+				if ( separator > 0 ) {
+					inputs.put( fields[i].substring( 0, separator ), fields[i].substring( separator + 1 ) );
+				}
+			}
+			records.put( fields[0], new Record( fields[0], PASSED.equals( fields[1] ), inputs ) );
+		}
+		return records;
+	}
+
+	/**
+	 * Merge the records of the test classes run by this worker into the file, replacing
+	 * their previous records.  The file is locked while being updated, as all forks write
+	 * to the same file
+	 */
+	static void record(File usageFile, Collection<Record> classRecords) throws IOException {
+		usageFile.getParentFile().mkdirs();
+
+		try ( FileChannel channel = FileChannel.open( usageFile.toPath(), CREATE, READ, WRITE );
+				FileLock ignored = channel.lock() ) {
+			final Map<String, Record> records = parse( TestDurations.readAll( channel ) );
+			for ( Record record : classRecords ) {
+				records.put( record.getClassName(), record );
+			}
+
+			final StringBuilder content = new StringBuilder();
+			for ( Record record : records.values() ) {
+				content.append( record.toLine() ).append( '\n' );
+			}
+
+			channel.truncate( 0 );
+			channel.position( 0 );
+			final ByteBuffer updated = ByteBuffer.wrap( content.toString().getBytes( UTF_8 ) );
+			while ( updated.hasRemaining() ) {
+				channel.write( updated );
+			}
+		}
+	}
+
+	/**
+	 * Read the current hashes of the inputs, keyed by input
+	 */
+	static Map<String, String> readInputs(File inputsFile) {
+		try {
+			final Map<String, String> inputs = new TreeMap<>();
+			for ( String line : Files.readAllLines( inputsFile.toPath(), UTF_8 ) ) {
+				final int separator = line.lastIndexOf( '\t' );
+				if ( separator > 0 ) {
+					inputs.put( line.substring( 0, separator ), line.substring( separator + 1 ) );
+				}
+			}
+			return inputs;
+		}
+		catch (IOException e) {
+			throw new IllegalStateException( "Unable to read TestKit test inputs `" + inputsFile + "`", e );
+		}
+	}
+
+	static void writeInputs(File inputsFile, Map<String, String> inputs) {
+		inputsFile.getParentFile().mkdirs();
+		try ( Writer writer = Files.newBufferedWriter( inputsFile.toPath(), UTF_8 ) ) {
+			for ( Map.Entry<String, String> input : new TreeMap<>( inputs ).entrySet() ) {
+				writer.write( input.getKey() + '\t' + input.getValue() );
+				writer.write( '\n' );
+			}
+		}
+		catch (IOException e) {
+			throw new IllegalStateException( "Unable to write TestKit test inputs `" + inputsFile + "`", e );
+		}
+	}
+
+	/**
+	 * The recorded run of the test class; {@code null} if none was recorded
+	 */
+	Record get(String className) {
+		return records.get( className );
+	}
+
+	/**
+	 * Select the test classes to run: those without a (passed) recorded run - including
+	 * new classes and classes which are not TestKit tests - and those any of whose
+	 * recorded inputs changed since
+	 */
+	Set<String> selectAffected(Collection<String> classNames, Map<String, String> currentInputs) {
+		final Set<String> affected = new TreeSet<>();
+		for ( String className : classNames ) {
+			final Record record = records.get( className );
+			if ( record == null || !record.isPassed() || !record.changedInputs( currentInputs ).isEmpty() ) {
+				affected.add( className );
+			}
+		}
+		return affected;
+	}
+}
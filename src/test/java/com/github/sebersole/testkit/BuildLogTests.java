@@ -0,0 +1,73 @@
+package com.github.sebersole.testkit;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith( WorkDirExtension.class )
+public class BuildLogTests {
+	@WorkDir
+	private Path workDir;
+
+	@Test
+	public void testTail() throws IOException {
+		final BuildLog buildLog = new BuildLog( workDir.resolve( "simple.log" ).toFile(), 8 );
+		final Writer writer = buildLog.getWriter();
+
+		writer.write( "abc" );
+		assertThat( buildLog.getTail(), is( "abc" ) );
+
+		writer.write( "defgh" );
+		assertThat( buildLog.getTail(), is( "abcdefgh" ) );
+
+		// wraps around
+		writer.write( "ijk" );
+		assertThat( buildLog.getTail(), is( "defghijk" ) );
+
+		writer.write( "0123456789" );
+		assertThat( buildLog.getTail(), is( "23456789" ) );
+
+		buildLog.close();
+		assertThat(
+				new String( Files.readAllBytes( buildLog.getFile().toPath() ) ),
+				is( "abcdefghijk0123456789" )
+		);
+	}
+
+	@Test
+	public void testSearch() throws IOException {
+		final BuildLog buildLog = BuildLog.create( workDir.resolve( "logs" ).toFile(), "simple" );
+		assertThat( buildLog.getFile().getParentFile(), is( workDir.resolve( "logs" ).toFile() ) );
+
+		buildLog.buildStarting( Arrays.asList( "clean", "build" ) );
+		final Writer writer = buildLog.getWriter();
+		for ( int i = 0; i < 5000; i++ ) {
+			writer.write( "> Task :compileJava" + i + "\n" );
+		}
+		writer.write( "BUILD SUCCESSFUL\nin 1s\n" );
+
+		// searched in the file, not only the tail
+		assertThat( buildLog.contains( "> TestKit build : clean build" ), is( true ) );
+		assertThat( buildLog.contains( ":compileJava17\n> Task :compileJava18\n" ), is( true ) );
+		assertThat( buildLog.contains( "BUILD FAILED" ), is( false ) );
+		assertThat( buildLog.findLines( Pattern.compile( ":compileJava499\\d$" ) ).size(), is( 10 ) );
+
+		buildLog.assertContains( "BUILD SUCCESSFUL" );
+		buildLog.assertNotContains( "BUILD FAILED" );
+		final AssertionError error = assertThrows( AssertionError.class, () -> buildLog.assertContains( "BUILD FAILED" ) );
+		assertThat( error.getMessage().endsWith( "BUILD SUCCESSFUL\nin 1s\n" ), is( true ) );
+
+		buildLog.close();
+		assertThat( buildLog.contains( "in 1s" ), is( true ) );
+	}
+}
@@ -0,0 +1,190 @@
+package com.github.sebersole.testkit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.BuildTask;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.gradle.testkit.runner.UnexpectedBuildSuccess;
+import org.gradle.util.GradleVersion;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith( WorkDirExtension.class )
+public class BuildResultCacheTests {
+	@WorkDir
+	private Path workDir;
+	private Path projectDir;
+
+	@BeforeEach
+	public void createWorkDir() throws IOException {
+		projectDir = Files.createDirectories( workDir.resolve( "simple" ) );
+		Files.write( projectDir.resolve( "build.gradle" ), "plugins { id 'java' }".getBytes( UTF_8 ) );
+		Files.write( projectDir.resolve( "settings.gradle" ), new byte[0] );
+	}
+
+	@Test
+	public void testKey() throws IOException {
+		final List<File> classpath = Collections.singletonList( projectDir.resolve( "build.gradle" ).toFile() );
+		final String key = key( Arrays.asList( "tasks" ), "version 6.1", classpath );
+
+		assertThat( key( Arrays.asList( "tasks" ), "version 6.1", classpath ), is( key ) );
+		assertThat( key( Arrays.asList( "help" ), "version 6.1", classpath ), not( is( key ) ) );
+		assertThat( key( Arrays.asList( "tasks" ), "version 6.2", classpath ), not( is( key ) ) );
+		assertThat( key( Arrays.asList( "tasks" ), "version 6.1", Collections.emptyList() ), not( is( key ) ) );
+		assertThat(
+				BuildResultCache.key( projectDir.toFile(), Arrays.asList( "tasks" ), "version 6.1", classpath, Collections.singletonMap( "A", "1" ), null ),
+				not( is( key ) )
+		);
+
+		// following another build
+		assertThat(
+				BuildResultCache.key( projectDir.toFile(), Arrays.asList( "tasks" ), "version 6.1", classpath, null, key ),
+				not( is( key ) )
+		);
+
+		// the outputs of previous builds are accounted for by their keys
+		Files.createDirectories( projectDir.resolve( "build/classes" ) );
+		Files.write( projectDir.resolve( "build/classes/Main.class" ), new byte[] { 1 } );
+		Files.createDirectories( projectDir.resolve( ".gradle" ) );
+		Files.write( projectDir.resolve( ".gradle/file-hashes.bin" ), new byte[] { 2 } );
+		assertThat( key( Arrays.asList( "tasks" ), "version 6.1", classpath ), is( key ) );
+
+		// a test changing the project
+		Files.write( projectDir.resolve( "settings.gradle" ), "rootProject.name = 'changed'".getBytes( UTF_8 ) );
+		assertThat( key( Arrays.asList( "tasks" ), "version 6.1", classpath ), not( is( key ) ) );
+	}
+
+	private String key(List<String> arguments, String gradleDistribution, List<File> classpath) {
+		return BuildResultCache.key( projectDir.toFile(), arguments, gradleDistribution, classpath, null, null );
+	}
+
+	@Test
+	public void testProjectBuilds() {
+		final BuildResultCache cache = new BuildResultCache( workDir.resolve( "cache" ).toFile(), 10 );
+		final BuildResultCache projectCache = cache.forProject();
+		assertThat( projectCache.getDirectory(), is( cache.getDirectory() ) );
+		assertThat( projectCache.getPreviousKey(), nullValue() );
+
+		final List<String> runs = new ArrayList<>();
+		projectCache.replayed( "a", () -> runs.add( "a" ) );
+		projectCache.replayed( "b", () -> runs.add( "b" ) );
+		assertThat( projectCache.getPreviousKey(), is( "b" ) );
+		assertThat( runs.isEmpty(), is( true ) );
+
+		// a build which is not recorded runs the replayed ones first
+		projectCache.runPendingBuilds();
+		projectCache.executed( "c" );
+		assertThat( runs, is( Arrays.asList( "a", "b" ) ) );
+		assertThat( projectCache.getPreviousKey(), is( "c" ) );
+
+		projectCache.runPendingBuilds();
+		assertThat( runs.size(), is( 2 ) );
+
+		// tracked per project
+		assertThat( cache.forProject().getPreviousKey(), nullValue() );
+	}
+
+	@Test
+	public void testStoreAndLoad() {
+		final BuildResultCache cache = new BuildResultCache( workDir.resolve( "cache" ).toFile(), 10 );
+		assertThat( cache.load( "a" ), nullValue() );
+
+		final RecordedBuildResult result = new RecordedBuildResult(
+				false,
+				Arrays.asList( task( ":compileJava", TaskOutcome.SUCCESS ), task( ":test", TaskOutcome.FAILED ) ),
+				"> Task :compileJava\n> Task :test FAILED\n\nBUILD FAILED in 1s\n"
+		);
+		cache.store( "a", result );
+
+		final RecordedBuildResult loaded = cache.load( "a" );
+		assertThat( loaded.isSuccessful(), is( false ) );
+		assertThat( loaded.getOutput(), is( result.getOutput() ) );
+		assertThat( loaded.getTasks().size(), is( 2 ) );
+		assertThat( loaded.task( ":test" ).getOutcome(), is( TaskOutcome.FAILED ) );
+		assertThat( loaded.taskPaths( TaskOutcome.SUCCESS ), is( Collections.singletonList( ":compileJava" ) ) );
+		assertThat( loaded.task( ":jar" ), nullValue() );
+	}
+
+	@Test
+	public void testEviction() {
+		final File cacheDir = workDir.resolve( "cache" ).toFile();
+		final BuildResultCache cache = new BuildResultCache( cacheDir, 2 );
+		final RecordedBuildResult result = new RecordedBuildResult( true, Collections.emptyList(), "BUILD SUCCESSFUL\n" );
+
+		cache.store( "a", result );
+		cache.store( "b", result );
+		new File( cacheDir, "a.result" ).setLastModified( System.currentTimeMillis() - 60_000 );
+		new File( cacheDir, "b.result" ).setLastModified( System.currentTimeMillis() - 30_000 );
+
+		// `a` becomes the most recently used
+		assertThat( cache.load( "a" ).isSuccessful(), is( true ) );
+
+		cache.store( "c", result );
+		assertThat( cache.load( "b" ), nullValue() );
+		assertThat( cache.load( "a" ).getOutput(), is( "BUILD SUCCESSFUL\n" ) );
+		assertThat( cache.load( "c" ).getOutput(), is( "BUILD SUCCESSFUL\n" ) );
+	}
+
+	@Test
+	public void testReplay() {
+		final BuildResultCache cache = new BuildResultCache( workDir.resolve( "cache" ).toFile(), 10 ).forProject();
+		final GradleRunnerFactory runnerFactory = GradleRunnerFactory.forDirectory( RunnerMode.DAEMON, workDir.resolve( "runner" ).toFile() );
+		final ManagedGradleRunner runner = runnerFactory.createGradleRunner( projectDir.toFile(), null, null, cache, "tasks" );
+
+		// recorded by previous runs of the same two builds
+		final String key = replayKey( runner, null );
+		cache.store( key, new RecordedBuildResult( true, Collections.singletonList( task( ":tasks", TaskOutcome.SUCCESS ) ), "BUILD SUCCESSFUL\n" ) );
+		cache.store( replayKey( runner, key ), new RecordedBuildResult( true, Collections.singletonList( task( ":tasks", TaskOutcome.SUCCESS ) ), "BUILD SUCCESSFUL\n" ) );
+
+		final BuildResult result = runner.build();
+		assertThat( result.task( ":tasks" ).getOutcome(), is( TaskOutcome.SUCCESS ) );
+		assertThat( runnerFactory.getCachedBuilds(), is( 1 ) );
+		assertThat( cache.getPreviousKey(), is( key ) );
+
+		final UnexpectedBuildSuccess unexpected = assertThrows( UnexpectedBuildSuccess.class, runner::buildAndFail );
+		assertThat( unexpected.getBuildResult().getOutput(), is( "BUILD SUCCESSFUL\n" ) );
+		assertThat( runnerFactory.getCachedBuilds(), is( 2 ) );
+	}
+
+	private static String replayKey(ManagedGradleRunner runner, String previousKey) {
+		return BuildResultCache.key(
+				runner.getProjectDir(),
+				runner.getArguments(),
+				"version " + GradleVersion.current().getVersion(),
+				runner.getPluginClasspath(),
+				runner.getEnvironment(),
+				previousKey
+		);
+	}
+
+	private static BuildTask task(String path, TaskOutcome outcome) {
+		return new BuildTask() {
+			@Override
+			public String getPath() {
+				return path;
+			}
+
+			@Override
+			public TaskOutcome getOutcome() {
+				return outcome;
+			}
+		};
+	}
+}
@@ -0,0 +1,59 @@
+package com.github.sebersole.testkit;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+@ExtendWith( WorkDirExtension.class )
+public class CleanupServiceTests {
+	@WorkDir
+	private Path workDir;
+
+	@Test
+	public void testBackgroundDeletion() throws IOException {
+		// more directories than the service queues, to exercise the back-pressure
+		final List<Path> stagedDirs = new ArrayList<>();
+		for ( int i = 0; i < 200; i++ ) {
+			final Path stagedDir = workDir.resolve( "testKit" + i );
+			Files.createDirectories( stagedDir.resolve( "project/src/main/java" ) );
+			Files.write( stagedDir.resolve( "project/build.gradle" ), new byte[100] );
+			Files.write( stagedDir.resolve( "project/src/main/java/Thing.java" ), new byte[24] );
+			stagedDirs.add( stagedDir );
+		}
+
+		final CleanupService cleanupService = new CleanupService();
+		for ( Path stagedDir : stagedDirs ) {
+			cleanupService.delete( stagedDir );
+		}
+		cleanupService.close();
+
+		for ( Path stagedDir : stagedDirs ) {
+			assertThat( Files.exists( stagedDir ), is( false ) );
+		}
+		assertThat( cleanupService.getDirectoriesDeleted(), is( 200 ) );
+		assertThat( cleanupService.getBytesReclaimed(), is( 200 * 124L ) );
+	}
+
+	@Test
+	public void testDeletionAfterClose() throws IOException {
+		final Path stagedDir = Files.createDirectories( workDir.resolve( "testKit" ) );
+		Files.write( stagedDir.resolve( "build.gradle" ), new byte[100] );
+
+		final CleanupService cleanupService = new CleanupService();
+		cleanupService.close();
+
+		// e.g. a scope released after its container - deleted right away
+		cleanupService.delete( stagedDir );
+		assertThat( Files.exists( stagedDir ), is( false ) );
+		cleanupService.drain();
+		assertThat( cleanupService.getDirectoriesDeleted(), is( 1 ) );
+	}
+}
@@ -0,0 +1,62 @@
+package com.github.sebersole.testkit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Stress test for concurrent test execution - each invocation must see its own,
+ * complete copy of the project
+ *
+ * @see TestKitJunitExtension
+ */
+@TestKit
+@Execution( ExecutionMode.CONCURRENT )
+public class ConcurrentExecutionTests {
+	private static final int REPETITIONS = 250;
+
+	private static final Set<File> projectDirectories = ConcurrentHashMap.newKeySet();
+
+	@RepeatedTest( REPETITIONS )
+	@Project( "simple" )
+	public void testConcurrentStaging(ProjectScope scope) throws IOException {
+		verifyIsolated( scope );
+	}
+
+	@RepeatedTest( REPETITIONS )
+	public void testConcurrentStagingOfMultipleScopes(@Project( "simple" ) ProjectScope first, @Project( "simple" ) ProjectScope second) throws IOException {
+		assertThat( first.getProjectBaseDirectory(), not( second.getProjectBaseDirectory() ) );
+		verifyIsolated( first );
+		verifyIsolated( second );
+	}
+
+	private static void verifyIsolated(ProjectScope scope) throws IOException {
+		final File projectDir = scope.getProjectBaseDirectory();
+		assertThat( "Project directory handed out twice : " + projectDir, projectDirectories.add( projectDir ), is( true ) );
+
+		assertThat( new File( projectDir, "build.gradle" ).isFile(), is( true ) );
+		assertThat( new File( projectDir, "settings.gradle" ).isFile(), is( true ) );
+
+		// no other test may see this change
+		final File marker = new File( projectDir, "marker.txt" );
+		assertThat( marker.exists(), is( false ) );
+		Files.write( marker.toPath(), projectDir.getAbsolutePath().getBytes( UTF_8 ) );
+	}
+
+	@AfterAll
+	public static void verifyAllIsolated() {
+		assertThat( projectDirectories.size(), is( 3 * REPETITIONS ) );
+	}
+}
@@ -0,0 +1,120 @@
+package com.github.sebersole.testkit;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+@ExtendWith( WorkDirExtension.class )
+public class DependencyCacheMirrorTests {
+	@WorkDir
+	private Path workDir;
+	private Path modulesDir;
+	private Path cacheDir;
+
+	@BeforeEach
+	public void createCache() throws IOException {
+		modulesDir = workDir.resolve( "user-home/caches/modules-2" );
+		cacheDir = workDir.resolve( "dependency-cache" );
+
+		write( modulesDir.resolve( "files-2.1/org.example/thing/1.0/abc123/thing-1.0.jar" ), "jar" );
+		write( modulesDir.resolve( "files-2.1/org.example/thing/1.0/def456/thing-1.0.pom" ), "<project/>" );
+		write( modulesDir.resolve( "metadata-2.82/descriptors/org.example/thing/1.0/descriptor.bin" ), "descriptor" );
+		write( modulesDir.resolve( "metadata-2.82/module-metadata.bin" ), "metadata" );
+		write( modulesDir.resolve( "modules-2.lock" ), "" );
+		write( modulesDir.resolve( "gc.properties" ), "" );
+	}
+
+	@Test
+	public void testMirror() throws IOException {
+		final DependencyCacheMirror mirror = new DependencyCacheMirror( modulesDir, cacheDir );
+		mirror.mirror();
+
+		final Path mirroredDir = cacheDir.resolve( "modules-2" );
+		assertThat( mirror.getFilesLinked() + mirror.getFilesCopied(), is( 4 ) );
+		assertThat( Files.exists( mirroredDir.resolve( "modules-2.lock" ) ), is( false ) );
+		assertThat( Files.exists( mirroredDir.resolve( "gc.properties" ) ), is( false ) );
+		assertThat(
+				new String( Files.readAllBytes( mirroredDir.resolve( "metadata-2.82/module-metadata.bin" ) ), UTF_8 ),
+				is( "metadata" )
+		);
+		assertThat(
+				new String( Files.readAllBytes( mirroredDir.resolve( "files-2.1/org.example/thing/1.0/abc123/thing-1.0.jar" ) ), UTF_8 ),
+				is( "jar" )
+		);
+		if ( mirror.getFilesLinked() > 0 ) {
+			// the metadata is always copied
+			assertThat( mirror.getFilesLinked(), is( 2 ) );
+		}
+	}
+
+	@Test
+	public void testRepeatedMirror() throws IOException {
+		new DependencyCacheMirror( modulesDir, cacheDir ).mirror();
+
+		// nothing changed
+		final DependencyCacheMirror unchanged = new DependencyCacheMirror( modulesDir, cacheDir );
+		unchanged.mirror();
+		assertThat( unchanged.getFilesLinked() + unchanged.getFilesCopied() + unchanged.getFilesDeleted(), is( 0 ) );
+
+		// a new version downloaded, an old one cleaned up and the metadata updated
+		write( modulesDir.resolve( "files-2.1/org.example/thing/2.0/abc789/thing-2.0.jar" ), "jar" );
+		Files.delete( modulesDir.resolve( "files-2.1/org.example/thing/1.0/def456/thing-1.0.pom" ) );
+		Files.delete( modulesDir.resolve( "files-2.1/org.example/thing/1.0/def456" ) );
+		write( modulesDir.resolve( "metadata-2.82/module-metadata.bin" ), "updated metadata" );
+
+		final DependencyCacheMirror changed = new DependencyCacheMirror( modulesDir, cacheDir );
+		changed.mirror();
+		assertThat( changed.getFilesLinked() + changed.getFilesCopied(), is( 2 ) );
+		assertThat( changed.getFilesDeleted(), is( 1 ) );
+
+		final Path mirroredDir = cacheDir.resolve( "modules-2" );
+		assertThat( Files.exists( mirroredDir.resolve( "files-2.1/org.example/thing/1.0/def456" ) ), is( false ) );
+		assertThat( Files.exists( mirroredDir.resolve( "files-2.1/org.example/thing/2.0/abc789/thing-2.0.jar" ) ), is( true ) );
+		assertThat(
+				new String( Files.readAllBytes( mirroredDir.resolve( "metadata-2.82/module-metadata.bin" ) ), UTF_8 ),
+				is( "updated metadata" )
+		);
+	}
+
+	@Test
+	public void testModuleVersions() throws IOException {
+		write( modulesDir.resolve( "files-2.1/org.example/other/1.0/abc789/other-1.0.jar" ), "other" );
+		write( modulesDir.resolve( "metadata-2.82/descriptors/org.example/other/1.0/descriptor.bin" ), "descriptor" );
+
+		final Path thing = DependencyCacheMirror.moduleVersion(
+				modulesDir,
+				modulesDir.resolve( "files-2.1/org.example/thing/1.0/abc123/thing-1.0.jar" )
+		);
+		assertThat( thing, is( Paths.get( "org.example/thing/1.0" ) ) );
+		assertThat( DependencyCacheMirror.moduleVersion( modulesDir, workDir.resolve( "libs/local.jar" ) ), nullValue() );
+
+		new DependencyCacheMirror( modulesDir, cacheDir ).mirror();
+		final DependencyCacheMirror mirror = new DependencyCacheMirror( modulesDir, cacheDir, Collections.singleton( thing ) );
+		mirror.mirror();
+
+		// the other module is removed again, the shared metadata is kept
+		final Path mirroredDir = cacheDir.resolve( "modules-2" );
+		assertThat( mirror.getFilesDeleted(), is( 2 ) );
+		assertThat( Files.exists( mirroredDir.resolve( "files-2.1/org.example/other" ) ), is( false ) );
+		assertThat( Files.exists( mirroredDir.resolve( "metadata-2.82/descriptors/org.example/other" ) ), is( false ) );
+		assertThat( Files.exists( mirroredDir.resolve( "files-2.1/org.example/thing/1.0/def456/thing-1.0.pom" ) ), is( true ) );
+		assertThat( Files.exists( mirroredDir.resolve( "metadata-2.82/descriptors/org.example/thing/1.0/descriptor.bin" ) ), is( true ) );
+		assertThat( Files.exists( mirroredDir.resolve( "metadata-2.82/module-metadata.bin" ) ), is( true ) );
+	}
+
+	private static void write(Path file, String content) throws IOException {
+		Files.createDirectories( file.getParent() );
+		Files.write( file, content.getBytes( UTF_8 ) );
+	}
+}
@@ -0,0 +1,83 @@
+package com.github.sebersole.testkit;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith( WorkDirExtension.class )
+public class DirectoryCopierTests {
+	@WorkDir
+	private Path workDir;
+
+	@Test
+	public void testParallelCopy() throws IOException {
+		final Path source = workDir.resolve( "source" );
+		final Random random = new Random( 1 );
+
+		// enough files to be copied in parallel, spread over a deep tree
+		for ( int i = 0; i < 500; i++ ) {
+			final Path file = source.resolve( "d" + ( i % 7 ) ).resolve( "e" + ( i % 3 ) ).resolve( "file" + i + ".txt" );
+			Files.createDirectories( file.getParent() );
+			Files.write( file, randomBytes( random, i ) );
+		}
+		// large enough to be transferred by the kernel
+		Files.write( source.resolve( "large.bin" ), randomBytes( random, (int) ParallelCopier.TRANSFER_THRESHOLD * 2 + 17 ) );
+		Files.createDirectories( source.resolve( "empty" ) );
+
+		final Path target = Files.createDirectories( workDir.resolve( "target" ) );
+		DirectoryCopier.copy( source, target );
+
+		assertThat( Files.isDirectory( target.resolve( "empty" ) ), is( true ) );
+		try ( Stream<Path> paths = Files.walk( source ) ) {
+			paths.filter( Files::isRegularFile ).forEach(
+					file -> {
+						final Path copy = target.resolve( source.relativize( file ) );
+						try {
+							assertThat( file.toString(), Arrays.equals( Files.readAllBytes( file ), Files.readAllBytes( copy ) ), is( true ) );
+						}
+						catch (IOException e) {
+							throw new IllegalStateException( e );
+						}
+					}
+			);
+		}
+	}
+
+	@Test
+	public void testStaging() throws IOException {
+		final Path source = Files.createDirectories( workDir.resolve( "source/src" ) ).getParent();
+		Files.write( source.resolve( "build.gradle.template" ), "plugins { id 'java' }".getBytes( UTF_8 ) );
+		Files.write( source.resolve( "src/Main.java" ), "class Main {}".getBytes( UTF_8 ) );
+
+		// the templates are rendered into the staged project, never staged themselves
+		final Path target = Files.createDirectories( workDir.resolve( "target" ) );
+		DirectoryCopier.stage( source, target, false, null );
+		assertThat( Files.exists( target.resolve( "build.gradle.template" ) ), is( false ) );
+		assertThat( Files.isRegularFile( target.resolve( "src/Main.java" ) ), is( true ) );
+	}
+
+	@Test
+	public void testCopyFailure() {
+		assertThrows(
+				IllegalStateException.class,
+				() -> DirectoryCopier.copy( workDir.resolve( "does-not-exist" ), workDir.resolve( "target" ) )
+		);
+	}
+
+	private static byte[] randomBytes(Random random, int size) {
+		final byte[] bytes = new byte[size];
+		random.nextBytes( bytes );
+		return bytes;
+	}
+}
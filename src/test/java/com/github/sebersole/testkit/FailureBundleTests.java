@@ -0,0 +1,107 @@
+package com.github.sebersole.testkit;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith( WorkDirExtension.class )
+public class FailureBundleTests {
+	@WorkDir
+	private Path workDir;
+
+	@Test
+	public void testBundle() throws IOException {
+		final Path projectDir = workDir.resolve( "staging/simple" );
+		Files.createDirectories( projectDir.resolve( "src" ) );
+		Files.createDirectories( projectDir.resolve( ".gradle" ) );
+		Files.write( projectDir.resolve( "build.gradle" ), "apply plugin: 'java'".getBytes( UTF_8 ) );
+		Files.write( projectDir.resolve( "src/Main.java" ), "class Main {}".getBytes( UTF_8 ) );
+		Files.write( projectDir.resolve( ".gradle/cache.bin" ), new byte[] { 1, 2, 3 } );
+
+		final ProjectScope scope = new ProjectScope( projectDir.toFile() );
+		scope.recordBuildHistory();
+		scope.getBuildHistory().testStarting( "com.acme.PluginTests.test" );
+		scope.getBuildHistory().record(
+				Collections.singletonList( "build" ),
+				"failed",
+				RecordedBuildResult.read(
+						new BufferedReader( new StringReader( "testkit-build-result 1\nfalse\n2\nSUCCESS\t:compileJava\nFAILED\t:test\nBUILD FAILED" ) )
+				)
+		);
+
+		final File bundleDir = workDir.resolve( "failures" ).toFile();
+		final File bundle = FailureBundle.write( bundleDir, "com.acme.PluginTests.test build", Collections.singletonList( scope ) );
+		assertThat( bundle.getName(), is( "com.acme.PluginTests.test_build.zip" ) );
+
+		try ( ZipFile zip = new ZipFile( bundle ) ) {
+			final List<String> entries = zip.stream().map( ZipEntry::getName ).collect( Collectors.toList() );
+			assertThat( entries, hasItem( "simple/project/build.gradle" ) );
+			assertThat( entries, hasItem( "simple/project/src/Main.java" ) );
+			assertThat( entries, not( hasItem( "simple/project/.gradle/cache.bin" ) ) );
+
+			final String builds = new String( readAll( zip, "simple/builds.txt" ), UTF_8 );
+			assertThat( builds, containsString( "# test com.acme.PluginTests.test\n# build 1 [build] : failed" ) );
+			assertThat( builds, containsString( "SUCCESS\t:compileJava" ) );
+			assertThat( builds, containsString( "FAILED\t:test" ) );
+			assertThat( new String( readAll( zip, "simple/project/build.gradle" ), UTF_8 ), is( "apply plugin: 'java'" ) );
+		}
+
+		// e.g. a repeated test failing again
+		final File second = FailureBundle.write( bundleDir, "com.acme.PluginTests.test build", Collections.singletonList( scope ) );
+		assertThat( second.getName(), is( "com.acme.PluginTests.test_build-2.zip" ) );
+		assertThat( bundle.exists(), is( true ) );
+	}
+
+	@Test
+	public void testFailedBundle() throws IOException {
+		final Path projectDir = Files.createDirectories( workDir.resolve( "staging/simple" ) );
+		Files.write( projectDir.resolve( "build.gradle" ), "apply plugin: 'java'".getBytes( UTF_8 ) );
+		final ProjectScope scope = new ProjectScope( projectDir.toFile() ) {
+			@Override
+			public synchronized BuildLog getBuildLog() {
+				throw new IllegalStateException( "e.g. an unreadable log" );
+			}
+		};
+
+		final File bundleDir = workDir.resolve( "failures" ).toFile();
+		assertThrows(
+				IllegalStateException.class,
+				() -> FailureBundle.write( bundleDir, "com.acme.PluginTests.test", Collections.singletonList( scope ) )
+		);
+		// no partial bundle left behind
+		assertThat( bundleDir.list(), is( new String[0] ) );
+		// builds are only recorded when bundling
+		assertThat( scope.getBuildHistory(), nullValue() );
+	}
+
+	private static byte[] readAll(ZipFile zip, String entryName) throws IOException {
+		final ZipEntry entry = zip.getEntry( entryName );
+		assertThat( entryName, entry != null, is( true ) );
+		final byte[] content = new byte[ (int) entry.getSize() ];
+		try ( DataInputStream stream = new DataInputStream( zip.getInputStream( entry ) ) ) {
+			stream.readFully( content );
+		}
+		return content;
+	}
+}
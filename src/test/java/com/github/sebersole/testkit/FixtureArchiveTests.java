@@ -0,0 +1,81 @@
+package com.github.sebersole.testkit;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+@ExtendWith( WorkDirExtension.class )
+public class FixtureArchiveTests {
+	@WorkDir
+	private Path workDir;
+	private Path projectDir;
+
+	@BeforeEach
+	public void createFixture() throws IOException {
+		projectDir = workDir.resolve( "testKit/first" );
+
+		write( projectDir.resolve( "build.gradle" ), "plugins { id 'java' }" );
+		write( projectDir.resolve( "settings.gradle" ), "" );
+		write( projectDir.resolve( "gradlew" ), "#!/bin/sh" );
+		write( projectDir.resolve( "src/main/java/Thing.java" ), "class Thing {}" );
+		Files.createDirectories( projectDir.resolve( "lib" ) );
+		Files.write( projectDir.resolve( "lib/payload.jar" ), new byte[100_000] );
+		Files.createDirectories( projectDir.resolve( "src/test/java" ) );
+	}
+
+	@Test
+	public void testExtraction() throws IOException {
+		final boolean posix = Files.getFileStore( projectDir ).supportsFileAttributeView( "posix" );
+		if ( posix ) {
+			Files.setPosixFilePermissions( projectDir.resolve( "gradlew" ), PosixFilePermissions.fromString( "rwxr-xr-x" ) );
+		}
+
+		final Path archiveFile = workDir.resolve( "archives/first" + FixtureArchive.EXTENSION );
+		FixtureArchive.pack( projectDir, archiveFile );
+
+		final FixtureArchive archive = FixtureArchive.open( archiveFile );
+		assertThat( archive.getDirectories(), is( Arrays.asList( "lib", "src", "src/main", "src/main/java", "src/test", "src/test/java" ) ) );
+
+		// extract twice from the same mapping
+		for ( String name : Arrays.asList( "one", "two" ) ) {
+			final Path target = Files.createDirectories( workDir.resolve( name ) );
+			archive.extract( target );
+
+			assertThat( Files.isDirectory( target.resolve( "src/test/java" ) ), is( true ) );
+			assertThat( new String( Files.readAllBytes( target.resolve( "src/main/java/Thing.java" ) ), UTF_8 ), is( "class Thing {}" ) );
+			assertThat( Files.size( target.resolve( "settings.gradle" ) ), is( 0L ) );
+			assertThat( FixtureIndex.build( workDir.resolve( "testKit" ).toFile() ).diff( "first", target ).isEmpty(), is( true ) );
+			if ( posix ) {
+				assertThat( Files.isExecutable( target.resolve( "gradlew" ) ), is( true ) );
+			}
+		}
+	}
+
+	@Test
+	public void testNotAnArchive() throws IOException {
+		final Path archiveFile = workDir.resolve( "first" + FixtureArchive.EXTENSION );
+		write( archiveFile, "not an archive" );
+
+		try {
+			FixtureArchive.open( archiveFile );
+			throw new AssertionError( "Expecting failure" );
+		}
+		catch (IllegalStateException expected) {
+		}
+	}
+
+	private static void write(Path file, String content) throws IOException {
+		Files.createDirectories( file.getParent() );
+		Files.write( file, content.getBytes( UTF_8 ) );
+	}
+}
@@ -0,0 +1,86 @@
+package com.github.sebersole.testkit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+@ExtendWith( WorkDirExtension.class )
+public class FixtureIndexTests {
+	@WorkDir
+	private Path workDir;
+	private Path baseDir;
+
+	@BeforeEach
+	public void createFixtures() throws IOException {
+		baseDir = workDir.resolve( "testKit" );
+
+		write( baseDir.resolve( "first/build.gradle" ), "plugins { id 'java' }" );
+		write( baseDir.resolve( "first/settings.gradle" ), "" );
+		write( baseDir.resolve( "first/src/main/java/Thing.java" ), "class Thing {}" );
+		Files.createDirectories( baseDir.resolve( "first/src/test/java" ) );
+		write( baseDir.resolve( "second/build.gradle" ), "" );
+		// not a project
+		write( baseDir.resolve( TestKitPlugin.MARKER_FILE_NAME ), "" );
+	}
+
+	@Test
+	public void testRoundTrip() {
+		final File indexFile = workDir.resolve( TestKitPlugin.INDEX_FILE_NAME ).toFile();
+		FixtureIndex.build( baseDir.toFile() ).write( indexFile );
+
+		final FixtureIndex index = FixtureIndex.read( indexFile );
+		assertThat( index.getProjectNames().size(), is( 2 ) );
+		assertThat( index.getProjectNames().contains( "first" ), is( true ) );
+		assertThat( index.getProjectNames().contains( "second" ), is( true ) );
+		assertThat( index.getDirectories( "first" ), is( Arrays.asList( "src", "src/main", "src/main/java", "src/test", "src/test/java" ) ) );
+		assertThat( index.getFiles( "first" ).size(), is( 3 ) );
+
+		final FixtureIndex.FileEntry buildFile = index.getFiles( "first" ).get( 0 );
+		assertThat( buildFile.getPath(), is( "build.gradle" ) );
+		assertThat( buildFile.getSize(), is( 21L ) );
+		assertThat( buildFile.getHash(), is( FixtureIndex.hash( baseDir.resolve( "first/build.gradle" ) ) ) );
+	}
+
+	@Test
+	public void testStagingFromIndex() throws IOException {
+		final FixtureIndex index = FixtureIndex.build( baseDir.toFile() );
+
+		final Path target = Files.createDirectories( workDir.resolve( "staged" ) );
+		DirectoryCopier.copy( baseDir.resolve( "first" ), target, index, "first", false, null );
+
+		assertThat( Files.isDirectory( target.resolve( "src/test/java" ) ), is( true ) );
+		assertThat( new String( Files.readAllBytes( target.resolve( "src/main/java/Thing.java" ) ), UTF_8 ), is( "class Thing {}" ) );
+		assertThat( index.diff( "first", target ).isEmpty(), is( true ) );
+	}
+
+	@Test
+	public void testDrift() throws IOException {
+		final FixtureIndex index = FixtureIndex.build( baseDir.toFile() );
+
+		// same size, different content
+		write( baseDir.resolve( "first/build.gradle" ), "plugins { id 'jav' }\n" );
+		write( baseDir.resolve( "first/gradle.properties" ), "" );
+		Files.delete( baseDir.resolve( "first/settings.gradle" ) );
+
+		assertThat(
+				index.diff( "first", baseDir.resolve( "first" ) ),
+				is( Arrays.asList( "build.gradle", "gradle.properties", "settings.gradle" ) )
+		);
+		assertThat( index.diff( "second", baseDir.resolve( "second" ) ).isEmpty(), is( true ) );
+	}
+
+	private static void write(Path file, String content) throws IOException {
+		Files.createDirectories( file.getParent() );
+		Files.write( file, content.getBytes( UTF_8 ) );
+	}
+}
@@ -0,0 +1,85 @@
+package com.github.sebersole.testkit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for {@linkplain Project#parameters() templated} TestKit projects
+ */
+@TestKit
+public class FixtureTemplateTests {
+	@Test
+	public void testRendering() {
+		final FixtureTemplate template = FixtureTemplate.compile(
+				"gradle.properties.template",
+				"version=@version@\nowner=team@@example.com\nmail=a@b.c\nrelease=@version@-@qualifier@\n"
+		);
+		assertThat( template.getTargetPath(), is( "gradle.properties" ) );
+		assertThat( template.getParameterNames().size(), is( 2 ) );
+
+		final Map<String, String> parameters = new HashMap<>();
+		parameters.put( "version", "1.0" );
+		parameters.put( "qualifier", "Final" );
+		assertThat(
+				template.render( "simple", parameters ),
+				is( "version=1.0\nowner=team@example.com\nmail=a@b.c\nrelease=1.0-Final\n" )
+		);
+
+		final IllegalStateException missing = assertThrows(
+				IllegalStateException.class,
+				() -> template.render( "simple", Collections.singletonMap( "version", "1.0" ) )
+		);
+		assertThat( missing.getMessage(), containsString( "`qualifier`" ) );
+	}
+
+	@Test
+	public void testParameterParsing() {
+		final Map<String, String> parameters = ProjectTemplate.parseParameters( new String[] { "javaVersion=11", "args=a=b" } );
+		assertThat( parameters.get( "javaVersion" ), is( "11" ) );
+		assertThat( parameters.get( "args" ), is( "a=b" ) );
+
+		assertThrows( IllegalStateException.class, () -> ProjectTemplate.parseParameters( new String[] { "javaVersion" } ) );
+	}
+
+	@Test
+	@Project( value = "templated", parameters = "javaVersion=1.8" )
+	public void testStaging(ProjectScope scope) throws IOException {
+		final File projectDir = scope.getProjectBaseDirectory();
+		assertThat( new File( projectDir, "build.gradle.template" ).exists(), is( false ) );
+		assertThat( read( new File( projectDir, "build.gradle" ) ), containsString( "sourceCompatibility = '1.8'" ) );
+		assertThat( new File( projectDir, "settings.gradle" ).isFile(), is( true ) );
+	}
+
+	@ParameterizedTest
+	@ValueSource( strings = { "1.8", "11" } )
+	public void testParameterized(String javaVersion, @Project( "templated" ) ProjectTemplate template) throws IOException {
+		final ProjectScope scope = template.with( "javaVersion", javaVersion ).stage();
+		final String buildScript = read( new File( scope.getProjectBaseDirectory(), "build.gradle" ) );
+		assertThat( buildScript, containsString( "sourceCompatibility = '" + javaVersion + "'" ) );
+		assertThat( buildScript, not( containsString( "@javaVersion@" ) ) );
+	}
+
+	@Test
+	public void testMissingParameter(@Project( "templated" ) ProjectTemplate template) {
+		assertThrows( IllegalStateException.class, template::stage );
+	}
+
+	private static String read(File file) throws IOException {
+		return new String( Files.readAllBytes( file.toPath() ), UTF_8 );
+	}
+}
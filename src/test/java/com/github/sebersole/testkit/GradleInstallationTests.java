@@ -0,0 +1,43 @@
+package com.github.sebersole.testkit;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith( WorkDirExtension.class )
+public class GradleInstallationTests {
+	@WorkDir
+	private Path workDir;
+
+	@Test
+	public void testLocate() throws IOException {
+		final Path installationDir = workDir.resolve( "gradle-5.6.4" );
+		Files.createDirectories( installationDir.resolve( "lib" ) );
+		Files.createFile( installationDir.resolve( "lib/gradle-core-api-5.6.4.jar" ) );
+		Files.createFile( installationDir.resolve( "lib/gradle-launcher-5.6.4.jar" ) );
+
+		final GradleInstallation installation = GradleInstallation.locate( installationDir.toFile() );
+		assertThat( installation.getVersion(), is( "5.6.4" ) );
+		assertThat( installation.getDirectoryName(), is( "gradle-5.6.4" ) );
+		assertThat( installation.getTestTaskName(), is( "testKitTestGradle5_6_4" ) );
+	}
+
+	@Test
+	public void testNotAnInstallation() throws IOException {
+		final Path directory = Files.createDirectories( workDir.resolve( "not-gradle/lib" ) ).getParent();
+		assertThrows( IllegalStateException.class, () -> GradleInstallation.locate( directory.toFile() ) );
+		assertThrows( IllegalStateException.class, () -> GradleInstallation.locate( workDir.resolve( "missing" ).toFile() ) );
+		assertThat( GradleInstallation.find( workDir.resolve( "missing" ).toFile() ), nullValue() );
+
+		// named without being inspected
+		assertThat( GradleInstallation.testTaskName( workDir.resolve( "gradle-6.0.1" ).toFile() ), is( "testKitTestGradle6_0_1" ) );
+	}
+}
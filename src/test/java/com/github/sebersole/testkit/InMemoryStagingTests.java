@@ -0,0 +1,52 @@
+package com.github.sebersole.testkit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Tests for {@linkplain Project#inMemory() in-memory} staging
+ */
+@TestKit
+public class InMemoryStagingTests {
+	@Test
+	@Project( value = "simple", inMemory = true )
+	public void testMaterialization(ProjectScope scope) throws IOException {
+		// staged on disk if there is no tmpfs mount
+		final boolean inMemory = scope.isInMemory();
+		final File memoryProjectDir = scope.getProjectBaseDirectory();
+		assertThat( new File( memoryProjectDir, "build.gradle" ).isFile(), is( true ) );
+
+		// changes made before moving to disk are retained
+		Files.write( new File( memoryProjectDir, "gradle.properties" ).toPath(), "org.gradle.caching=true".getBytes( UTF_8 ) );
+
+		final File diskProjectDir = scope.materialize();
+		assertThat( scope.isInMemory(), is( false ) );
+		assertThat( scope.getProjectBaseDirectory(), is( diskProjectDir ) );
+		if ( inMemory ) {
+			assertThat( diskProjectDir, not( memoryProjectDir ) );
+		}
+		else {
+			assertThat( diskProjectDir, is( memoryProjectDir ) );
+		}
+		assertThat( new File( diskProjectDir, "build.gradle" ).isFile(), is( true ) );
+		assertThat( new String( Files.readAllBytes( new File( diskProjectDir, "gradle.properties" ).toPath() ), UTF_8 ), is( "org.gradle.caching=true" ) );
+
+		// a second materialization is a no-op
+		assertThat( scope.materialize(), is( diskProjectDir ) );
+	}
+
+	@Test
+	@Project( "simple" )
+	public void testOnDisk(ProjectScope scope) {
+		assertThat( scope.isInMemory(), is( false ) );
+		assertThat( scope.materialize(), is( scope.getProjectBaseDirectory() ) );
+	}
+}
@@ -20,10 +20,22 @@ public class IntegrationTests {
 	@Test
 	public void testIt() {
 		final ProjectContainer projectContainer = new ProjectContainer();
-		final ProjectScope projectScope = projectContainer.getProjectScope( "simple" );
-
-		final File projectBaseDir = projectScope.getProjectBaseDirectory();
+		try {
+			// only needs the project model - no need to stage the project on disk
+			final ProjectScope projectScope = projectContainer.getProjectScope( "simple", true );
+			try {
+				verifyPlugin( projectScope.getProjectBaseDirectory() );
+			}
+			finally {
+				projectScope.release();
+			}
+		}
+		finally {
+			projectContainer.release();
+		}
+	}
 
+	private static void verifyPlugin(File projectBaseDir) {
 		final Project project = ProjectBuilder.builder().withProjectDir( projectBaseDir ).build();
 
 		project.getPlugins().apply( TestKitPlugin.class );
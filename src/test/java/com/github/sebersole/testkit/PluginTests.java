@@ -58,4 +58,24 @@ public class PluginTests {
 			assertThat( taskResult.getOutcome(), is( TaskOutcome.UP_TO_DATE ) );
 		}
 	}
+
+	@Test
+	@Project( "simple" )
+	public void markerFileUpToDate(ProjectScope scope) {
+		{
+			final GradleRunner gradleRunner = scope.createGradleRunner( "clean", "generateTestKitMarkerFile" );
+			final BuildResult buildResult = gradleRunner.build();
+			final BuildTask taskResult = buildResult.task( ":generateTestKitMarkerFile" );
+			assertThat( taskResult, notNullValue() );
+			assertThat( taskResult.getOutcome(), is( TaskOutcome.SUCCESS ) );
+		}
+
+		// nothing changed - neither the resources nor the locator file are generated again
+		{
+			final GradleRunner gradleRunner = scope.createGradleRunner( "generateTestKitMarkerFile" );
+			final BuildResult buildResult = gradleRunner.build();
+			assertThat( buildResult.task( ":processTestKitResources" ).getOutcome(), is( TaskOutcome.UP_TO_DATE ) );
+			assertThat( buildResult.task( ":generateTestKitMarkerFile" ).getOutcome(), is( TaskOutcome.UP_TO_DATE ) );
+		}
+	}
 }
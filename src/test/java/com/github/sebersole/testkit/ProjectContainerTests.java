@@ -0,0 +1,336 @@
+package com.github.sebersole.testkit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_BASE_DIR;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_BUILD_OUTPUT;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_MEMORY_DIR;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_METRICS_DIR;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_POOL_SIZE;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_RECYCLE;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_SELECTION_INPUTS;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_STAGING_DIR;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_USAGE_FILE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Tests for staging and releasing projects through a {@link ProjectContainer}
+ */
+@ExtendWith( WorkDirExtension.class )
+public class ProjectContainerTests {
+	private static final String[] BASE_LAYER = { "base" };
+
+	@WorkDir
+	private Path workDir;
+	private Path baseDir;
+	private Path stagingDir;
+
+	@BeforeEach
+	public void createWorkDir() throws IOException {
+		baseDir = workDir.resolve( "projects" );
+		stagingDir = workDir.resolve( "staging" );
+
+		write( baseDir.resolve( "base/common.gradle" ), "// common" );
+		write( baseDir.resolve( "base/libs/lib.jar" ), "lib" );
+		write( baseDir.resolve( "first/build.gradle" ), "apply from: 'common.gradle'" );
+		write( baseDir.resolve( "second/build.gradle" ), "apply from: 'common.gradle'" );
+	}
+
+	@Test
+	public void testLayers() throws IOException {
+		final ProjectContainer container = createContainer();
+		// e.g. another test JVM sharing the staging directory
+		final ProjectContainer otherContainer = createContainer();
+		try {
+			final ProjectScope first = container.getProjectScope( "first", BASE_LAYER, false );
+			final ProjectScope second = container.getProjectScope( "second", BASE_LAYER, false );
+			final ProjectScope other = otherContainer.getProjectScope( "first", BASE_LAYER, false );
+
+			// the payload is linked to the layer staged by each container, the scripts are copied
+			assertThat( linkCount( second, "libs/lib.jar" ), is( 3 ) );
+			assertThat( linkCount( other, "libs/lib.jar" ), is( 2 ) );
+			assertThat( linkCount( second, "common.gradle" ), is( 1 ) );
+			write( first.getProjectBaseDirectory().toPath().resolve( "common.gradle" ), "// changed" );
+			assertThat( read( second, "common.gradle" ), is( "// common" ) );
+
+			first.release();
+			container.drainCleanup();
+			assertThat( first.getProjectBaseDirectory().exists(), is( false ) );
+			assertThat( read( second, "libs/lib.jar" ), is( "lib" ) );
+
+			other.release();
+			otherContainer.release();
+			assertThat( other.getProjectBaseDirectory().exists(), is( false ) );
+			assertThat( read( second, "libs/lib.jar" ), is( "lib" ) );
+			assertThat( read( second, "common.gradle" ), is( "// common" ) );
+
+			second.release();
+		}
+		finally {
+			otherContainer.release();
+			container.release();
+		}
+
+		// including the staged layers
+		assertThat( stagingDir.toFile().exists(), is( false ) );
+	}
+
+	@Test
+	public void testLazyInitialization() {
+		final Properties properties = settings();
+		properties.setProperty( TESTKIT_POOL_SIZE, "2" );
+		final Set<Thread> threads = testKitThreads();
+		final ProjectContainer container = new ProjectContainer( workDir.toFile(), properties );
+		try {
+			// e.g. a test class never asking for a scope - nothing is staged, primed or started
+			assertThat( stagingDir.toFile().exists(), is( false ) );
+			assertThat( newThreads( threads ), is( Collections.emptySet() ) );
+
+			final ProjectScope scope = container.getProjectScope( "first" );
+			assertThat( scope.getProjectBaseDirectory().toPath().startsWith( stagingDir ), is( true ) );
+			scope.release();
+		}
+		finally {
+			container.release();
+		}
+	}
+
+	@Test
+	public void testRecycling() throws IOException {
+		final Properties properties = settings();
+		properties.setProperty( TESTKIT_RECYCLE, "true" );
+		final ProjectContainer container = new ProjectContainer( workDir.toFile(), properties );
+		try {
+			final ProjectScope first = container.getProjectScope( "first" );
+			final File projectDir = first.getProjectBaseDirectory();
+			write( first.resolveForWrite( "build.gradle" ).toPath(), "apply from: 'other.gradle'" );
+			write( projectDir.toPath().resolve( "build/output.txt" ), "output" );
+			first.release();
+
+			// the restored copy is handed to the next test using the project
+			final ProjectScope second = container.getProjectScope( "first" );
+			assertThat( second.getProjectBaseDirectory(), is( projectDir ) );
+			assertThat( second.getMetrics().getFilesCopied(), is( 1L ) );
+			assertThat( read( second, "build.gradle" ), is( "apply from: 'common.gradle'" ) );
+			assertThat( new File( projectDir, "build" ).exists(), is( false ) );
+
+			// while in use, the next one is staged anew
+			final ProjectScope third = container.getProjectScope( "first" );
+			assertThat( third.getProjectBaseDirectory().equals( projectDir ), is( false ) );
+
+			third.release();
+			second.release();
+		}
+		finally {
+			container.release();
+		}
+
+		// including the queued copies
+		assertThat( stagingDir.toFile().exists(), is( false ) );
+	}
+
+	@Test
+	public void testMemoryStaging() throws IOException {
+		final Path memoryDir = Files.createDirectories( workDir.resolve( "memory" ) );
+		final Properties properties = settings();
+		properties.setProperty( TESTKIT_MEMORY_DIR, memoryDir.toString() );
+		assertThat( ProjectContainer.extractMemoryDir( properties ), is( memoryDir.toFile() ) );
+
+		final ProjectContainer container = new ProjectContainer( workDir.toFile(), properties );
+		try {
+			final ProjectScope scope = container.getProjectScope( "first", true );
+			assertThat( scope.isInMemory(), is( true ) );
+			assertThat( scope.getProjectBaseDirectory().toPath().startsWith( memoryDir ), is( true ) );
+			assertThat( read( scope, "build.gradle" ), is( "apply from: 'common.gradle'" ) );
+			scope.release();
+		}
+		finally {
+			container.release();
+		}
+		assertThat( memoryDir.toFile().list(), is( new String[0] ) );
+
+		// staged on disk instead
+		properties.setProperty( TESTKIT_MEMORY_DIR, "" );
+		assertThat( ProjectContainer.extractMemoryDir( properties ), nullValue() );
+		final ProjectContainer onDisk = new ProjectContainer( workDir.toFile(), properties );
+		try {
+			final ProjectScope scope = onDisk.getProjectScope( "first", true );
+			assertThat( scope.getProjectBaseDirectory().toPath().startsWith( stagingDir ), is( true ) );
+			scope.release();
+		}
+		finally {
+			onDisk.release();
+		}
+	}
+
+	@Test
+	public void testBuildLogs() {
+		final Properties properties = settings();
+		properties.setProperty( TESTKIT_BUILD_OUTPUT, "file" );
+		final ProjectContainer container = new ProjectContainer( workDir.toFile(), properties );
+		final File keptLog;
+		try {
+			final ProjectScope passed = container.getProjectScope( "first" );
+			passed.createGradleRunner( "help" );
+			final File passedLog = passed.getBuildLog().getFile();
+			// not configured, so next to the staged projects
+			assertThat( passedLog.toPath().startsWith( stagingDir ), is( true ) );
+			passed.release();
+			assertThat( passedLog.exists(), is( false ) );
+
+			// as for a failed test
+			final ProjectScope failed = container.getProjectScope( "first" );
+			failed.createGradleRunner( "help" );
+			failed.keepBuildLog();
+			failed.release();
+			keptLog = failed.getBuildLog().getFile();
+		}
+		finally {
+			container.release();
+		}
+		assertThat( keptLog.exists(), is( true ) );
+	}
+
+	@Test
+	public void testSuiteScope() throws Exception {
+		final Path metricsDir = workDir.resolve( "metrics" );
+		final Properties properties = settings();
+		properties.setProperty( TESTKIT_METRICS_DIR, metricsDir.toString() );
+		final ProjectContainer container = new ProjectContainer( workDir.toFile(), properties );
+		final ProjectScope scope;
+		final ExecutorService executor = Executors.newFixedThreadPool( 4 );
+		try {
+			// e.g. concurrently executing tests - staged once
+			final List<Future<ProjectScope>> requests = new ArrayList<>();
+			for ( int i = 0; i < 8; i++ ) {
+				requests.add( executor.submit( () -> container.getSuiteProjectScope( "first", BASE_LAYER, false ) ) );
+			}
+			scope = requests.get( 0 ).get();
+			for ( Future<ProjectScope> request : requests ) {
+				assertThat( request.get(), sameInstance( scope ) );
+			}
+		}
+		finally {
+			executor.shutdown();
+			container.release();
+		}
+
+		// recorded once the scope is released along with the container
+		assertThat( scope.getProjectBaseDirectory().exists(), is( false ) );
+		final List<String> summary = Files.readAllLines( metricsDir.resolve( "worker-0.tsv" ), UTF_8 );
+		assertThat( summary.size(), is( 2 ) );
+		assertThat( summary.get( 1 ).startsWith( "[suite]\tfirst\t" ), is( true ) );
+	}
+
+	@Test
+	public void testUsage() {
+		final File usageFile = workDir.resolve( "usage.tsv" ).toFile();
+		final File inputsFile = workDir.resolve( "inputs.tsv" ).toFile();
+		final Map<String, String> inputs = new HashMap<>();
+		inputs.put( "class:com.acme.FirstTests", "1" );
+		inputs.put( "class:com.acme.SecondTests", "2" );
+		inputs.put( "class:com.acme.PlainTests", "3" );
+		inputs.put( "fixture:first", "4" );
+		inputs.put( "fixture:base", "5" );
+		inputs.put( "plugin", "6" );
+		TestUsage.writeInputs( inputsFile, inputs );
+
+		final Properties properties = settings();
+		properties.setProperty( TESTKIT_USAGE_FILE, usageFile.getAbsolutePath() );
+		properties.setProperty( TESTKIT_SELECTION_INPUTS, inputsFile.getAbsolutePath() );
+		final ProjectContainer container = new ProjectContainer( workDir.toFile(), properties );
+		try {
+			// as recorded by the extension
+			final ProjectScope scope = container.getProjectScope( "first", BASE_LAYER, false );
+			container.recordProjectUse( "com.acme.FirstTests", "first", BASE_LAYER, scope.getMetrics() );
+			scope.release();
+			container.recordClassCompletion( "com.acme.FirstTests" );
+
+			container.recordTestFailure( "com.acme.SecondTests" );
+			container.recordClassCompletion( "com.acme.SecondTests" );
+
+			// never using a project
+			container.recordClassCompletion( "com.acme.PlainTests" );
+
+			// e.g. interrupted
+			container.recordProjectUse( "com.acme.IncompleteTests", "first", BASE_LAYER, scope.getMetrics() );
+		}
+		finally {
+			container.release();
+		}
+
+		final TestUsage usage = TestUsage.read( usageFile );
+		final TestUsage.Record first = usage.get( "com.acme.FirstTests" );
+		assertThat( first.isPassed(), is( true ) );
+		// no builds were run, so the plugin does not matter
+		assertThat( first.getInputs().keySet(), is( new HashSet<>( Arrays.asList( "class:com.acme.FirstTests", "fixture:first", "fixture:base" ) ) ) );
+		assertThat( usage.get( "com.acme.SecondTests" ).isPassed(), is( false ) );
+		assertThat( usage.get( "com.acme.PlainTests" ).getInputs().keySet(), is( Collections.singleton( "class:com.acme.PlainTests" ) ) );
+		assertThat( usage.get( "com.acme.IncompleteTests" ), nullValue() );
+
+		assertThat(
+				usage.selectAffected( Arrays.asList( "com.acme.FirstTests", "com.acme.SecondTests", "com.acme.PlainTests" ), inputs ),
+				is( Collections.singleton( "com.acme.SecondTests" ) )
+		);
+	}
+
+	private static Set<Thread> testKitThreads() {
+		return Thread.getAllStackTraces().keySet().stream()
+				.filter( thread -> thread.getName().startsWith( "testkit-" ) )
+				.collect( Collectors.toSet() );
+	}
+
+	private static Set<Thread> newThreads(Set<Thread> threads) {
+		final Set<Thread> newThreads = testKitThreads();
+		newThreads.removeAll( threads );
+		return newThreads;
+	}
+
+	private ProjectContainer createContainer() {
+		return new ProjectContainer( workDir.toFile(), settings() );
+	}
+
+	private Properties settings() {
+		final Properties properties = new Properties();
+		properties.setProperty( TESTKIT_BASE_DIR, baseDir.toString() );
+		properties.setProperty( TESTKIT_STAGING_DIR, stagingDir.toString() );
+		return properties;
+	}
+
+	private static int linkCount(ProjectScope scope, String path) throws IOException {
+		return (Integer) Files.getAttribute( scope.getProjectBaseDirectory().toPath().resolve( path ), "unix:nlink" );
+	}
+
+	private static String read(ProjectScope scope, String path) throws IOException {
+		return new String( Files.readAllBytes( scope.getProjectBaseDirectory().toPath().resolve( path ) ), UTF_8 );
+	}
+
+	private static void write(Path file, String content) throws IOException {
+		Files.createDirectories( file.getParent() );
+		Files.write( file, content.getBytes( UTF_8 ) );
+	}
+}
@@ -0,0 +1,56 @@
+package com.github.sebersole.testkit;
+
+import java.io.File;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ProjectScopePoolTests {
+	@Test
+	public void testPooledScopes() throws InterruptedException {
+		final AtomicInteger stagedCount = new AtomicInteger();
+		// released once per staged copy
+		final Semaphore staged = new Semaphore( 0 );
+		final ProjectScopePool pool = new ProjectScopePool(
+				2,
+				projectName -> {
+					final ProjectScope scope = new ProjectScope( new File( projectName + stagedCount.incrementAndGet() ) );
+					staged.release();
+					return scope;
+				}
+		);
+
+		try {
+			// nothing is staged until the project is requested
+			assertThat( stagedCount.get(), is( 0 ) );
+
+			// staged on the calling thread, the pool is filled in the background
+			final ProjectScope onFirstRequest = pool.take( "simple" );
+			assertThat( onFirstRequest.getProjectBaseDirectory().getName(), is( "simple1" ) );
+			assertThat( staged.tryAcquire( 3, 10, TimeUnit.SECONDS ), is( true ) );
+
+			final ProjectScope first = pool.take( "simple" );
+			final ProjectScope second = pool.take( "simple" );
+			assertThat( first, not( sameInstance( second ) ) );
+			assertThat( first, not( sameInstance( onFirstRequest ) ) );
+
+			// each taken copy is replaced in the background
+			assertThat( staged.tryAcquire( 2, 10, TimeUnit.SECONDS ), is( true ) );
+		}
+		finally {
+			pool.close();
+		}
+
+		// once closed, copies are staged on demand
+		assertThat( stagedCount.get(), is( 5 ) );
+		final ProjectScope onDemand = pool.take( "simple" );
+		assertThat( onDemand.getProjectBaseDirectory().getName(), is( "simple6" ) );
+	}
+}
@@ -0,0 +1,90 @@
+package com.github.sebersole.testkit;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+@ExtendWith( WorkDirExtension.class )
+public class ProjectSnapshotTests {
+	@WorkDir
+	private Path workDir;
+	private Path source;
+	private Path target;
+
+	@BeforeEach
+	public void createFixture() throws IOException {
+		source = workDir.resolve( "source" );
+		target = workDir.resolve( "target" );
+
+		write( source.resolve( "build.gradle" ), "plugins { id 'java' }" );
+		write( source.resolve( "settings.gradle" ), "" );
+		write( source.resolve( "src/main/java/Thing.java" ), "class Thing {}" );
+		write( source.resolve( "src/main/resources/thing.properties" ), "thing=true" );
+		for ( int i = 0; i < 100; i++ ) {
+			write( source.resolve( "src/test/java/Test" + i + ".java" ), "class Test" + i + " {}" );
+		}
+
+		Files.createDirectories( target );
+		DirectoryCopier.copy( source, target );
+	}
+
+	@Test
+	public void testRestore() throws IOException {
+		final ProjectSnapshot snapshot = ProjectSnapshot.capture( target );
+
+		// what a test (and its builds) typically does
+		write( target.resolve( "build.gradle" ), "plugins { id 'java-library' }" );
+		write( target.resolve( "build/classes/java/main/Thing.class" ), "" );
+		write( target.resolve( "gradle.properties" ), "org.gradle.caching=true" );
+		Files.delete( target.resolve( "settings.gradle" ) );
+		Files.delete( target.resolve( "src/main/resources/thing.properties" ) );
+		Files.delete( target.resolve( "src/main/resources" ) );
+
+		final ScopeMetrics metrics = new ScopeMetrics( "source" );
+		final int restored = snapshot.restore( source, target, metrics );
+
+		// build.gradle, build/, gradle.properties, settings.gradle, src/main/resources
+		assertThat( restored, is( 5 ) );
+		// including thing.properties of the restored directory
+		assertThat( metrics.getFilesCopied(), is( 3L ) );
+		assertThat( FixtureIndex.build( workDir.toFile() ).diff( "source", target ).isEmpty(), is( true ) );
+		assertThat( Files.exists( target.resolve( "build" ) ), is( false ) );
+
+		// nothing changed since
+		assertThat( snapshot.restore( source, target, null ), is( 0 ) );
+	}
+
+	@Test
+	public void testSameSizeRewrite() throws IOException {
+		final ProjectSnapshot snapshot = ProjectSnapshot.capture( target, FixtureIndex.build( workDir.toFile() ), "source" );
+
+		// same size and modification time, different content
+		final Path thing = target.resolve( "src/main/java/Thing.java" );
+		final FileTime lastModified = Files.getLastModifiedTime( thing );
+		write( thing, "class Xyzzy {}" );
+		Files.setLastModifiedTime( thing, lastModified );
+		CleanupService.deleteRecursively( target.resolve( "src/test" ) );
+
+		final ScopeMetrics metrics = new ScopeMetrics( "source" );
+		// Thing.java and src/test
+		assertThat( snapshot.restore( source, target, metrics ), is( 2 ) );
+		// including the restored directory
+		assertThat( metrics.getFilesCopied(), is( 101L ) );
+		assertThat( FixtureIndex.build( workDir.toFile() ).diff( "source", target ).isEmpty(), is( true ) );
+		assertThat( snapshot.restore( source, target, null ), is( 0 ) );
+	}
+
+	private static void write(Path file, String content) throws IOException {
+		Files.createDirectories( file.getParent() );
+		Files.write( file, content.getBytes( UTF_8 ) );
+	}
+}
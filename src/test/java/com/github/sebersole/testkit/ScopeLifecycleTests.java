@@ -0,0 +1,54 @@
+package com.github.sebersole.testkit;
+
+import java.io.File;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.RepeatedTest;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Tests for sharing {@link ProjectScope}s according to {@link ScopeLifecycle}
+ */
+@TestKit
+public class ScopeLifecycleTests {
+	private static final int REPETITIONS = 5;
+
+	private static final Set<File> methodDirectories = ConcurrentHashMap.newKeySet();
+	private static final Set<File> classDirectories = ConcurrentHashMap.newKeySet();
+	private static final Set<File> suiteDirectories = ConcurrentHashMap.newKeySet();
+
+	@RepeatedTest( REPETITIONS )
+	@Project( "simple" )
+	public void testPerMethod(ProjectScope scope) {
+		methodDirectories.add( scope.getProjectBaseDirectory() );
+	}
+
+	@RepeatedTest( REPETITIONS )
+	@Project( value = "simple", lifecycle = ScopeLifecycle.PER_CLASS )
+	public void testPerClass(ProjectScope scope) {
+		assertThat( new File( scope.getProjectBaseDirectory(), "build.gradle" ).isFile(), is( true ) );
+		classDirectories.add( scope.getProjectBaseDirectory() );
+	}
+
+	@RepeatedTest( REPETITIONS )
+	public void testPerSuite(
+			@Project( value = "simple", lifecycle = ScopeLifecycle.PER_SUITE ) ProjectScope first,
+			@Project( value = "simple", lifecycle = ScopeLifecycle.PER_SUITE ) ProjectScope second) {
+		assertThat( first == second, is( true ) );
+		suiteDirectories.add( first.getProjectBaseDirectory() );
+	}
+
+	@AfterAll
+	public static void verifySharing() {
+		assertThat( methodDirectories.size(), is( REPETITIONS ) );
+		assertThat( classDirectories.size(), is( 1 ) );
+		assertThat( suiteDirectories.size(), is( 1 ) );
+
+		// only released after all tests of the class
+		assertThat( classDirectories.iterator().next().isDirectory(), is( true ) );
+	}
+}
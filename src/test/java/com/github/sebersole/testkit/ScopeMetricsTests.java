@@ -0,0 +1,56 @@
+package com.github.sebersole.testkit;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Tests for the {@link ScopeMetrics} collected while staging and releasing projects
+ */
+@TestKit
+public class ScopeMetricsTests {
+	@Test
+	@Project( "simple" )
+	public void testStagingMetrics(ProjectScope scope) throws IOException {
+		final ScopeMetrics metrics = scope.getMetrics();
+		assertThat( metrics.getProjectName(), is( "simple" ) );
+
+		long files = 0;
+		long bytes = 0;
+		try ( Stream<Path> paths = Files.walk( scope.getProjectBaseDirectory().toPath() ) ) {
+			for ( Path file : (Iterable<Path>) paths.filter( Files::isRegularFile )::iterator ) {
+				files++;
+				bytes += Files.size( file );
+			}
+		}
+		assertThat( metrics.getFilesCopied() + metrics.getFilesLinked(), is( files ) );
+		assertThat( metrics.getBytesCopied() <= bytes, is( true ) );
+		assertThat( metrics.getBuilds(), is( 0L ) );
+
+		assertThat( metrics.toReportEntries().get( "testkit.files-copied" ), is( Long.toString( metrics.getFilesCopied() ) ) );
+	}
+
+	@Test
+	public void testSummaryLine() {
+		final ScopeMetrics metrics = new ScopeMetrics( "simple" );
+		metrics.staged( 5_000_000 );
+		metrics.fileCopied( 100 );
+		metrics.fileCopied( 24 );
+		metrics.fileLinked();
+		metrics.built( 2_000_000_000 );
+		metrics.built( 1_000_000_000 );
+		metrics.cleanedUp( 1_000_000 );
+
+		assertThat(
+				metrics.toSummaryLine( "[engine:junit-jupiter]" ),
+				is( "[engine:junit-jupiter]\tsimple\t5\t2\t124\t1\t2\t3000\t1" )
+		);
+		assertThat( metrics.toSummaryLine( "x" ).split( "\t" ).length, is( ScopeMetrics.SUMMARY_HEADER.split( "\t" ).length ) );
+	}
+}
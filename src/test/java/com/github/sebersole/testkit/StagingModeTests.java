@@ -0,0 +1,160 @@
+package com.github.sebersole.testkit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ * Tests for {@link StagingMode#LINK} staging, including its disk usage compared
+ * to {@link StagingMode#COPY} - the staging times are compared by {@code DirectoryCopierBenchmark}
+ */
+@ExtendWith( WorkDirExtension.class )
+public class StagingModeTests {
+	@WorkDir
+	private Path workDir;
+	private Path fixtureDir;
+
+	@BeforeEach
+	public void createFixture() throws IOException {
+		fixtureDir = workDir.resolve( "fixture" );
+
+		final Random random = new Random( 1 );
+		write( fixtureDir.resolve( "build.gradle" ), "plugins { id 'java' }".getBytes( UTF_8 ) );
+		write( fixtureDir.resolve( "settings.gradle" ), new byte[0] );
+		write( fixtureDir.resolve( "gradle/wrapper/gradle-wrapper.properties" ), "distributionUrl=x".getBytes( UTF_8 ) );
+		write( fixtureDir.resolve( "gradle/wrapper/gradle-wrapper.jar" ), randomBytes( random, 64 * 1024 ) );
+		for ( int i = 0; i < 20; i++ ) {
+			write( fixtureDir.resolve( "libs/lib" + i + ".jar" ), randomBytes( random, 256 * 1024 ) );
+		}
+		for ( int i = 0; i < 200; i++ ) {
+			write( fixtureDir.resolve( "src/main/java/Source" + i + ".java" ), ( "class Source" + i + " {}" ).getBytes( UTF_8 ) );
+		}
+	}
+
+	@Test
+	public void testLinkableFiles() {
+		assertThat( DirectoryCopier.isLinkable( Paths.get( "libs/some.jar" ) ), is( true ) );
+		assertThat( DirectoryCopier.isLinkable( Paths.get( "gradle/wrapper/gradle-wrapper.properties" ) ), is( true ) );
+		assertThat( DirectoryCopier.isLinkable( Paths.get( "build.gradle" ) ), is( false ) );
+		assertThat( DirectoryCopier.isLinkable( Paths.get( "src/gradle/wrapper.txt" ) ), is( false ) );
+	}
+
+	@Test
+	public void testLinkStaging() throws IOException {
+		final Path target = workDir.resolve( "linked" );
+		Files.createDirectories( target );
+
+		final Set<Path> linkedFiles = DirectoryCopier.link( fixtureDir, target );
+		if ( linkedFiles.isEmpty() ) {
+			// the file system does not support links; we should have fallen back to copying
+			assertThat( Files.isSameFile( fixtureDir.resolve( "libs/lib0.jar" ), target.resolve( "libs/lib0.jar" ) ), is( false ) );
+			return;
+		}
+
+		assertThat( linkedFiles, hasItem( Paths.get( "libs", "lib0.jar" ) ) );
+		assertThat( linkedFiles, not( hasItem( Paths.get( "build.gradle" ) ) ) );
+		assertThat( Files.isSameFile( fixtureDir.resolve( "libs/lib0.jar" ), target.resolve( "libs/lib0.jar" ) ), is( true ) );
+		assertThat( Files.isSameFile( fixtureDir.resolve( "build.gradle" ), target.resolve( "build.gradle" ) ), is( false ) );
+
+		// writing to a linked file through the scope must not affect the fixture
+		final ProjectScope scope = new ProjectScope( target.toFile(), linkedFiles );
+		final File writable = scope.resolveForWrite( "libs/lib0.jar" );
+		assertThat( Files.isSameFile( fixtureDir.resolve( "libs/lib0.jar" ), writable.toPath() ), is( false ) );
+
+		Files.write( writable.toPath(), "changed".getBytes( UTF_8 ) );
+		assertThat( new String( Files.readAllBytes( fixtureDir.resolve( "libs/lib0.jar" ) ), UTF_8 ), not( containsString( "changed" ) ) );
+	}
+
+	@Test
+	public void testLayering() throws IOException {
+		final Path baseLayer = workDir.resolve( "base" );
+		write( baseLayer.resolve( "buildSrc/build.gradle" ), "plugins { id 'groovy' }".getBytes( UTF_8 ) );
+		write( baseLayer.resolve( "settings.gradle" ), "// base".getBytes( UTF_8 ) );
+
+		final Path target = workDir.resolve( "layered" );
+		Files.createDirectories( target );
+		DirectoryCopier.copy( fixtureDir, target );
+
+		final ScopeMetrics metrics = new ScopeMetrics( "fixture" );
+		final Set<Path> linkedFiles = DirectoryCopier.underlay( baseLayer, target, true, metrics );
+
+		// the project's own files win
+		assertThat( Files.readAllBytes( target.resolve( "settings.gradle" ) ).length, is( 0 ) );
+		assertThat( Files.exists( target.resolve( "buildSrc/build.gradle" ) ), is( true ) );
+		if ( linkedFiles.isEmpty() ) {
+			// the file system does not support links; we should have fallen back to copying
+			assertThat( metrics.getFilesCopied(), is( 1L ) );
+			return;
+		}
+
+		assertThat( linkedFiles, is( Collections.singleton( Paths.get( "buildSrc", "build.gradle" ) ) ) );
+		assertThat( metrics.getFilesLinked(), is( 1L ) );
+		assertThat( Files.isSameFile( baseLayer.resolve( "buildSrc/build.gradle" ), target.resolve( "buildSrc/build.gradle" ) ), is( true ) );
+	}
+
+	@Test
+	public void testLinkDiskUsage() throws IOException {
+		final Path copyTarget = Files.createDirectories( workDir.resolve( "copy" ) );
+		DirectoryCopier.copy( fixtureDir, copyTarget );
+
+		final Path linkTarget = Files.createDirectories( workDir.resolve( "link" ) );
+		if ( DirectoryCopier.link( fixtureDir, linkTarget ).isEmpty() ) {
+			// the file system does not support links
+			return;
+		}
+
+		assertThat( privateBytes( linkTarget ), lessThan( privateBytes( copyTarget ) ) );
+	}
+
+	/**
+	 * The number of bytes in the staged directory which are not shared with the fixture
+	 */
+	private long privateBytes(Path stagedDir) throws IOException {
+		final AtomicLong bytes = new AtomicLong();
+		try ( Stream<Path> paths = Files.walk( stagedDir ) ) {
+			paths.filter( Files::isRegularFile ).forEach(
+					file -> {
+						try {
+							if ( !Files.isSameFile( file, fixtureDir.resolve( stagedDir.relativize( file ) ) ) ) {
+								bytes.addAndGet( Files.size( file ) );
+							}
+						}
+						catch (IOException e) {
+							throw new IllegalStateException( e );
+						}
+					}
+			);
+		}
+		return bytes.get();
+	}
+
+	private static byte[] randomBytes(Random random, int size) {
+		final byte[] bytes = new byte[size];
+		random.nextBytes( bytes );
+		return bytes;
+	}
+
+	private static void write(Path file, byte[] content) throws IOException {
+		Files.createDirectories( file.getParent() );
+		Files.write( file, content );
+	}
+}
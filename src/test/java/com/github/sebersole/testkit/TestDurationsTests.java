@@ -0,0 +1,103 @@
+package com.github.sebersole.testkit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+@ExtendWith( WorkDirExtension.class )
+public class TestDurationsTests {
+	@WorkDir
+	private Path workDir;
+
+	@Test
+	public void testRecord() throws IOException {
+		final File durationsFile = workDir.resolve( "testKit/durations.tsv" ).toFile();
+		assertThat( TestDurations.read( durationsFile ).get( "a.FirstTests" ), is( 0L ) );
+
+		final Map<String, Long> firstFork = new HashMap<>();
+		firstFork.put( "a.FirstTests", 1000L );
+		firstFork.put( "a.SecondTests", 200L );
+		TestDurations.record( durationsFile, firstFork );
+		TestDurations.record( durationsFile, Collections.singletonMap( "b.ThirdTests", 50L ) );
+
+		// the next run - averaged with the recorded duration
+		TestDurations.record( durationsFile, Collections.singletonMap( "a.FirstTests", 3000L ) );
+
+		final TestDurations durations = TestDurations.read( durationsFile );
+		assertThat( durations.get( "a.FirstTests" ), is( 2000L ) );
+		assertThat( durations.get( "a.SecondTests" ), is( 200L ) );
+		assertThat( durations.get( "b.ThirdTests" ), is( 50L ) );
+	}
+
+	@Test
+	public void testRecordLargeFile() throws IOException {
+		final File durationsFile = workDir.resolve( "durations.tsv" ).toFile();
+		// spanning several read buffers
+		final Map<String, Long> recorded = new HashMap<>();
+		for ( int i = 0; i < 2000; i++ ) {
+			recorded.put( "com.acme.tests.Tests" + i, (long) i );
+		}
+		TestDurations.record( durationsFile, recorded );
+		assertThat( durationsFile.length() > 3 * 8 * 1024, is( true ) );
+
+		TestDurations.record( durationsFile, Collections.singletonMap( "com.acme.tests.Tests1999", 1L ) );
+		final TestDurations durations = TestDurations.read( durationsFile );
+		assertThat( durations.get( "com.acme.tests.Tests0" ), is( 0L ) );
+		assertThat( durations.get( "com.acme.tests.Tests1000" ), is( 1000L ) );
+		assertThat( durations.get( "com.acme.tests.Tests1999" ), is( 1000L ) );
+	}
+
+	@Test
+	public void testQuantize() {
+		assertThat( TestDurations.quantize( 0 ), is( 0L ) );
+		assertThat( TestDurations.quantize( 1 ), is( 1L ) );
+		assertThat( TestDurations.quantize( 1000 ), is( 1024L ) );
+		assertThat( TestDurations.quantize( 1100 ), is( 1024L ) );
+		assertThat( TestDurations.quantize( 1400 ), is( 1448L ) );
+	}
+
+	@Test
+	public void testBalance() throws IOException {
+		final File durationsFile = workDir.resolve( "durations.tsv" ).toFile();
+		final Map<String, Long> recorded = new HashMap<>();
+		recorded.put( "HeavyTests", 60_000L );
+		recorded.put( "OtherHeavyTests", 50_000L );
+		recorded.put( "MediumTests", 20_000L );
+		recorded.put( "OtherMediumTests", 20_000L );
+		recorded.put( "LightTests", 1_000L );
+		TestDurations.record( durationsFile, recorded );
+
+		final List<String> classNames = Arrays.asList(
+				"HeavyTests",
+				"LightTests",
+				"MediumTests",
+				"OtherHeavyTests",
+				"OtherMediumTests",
+				"UnknownTests"
+		);
+		final TestDurations durations = TestDurations.read( durationsFile );
+
+		// fork = position % forks
+		assertThat(
+				durations.balance( classNames, 2 ),
+				is( Arrays.asList( "HeavyTests", "OtherHeavyTests", "OtherMediumTests", "MediumTests", "UnknownTests", "LightTests" ) )
+		);
+		// the heavy tests end up on different forks, the lighter ones on the least loaded
+		assertThat(
+				durations.balance( classNames, 3 ),
+				is( Arrays.asList( "HeavyTests", "OtherHeavyTests", "MediumTests", "UnknownTests", "LightTests", "OtherMediumTests" ) )
+		);
+		assertThat( durations.balance( classNames, 1 ).size(), is( 6 ) );
+	}
+}
@@ -0,0 +1,114 @@
+package com.github.sebersole.testkit;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.gradle.api.Project;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.plugin.devel.plugins.JavaGradlePluginPlugin;
+import org.gradle.api.plugins.JavaPluginConvention;
+import org.gradle.api.tasks.SourceSet;
+import org.gradle.testfixtures.ProjectBuilder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static com.github.sebersole.testkit.TestKitPlugin.MARKER_FILE_NAME;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_BUILD_RESULT_CACHE_SIZE;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_GRADLE_VERSION;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_METRICS_DIR;
+import static com.github.sebersole.testkit.TestKitPlugin.TESTKIT_POOL_SIZE;
+import static com.github.sebersole.testkit.TestKitPlugin.TEST_KIT;
+import static com.github.sebersole.testkit.TestKitPlugin.TEST_TASK_NAME;
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Tests for the model configured by applying the {@link TestKitPlugin}
+ */
+@ExtendWith( WorkDirExtension.class )
+public class TestKitPluginTests {
+	@WorkDir
+	private Path workDir;
+
+	@Test
+	public void testLazyConfiguration() {
+		final Project project = ProjectBuilder.builder().withProjectDir( workDir.resolve( "project" ).toFile() ).build();
+		project.getPluginManager().apply( JavaGradlePluginPlugin.class );
+		final List<String> createdTasks = new ArrayList<>();
+		project.getTasks().whenTaskAdded( task -> createdTasks.add( task.getName() ) );
+
+		project.getPluginManager().apply( TestKitPlugin.class );
+		assertThat( createdTasks, is( Collections.emptyList() ) );
+
+		// configured by the DSL after applying the plugin
+		final TestKitSpec testKitSpec = project.getExtensions().getByType( TestKitSpec.class );
+		testKitSpec.getForks().set( 3 );
+		testKitSpec.getForkEvery().set( 20L );
+		( (ProjectInternal) project ).evaluate();
+		final org.gradle.api.tasks.testing.Test testKitTest = (org.gradle.api.tasks.testing.Test) project.getTasks().getByName( TEST_TASK_NAME );
+		assertThat( testKitTest.getMaxParallelForks(), is( 3 ) );
+		assertThat( testKitTest.getForkEvery(), is( 20L ) );
+		assertThat( testKitTest.getEnvironment().get( SeedDependencyCacheTask.RO_DEP_CACHE_ENV ).toString(), is( "" ) );
+
+		// once seeded, for builds running a version supporting the cache
+		testKitSpec.getSeedDependencyCache().set( true );
+		testKitTest.systemProperty( TESTKIT_GRADLE_VERSION, "6.2" );
+		final SeedDependencyCacheTask seedCacheTask = (SeedDependencyCacheTask) project.getTasks().getByName( "seedTestKitDependencyCache" );
+		assertThat(
+				testKitTest.getEnvironment().get( SeedDependencyCacheTask.RO_DEP_CACHE_ENV ).toString(),
+				is( seedCacheTask.getCacheDirectory().get().getAsFile().getAbsolutePath() )
+		);
+	}
+
+	@Test
+	public void testLocatorClasspath() {
+		final Project project = createProject();
+		final GenerateLocatorFileTask task = (GenerateLocatorFileTask) project.getTasks().getByName( "generateTestKitMarkerFile" );
+		final File locatorFile = task.getLocatorFile().get().getAsFile();
+		assertThat( locatorFile.getName(), is( MARKER_FILE_NAME ) );
+		assertThat( outputDirs( project ), hasItem( locatorFile.getParentFile() ) );
+
+		// the classpath follows the file the task generates
+		final File movedFile = new File( project.getBuildDir(), "locator/" + MARKER_FILE_NAME );
+		task.getLocatorFile().set( movedFile );
+		assertThat( outputDirs( project ), hasItem( movedFile.getParentFile() ) );
+		assertThat( outputDirs( project ), not( hasItem( locatorFile.getParentFile() ) ) );
+	}
+
+	@Test
+	public void testLocatorSettings() {
+		final Project project = createProject();
+		final TestKitSpec testKitSpec = project.getExtensions().getByType( TestKitSpec.class );
+		final GenerateLocatorFileTask task = (GenerateLocatorFileTask) project.getTasks().getByName( "generateTestKitMarkerFile" );
+		assertThat( task.getSettings().get().get( TESTKIT_POOL_SIZE ), is( "0" ) );
+		assertThat( task.getSettings().get().get( TESTKIT_BUILD_RESULT_CACHE_SIZE ), is( "0" ) );
+
+		// configured by the DSL after applying the plugin
+		testKitSpec.poolSize( 2 );
+		testKitSpec.getCacheBuildResults().set( true );
+		assertThat( task.getSettings().get().get( TESTKIT_POOL_SIZE ), is( "2" ) );
+		assertThat( task.getSettings().get().get( TESTKIT_BUILD_RESULT_CACHE_SIZE ), is( "256" ) );
+		assertThat( task.getLocations().get( TESTKIT_METRICS_DIR ), is( "../metrics" ) );
+	}
+
+	private Project createProject() {
+		final Project project = ProjectBuilder.builder().withProjectDir( workDir.resolve( "project" ).toFile() ).build();
+		project.getPluginManager().apply( TestKitPlugin.class );
+		return project;
+	}
+
+	/**
+	 * The directories the TestKit source set adds to its runtime classpath
+	 */
+	private static Set<File> outputDirs(Project project) {
+		final SourceSet testKitSourceSet = project.getConvention().getPlugin( JavaPluginConvention.class ).getSourceSets().getByName( TEST_KIT );
+		return testKitSourceSet.getOutput().getDirs().getFiles();
+	}
+}
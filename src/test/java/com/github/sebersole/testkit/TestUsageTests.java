@@ -0,0 +1,269 @@
+package com.github.sebersole.testkit;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.is;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+@ExtendWith( WorkDirExtension.class )
+public class TestUsageTests {
+	@WorkDir
+	private Path workDir;
+
+	@Test
+	public void testSelectAffected() throws IOException {
+		final File usageFile = workDir.resolve( "usage.tsv" ).toFile();
+		TestUsage.record(
+				usageFile,
+				Arrays.asList(
+						new TestUsage.Record( "com.acme.FirstTests", true, inputs( "class:com.acme.FirstTests", "1", "fixture:basic", "2" ) ),
+						new TestUsage.Record( "com.acme.SecondTests", true, inputs( "class:com.acme.SecondTests", "3", "fixture:layered", "4", "plugin", "5" ) ),
+						new TestUsage.Record( "com.acme.ThirdTests", false, inputs( "class:com.acme.ThirdTests", "6" ) )
+				)
+		);
+
+		final Map<String, String> current = inputs(
+				"class:com.acme.FirstTests", "1",
+				"class:com.acme.SecondTests", "3",
+				"class:com.acme.ThirdTests", "6",
+				"fixture:basic", "2",
+				"fixture:layered", "changed",
+				"plugin", "5"
+		);
+		final TestUsage usage = TestUsage.read( usageFile );
+		assertThat(
+				usage.selectAffected( Arrays.asList( "com.acme.FirstTests", "com.acme.SecondTests", "com.acme.ThirdTests", "com.acme.NewTests" ), current ),
+				is( new TreeSet<>( Arrays.asList( "com.acme.NewTests", "com.acme.SecondTests", "com.acme.ThirdTests" ) ) )
+		);
+		assertThat( usage.get( "com.acme.SecondTests" ).changedInputs( current ), is( Collections.singleton( "fixture:layered" ) ) );
+
+		// a later run of a class replaces its record
+		TestUsage.record(
+				usageFile,
+				Collections.singletonList(
+						new TestUsage.Record( "com.acme.SecondTests", true, inputs( "class:com.acme.SecondTests", "3", "fixture:layered", "changed", "plugin", "5" ) )
+				)
+		);
+		final TestUsage updated = TestUsage.read( usageFile );
+		assertThat( updated.selectAffected( Collections.singletonList( "com.acme.SecondTests" ), current ).isEmpty(), is( true ) );
+		assertThat( updated.get( "com.acme.FirstTests" ).isPassed(), is( true ) );
+		assertThat( updated.get( "com.acme.Unknown" ), nullValue() );
+	}
+
+	@Test
+	public void testInputsRoundTrip() {
+		final File inputsFile = workDir.resolve( "selection/inputs.tsv" ).toFile();
+		final Map<String, String> inputs = inputs( "class:com.acme.FirstTests", "1", "fixture:with space", "2", "plugin", "3" );
+		TestUsage.writeInputs( inputsFile, inputs );
+		assertThat( TestUsage.readInputs( inputsFile ), is( inputs ) );
+	}
+
+	@Test
+	public void testClassReferences() throws Exception {
+		final Path classFile = classFile( Referencing.class );
+		assertThat( ClassReferences.read( classFile ), hasItem( Referenced.class.getName() ) );
+		assertThat( ClassReferences.read( classFile ), hasItem( TestUsage.class.getName() ) );
+		assertThat( ClassReferences.read( classFile ), not( hasItem( Unreferenced.class.getName() ) ) );
+	}
+
+	@Test
+	public void testClassClosureHash() throws Exception {
+		final Path classesDir = workDir.resolve( "classes" );
+		for ( Class<?> testClass : new Class<?>[] { Referencing.class, Referenced.class, Unreferenced.class } ) {
+			final Path target = classesDir.resolve( testClass.getName().replace( '.', '/' ) + ".class" );
+			Files.createDirectories( target.getParent() );
+			Files.copy( classFile( testClass ), target );
+		}
+
+		final String hash = closureHash( classesDir, Referencing.class );
+		assertThat( closureHash( classesDir, Referencing.class ), is( hash ) );
+
+		// not referenced - does not affect the class
+		touch( classesDir, Unreferenced.class );
+		assertThat( closureHash( classesDir, Referencing.class ), is( hash ) );
+
+		touch( classesDir, Referenced.class );
+		assertThat( closureHash( classesDir, Referencing.class ), not( is( hash ) ) );
+	}
+
+	@Test
+	public void testJarReferences() throws Exception {
+		final Path classesDir = workDir.resolve( "classes" );
+		for ( Class<?> testClass : new Class<?>[] { Referencing.class, Unreferenced.class } ) {
+			copyClass( testClass, classesDir );
+		}
+		// `Referenced` is only found in a jar
+		final Path jar = workDir.resolve( "plugin.jar" );
+		writeJar( jar, Referenced.class );
+
+		final String hash = closureHash( classesDir, jar, Referencing.class );
+		final String unreferencedHash = closureHash( classesDir, jar, Unreferenced.class );
+
+		writeJar( jar, Referenced.class, Unreferenced.class );
+		assertThat( closureHash( classesDir, jar, Referencing.class ), not( is( hash ) ) );
+		// the classes not referring to the jar are not affected by it
+		assertThat( closureHash( classesDir, jar, Unreferenced.class ), is( unreferencedHash ) );
+	}
+
+	@Test
+	public void testSelectTests() throws Exception {
+		final Path classesDir = workDir.resolve( "classes" );
+		copyClass( BuildLogTests.class, classesDir );
+		copyClass( FailureBundleTests.class, classesDir );
+		final Path jar = workDir.resolve( "plugin.jar" );
+		writeJar( jar, BuildLog.class );
+
+		final Path baseDir = workDir.resolve( "projects" );
+		Files.createDirectories( baseDir.resolve( "simple" ) );
+		Files.write( baseDir.resolve( "simple/build.gradle" ), "apply plugin: 'java'".getBytes( UTF_8 ) );
+		final File indexFile = workDir.resolve( "testkit_projects.index" ).toFile();
+		FixtureIndex.build( baseDir.toFile() ).write( indexFile );
+
+		final Project project = ProjectBuilder.builder().withProjectDir( workDir.resolve( "project" ).toFile() ).build();
+		final SelectTestKitTestsTask task = project.getTasks().create( "selectTestKitTests", SelectTestKitTestsTask.class );
+		task.getTestClassesDirs().from( classesDir.toFile() );
+		task.getPluginClasspath().from( jar.toFile() );
+		task.getIndexFile().set( indexFile );
+		task.getUsageFile().set( workDir.resolve( "usage.tsv" ).toFile() );
+		task.getInputsFile().set( workDir.resolve( "selection/inputs.tsv" ).toFile() );
+		task.getSelectionFile().set( workDir.resolve( "selection/selected.txt" ).toFile() );
+
+		// nothing recorded yet
+		assertThat( selectTests( task ), is( Arrays.asList( BuildLogTests.class.getName(), FailureBundleTests.class.getName() ) ) );
+
+		// both passed, using the project
+		final Map<String, String> inputs = TestUsage.readInputs( task.getInputsFile().get().getAsFile() );
+		assertThat( inputs.get( "class:" + BuildLogTests.class.getName() ), notNullValue() );
+		assertThat( inputs.get( "fixture:simple" ), notNullValue() );
+		TestUsage.record(
+				task.getUsageFile().get().getAsFile(),
+				Arrays.asList(
+						new TestUsage.Record( BuildLogTests.class.getName(), true, usedInputs( inputs, BuildLogTests.class ) ),
+						new TestUsage.Record( FailureBundleTests.class.getName(), true, usedInputs( inputs, FailureBundleTests.class ) )
+				)
+		);
+		assertThat( selectTests( task ), is( Collections.emptyList() ) );
+
+		// only `BuildLogTests` refers to a class of the jar
+		writeJar( jar, BuildLog.class, Referenced.class );
+		assertThat( selectTests( task ), is( Collections.singletonList( BuildLogTests.class.getName() ) ) );
+
+		// the test task only considers the class files of the selected classes
+		copyClass( Referencing.class, classesDir );
+		final Set<String> selectedFiles = new TreeSet<>();
+		project.fileTree( classesDir.toFile() )
+				.matching( patterns -> patterns.include( new SelectTestKitTestsTask.SelectedClasses( task.getSelectionFile() ) ) )
+				.visit( details -> selectedFiles.add( details.getRelativePath().getPathString() ) );
+		assertThat( selectedFiles, hasItem( BuildLogTests.class.getName().replace( '.', '/' ) + ".class" ) );
+		assertThat( selectedFiles, not( hasItem( FailureBundleTests.class.getName().replace( '.', '/' ) + ".class" ) ) );
+		// a nested class of an unselected class
+		assertThat( selectedFiles, not( hasItem( Referencing.class.getName().replace( '.', '/' ) + ".class" ) ) );
+
+		final List<String> arguments = new ArrayList<>();
+		new SelectTestKitTestsTask.InputsArgument( task.getInputsFile() ).asArguments().forEach( arguments::add );
+		assertThat( arguments, is( Collections.singletonList( "-Dtestkit.selection-inputs=" + task.getInputsFile().get().getAsFile().getAbsolutePath() ) ) );
+		new SelectTestKitTestsTask.InputsArgument( project.getObjects().fileProperty() ).asArguments().forEach( arguments::add );
+		assertThat( arguments.size(), is( 1 ) );
+	}
+
+	private static Map<String, String> usedInputs(Map<String, String> inputs, Class<?> testClass) {
+		final Map<String, String> usedInputs = new HashMap<>();
+		usedInputs.put( "class:" + testClass.getName(), inputs.get( "class:" + testClass.getName() ) );
+		usedInputs.put( "fixture:simple", inputs.get( "fixture:simple" ) );
+		return usedInputs;
+	}
+
+	private static List<String> selectTests(SelectTestKitTestsTask task) throws IOException {
+		task.selectTests();
+		return SelectTestKitTestsTask.readSelection( task.getSelectionFile().get().getAsFile() );
+	}
+
+	private static void copyClass(Class<?> testClass, Path classesDir) throws Exception {
+		final Path target = classesDir.resolve( testClass.getName().replace( '.', '/' ) + ".class" );
+		Files.createDirectories( target.getParent() );
+		Files.copy( classFile( testClass ), target, StandardCopyOption.REPLACE_EXISTING );
+	}
+
+	private static void writeJar(Path jar, Class<?>... classes) throws Exception {
+		try ( ZipOutputStream zip = new ZipOutputStream( Files.newOutputStream( jar ) ) ) {
+			for ( Class<?> jarClass : classes ) {
+				zip.putNextEntry( new ZipEntry( jarClass.getName().replace( '.', '/' ) + ".class" ) );
+				Files.copy( classFile( jarClass ), zip );
+				zip.closeEntry();
+			}
+		}
+	}
+
+	private static String closureHash(Path classesDir, Path jar, Class<?> testClass) throws IOException {
+		final SelectTestKitTestsTask.ClassGraph classGraph = new SelectTestKitTestsTask.ClassGraph();
+		classGraph.addClassesDir( classesDir );
+		classGraph.addJar( jar, FixtureIndex.hash( jar ) );
+		return classGraph.hashClosure( testClass.getName() );
+	}
+
+	private static String closureHash(Path classesDir, Class<?> testClass) throws IOException {
+		final SelectTestKitTestsTask.ClassGraph classGraph = new SelectTestKitTestsTask.ClassGraph();
+		classGraph.addClassesDir( classesDir );
+		return classGraph.hashClosure( testClass.getName() );
+	}
+
+	private static void touch(Path classesDir, Class<?> testClass) throws IOException {
+		// trailing bytes are ignored when reading the constant pool
+		Files.write( classesDir.resolve( testClass.getName().replace( '.', '/' ) + ".class" ), new byte[] { 0 }, StandardOpenOption.APPEND );
+	}
+
+	private static Path classFile(Class<?> testClass) throws URISyntaxException {
+		final String name = testClass.getName().substring( testClass.getName().lastIndexOf( '.' ) + 1 ) + ".class";
+		return Paths.get( testClass.getResource( name ).toURI() );
+	}
+
+	private static Map<String, String> inputs(String... keysAndHashes) {
+		final Map<String, String> inputs = new HashMap<>();
+		for ( int i = 0; i < keysAndHashes.length; i += 2 ) {
+			inputs.put( keysAndHashes[i], keysAndHashes[i + 1] );
+		}
+		return inputs;
+	}
+
+	static class Referencing {
+		private final Referenced referenced = new Referenced();
+
+		String describe() {
+			return referenced + " " + TestUsage.read( null );
+		}
+	}
+
+	static class Referenced {
+	}
+
+	static class Unreferenced {
+	}
+}
@@ -0,0 +1,16 @@
+package com.github.sebersole.testkit;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the {@link java.nio.file.Path} field of a test to receive its work directory
+ *
+ * @see WorkDirExtension
+ */
+@Target( ElementType.FIELD )
+@Retention( RetentionPolicy.RUNTIME )
+public @interface WorkDir {
+}
@@ -0,0 +1,53 @@
+package com.github.sebersole.testkit;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+/**
+ * Gives each test its own directory under {@code build/tmp}, injected into the
+ * {@link WorkDir} fields of the test class before its {@code @BeforeEach} methods
+ * run and deleted after its {@code @AfterEach} methods ran - along the lines of
+ * the {@code @TempDir} of later JUnit versions
+ */
+public class WorkDirExtension implements BeforeEachCallback, AfterEachCallback {
+	private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create( WorkDirExtension.class );
+	private static final String WORK_DIR_KEY = "work-dir";
+
+	@Override
+	public void beforeEach(ExtensionContext extensionContext) throws Exception {
+		final Object testInstance = extensionContext.getRequiredTestInstance();
+		final Path tmpDir = Files.createDirectories( Paths.get( "build", "tmp" ).toAbsolutePath() );
+		final Path workDir = Files.createTempDirectory( tmpDir, testInstance.getClass().getSimpleName() );
+		extensionContext.getStore( NAMESPACE ).put( WORK_DIR_KEY, workDir );
+
+		for ( Class<?> type = testInstance.getClass(); type != Object.class; type = type.getSuperclass() ) {
+			for ( Field field : type.getDeclaredFields() ) {
+				if ( field.isAnnotationPresent( WorkDir.class ) ) {
+					field.setAccessible( true );
+					field.set( testInstance, workDir );
+				}
+			}
+		}
+	}
+
+	@Override
+	public void afterEach(ExtensionContext extensionContext) throws Exception {
+		final Path workDir = extensionContext.getStore( NAMESPACE ).remove( WORK_DIR_KEY, Path.class );
+		if ( workDir == null ) {
+			return;
+		}
+
+		try ( Stream<Path> paths = Files.walk( workDir ) ) {
+			paths.sorted( Collections.reverseOrder() ).map( Path::toFile ).forEach( File::delete );
+		}
+	}
+}